@@ -143,6 +143,46 @@ JNIEXPORT void JNICALL Java_jdd_JDD_DD_1Deref
 JNIEXPORT void JNICALL Java_jdd_JDD_DD_1PrintCacheInfo
   (JNIEnv *, jclass);
 
+/*
+ * Class:     jdd_JDD
+ * Method:    DD_MakeVarGroup
+ * Signature: (IIZ)V
+ */
+JNIEXPORT void JNICALL Java_jdd_JDD_DD_1MakeVarGroup
+  (JNIEnv *, jclass, jint, jint, jboolean);
+
+/*
+ * Class:     jdd_JDD
+ * Method:    DD_FreeVarGroups
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_jdd_JDD_DD_1FreeVarGroups
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     jdd_JDD
+ * Method:    DD_ReorderSift
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_jdd_JDD_DD_1ReorderSift
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     jdd_JDD
+ * Method:    DD_GetVarLevel
+ * Signature: (I)I
+ */
+JNIEXPORT jint JNICALL Java_jdd_JDD_DD_1GetVarLevel
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     jdd_JDD
+ * Method:    DD_ResetVarOrder
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_jdd_JDD_DD_1ResetVarOrder
+  (JNIEnv *, jclass);
+
 /*
  * Class:     jdd_JDD
  * Method:    DD_GetErrorFlag
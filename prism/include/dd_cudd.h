@@ -35,6 +35,11 @@ DdManager *DD_InitialiseCUDD(long maxmem, double epsilon);
 void DD_SetCUDDMaxMem(DdManager *ddman, long max_mem);
 void DD_SetCUDDEpsilon(DdManager *ddman, double epsilon);
 void DD_PrintCacheInfo(DdManager *ddman);
+void DD_MakeVarGroup(DdManager *ddman, int low, int size, bool fixed);
+void DD_FreeVarGroups(DdManager *ddman);
+bool DD_ReorderSift(DdManager *ddman);
+int DD_GetVarLevel(DdManager *ddman, int index);
+bool DD_ResetVarOrder(DdManager *ddman);
 void DD_CloseDownCUDD(DdManager *ddman);
 void DD_CloseDownCUDD(DdManager *ddman, bool check);
 void DD_ReportExternalRefCounts(DdManager *ddman);
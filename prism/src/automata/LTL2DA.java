@@ -27,15 +27,26 @@
 
 package automata;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import jhoafparser.consumer.HOAIntermediateStoreAndManipulate;
 import jhoafparser.parser.HOAFParser;
@@ -59,6 +70,8 @@ import acceptance.AcceptanceType;
  */
 public class LTL2DA extends PrismComponent
 {
+	/** Pattern for the (safe) APs p0, p1, ... in formulas for the external tool */
+	private static final Pattern AP_PATTERN = Pattern.compile("\\bp(\\d+)\\b");
 
 	public LTL2DA(PrismComponent parent)
 	{
@@ -146,6 +159,8 @@ public class LTL2DA extends PrismComponent
 			throws PrismException
 	{
 		String ltl2daTool = getSettings().getString(PrismSettings.PRISM_LTL2DA_TOOL);
+		String syntax = getSettings().getString(PrismSettings.PRISM_LTL2DA_SYNTAX);
+		String cacheDir = getSettings().getString(PrismSettings.PRISM_LTL2DA_CACHE_DIR);
 
 		SimpleLTL ltlFormula = ltl.convertForJltl2ba();
 
@@ -156,108 +171,47 @@ public class LTL2DA extends PrismComponent
 
 		DA<BitSet, ? extends AcceptanceOmega> result = null;
 
-		try {
-
-			String syntax = getSettings().getString(PrismSettings.PRISM_LTL2DA_SYNTAX);
-			if (syntax == null || syntax.isEmpty()) {
-				throw new PrismException("No LTL syntax option provided");
-			}
-			String ltlOutput;
-			switch (syntax) {
-			case "LBT":
-				ltlOutput = ltlFormulaSafeAP.toStringLBT();
-				break;
-			case "Spin":
-				ltlOutput = ltlFormulaSafeAP.toStringSpin();
-				break;
-			case "Spot":
-				ltlOutput = ltlFormulaSafeAP.toStringSpot();
-				break;
-			case "Rabinizer":
-				ltlFormulaSafeAP = ltlFormulaSafeAP.toBasicOperators();
-				ltlOutput = ltlFormulaSafeAP.toStringSpot();
-				break;
-			default:
-				throw new PrismException("Unknown LTL syntax option \"" + syntax + "\"");
-			}
-
-			File ltl_file = File.createTempFile("prism-ltl-external-", ".ltl", null);
-			File da_file = File.createTempFile("prism-ltl-external-", ".hoa", null);
-			File tool_output = File.createTempFile("prism-ltl-external-", ".output", null);
-
-			FileWriter ltlWriter = new FileWriter(ltl_file);
-			ltlWriter.write(ltlOutput);
-			ltlWriter.close();
-
-			List<String> arguments = new ArrayList<>();
-			arguments.add(ltl2daTool);
-
-			getLog().print("Calling external LTL->DA tool: ");
-			for (String s : arguments) {
-				getLog().print(" " + s);
-			}
-			getLog().println();
-
-			getLog().print("LTL formula (in " + syntax + " syntax):  ");
-			getLog().println(ltlOutput);
-			getLog().println();
+		// the formula passed to the tool (and used to look up the cache) has normalised APs,
+		// apNames gives the original (safe) AP for each one
+		List<String> apNames = new ArrayList<>();
+		String ltlOutput = normaliseAPs(toExternalSyntax(ltlFormulaSafeAP, syntax), apNames);
+		String key = cacheKey(ltl2daTool, syntax, ltlOutput);
 
-			arguments.add(ltl_file.getAbsolutePath());
-			arguments.add(da_file.getAbsolutePath());
-
-			ProcessBuilder builder = new ProcessBuilder(arguments);
-			builder.redirectOutput(tool_output);
-			builder.redirectErrorStream(true);
-
-			// if we are running under the Nailgun environment, setup the
-			// environment to include the environment variables of the Nailgun client
-			prism.PrismNG.setupChildProcessEnvironment(builder);
+		File ltl_file = null;
+		File da_file = null;
+		try {
+			String hoa = LTL2DACache.lookup(key, cacheDir);
+			if (hoa != null) {
+				getLog().println("Taking automaton for LTL formula (in " + syntax + " syntax) " + ltlOutput + " from LTL->DA cache...");
+			} else {
+				ltl_file = File.createTempFile("prism-ltl-external-", ".ltl", null);
+				da_file = File.createTempFile("prism-ltl-external-", ".hoa", null);
 
-			Process p = builder.start();
-			p.getInputStream().close();
+				getLog().println("Calling external LTL->DA tool:  " + ltl2daTool);
+				getLog().print("LTL formula (in " + syntax + " syntax):  ");
+				getLog().println(ltlOutput);
+				getLog().println();
 
-			int rv;
-			while (true) {
-				try {
-					rv = p.waitFor();
-					break;
-				} catch (InterruptedException e) {
-				}
+				hoa = runExternalTool(ltl2daTool, ltlOutput, ltl_file, da_file);
 			}
-			if (rv != 0) {
-				throw new PrismException(
-						"Call to external LTL->DA tool failed, return value = " + rv + ".\n" + "To investigate, please consult the following files:"
-								+ "\n LTL formula:                     " + ltl_file.getAbsolutePath() + "\n Automaton output:                "
-								+ da_file.getAbsolutePath() + "\n Tool output (stdout and stderr): " + tool_output.getAbsolutePath() + "\n");
-			}
-
-			tool_output.delete();
 
 			try {
-				try {
-					HOAF2DA consumerDA = new HOAF2DA();
-
-					InputStream input = new FileInputStream(da_file);
-					HOAFParser.parseHOA(input, consumerDA);
-					result = consumerDA.getDA();
-				} catch (HOAF2DA.TransitionBasedAcceptanceException e) {
-					// try again, this time transforming to state acceptance
-					getLog().println("Automaton with transition-based acceptance, automatically converting to state-based acceptance...");
-					HOAF2DA consumerDA = new HOAF2DA();
-					HOAIntermediateStoreAndManipulate consumerTransform = new HOAIntermediateStoreAndManipulate(consumerDA, new ToStateAcceptance());
-
-					InputStream input = new FileInputStream(da_file);
-					HOAFParser.parseHOA(input, consumerTransform);
-					result = consumerDA.getDA();
-				}
-
+				result = parseHOA(hoa, true);
 				if (result == null) {
 					throw new PrismException("Could not construct DA");
 				}
-				checkAPs(ltlFormulaSafeAP, result.getAPList());
 
-				// rename back from safe APs, i.e., p0, p1, ... to L0, L1, ...
+				// rename back from normalised APs to the original (safe) ones
 				List<String> automatonAPList = result.getAPList();
+				for (int i = 0; i < automatonAPList.size(); i++) {
+					Matcher m = AP_PATTERN.matcher(automatonAPList.get(i));
+					if (m.matches() && Integer.parseInt(m.group(1)) < apNames.size()) {
+						automatonAPList.set(i, apNames.get(Integer.parseInt(m.group(1))));
+					}
+				}
+				checkAPs(ltlFormulaSafeAP, automatonAPList);
+
+				// rename back from safe APs, i.e., p0, p1, ... to L0, L1, ...
 				for (int i = 0; i < automatonAPList.size(); i++) {
 					if (automatonAPList.get(i).startsWith("p")) {
 						String renamed = "L" + automatonAPList.get(i).substring("p".length());
@@ -265,15 +219,21 @@ public class LTL2DA extends PrismComponent
 					}
 				}
 			} catch (ParseException e) {
-				throw new PrismException("Parse error: " + e.getMessage() + ".\n" + "To investigate, please consult the following files:\n"
-						+ " LTL formula:        " + ltl_file.getAbsolutePath() + "\n Automaton output: " + da_file.getAbsolutePath() + "\n");
+				throw new PrismException("Parse error: " + e.getMessage() + ".\n" + getInvestigateMessage(ltl_file, da_file));
 			} catch (PrismException e) {
-				throw new PrismException(e.getMessage() + ".\n" + "To investigate, please consult the following files:" + "\n LTL formula: "
-						+ ltl_file.getAbsolutePath() + "\n Automaton output: " + da_file.getAbsolutePath() + "\n");
+				throw new PrismException(e.getMessage() + ".\n" + getInvestigateMessage(ltl_file, da_file));
 			}
 
-			da_file.delete();
-			ltl_file.delete();
+			// store a newly generated automaton in the cache
+			if (da_file != null) {
+				try {
+					LTL2DACache.store(key, hoa, cacheDir);
+				} catch (PrismException e) {
+					getLog().printWarning(e.getMessage());
+				}
+				da_file.delete();
+				ltl_file.delete();
+			}
 		} catch (IOException e) {
 			throw new PrismException(e.getMessage());
 		}
@@ -292,6 +252,247 @@ public class LTL2DA extends PrismComponent
 		}
 	}
 
+	/**
+	 * Translate a list of LTL formulas with the external LTL->DA tool (if one is used), in parallel,
+	 * storing the results in the LTL->DA cache (see {@link LTL2DACache}), from where they are taken
+	 * by later calls to {@link #convertLTLFormulaToDA(Expression, Values, AcceptanceType...)}.
+	 * Each distinct formula (up to renaming of APs) that is not already cached is translated once.
+	 * Failed translations are just reported as warnings, since the error will recur
+	 * (and be reported properly) if the automaton is actually needed.
+	 * The number of threads used is given by the {@link PrismSettings#PRISM_NUM_THREADS} setting;
+	 * translations are run on the thread pool shared via the settings (or directly, if single-threaded).
+	 * @param ltls the formulas, in which atomic propositions are represented by ExpressionLabel objects
+	 */
+	public void precomputeWithExternalTool(List<Expression> ltls) throws PrismException
+	{
+		if (!useExternal()) {
+			return;
+		}
+		final String ltl2daTool = getSettings().getString(PrismSettings.PRISM_LTL2DA_TOOL);
+		String syntax = getSettings().getString(PrismSettings.PRISM_LTL2DA_SYNTAX);
+		final String cacheDir = getSettings().getString(PrismSettings.PRISM_LTL2DA_CACHE_DIR);
+
+		// Collect the formulas (in the tool's syntax, with normalised APs) still to be translated
+		Map<String, String> todo = new LinkedHashMap<>();
+		for (Expression ltl : ltls) {
+			if (Expression.containsTemporalTimeBounds(ltl)) {
+				continue;
+			}
+			SimpleLTL ltlFormulaSafeAP = ltl.convertForJltl2ba().clone();
+			ltlFormulaSafeAP.renameAP("L", "p");
+			String ltlOutput = normaliseAPs(toExternalSyntax(ltlFormulaSafeAP, syntax), new ArrayList<String>());
+			String key = cacheKey(ltl2daTool, syntax, ltlOutput);
+			if (!todo.containsKey(key) && !LTL2DACache.contains(key, cacheDir)) {
+				todo.put(key, ltlOutput);
+			}
+		}
+		if (todo.isEmpty()) {
+			return;
+		}
+
+		int numThreads = Math.max(1, Math.min(getSettings().getInteger(PrismSettings.PRISM_NUM_THREADS), todo.size()));
+		getLog().println("\nTranslating " + todo.size() + " LTL formula(s) with external LTL->DA tool, using " + numThreads + " thread(s)...");
+		long timer = System.currentTimeMillis();
+		ForkJoinPool pool = numThreads > 1 ? getSettings().getThreadPool() : null;
+		Map<String, Future<?>> futures = new LinkedHashMap<>();
+		try {
+			for (final Map.Entry<String, String> entry : todo.entrySet()) {
+				FutureTask<Object> task = new FutureTask<>(new Callable<Object>()
+				{
+					@Override
+					public Object call() throws Exception
+					{
+						File ltl_file = File.createTempFile("prism-ltl-external-", ".ltl", null);
+						File da_file = File.createTempFile("prism-ltl-external-", ".hoa", null);
+						String hoa = runExternalTool(ltl2daTool, entry.getValue(), ltl_file, da_file);
+						// check that the output can be parsed, before caching it
+						if (parseHOA(hoa, false) == null) {
+							throw new PrismException("Could not construct DA.\n" + getInvestigateMessage(ltl_file, da_file));
+						}
+						LTL2DACache.store(entry.getKey(), hoa, cacheDir);
+						da_file.delete();
+						ltl_file.delete();
+						return null;
+					}
+				});
+				futures.put(entry.getValue(), task);
+				if (pool != null)
+					pool.execute(task);
+				else
+					task.run();
+			}
+			for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (ExecutionException e) {
+					getLog().printWarning("Translation of LTL formula " + entry.getKey() + " failed: " + e.getCause().getMessage());
+				} catch (InterruptedException e) {
+					throw new PrismException("Interrupted during translation of LTL formulas");
+				}
+			}
+		} finally {
+			// Cancel any translations still pending (only relevant if interrupted)
+			for (Future<?> future : futures.values()) {
+				future.cancel(true);
+			}
+		}
+		timer = System.currentTimeMillis() - timer;
+		getLog().println("Time for LTL translations: " + timer / 1000.0 + " seconds.");
+	}
+
+	/**
+	 * Run the external LTL->DA tool on a formula (already in the tool's syntax)
+	 * and return the automaton that it produced, as HOA text.
+	 * @param ltl2daTool the tool
+	 * @param ltlOutput the formula
+	 * @param ltl_file file to write the formula to
+	 * @param da_file file for the tool to write the automaton to
+	 */
+	private static String runExternalTool(String ltl2daTool, String ltlOutput, File ltl_file, File da_file) throws PrismException, IOException
+	{
+		File tool_output = File.createTempFile("prism-ltl-external-", ".output", null);
+
+		FileWriter ltlWriter = new FileWriter(ltl_file);
+		ltlWriter.write(ltlOutput);
+		ltlWriter.close();
+
+		List<String> arguments = new ArrayList<>();
+		arguments.add(ltl2daTool);
+		arguments.add(ltl_file.getAbsolutePath());
+		arguments.add(da_file.getAbsolutePath());
+
+		ProcessBuilder builder = new ProcessBuilder(arguments);
+		builder.redirectOutput(tool_output);
+		builder.redirectErrorStream(true);
+
+		// if we are running under the Nailgun environment, setup the
+		// environment to include the environment variables of the Nailgun client
+		prism.PrismNG.setupChildProcessEnvironment(builder);
+
+		Process p = builder.start();
+		p.getInputStream().close();
+
+		int rv;
+		while (true) {
+			try {
+				rv = p.waitFor();
+				break;
+			} catch (InterruptedException e) {
+			}
+		}
+		if (rv != 0) {
+			throw new PrismException("Call to external LTL->DA tool failed, return value = " + rv + ".\n" + "To investigate, please consult the following files:"
+					+ "\n LTL formula:                     " + ltl_file.getAbsolutePath() + "\n Automaton output:                "
+					+ da_file.getAbsolutePath() + "\n Tool output (stdout and stderr): " + tool_output.getAbsolutePath() + "\n");
+		}
+
+		tool_output.delete();
+
+		return new String(Files.readAllBytes(da_file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a deterministic automaton in HOA format,
+	 * converting transition-based to state-based acceptance if required.
+	 * @param hoa the automaton
+	 * @param verbose print a message to the log in case of conversion?
+	 */
+	private DA<BitSet, ? extends AcceptanceOmega> parseHOA(String hoa, boolean verbose) throws ParseException
+	{
+		// The (generated) HOA parser is static, so not thread-safe, but this
+		// may be called from several threads by precomputeWithExternalTool
+		synchronized (HOAFParser.class) {
+			return parseHOAUnsynchronized(hoa, verbose);
+		}
+	}
+
+	private DA<BitSet, ? extends AcceptanceOmega> parseHOAUnsynchronized(String hoa, boolean verbose) throws ParseException
+	{
+		try {
+			HOAF2DA consumerDA = new HOAF2DA();
+
+			InputStream input = new ByteArrayInputStream(hoa.getBytes(StandardCharsets.UTF_8));
+			HOAFParser.parseHOA(input, consumerDA);
+			return consumerDA.getDA();
+		} catch (HOAF2DA.TransitionBasedAcceptanceException e) {
+			// try again, this time transforming to state acceptance
+			if (verbose) {
+				getLog().println("Automaton with transition-based acceptance, automatically converting to state-based acceptance...");
+			}
+			HOAF2DA consumerDA = new HOAF2DA();
+			HOAIntermediateStoreAndManipulate consumerTransform = new HOAIntermediateStoreAndManipulate(consumerDA, new ToStateAcceptance());
+
+			InputStream input = new ByteArrayInputStream(hoa.getBytes(StandardCharsets.UTF_8));
+			HOAFParser.parseHOA(input, consumerTransform);
+			return consumerDA.getDA();
+		}
+	}
+
+	/**
+	 * Convert an LTL formula (with p0, p1, ... APs) to a string in the given syntax for the external tool.
+	 */
+	private static String toExternalSyntax(SimpleLTL ltlFormulaSafeAP, String syntax) throws PrismException
+	{
+		if (syntax == null || syntax.isEmpty()) {
+			throw new PrismException("No LTL syntax option provided");
+		}
+		switch (syntax) {
+		case "LBT":
+			return ltlFormulaSafeAP.toStringLBT();
+		case "Spin":
+			return ltlFormulaSafeAP.toStringSpin();
+		case "Spot":
+			return ltlFormulaSafeAP.toStringSpot();
+		case "Rabinizer":
+			return ltlFormulaSafeAP.toBasicOperators().toStringSpot();
+		default:
+			throw new PrismException("Unknown LTL syntax option \"" + syntax + "\"");
+		}
+	}
+
+	/**
+	 * Normalise the APs (p0, p1, ...) in a formula for the external tool, by renumbering them in order of
+	 * first occurrence, so that formulas differing only in the numbering of APs share the same automaton.
+	 * The original AP for each normalised one is added to {@code apNames}, which should be empty.
+	 */
+	private static String normaliseAPs(String ltlOutput, List<String> apNames)
+	{
+		Matcher m = AP_PATTERN.matcher(ltlOutput);
+		StringBuffer sb = new StringBuffer();
+		while (m.find()) {
+			int k = apNames.indexOf(m.group());
+			if (k == -1) {
+				k = apNames.size();
+				apNames.add(m.group());
+			}
+			m.appendReplacement(sb, "p" + k);
+		}
+		m.appendTail(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Get the key for the LTL->DA cache for a formula (in the tool's syntax, with normalised APs).
+	 * Since the acceptance types required are only applied after the tool has been called,
+	 * these are not part of the key.
+	 */
+	private static String cacheKey(String ltl2daTool, String syntax, String ltlOutput)
+	{
+		return "tool: " + ltl2daTool + "\nsyntax: " + syntax + "\nformula: " + ltlOutput;
+	}
+
+	/**
+	 * Get a message telling the user where to look to investigate a failed translation.
+	 */
+	private static String getInvestigateMessage(File ltl_file, File da_file)
+	{
+		if (ltl_file == null) {
+			return "The automaton was taken from the LTL->DA cache.\n";
+		}
+		return "To investigate, please consult the following files:\n" + " LTL formula:        " + ltl_file.getAbsolutePath() + "\n Automaton output: "
+				+ da_file.getAbsolutePath() + "\n";
+	}
+
 	/** Check whether we should use an external LTL->DA tool */
 	private boolean useExternal()
 	{
@@ -0,0 +1,136 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+
+package automata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import prism.PrismException;
+
+/**
+ * Cache for automata produced by an external LTL->DA tool, stored as the (HOA format) text output by the tool.
+ * Entries are kept in memory, shared by all users of the cache, and optionally also as files
+ * in a directory, so that they can be reused across runs. Keys are arbitrary strings
+ * (see {@link LTL2DA} for how these are formed); cache files are named after a hash of the key.
+ */
+public class LTL2DACache
+{
+	/** In-memory cache: key -> HOA text */
+	private static final Map<String, String> memoryCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Look up the automaton for a key, first in memory and then (if {@code dir} is non-empty) on disk.
+	 * Returns null if there is no entry.
+	 * @param key The key
+	 * @param dir The cache directory (null or empty if none)
+	 */
+	public static String lookup(String key, String dir) throws PrismException
+	{
+		String hoa = memoryCache.get(key);
+		if (hoa == null && dir != null && !dir.isEmpty()) {
+			File file = getCacheFile(key, dir);
+			if (file.isFile()) {
+				try {
+					hoa = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+				} catch (IOException e) {
+					throw new PrismException("Could not read from LTL->DA cache file \"" + file + "\": " + e.getMessage());
+				}
+				memoryCache.put(key, hoa);
+			}
+		}
+		return hoa;
+	}
+
+	/**
+	 * Store the automaton for a key, in memory and (if {@code dir} is non-empty) on disk.
+	 * Files are written atomically, so the directory can be shared by concurrent runs.
+	 * @param key The key
+	 * @param hoa The automaton, in HOA format
+	 * @param dir The cache directory (null or empty if none)
+	 */
+	public static void store(String key, String hoa, String dir) throws PrismException
+	{
+		memoryCache.put(key, hoa);
+		if (dir != null && !dir.isEmpty()) {
+			File file = getCacheFile(key, dir);
+			try {
+				File dirFile = file.getParentFile();
+				if (!dirFile.isDirectory() && !dirFile.mkdirs()) {
+					throw new IOException("could not create directory");
+				}
+				File tmpFile = File.createTempFile("prism-ltl-cache-", ".tmp", dirFile);
+				Files.write(tmpFile.toPath(), hoa.getBytes(StandardCharsets.UTF_8));
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				throw new PrismException("Could not write to LTL->DA cache directory \"" + dir + "\": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Check whether there is an entry for a key, in memory or (if {@code dir} is non-empty) on disk.
+	 */
+	public static boolean contains(String key, String dir)
+	{
+		return memoryCache.containsKey(key) || (dir != null && !dir.isEmpty() && getCacheFile(key, dir).isFile());
+	}
+
+	/**
+	 * Clear the in-memory cache (any cache files are left untouched).
+	 */
+	public static void clear()
+	{
+		memoryCache.clear();
+	}
+
+	/**
+	 * Get the file for a key in a cache directory, named after its SHA-256 hash.
+	 */
+	private static File getCacheFile(String key, String dir)
+	{
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			byte digest[] = md.digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest) {
+				sb.append(String.format("%02x", b));
+			}
+			return new File(dir, sb.toString() + ".hoa");
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is available in all Java platforms
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -103,6 +103,67 @@ void DD_PrintCacheInfo(DdManager *ddman)
 
 //-----------------------------------------------------------------------------------
 
+// Dynamic variable reordering.
+// Note that the rest of PRISM assumes that the order of DD variable indices
+// matches the order of levels, so reordering is only used to find a good
+// ordering, which should be reset with DD_ResetVarOrder afterwards.
+
+// Group the size DD variables currently at the levels starting with that of
+// variable index low, such that they are kept together by DD_ReorderSift.
+// If fixed is true, the order within the group is also kept; otherwise,
+// the variables (or subgroups) inside are reordered too.
+// Groups can be nested, but should be created outermost first.
+
+void DD_MakeVarGroup(DdManager *ddman, int low, int size, bool fixed)
+{
+	if (Cudd_MakeTreeNode(ddman, low, size, fixed ? MTR_FIXED : MTR_DEFAULT) == NULL) dd_cudd_error_flag = true;
+}
+
+//-----------------------------------------------------------------------------------
+
+void DD_FreeVarGroups(DdManager *ddman)
+{
+	Cudd_FreeTree(ddman);
+}
+
+//-----------------------------------------------------------------------------------
+
+// Reorder DD variables (or groups of them) by sifting; returns false if reordering failed
+
+bool DD_ReorderSift(DdManager *ddman)
+{
+	Cudd_SetGroupcheck(ddman, CUDD_NO_CHECK);
+	return Cudd_ReduceHeap(ddman, CUDD_REORDER_GROUP_SIFT, 0) == 1;
+}
+
+//-----------------------------------------------------------------------------------
+
+int DD_GetVarLevel(DdManager *ddman, int index)
+{
+	return Cudd_ReadPerm(ddman, index);
+}
+
+//-----------------------------------------------------------------------------------
+
+// Restore the original order of DD variables, i.e. so that the variable
+// at each level has the same index; returns false if reordering failed
+
+bool DD_ResetVarOrder(DdManager *ddman)
+{
+	int i, n;
+	int *perm;
+	bool res;
+	
+	n = Cudd_ReadSize(ddman);
+	perm = new int[n];
+	for (i = 0; i < n; i++) perm[i] = i;
+	res = Cudd_ShuffleHeap(ddman, perm) == 1;
+	delete[] perm;
+	return res;
+}
+
+//-----------------------------------------------------------------------------------
+
 void DD_CloseDownCUDD(DdManager *ddman) { DD_CloseDownCUDD(ddman, true); }
 void DD_CloseDownCUDD(DdManager *ddman, bool check)
 {
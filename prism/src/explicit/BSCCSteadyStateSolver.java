@@ -0,0 +1,442 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import prism.PrismException;
+import prism.PrismUtils;
+
+/**
+ * Computation of steady-state probabilities for the BSCCs of a DTMC, each one solved separately.
+ * <br><br>
+ * The transitions of each BSCC are first extracted into a compact local matrix
+ * (stored by column, i.e. incoming transitions for each state, indexed locally within the BSCC).
+ * Tiny BSCCs are then solved directly, using Gaussian elimination (with partial pivoting) on a dense matrix;
+ * others are solved with Gauss-Seidel (or SOR), normalising the solution after each iteration.
+ * So, the cost for each BSCC depends only on its own size, not that of the whole DTMC.
+ * Since BSCCs are independent, several can be solved in parallel if more than one thread is requested.
+ */
+public class BSCCSteadyStateSolver
+{
+	/** Maximum size of BSCC to be solved directly (larger ones are solved iteratively) */
+	public static final int DIRECT_MAX_SIZE = 64;
+
+	/** The DTMC */
+	private DTMC dtmc;
+	/** Termination criterion for iterative solution (absolute or relative) */
+	private boolean absolute = false;
+	/** Parameter for termination criterion */
+	private double termCritParam = 1e-8;
+	/** Maximum number of iterations */
+	private int maxIters = 100000;
+	/** Over-relaxation parameter (1.0 means Gauss-Seidel) */
+	private double omega = 1.0;
+	/** Thread pool for solving BSCCs in parallel (null means solve them serially) */
+	private ExecutorService pool = null;
+
+	/** Index of each state within its BSCC (for states in BSCCs being solved) */
+	private int localIndex[];
+
+	// Statistics from the last call to solve()
+	private int numDirect;
+	private int numIterative;
+	private int maxItersTaken;
+	private int numNotConverged;
+
+	/**
+	 * Create a solver for the BSCCs of a DTMC.
+	 */
+	public BSCCSteadyStateSolver(DTMC dtmc)
+	{
+		this.dtmc = dtmc;
+	}
+
+	// Settings
+
+	/**
+	 * Set the termination criterion for iterative solution.
+	 * @param absolute Use absolute (rather than relative) differences?
+	 * @param termCritParam Maximum difference between successive iterations
+	 */
+	public void setTermCrit(boolean absolute, double termCritParam)
+	{
+		this.absolute = absolute;
+		this.termCritParam = termCritParam;
+	}
+
+	/**
+	 * Set the maximum number of iterations (per BSCC) for iterative solution.
+	 */
+	public void setMaxIters(int maxIters)
+	{
+		this.maxIters = maxIters;
+	}
+
+	/**
+	 * Set the over-relaxation parameter (1.0, the default, means Gauss-Seidel).
+	 */
+	public void setOmega(double omega)
+	{
+		this.omega = omega;
+	}
+
+	/**
+	 * Set the thread pool used to solve BSCCs in parallel (null, the default, means serially).
+	 * The pool belongs to the caller and is not shut down by this solver.
+	 */
+	public void setThreadPool(ExecutorService pool)
+	{
+		this.pool = pool;
+	}
+
+	// Statistics
+
+	/**
+	 * Get the number of BSCCs solved directly (in the last call to {@link #solve}).
+	 */
+	public int getNumDirect()
+	{
+		return numDirect;
+	}
+
+	/**
+	 * Get the number of BSCCs solved iteratively (in the last call to {@link #solve}).
+	 */
+	public int getNumIterative()
+	{
+		return numIterative;
+	}
+
+	/**
+	 * Get the maximum number of iterations taken for any BSCC (in the last call to {@link #solve}).
+	 */
+	public int getMaxItersTaken()
+	{
+		return maxItersTaken;
+	}
+
+	/**
+	 * Get the number of BSCCs for which iterative solution did not converge (in the last call to {@link #solve}).
+	 */
+	public int getNumNotConverged()
+	{
+		return numNotConverged;
+	}
+
+	// Solution
+
+	/**
+	 * Compute steady-state probabilities for each of a list of BSCCs of the DTMC,
+	 * i.e. the long-run probability of being in each state of the BSCC, having entered it.
+	 * The probabilities are stored in the relevant portions of the vector {@code result}
+	 * (whose size equals the number of states in the DTMC); other entries are not changed.
+	 * @param bsccs The BSCCs to be analysed (must be disjoint)
+	 * @param result Storage for result
+	 */
+	public void solve(List<BitSet> bsccs, final double result[]) throws PrismException
+	{
+		numDirect = numIterative = maxItersTaken = numNotConverged = 0;
+		localIndex = new int[dtmc.getNumStates()];
+		// Convert BSCCs to (sorted) arrays of states and build mapping to local indices
+		List<int[]> bsccStates = new ArrayList<>(bsccs.size());
+		for (BitSet bscc : bsccs) {
+			int states[] = new int[bscc.cardinality()];
+			int j = 0;
+			for (int s = bscc.nextSetBit(0); s >= 0; s = bscc.nextSetBit(s + 1)) {
+				localIndex[s] = j;
+				states[j++] = s;
+			}
+			bsccStates.add(states);
+		}
+		// Serial solution
+		if (pool == null || bsccs.size() <= 1) {
+			for (int states[] : bsccStates) {
+				recordIters(solveBSCC(states, result));
+			}
+		}
+		// Parallel solution (largest BSCCs first, for better load balancing)
+		else {
+			Collections.sort(bsccStates, new Comparator<int[]>()
+			{
+				@Override
+				public int compare(int[] a, int[] b)
+				{
+					return Integer.compare(b.length, a.length);
+				}
+			});
+			List<Future<Integer>> futures = new ArrayList<>(bsccStates.size());
+			try {
+				for (final int states[] : bsccStates) {
+					futures.add(pool.submit(new Callable<Integer>()
+					{
+						@Override
+						public Integer call()
+						{
+							return solveBSCC(states, result);
+						}
+					}));
+				}
+				for (Future<Integer> future : futures) {
+					recordIters(future.get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PrismException("Steady-state computation was interrupted");
+			} catch (ExecutionException e) {
+				throw new PrismException("Error during steady-state computation: " + e.getCause());
+			} finally {
+				// Cancel any remaining tasks (only relevant if something went wrong)
+				for (Future<Integer> future : futures) {
+					future.cancel(true);
+				}
+			}
+		}
+		localIndex = null;
+	}
+
+	/**
+	 * Update statistics, given the number of iterations taken for a BSCC
+	 * (0 for direct solution, negative if iterative solution did not converge).
+	 */
+	private void recordIters(int iters)
+	{
+		if (iters == 0) {
+			numDirect++;
+		} else {
+			numIterative++;
+			if (iters < 0) {
+				numNotConverged++;
+				iters = -iters;
+			}
+			maxItersTaken = Math.max(maxItersTaken, iters);
+		}
+	}
+
+	/**
+	 * Compute steady-state probabilities for a single BSCC, with states {@code states} (sorted),
+	 * storing them in the relevant portion of {@code result}.
+	 * Returns the number of iterations taken (0 for direct solution, negated if not converged).
+	 */
+	private int solveBSCC(int states[], double result[])
+	{
+		int m = states.length;
+		// Trivial case
+		if (m == 1) {
+			result[states[0]] = 1.0;
+			return 0;
+		}
+		// Extract the (transposed) local matrix
+		LocalMatrix mat = new LocalMatrix(states);
+		double soln[] = new double[m];
+		int iters = 0;
+		if (m > DIRECT_MAX_SIZE || !solveDirect(mat, soln)) {
+			iters = solveGaussSeidel(mat, soln);
+		}
+		for (int j = 0; j < m; j++) {
+			result[states[j]] = soln[j];
+		}
+		return iters;
+	}
+
+	/**
+	 * Transition probabilities for a BSCC, stored by column (i.e. incoming transitions),
+	 * with the diagonal stored separately.
+	 */
+	private class LocalMatrix
+	{
+		/** Number of states */
+		int m;
+		/** Incoming transitions for local state j are from local states rows[k] with probability probs[k],
+		 * for k from colStarts[j] to colStarts[j+1]-1 (excluding self-loops) */
+		int colStarts[];
+		int rows[];
+		double probs[];
+		/** Self-loop probability for each local state */
+		double diags[];
+
+		LocalMatrix(int states[])
+		{
+			int i, j, k;
+			m = states.length;
+			colStarts = new int[m + 1];
+			diags = new double[m];
+			// First pass: count incoming transitions
+			for (i = 0; i < m; i++) {
+				Iterator<Map.Entry<Integer, Double>> it = dtmc.getTransitionsIterator(states[i]);
+				while (it.hasNext()) {
+					j = localIndex[it.next().getKey()];
+					if (j != i)
+						colStarts[j + 1]++;
+				}
+			}
+			for (j = 0; j < m; j++) {
+				colStarts[j + 1] += colStarts[j];
+			}
+			// Second pass: store them
+			rows = new int[colStarts[m]];
+			probs = new double[colStarts[m]];
+			int pos[] = new int[m];
+			System.arraycopy(colStarts, 0, pos, 0, m);
+			for (i = 0; i < m; i++) {
+				Iterator<Map.Entry<Integer, Double>> it = dtmc.getTransitionsIterator(states[i]);
+				while (it.hasNext()) {
+					Map.Entry<Integer, Double> e = it.next();
+					j = localIndex[e.getKey()];
+					if (j == i) {
+						diags[i] += e.getValue();
+					} else {
+						k = pos[j]++;
+						rows[k] = i;
+						probs[k] = e.getValue();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solve pi.(P-I) = 0, sum(pi) = 1 directly, using Gaussian elimination with partial pivoting
+	 * on the (dense) transposed system, with the last equation replaced by the normalisation condition.
+	 * Returns false if the system proved (numerically) singular.
+	 */
+	private boolean solveDirect(LocalMatrix mat, double soln[])
+	{
+		int m = mat.m;
+		int i, j, k, p;
+		double a[][] = new double[m][m];
+		double b[] = new double[m];
+		double tmp[], d, max;
+
+		// Build matrix (row j = equation for state j, i.e. column j of P-I)
+		for (j = 0; j < m - 1; j++) {
+			for (k = mat.colStarts[j]; k < mat.colStarts[j + 1]; k++) {
+				a[j][mat.rows[k]] += mat.probs[k];
+			}
+			a[j][j] += mat.diags[j] - 1.0;
+		}
+		for (i = 0; i < m; i++) {
+			a[m - 1][i] = 1.0;
+		}
+		b[m - 1] = 1.0;
+
+		// Forward elimination
+		for (k = 0; k < m; k++) {
+			p = k;
+			max = Math.abs(a[k][k]);
+			for (i = k + 1; i < m; i++) {
+				if (Math.abs(a[i][k]) > max) {
+					max = Math.abs(a[i][k]);
+					p = i;
+				}
+			}
+			if (max < 1e-14)
+				return false;
+			if (p != k) {
+				tmp = a[p];
+				a[p] = a[k];
+				a[k] = tmp;
+				d = b[p];
+				b[p] = b[k];
+				b[k] = d;
+			}
+			for (i = k + 1; i < m; i++) {
+				d = a[i][k] / a[k][k];
+				if (d != 0.0) {
+					for (j = k; j < m; j++) {
+						a[i][j] -= d * a[k][j];
+					}
+					b[i] -= d * b[k];
+				}
+			}
+		}
+		// Back substitution
+		for (i = m - 1; i >= 0; i--) {
+			d = b[i];
+			for (j = i + 1; j < m; j++) {
+				d -= a[i][j] * soln[j];
+			}
+			soln[i] = d / a[i][i];
+		}
+		// Clip (tiny) negative values caused by round-off
+		for (i = 0; i < m; i++) {
+			if (soln[i] < 0.0)
+				soln[i] = 0.0;
+		}
+		return true;
+	}
+
+	/**
+	 * Solve pi.(P-I) = 0, sum(pi) = 1 iteratively, using Gauss-Seidel (or SOR),
+	 * starting from the uniform distribution and normalising after each iteration.
+	 * Returns the number of iterations taken (negated if the method did not converge).
+	 */
+	private int solveGaussSeidel(LocalMatrix mat, double soln[])
+	{
+		int m = mat.m;
+		int i, j, k, iters;
+		double prev[] = new double[m];
+		double d, sum;
+		boolean done = false;
+
+		for (i = 0; i < m; i++) {
+			soln[i] = 1.0 / m;
+		}
+		iters = 0;
+		while (!done && iters < maxIters) {
+			iters++;
+			System.arraycopy(soln, 0, prev, 0, m);
+			sum = 0.0;
+			for (j = 0; j < m; j++) {
+				d = 0.0;
+				for (k = mat.colStarts[j]; k < mat.colStarts[j + 1]; k++) {
+					d += soln[mat.rows[k]] * mat.probs[k];
+				}
+				d /= (1.0 - mat.diags[j]);
+				if (omega != 1.0)
+					d = (1.0 - omega) * soln[j] + omega * d;
+				soln[j] = d;
+				sum += d;
+			}
+			for (j = 0; j < m; j++) {
+				soln[j] /= sum;
+			}
+			done = PrismUtils.doublesAreClose(soln, prev, termCritParam, absolute);
+		}
+		return done ? iters : -iters;
+	}
+}
@@ -27,6 +27,7 @@
 package explicit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
@@ -36,17 +37,42 @@ import parser.State;
 import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismNotSupportedException;
+import prism.PrismUtils;
 
 /**
  * Class to perform bisimulation minimisation for explicit-state models.
+ * <br><br>
+ * This computes (strong) probabilistic bisimulation for DTMCs, CTMCs (i.e. ordinary lumpability)
+ * and MDPs (where action labels are ignored), using partition refinement with a queue of splitters,
+ * in the style of the Valmari-Franceschinis lumping algorithm. For each splitter block B, the probability
+ * (or rate) of going to B is computed for each choice that can reach B (via a predecessor relation)
+ * and choice blocks are split according to these values; the states owning choices that moved
+ * are then split according to the set of choice blocks of their choices (their signature).
+ * When a state block is split, all but the largest of the resulting blocks become splitters
+ * (or all of them, if the original block was still waiting to be used as one).
+ * For DTMCs/CTMCs, where each state has a single choice, this runs in time O(m log n).
+ * All storage is in primitive arrays.
  */
 public class Bisimulation extends PrismComponent
 {
+	/** Relative tolerance used when comparing probabilities/rates */
+	private static final double EPSILON = 1e-12;
+
 	// Local storage of partition info
 	protected int numStates;
 	protected int[] partition;
 	protected int numBlocks;
-	protected MDPSimple mdp;
+
+	// Choice-level transition structure of the model being minimised
+	/** Choices of state s are stateChoiceStarts[s] to stateChoiceStarts[s+1]-1 */
+	private int stateChoiceStarts[];
+	/** State owning each choice */
+	private int choiceOwner[];
+	/** Predecessor relation: the transitions into state t are from choice predChoices[k]
+	 * with probability (or rate) predProbs[k], for k = predStarts[t] to predStarts[t+1]-1 */
+	private int predStarts[];
+	private int predChoices[];
+	private double predProbs[];
 
 	/**
 	 * Construct a new Bisimulation object.
@@ -69,6 +95,8 @@ public class Bisimulation extends PrismComponent
 			return minimiseDTMC((DTMC) model, propNames, propBSs);
 		case CTMC:
 			return minimiseCTMC((CTMC) model, propNames, propBSs);
+		case MDP:
+			return minimiseMDP((MDP) model, propNames, propBSs);
 		default:
 			throw new PrismNotSupportedException("Bisimulation minimisation not yet supported for " + model.getModelType() + "s");
 		}
@@ -82,24 +110,21 @@ public class Bisimulation extends PrismComponent
 	 */
 	private DTMC minimiseDTMC(DTMC dtmc, List<String> propNames, List<BitSet> propBSs)
 	{
-		// Create initial partition based on propositions
-		initialisePartitionInfo(dtmc, propBSs);
-		//printPartition(dtmc);
-
-		// Iterative splitting
-		boolean changed = true;
-		while (changed)
-			changed = splitDTMC(dtmc);
+		// Compute bisimulation
+		buildTransitionArrays(dtmc);
+		computeBisimulation(dtmc, propBSs);
 		mainLog.println("Minimisation: " + numStates + " to " + numBlocks + " States");
 		//printPartition(dtmc);
 
 		// Build reduced model
 		DTMCSimple dtmcNew = new DTMCSimple(numBlocks);
+		int reps[] = getRepresentatives();
 		for (int i = 0; i < numBlocks; i++) {
-			for (Map.Entry<Integer, Double> e : mdp.getChoice(i, 0)) {
-				dtmcNew.setProbability((Integer) mdp.getAction(i, 0), e.getKey(), e.getValue());
+			for (Map.Entry<Integer, Double> e : liftDistribution(dtmc.getTransitionsIterator(reps[i]))) {
+				dtmcNew.setProbability(i, e.getKey(), e.getValue());
 			}
 		}
+		attachInitialStates(dtmc, dtmcNew);
 		attachStatesAndLabels(dtmc, dtmcNew, propNames, propBSs);
 
 		return dtmcNew;
@@ -113,29 +138,486 @@ public class Bisimulation extends PrismComponent
 	 */
 	private CTMC minimiseCTMC(CTMC ctmc, List<String> propNames, List<BitSet> propBSs)
 	{
-		// Create initial partition based on propositions
-		initialisePartitionInfo(ctmc, propBSs);
-		//printPartition(ctmc);
-
-		// Iterative splitting
-		boolean changed = true;
-		while (changed)
-			changed = splitDTMC(ctmc);
+		// Compute bisimulation
+		buildTransitionArrays(ctmc);
+		computeBisimulation(ctmc, propBSs);
 		mainLog.println("Minimisation: " + numStates + " to " + numBlocks + " States");
 		//printPartition(ctmc);
 
 		// Build reduced model
 		CTMCSimple ctmcNew = new CTMCSimple(numBlocks);
+		int reps[] = getRepresentatives();
 		for (int i = 0; i < numBlocks; i++) {
-			for (Map.Entry<Integer, Double> e : mdp.getChoice(i, 0)) {
-				ctmcNew.setProbability((Integer) mdp.getAction(i, 0), e.getKey(), e.getValue());
+			for (Map.Entry<Integer, Double> e : liftDistribution(ctmc.getTransitionsIterator(reps[i]))) {
+				ctmcNew.setProbability(i, e.getKey(), e.getValue());
 			}
 		}
+		attachInitialStates(ctmc, ctmcNew);
 		attachStatesAndLabels(ctmc, ctmcNew, propNames, propBSs);
 
 		return ctmcNew;
 	}
 
+	/**
+	 * Perform (strong probabilistic) bisimulation minimisation on an MDP.
+	 * Action labels are ignored (and not present in the minimised MDP).
+	 * @param mdp The MDP
+	 * @param propNames Names of the propositions in {@code propBSs}
+	 * @param propBSs Propositions (satisfying sets of states) to be preserved by bisimulation.
+	 */
+	private MDP minimiseMDP(MDP mdp, List<String> propNames, List<BitSet> propBSs)
+	{
+		// Compute bisimulation
+		buildTransitionArrays(mdp);
+		computeBisimulation(mdp, propBSs);
+		mainLog.println("Minimisation: " + numStates + " to " + numBlocks + " States");
+		//printPartition(mdp);
+
+		// Build reduced model (duplicate choices are merged by MDPSimple.addChoice)
+		MDPSimple mdpNew = new MDPSimple(numBlocks);
+		int reps[] = getRepresentatives();
+		for (int i = 0; i < numBlocks; i++) {
+			int numChoices = mdp.getNumChoices(reps[i]);
+			for (int j = 0; j < numChoices; j++) {
+				mdpNew.addChoice(i, liftDistribution(mdp.getTransitionsIterator(reps[i], j)));
+			}
+		}
+		attachInitialStates(mdp, mdpNew);
+		attachStatesAndLabels(mdp, mdpNew, propNames, propBSs);
+
+		return mdpNew;
+	}
+
+	/**
+	 * Lift a distribution (or list of rates) to the current partition.
+	 */
+	private Distribution liftDistribution(Iterator<Map.Entry<Integer, Double>> iter)
+	{
+		Distribution distrNew = new Distribution();
+		while (iter.hasNext()) {
+			Map.Entry<Integer, Double> e = iter.next();
+			distrNew.add(partition[e.getKey()], e.getValue());
+		}
+		return distrNew;
+	}
+
+	/**
+	 * Get a representative state for each block of the current partition.
+	 */
+	private int[] getRepresentatives()
+	{
+		int reps[] = new int[numBlocks];
+		Arrays.fill(reps, -1);
+		for (int s = 0; s < numStates; s++) {
+			if (reps[partition[s]] == -1)
+				reps[partition[s]] = s;
+		}
+		return reps;
+	}
+
+	/**
+	 * Store the choice-level transition structure of a DTMC/CTMC (one choice per state) or MDP,
+	 * in the form of a predecessor relation (plus choice owners), in {@code stateChoiceStarts},
+	 * {@code choiceOwner}, {@code predStarts}, {@code predChoices} and {@code predProbs}.
+	 */
+	private void buildTransitionArrays(Model model)
+	{
+		int s, i, c, k, t, numChoices, numTrans;
+		Iterator<Map.Entry<Integer, Double>> iter;
+		Map.Entry<Integer, Double> e;
+
+		numStates = model.getNumStates();
+		MDP mdp = (model instanceof MDP) ? (MDP) model : null;
+		DTMC dtmc = (model instanceof DTMC) ? (DTMC) model : null;
+
+		// Choices
+		stateChoiceStarts = new int[numStates + 1];
+		for (s = 0; s < numStates; s++) {
+			stateChoiceStarts[s + 1] = stateChoiceStarts[s] + (mdp != null ? mdp.getNumChoices(s) : 1);
+		}
+		numChoices = stateChoiceStarts[numStates];
+		choiceOwner = new int[numChoices];
+
+		// First pass: count predecessor transitions of each state (stored, for now, in predStarts[t+1])
+		predStarts = new int[numStates + 1];
+		numTrans = 0;
+		for (s = 0; s < numStates; s++) {
+			for (c = stateChoiceStarts[s]; c < stateChoiceStarts[s + 1]; c++) {
+				choiceOwner[c] = s;
+				i = c - stateChoiceStarts[s];
+				for (iter = (mdp != null ? mdp.getTransitionsIterator(s, i) : dtmc.getTransitionsIterator(s)); iter.hasNext();) {
+					predStarts[iter.next().getKey() + 1]++;
+					numTrans++;
+				}
+			}
+		}
+		for (t = 0; t < numStates; t++) {
+			predStarts[t + 1] += predStarts[t];
+		}
+
+		// Second pass: store predecessor transitions
+		predChoices = new int[numTrans];
+		predProbs = new double[numTrans];
+		int next[] = Arrays.copyOf(predStarts, numStates);
+		for (s = 0; s < numStates; s++) {
+			for (c = stateChoiceStarts[s]; c < stateChoiceStarts[s + 1]; c++) {
+				i = c - stateChoiceStarts[s];
+				for (iter = (mdp != null ? mdp.getTransitionsIterator(s, i) : dtmc.getTransitionsIterator(s)); iter.hasNext();) {
+					e = iter.next();
+					k = next[e.getKey()]++;
+					predChoices[k] = c;
+					predProbs[k] = e.getValue();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute the coarsest bisimulation that refines the partition induced by the propositions,
+	 * using the transition arrays built by {@link #buildTransitionArrays(Model)}.
+	 * Store info in {@code numStates}, {@code numBlocks} and {@code partition}.
+	 */
+	private void computeBisimulation(Model model, List<BitSet> propBSs)
+	{
+		int i, j, k, c, t, b, sb, cb, from, to, numTouched, numDirty, numNew, largest;
+		final int numChoices = choiceOwner.length;
+
+		// Create initial partition based on propositions (and whether states have any choices)
+		initialisePartitionInfo(model, propBSs);
+		int initial[] = new int[numStates];
+		for (int s = 0; s < numStates; s++) {
+			initial[s] = 2 * partition[s] + (stateChoiceStarts[s] == stateChoiceStarts[s + 1] ? 1 : 0);
+		}
+		final RefinablePartition states = new RefinablePartition(numStates, initial);
+		final RefinablePartition choices = new RefinablePartition(numChoices, new int[numChoices]);
+
+		// Initially, all blocks are splitters
+		int queue[] = new int[numStates];
+		boolean inQueue[] = new boolean[numStates];
+		int queueSize = 0;
+		for (b = 0; b < states.numBlocks; b++) {
+			queue[queueSize++] = b;
+			inQueue[b] = true;
+		}
+
+		// Storage
+		final double weight[] = new double[numChoices];
+		boolean touched[] = new boolean[numChoices];
+		int touchedChoices[] = new int[numChoices];
+		boolean isDirty[] = new boolean[numStates];
+		int dirtyStates[] = new int[numStates];
+		final int sigStart[] = new int[numStates];
+		final int sigEnd[] = new int[numStates];
+		int sigData[] = new int[numChoices];
+		int sortBuffer[] = new int[Math.max(numStates, numChoices)];
+		int newBlocks[] = new int[numStates];
+
+		while (queueSize > 0) {
+			int splitter = queue[--queueSize];
+			inQueue[splitter] = false;
+
+			// Compute, for each choice, the probability of moving to the splitter
+			numTouched = 0;
+			for (k = states.blockStart[splitter]; k < states.blockEnd[splitter]; k++) {
+				t = states.elems[k];
+				for (j = predStarts[t]; j < predStarts[t + 1]; j++) {
+					c = predChoices[j];
+					if (!touched[c]) {
+						touched[c] = true;
+						weight[c] = 0.0;
+						touchedChoices[numTouched++] = c;
+					}
+					weight[c] += predProbs[j];
+				}
+			}
+
+			// Split choice blocks according to these probabilities
+			sort(touchedChoices, numTouched, sortBuffer, new IntComparator()
+			{
+				@Override
+				public int compare(int c1, int c2)
+				{
+					int b1 = choices.blockOf[c1], b2 = choices.blockOf[c2];
+					return b1 != b2 ? Integer.compare(b1, b2) : Double.compare(weight[c1], weight[c2]);
+				}
+			});
+			numDirty = 0;
+			for (from = 0; from < numTouched; from = to) {
+				cb = choices.blockOf[touchedChoices[from]];
+				to = from + 1;
+				while (to < numTouched && choices.blockOf[touchedChoices[to]] == cb)
+					to++;
+				// Find groups of (approximately) equal weight; if all choices in the block
+				// are in a single group, no split is needed; otherwise, keep the untouched
+				// choices (or, if none, the first group) in the existing block
+				i = from;
+				if (choices.size(cb) == to - from) {
+					i = nextGroup(touchedChoices, from, to, weight);
+					if (i == to)
+						continue;
+				}
+				while (i < to) {
+					j = nextGroup(touchedChoices, i, to, weight);
+					choices.splitOff(cb, touchedChoices, i, j);
+					for (k = i; k < j; k++) {
+						int s = choiceOwner[touchedChoices[k]];
+						if (!isDirty[s]) {
+							isDirty[s] = true;
+							dirtyStates[numDirty++] = s;
+						}
+					}
+					i = j;
+				}
+			}
+			for (k = 0; k < numTouched; k++) {
+				touched[touchedChoices[k]] = false;
+			}
+
+			// Compute signatures (sorted, distinct choice blocks) for states whose choices moved
+			k = 0;
+			for (i = 0; i < numDirty; i++) {
+				int s = dirtyStates[i];
+				sigStart[s] = k;
+				for (c = stateChoiceStarts[s]; c < stateChoiceStarts[s + 1]; c++) {
+					sigData[k++] = choices.blockOf[c];
+				}
+				Arrays.sort(sigData, sigStart[s], k);
+				// Remove duplicates
+				int l = sigStart[s];
+				for (j = sigStart[s]; j < k; j++) {
+					if (j == sigStart[s] || sigData[j] != sigData[l - 1])
+						sigData[l++] = sigData[j];
+				}
+				sigEnd[s] = k = l;
+			}
+			final int sig[] = sigData;
+
+			// Split state blocks according to signatures
+			sort(dirtyStates, numDirty, sortBuffer, new IntComparator()
+			{
+				@Override
+				public int compare(int s1, int s2)
+				{
+					int b1 = states.blockOf[s1], b2 = states.blockOf[s2];
+					if (b1 != b2)
+						return Integer.compare(b1, b2);
+					return compareSignatures(sig, sigStart[s1], sigEnd[s1], sigStart[s2], sigEnd[s2]);
+				}
+			});
+			for (from = 0; from < numDirty; from = to) {
+				sb = states.blockOf[dirtyStates[from]];
+				to = from + 1;
+				while (to < numDirty && states.blockOf[dirtyStates[to]] == sb)
+					to++;
+				// As for choices: keep the non-dirty states (or, if none, the first group) in the existing block
+				i = from;
+				if (states.size(sb) == to - from) {
+					i = nextSignatureGroup(dirtyStates, from, to, sig, sigStart, sigEnd);
+					if (i == to)
+						continue;
+				}
+				numNew = 0;
+				while (i < to) {
+					j = nextSignatureGroup(dirtyStates, i, to, sig, sigStart, sigEnd);
+					newBlocks[numNew++] = states.splitOff(sb, dirtyStates, i, j);
+					i = j;
+				}
+				// Add new splitters: all new blocks if sb is still to be processed;
+				// otherwise, all of the blocks (including sb) except the largest
+				if (inQueue[sb]) {
+					for (k = 0; k < numNew; k++) {
+						queue[queueSize++] = newBlocks[k];
+						inQueue[newBlocks[k]] = true;
+					}
+				} else {
+					largest = sb;
+					for (k = 0; k < numNew; k++) {
+						if (states.size(newBlocks[k]) > states.size(largest))
+							largest = newBlocks[k];
+					}
+					if (largest != sb) {
+						queue[queueSize++] = sb;
+						inQueue[sb] = true;
+					}
+					for (k = 0; k < numNew; k++) {
+						if (newBlocks[k] != largest) {
+							queue[queueSize++] = newBlocks[k];
+							inQueue[newBlocks[k]] = true;
+						}
+					}
+				}
+			}
+			for (k = 0; k < numDirty; k++) {
+				isDirty[dirtyStates[k]] = false;
+			}
+		}
+
+		// Store final partition
+		numBlocks = states.numBlocks;
+		partition = states.blockOf;
+	}
+
+	/**
+	 * Get the end (exclusive) of the group of choices with (approximately) the same weight
+	 * as {@code list[from]}, in the sorted list {@code list[from..to-1]}.
+	 */
+	private static int nextGroup(int list[], int from, int to, double weight[])
+	{
+		int i = from + 1;
+		while (i < to && PrismUtils.doublesAreCloseRel(weight[list[from]], weight[list[i]], EPSILON))
+			i++;
+		return i;
+	}
+
+	/**
+	 * Get the end (exclusive) of the group of states with the same signature
+	 * as {@code list[from]}, in the sorted list {@code list[from..to-1]}.
+	 */
+	private static int nextSignatureGroup(int list[], int from, int to, int sig[], int sigStart[], int sigEnd[])
+	{
+		int s = list[from];
+		int i = from + 1;
+		while (i < to && compareSignatures(sig, sigStart[s], sigEnd[s], sigStart[list[i]], sigEnd[list[i]]) == 0)
+			i++;
+		return i;
+	}
+
+	/**
+	 * Lexicographically compare two signatures, stored in {@code sig[start1..end1-1]} and {@code sig[start2..end2-1]}.
+	 */
+	private static int compareSignatures(int sig[], int start1, int end1, int start2, int end2)
+	{
+		int n1 = end1 - start1, n2 = end2 - start2;
+		for (int k = 0; k < n1 && k < n2; k++) {
+			if (sig[start1 + k] != sig[start2 + k])
+				return Integer.compare(sig[start1 + k], sig[start2 + k]);
+		}
+		return Integer.compare(n1, n2);
+	}
+
+	/**
+	 * Comparator for (primitive) integers.
+	 */
+	private interface IntComparator
+	{
+		public int compare(int i, int j);
+	}
+
+	/**
+	 * Sort {@code a[0..n-1]} (merge sort, using {@code buffer} as temporary storage).
+	 */
+	private static void sort(int a[], int n, int buffer[], IntComparator cmp)
+	{
+		int width, lo, mid, hi, i, j, k;
+		int src[] = a, dst[] = buffer, tmp[];
+		for (width = 1; width < n; width *= 2) {
+			for (lo = 0; lo < n; lo += 2 * width) {
+				mid = Math.min(lo + width, n);
+				hi = Math.min(lo + 2 * width, n);
+				i = lo;
+				j = mid;
+				for (k = lo; k < hi; k++) {
+					if (i < mid && (j >= hi || cmp.compare(src[i], src[j]) <= 0))
+						dst[k] = src[i++];
+					else
+						dst[k] = src[j++];
+				}
+			}
+			tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if (src != a)
+			System.arraycopy(src, 0, a, 0, n);
+	}
+
+	/**
+	 * A partition of the integers 0..n-1 into blocks, supporting efficient splitting.
+	 * Elements are stored grouped by block, in {@code elems}: block b comprises
+	 * {@code elems[blockStart[b]]} to {@code elems[blockEnd[b]-1]}.
+	 */
+	private static class RefinablePartition
+	{
+		int elems[];
+		int loc[];
+		int blockOf[];
+		int blockStart[];
+		int blockEnd[];
+		int numBlocks;
+
+		/**
+		 * Create a partition, with the initial block of element i being {@code initial[i]}
+		 * (block indices are renumbered, in order of first occurrence).
+		 */
+		RefinablePartition(int n, int initial[])
+		{
+			int i, b, max = 0;
+			elems = new int[n];
+			loc = new int[n];
+			blockOf = new int[n];
+			blockStart = new int[n];
+			blockEnd = new int[n];
+			for (i = 0; i < n; i++) {
+				max = Math.max(max, initial[i] + 1);
+			}
+			// Renumber blocks and count sizes
+			int renumber[] = new int[max];
+			Arrays.fill(renumber, -1);
+			numBlocks = 0;
+			for (i = 0; i < n; i++) {
+				if (renumber[initial[i]] == -1)
+					renumber[initial[i]] = numBlocks++;
+				b = renumber[initial[i]];
+				blockOf[i] = b;
+				blockEnd[b]++;
+			}
+			// Compute block ranges and place elements
+			for (b = 1; b < numBlocks; b++) {
+				blockEnd[b] += blockEnd[b - 1];
+			}
+			for (b = 0; b < numBlocks; b++) {
+				blockStart[b] = b == 0 ? 0 : blockEnd[b - 1];
+			}
+			int next[] = Arrays.copyOf(blockStart, numBlocks);
+			for (i = 0; i < n; i++) {
+				b = blockOf[i];
+				loc[i] = next[b];
+				elems[next[b]++] = i;
+			}
+		}
+
+		int size(int b)
+		{
+			return blockEnd[b] - blockStart[b];
+		}
+
+		/**
+		 * Move the elements {@code list[from..to-1]}, all in block b (and not all of it),
+		 * to a new block, whose index is returned.
+		 */
+		int splitOff(int b, int list[], int from, int to)
+		{
+			int k, e, pos, other;
+			for (k = from; k < to; k++) {
+				// Swap e with the last element of block b, then shrink b
+				e = list[k];
+				pos = --blockEnd[b];
+				other = elems[pos];
+				elems[loc[e]] = other;
+				loc[other] = loc[e];
+				elems[pos] = e;
+				loc[e] = pos;
+			}
+			int nb = numBlocks++;
+			blockStart[nb] = blockEnd[b];
+			blockEnd[nb] = blockEnd[b] + (to - from);
+			for (k = from; k < to; k++) {
+				blockOf[list[k]] = nb;
+			}
+			return nb;
+		}
+	}
+
 	/**
 	 * Construct the initial partition based on a set of proposition bitsets.
 	 * Store info in {@code numStates}, {@code numBlocks} and {@code partition}.
@@ -182,48 +664,14 @@ public class Bisimulation extends PrismComponent
 	}
 
 	/**
-	 * Perform a split of the current partition, if possible, updating {@code numBlocks} and {@code partition}.
-	 * @return whether or not the partition was split 
+	 * Attach initial states to the minimised model, i.e. the blocks containing initial states of the original model.
 	 */
-	private boolean splitDTMC(DTMC dtmc)
+	private void attachInitialStates(Model model, ModelExplicit modelNew)
 	{
-		int s, a, i, numBlocksNew, numChoicesOld;
-		Distribution distrNew;
-		int partitionNew[];
-
-		partitionNew = new int[numStates];
-		numBlocksNew = 0;
-		// Compute the signature for each state (i.e. the distribution for outgoing
-		// transitions, lifted to the current partition)
-		// For convenience, we just store them as an MDP, with action label equal to the index of the block
-		mdp = new MDPSimple(numBlocks);
-		for (s = 0; s < numStates; s++) {
-			// Build lifted distribution
-			Iterator<Map.Entry<Integer, Double>> iter = dtmc.getTransitionsIterator(s);
-			distrNew = new Distribution();
-			while (iter.hasNext()) {
-				Map.Entry<Integer, Double> e = iter.next();
-				distrNew.add(partition[e.getKey()], e.getValue());
-			}
-			// Store in MDP, update new partition
-			a = partition[s];
-			numChoicesOld = mdp.getNumChoices(a);
-			i = mdp.addChoice(a, distrNew);
-			if (i == numChoicesOld)
-				mdp.setAction(a, i, numBlocksNew++);
-			partitionNew[s] = (Integer) mdp.getAction(a, i);
+		for (int s : model.getInitialStates()) {
+			if (!modelNew.isInitialState(partition[s]))
+				modelNew.addInitialState(partition[s]);
 		}
-		// Debug info
-		//mainLog.println("New partition: " + java.util.Arrays.toString(partitionNew));
-		//mainLog.println("Signatures MDP: " + mdp.infoString());
-		//mainLog.println("Signatures MDP: " + mdp);
-		//try { mdp.exportToDotFile("mdp.dot"); } catch (PrismException e) {}
-		// Update info
-		boolean changed = numBlocks != numBlocksNew;
-		partition = partitionNew;
-		numBlocks = numBlocksNew;
-
-		return changed;
 	}
 
 	/**
@@ -741,6 +741,20 @@ public class CTMCModelChecker extends ProbModelChecker
 	 * @param target Target states
 	 */
 	public ModelCheckerResult computeReachRewards(CTMC ctmc, MCRewards mcRewards, BitSet target) throws PrismException
+	{
+		return computeReachRewards(ctmc, mcRewards, target, null, null);
+	}
+
+	/**
+	 * Compute expected reachability rewards.
+	 * @param ctmc The CTMC
+	 * @param mcRewards The rewards
+	 * @param target Target states
+	 * @param init Optionally, an initial solution vector (may be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	public ModelCheckerResult computeReachRewards(CTMC ctmc, MCRewards mcRewards, BitSet target, double init[], BitSet known) throws PrismException
 	{
 		int i, n;
 		// Build embedded DTMC
@@ -753,7 +767,7 @@ public class CTMCModelChecker extends ProbModelChecker
 			rewEmb.setStateReward(i, mcRewards.getStateReward(i) / ctmc.getExitRate(i));
 		}
 		// Do computation on DTMC
-		return createDTMCModelChecker().computeReachRewards(dtmcEmb, rewEmb, target);
+		return createDTMCModelChecker().computeReachRewards(dtmcEmb, rewEmb, target, init, known);
 	}
 
 	/**
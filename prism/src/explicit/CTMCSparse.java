@@ -0,0 +1,393 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import prism.ModelType;
+import prism.PrismException;
+
+/**
+ * Sparse matrix (non-mutable, except for {@link #uniformise(double)}) explicit-state representation of a CTMC.
+ * Rates are stored in the sparse matrix inherited from DTMCSparse.
+ * Since the model cannot be modified, the embedded/uniformised DTMCs
+ * are built explicitly (as DTMCSparse objects), rather than computed on the fly.
+ */
+public class CTMCSparse extends DTMCSparse implements CTMC
+{
+	/** Exit rates for each state (array of size numStates) */
+	protected double exitRates[];
+
+	/** The cached embedded DTMC (see {@link #getImplicitEmbeddedDTMC()}) */
+	private DTMCSparse cachedEmbeddedDTMC = null;
+
+	// Constructors
+
+	/**
+	 * Constructor: empty CTMC (e.g. to be filled in by {@link #buildFromPrismExplicit(String)}).
+	 */
+	public CTMCSparse()
+	{
+		super();
+		exitRates = new double[0];
+	}
+
+	/**
+	 * Copy constructor (from CTMCSimple).
+	 * @param ctmc The CTMC to copy
+	 */
+	public CTMCSparse(CTMCSimple ctmc)
+	{
+		super(ctmc);
+		computeExitRates();
+	}
+
+	/**
+	 * Copy constructor (from CTMCSimple), with a state index permutation,
+	 * i.e. old state index i becomes index permut[i].
+	 * Note: a states list, if present, will not be permuted and should be set
+	 * separately afterwards if required.
+	 * @param ctmc The CTMC to copy
+	 * @param permut State space permutation
+	 */
+	public CTMCSparse(CTMCSimple ctmc, int permut[])
+	{
+		super(ctmc, permut);
+		computeExitRates();
+	}
+
+	/**
+	 * Compute (and store) the exit rate of each state.
+	 */
+	private void computeExitRates()
+	{
+		int i, k, h;
+		double d;
+		exitRates = new double[numStates];
+		for (i = 0; i < numStates; i++) {
+			d = 0.0;
+			h = rowStarts[i + 1];
+			for (k = rowStarts[i]; k < h; k++) {
+				d += nonZeros[k];
+			}
+			exitRates[i] = d;
+		}
+	}
+
+	// Mutators (other)
+
+	@Override
+	public void buildFromPrismExplicit(String filename) throws PrismException
+	{
+		super.buildFromPrismExplicit(filename);
+		computeExitRates();
+		cachedEmbeddedDTMC = null;
+	}
+
+	// Accessors (for Model)
+
+	@Override
+	public ModelType getModelType()
+	{
+		return ModelType.CTMC;
+	}
+
+	// Accessors (for CTMC)
+
+	@Override
+	public double getExitRate(int i)
+	{
+		return exitRates[i];
+	}
+
+	@Override
+	public double getMaxExitRate()
+	{
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numStates; i++) {
+			if (exitRates[i] > max)
+				max = exitRates[i];
+		}
+		return max;
+	}
+
+	@Override
+	public double getMaxExitRate(BitSet subset)
+	{
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			if (exitRates[i] > max)
+				max = exitRates[i];
+		}
+		return max;
+	}
+
+	@Override
+	public double getDefaultUniformisationRate()
+	{
+		return 1.02 * getMaxExitRate();
+	}
+
+	@Override
+	public double getDefaultUniformisationRate(BitSet nonAbs)
+	{
+		return 1.02 * getMaxExitRate(nonAbs);
+	}
+
+	@Override
+	public DTMC buildImplicitEmbeddedDTMC()
+	{
+		DTMCSparse dtmc = buildEmbeddedDTMCSparse();
+		if (cachedEmbeddedDTMC != null) {
+			// replace cached DTMC
+			cachedEmbeddedDTMC = dtmc;
+		}
+		return dtmc;
+	}
+
+	@Override
+	public DTMC getImplicitEmbeddedDTMC()
+	{
+		if (cachedEmbeddedDTMC == null) {
+			cachedEmbeddedDTMC = buildEmbeddedDTMCSparse();
+		}
+		return cachedEmbeddedDTMC;
+	}
+
+	/**
+	 * Build the embedded DTMC for this CTMC, as a DTMCSparse,
+	 * i.e. P(i,j) = R(i,j) / E(i) if E(i) > 0 and P(i,i) = 1 otherwise.
+	 */
+	private DTMCSparse buildEmbeddedDTMCSparse()
+	{
+		int i, k, h, numExtra, kNew;
+		DTMCSparse dtmc = new DTMCSparse();
+		dtmc.copyFrom(this);
+		numExtra = 0;
+		for (i = 0; i < numStates; i++) {
+			if (exitRates[i] == 0)
+				numExtra++;
+		}
+		dtmc.nonZeros = new double[getNumTransitions() + numExtra];
+		dtmc.cols = new int[getNumTransitions() + numExtra];
+		dtmc.rowStarts = new int[numStates + 1];
+		kNew = 0;
+		for (i = 0; i < numStates; i++) {
+			dtmc.rowStarts[i] = kNew;
+			if (exitRates[i] == 0) {
+				dtmc.cols[kNew] = i;
+				dtmc.nonZeros[kNew] = 1.0;
+				kNew++;
+			} else {
+				h = rowStarts[i + 1];
+				for (k = rowStarts[i]; k < h; k++) {
+					dtmc.cols[kNew] = cols[k];
+					dtmc.nonZeros[kNew] = nonZeros[k] / exitRates[i];
+					kNew++;
+				}
+			}
+		}
+		dtmc.rowStarts[numStates] = kNew;
+		return dtmc;
+	}
+
+	@Override
+	public DTMCSimple buildEmbeddedDTMC()
+	{
+		DTMCSimple dtmc;
+		int i, k, h;
+		dtmc = new DTMCSimple(numStates);
+		for (int in : getInitialStates()) {
+			dtmc.addInitialState(in);
+		}
+		for (i = 0; i < numStates; i++) {
+			if (exitRates[i] == 0) {
+				dtmc.setProbability(i, i, 1.0);
+			} else {
+				h = rowStarts[i + 1];
+				for (k = rowStarts[i]; k < h; k++) {
+					dtmc.setProbability(i, cols[k], nonZeros[k] / exitRates[i]);
+				}
+			}
+		}
+		return dtmc;
+	}
+
+	/**
+	 * Uniformise this CTMC, i.e. set the diagonal entry of each row to q - E'(i),
+	 * where E'(i) is the exit rate for state i, ignoring self-loops.
+	 * The sparse matrix is rebuilt and replaced in place.
+	 */
+	@Override
+	public void uniformise(double q)
+	{
+		int i, k, h, kNew, col;
+		double sum;
+		boolean diagDone;
+		int rowStartsNew[], colsNew[];
+		double nonZerosNew[];
+		// Allow for an extra diagonal entry in every row
+		nonZerosNew = new double[getNumTransitions() + numStates];
+		colsNew = new int[getNumTransitions() + numStates];
+		rowStartsNew = new int[numStates + 1];
+		kNew = 0;
+		for (i = 0; i < numStates; i++) {
+			rowStartsNew[i] = kNew;
+			h = rowStarts[i + 1];
+			sum = 0.0;
+			for (k = rowStarts[i]; k < h; k++) {
+				if (cols[k] != i)
+					sum += nonZeros[k];
+			}
+			// Copy off-diagonal entries, inserting the diagonal one in order
+			// (zero entries are not stored, as for Distribution)
+			diagDone = (q - sum == 0.0);
+			for (k = rowStarts[i]; k < h; k++) {
+				col = cols[k];
+				if (!diagDone && col >= i) {
+					colsNew[kNew] = i;
+					nonZerosNew[kNew] = q - sum;
+					kNew++;
+					diagDone = true;
+				}
+				if (col != i) {
+					colsNew[kNew] = col;
+					nonZerosNew[kNew] = nonZeros[k];
+					kNew++;
+				}
+			}
+			if (!diagDone) {
+				colsNew[kNew] = i;
+				nonZerosNew[kNew] = q - sum;
+				kNew++;
+			}
+		}
+		rowStartsNew[numStates] = kNew;
+		// Trim arrays and swap in
+		nonZeros = Arrays.copyOf(nonZerosNew, kNew);
+		cols = Arrays.copyOf(colsNew, kNew);
+		rowStarts = rowStartsNew;
+		computeExitRates();
+		cachedEmbeddedDTMC = null;
+	}
+
+	/**
+	 * Build the uniformised DTMC for this CTMC, as a DTMCSparse,
+	 * i.e. P(i,j) = R(i,j) / q for i != j and P(i,i) = 1 - E'(i) / q
+	 * where E'(i) is the exit rate for state i, ignoring self-loops.
+	 */
+	@Override
+	public DTMC buildImplicitUniformisedDTMC(double q)
+	{
+		int i, k, h, kNew, col;
+		double sum;
+		boolean diagDone;
+		DTMCSparse dtmc = new DTMCSparse();
+		dtmc.copyFrom(this);
+		// Allow for an extra diagonal entry in every row
+		dtmc.nonZeros = new double[getNumTransitions() + numStates];
+		dtmc.cols = new int[getNumTransitions() + numStates];
+		dtmc.rowStarts = new int[numStates + 1];
+		kNew = 0;
+		for (i = 0; i < numStates; i++) {
+			dtmc.rowStarts[i] = kNew;
+			h = rowStarts[i + 1];
+			sum = 0.0;
+			for (k = rowStarts[i]; k < h; k++) {
+				if (cols[k] != i)
+					sum += nonZeros[k];
+			}
+			// Copy off-diagonal entries, inserting the diagonal one in order
+			diagDone = !(sum < q);
+			for (k = rowStarts[i]; k < h; k++) {
+				col = cols[k];
+				if (!diagDone && col >= i) {
+					dtmc.cols[kNew] = i;
+					dtmc.nonZeros[kNew] = 1 - sum / q;
+					kNew++;
+					diagDone = true;
+				}
+				if (col != i) {
+					dtmc.cols[kNew] = col;
+					dtmc.nonZeros[kNew] = nonZeros[k] / q;
+					kNew++;
+				}
+			}
+			if (!diagDone) {
+				dtmc.cols[kNew] = i;
+				dtmc.nonZeros[kNew] = 1 - sum / q;
+				kNew++;
+			}
+		}
+		dtmc.rowStarts[numStates] = kNew;
+		return dtmc;
+	}
+
+	@Override
+	public DTMCSimple buildUniformisedDTMC(double q)
+	{
+		DTMCSimple dtmc;
+		int i, k, h;
+		double d;
+		dtmc = new DTMCSimple(numStates);
+		for (int in : getInitialStates()) {
+			dtmc.addInitialState(in);
+		}
+		for (i = 0; i < numStates; i++) {
+			// Add scaled off-diagonal entries
+			d = 0.0;
+			h = rowStarts[i + 1];
+			for (k = rowStarts[i]; k < h; k++) {
+				dtmc.setProbability(i, cols[k], nonZeros[k] / q);
+				if (cols[k] != i)
+					d += nonZeros[k];
+			}
+			// Add diagonal, if needed
+			if (d < q) {
+				dtmc.setProbability(i, i, 1 - (d / q));
+			}
+		}
+		return dtmc;
+	}
+
+	// Standard methods
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == null || !(o instanceof CTMCSparse))
+			return false;
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return super.hashCode();
+	}
+}
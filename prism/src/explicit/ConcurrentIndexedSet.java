@@ -0,0 +1,229 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class storing an indexed set of objects of type T, which can be safely
+ * added to by multiple threads concurrently. Indices are allocated contiguously
+ * from 0, in the order in which objects are first added.
+ * <br><br>
+ * The methods {@link #add} and {@link #getIndexOfLastAdd} are thread-safe: the latter
+ * returns the index for the last call to {@link #add} made by the calling thread.
+ * The remaining methods (e.g. sorting, conversion to lists) should only be called
+ * once no more additions are taking place.
+ * <br><br>
+ * For {@link #buildSortingPermutation}, type T should be {@link Comparable}.
+ */
+public class ConcurrentIndexedSet<T> implements StateStorage<T>
+{
+	/** Number of locks used to serialise insertion of (equal) new objects */
+	private static final int NUM_LOCKS = 256;
+
+	protected ConcurrentHashMap<T, Integer> set;
+	protected AtomicInteger counter;
+	protected Object locks[];
+	protected ThreadLocal<int[]> indexOfLastAdd;
+
+	public ConcurrentIndexedSet()
+	{
+		set = new ConcurrentHashMap<>();
+		counter = new AtomicInteger(0);
+		locks = new Object[NUM_LOCKS];
+		for (int i = 0; i < NUM_LOCKS; i++) {
+			locks[i] = new Object();
+		}
+		indexOfLastAdd = new ThreadLocal<int[]>()
+		{
+			@Override
+			protected int[] initialValue()
+			{
+				return new int[] { -1 };
+			}
+		};
+	}
+
+	@Override
+	public void clear()
+	{
+		set.clear();
+		counter.set(0);
+	}
+
+	@Override
+	public boolean add(T state)
+	{
+		// Fast path: already present (no locking)
+		Integer i = set.get(state);
+		if (i == null) {
+			// Otherwise lock (based on hash code, so equal objects share a lock) and re-check
+			int h = state.hashCode();
+			synchronized (locks[(h ^ (h >>> 16)) & (NUM_LOCKS - 1)]) {
+				i = set.get(state);
+				if (i == null) {
+					i = counter.getAndIncrement();
+					set.put(state, i);
+					indexOfLastAdd.get()[0] = i;
+					return true;
+				}
+			}
+		}
+		indexOfLastAdd.get()[0] = i;
+		return false;
+	}
+
+	@Override
+	public boolean contains(T state)
+	{
+		return set.get(state) != null;
+	}
+
+	@Override
+	public int getIndexOfLastAdd()
+	{
+		return indexOfLastAdd.get()[0];
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return set.isEmpty();
+	}
+
+	/**
+	 * Get the number of objects stored in the set.
+	 */
+	@Override
+	public int size()
+	{
+		return counter.get();
+	}
+
+	/**
+	 * Get access to the underlying set of map entries.
+	 */
+	@Override
+	public Set<Map.Entry<T, Integer>> getEntrySet()
+	{
+		return set.entrySet();
+	}
+
+	/**
+	 * Create an ArrayList of the states, ordered by index.
+	 */
+	@Override
+	public ArrayList<T> toArrayList()
+	{
+		ArrayList<T> list = new ArrayList<>(size());
+		toArrayList(list);
+		return list;
+	}
+
+	/**
+	 * Create an ArrayList of the states, ordered by index, storing in the passed in list.
+	 * @param list An empty ArrayList in which to store the result.
+	 */
+	@Override
+	public void toArrayList(ArrayList<T> list)
+	{
+		int i, n;
+
+		n = size();
+		for (i = 0; i < n; i++)
+			list.add(null);
+		for (Map.Entry<T, Integer> e : set.entrySet()) {
+			list.set(e.getValue(), e.getKey());
+		}
+	}
+
+	/**
+	 * Create an ArrayList of the states, ordered by permuted index.
+	 * Index in new list is permut[old_index].
+	 * @param permut Permutation to apply
+	 */
+	@Override
+	public ArrayList<T> toPermutedArrayList(int permut[])
+	{
+		ArrayList<T> list = new ArrayList<>(size());
+		toPermutedArrayList(permut, list);
+		return list;
+	}
+
+	/**
+	 * Create an ArrayList of the states, ordered by permuted index, storing in the passed in list.
+	 * Index in new list is permut[old_index].
+	 * @param permut Permutation to apply
+	 * @param list An empty ArrayList in which to store the result.
+	 */
+	@Override
+	public void toPermutedArrayList(int permut[], ArrayList<T> list)
+	{
+		int i, n;
+
+		n = size();
+		for (i = 0; i < n; i++)
+			list.add(null);
+		for (Map.Entry<T, Integer> e : set.entrySet()) {
+			list.set(permut[e.getValue()], e.getKey());
+		}
+	}
+
+	/**
+	 * Build sort permutation. This returns a permutation (integer array) mapping
+	 * current indices to new indices under the natural ordering of the stored objects.
+	 */
+	@Override
+	public int[] buildSortingPermutation()
+	{
+		int i, n;
+		int perm[];
+
+		n = size();
+		perm = new int[n];
+		i = 0;
+		for (Map.Entry<T, Integer> e : new TreeMap<>(set).entrySet()) {
+			perm[e.getValue()] = i++;
+		}
+
+		return perm;
+	}
+
+	@Override
+	public String toString()
+	{
+		return set.toString();
+	}
+
+	@Override
+	public int get(T t)
+	{
+		return set.get(t);
+	}
+}
@@ -29,9 +29,17 @@ package explicit;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import parser.State;
 import parser.Values;
@@ -44,8 +52,11 @@ import prism.PrismException;
 import prism.PrismLog;
 import prism.PrismNotSupportedException;
 import prism.PrismPrintStreamLog;
+import prism.PrismSettings;
 import prism.ProgressDisplay;
 import prism.UndefinedConstants;
+import simulator.ModulesFileModelGenerator;
+import simulator.Updater;
 
 /**
  * Class to perform explicit-state reachability and model construction.
@@ -67,6 +78,16 @@ public class ConstructModel extends PrismComponent
 	protected boolean distinguishActions = true;
 	/** Should labels be processed and attached to the model? */
 	protected boolean attachLabels = true;
+	/** Store reachable states bit-packed in a hash table (PackedStateStorage),
+	 *  rather than as State objects in a sorted set (IndexedSet)? */
+	protected boolean packedStates = false;
+	/** Number of threads to use for (parallel) reachability/model construction */
+	protected int numThreads = 1;
+
+	/** Number of states explored in each round of parallel exploration */
+	private static final int PARALLEL_BATCH_SIZE = 1 << 14;
+	/** Number of states claimed at a time by each thread during parallel exploration */
+	private static final int PARALLEL_CHUNK_SIZE = 64;
 
 	// Details of built model:
 
@@ -76,6 +97,12 @@ public class ConstructModel extends PrismComponent
 	public ConstructModel(PrismComponent parent)
 	{
 		super(parent);
+
+		// If present, initialise settings from PrismSettings
+		if (settings != null) {
+			setPackedStates(settings.getString(PrismSettings.PRISM_STATE_STORAGE).equals("Packed hash table"));
+			setNumThreads(settings.getInteger(PrismSettings.PRISM_NUM_THREADS));
+		}
 	}
 
 	/**
@@ -120,6 +147,26 @@ public class ConstructModel extends PrismComponent
 		this.attachLabels = attachLabels;
 	}
 
+	/**
+	 * Store reachable states bit-packed in a hash table ({@link PackedStateStorage}),
+	 * rather than as State objects in a sorted set ({@link IndexedSet})?
+	 * (only possible if the model has no unbounded variables)
+	 */
+	public void setPackedStates(boolean packedStates)
+	{
+		this.packedStates = packedStates;
+	}
+
+	/**
+	 * Set the number of threads to use for reachability/model construction.
+	 * If greater than 1, states are explored in parallel, using a separate copy of
+	 * the model generator for each thread (if the model generator supports this).
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		this.numThreads = numThreads;
+	}
+
 	/**
 	 * Build the set of reachable states for a model and return it.
 	 * @param modelGen The ModelGenerator interface providing the model 
@@ -209,13 +256,30 @@ public class ConstructModel extends PrismComponent
 			}
 		}
 
+		// For parallel exploration, create a model generator for each thread
+		List<ModelGenerator> modelGens = null;
+		if (numThreads > 1) {
+			modelGens = createModelGeneratorCopies(modelGen, numThreads);
+		}
+
 		// Initialise states storage
-		states = new IndexedSet<>(true);
+		if (packedStates && modelGens != null) {
+			mainLog.printWarning("Packed state storage is not used for parallel model construction");
+		} else if (packedStates && modelGen.containsUnboundedVariables()) {
+			mainLog.printWarning("Packed state storage cannot be used for models with unbounded variables; using a sorted set instead");
+		}
+		if (modelGens != null) {
+			states = new ConcurrentIndexedSet<>();
+		} else if (packedStates && !modelGen.containsUnboundedVariables()) {
+			states = new PackedStateStorage(varList);
+		} else {
+			states = new IndexedSet<>(true);
+		}
 		explore = new LinkedList<>();
 		// Add initial state(s) to 'explore', 'states' and to the model
 		for (State initState : modelGen.getInitialStates()) {
 			explore.add(initState);
-			states.add(initState);
+			addState(states, initState);
 			if (!justReach) {
 				modelSimple.addState();
 				modelSimple.addInitialState(modelSimple.getNumStates() - 1);
@@ -223,75 +287,79 @@ public class ConstructModel extends PrismComponent
 		}
 		// Explore...
 		src = -1;
-		while (!explore.isEmpty()) {
-			// Pick next state to explore
-			// (they are stored in order found so know index is src+1)
-			state = explore.removeFirst();
-			src++;
-			// Explore all choices/transitions from this state
-			modelGen.exploreState(state);
-			// Look at each outgoing choice in turn
-			nc = modelGen.getNumChoices();
-			for (i = 0; i < nc; i++) {
-				// For nondet models, collect transitions in a Distribution
-				if (!justReach && modelType.nondeterministic()) {
-					distr = new Distribution();
-				}
-				// Look at each transition in the choice
-				nt = modelGen.getNumTransitions(i);
-				for (j = 0; j < nt; j++) {
-					stateNew = modelGen.computeTransitionTarget(i, j);
-					// Is this a new state?
-					if (states.add(stateNew)) {
-						// If so, add to the explore list
-						explore.add(stateNew);
-						// And to model
+		if (modelGens != null) {
+			src = exploreParallel(modelGens, states, explore, modelSimple, justReach, progress);
+		} else {
+			while (!explore.isEmpty()) {
+				// Pick next state to explore
+				// (they are stored in order found so know index is src+1)
+				state = explore.removeFirst();
+				src++;
+				// Explore all choices/transitions from this state
+				modelGen.exploreState(state);
+				// Look at each outgoing choice in turn
+				nc = modelGen.getNumChoices();
+				for (i = 0; i < nc; i++) {
+					// For nondet models, collect transitions in a Distribution
+					if (!justReach && modelType.nondeterministic()) {
+						distr = new Distribution();
+					}
+					// Look at each transition in the choice
+					nt = modelGen.getNumTransitions(i);
+					for (j = 0; j < nt; j++) {
+						stateNew = modelGen.computeTransitionTarget(i, j);
+						// Is this a new state?
+						if (addState(states, stateNew)) {
+							// If so, add to the explore list
+							explore.add(stateNew);
+							// And to model
+							if (!justReach) {
+								modelSimple.addState();
+							}
+						}
+						// Get index of state in state set
+						dest = states.getIndexOfLastAdd();
+						// Add transitions to model
 						if (!justReach) {
-							modelSimple.addState();
+							switch (modelType) {
+							case DTMC:
+								dtmc.addToProbability(src, dest, modelGen.getTransitionProbability(i, j));
+								break;
+							case CTMC:
+								ctmc.addToProbability(src, dest, modelGen.getTransitionProbability(i, j));
+								break;
+							case MDP:
+							case CTMDP:
+								distr.add(dest, modelGen.getTransitionProbability(i, j));
+								break;
+							case STPG:
+							case SMG:
+							case PTA:
+							case LTS:
+								throw new PrismNotSupportedException("Model construction not supported for " + modelType + "s");
+							}
 						}
 					}
-					// Get index of state in state set
-					dest = states.getIndexOfLastAdd();
-					// Add transitions to model
+					// For nondet models, add collated transition to model 
 					if (!justReach) {
-						switch (modelType) {
-						case DTMC:
-							dtmc.addToProbability(src, dest, modelGen.getTransitionProbability(i, j));
-							break;
-						case CTMC:
-							ctmc.addToProbability(src, dest, modelGen.getTransitionProbability(i, j));
-							break;
-						case MDP:
-						case CTMDP:
-							distr.add(dest, modelGen.getTransitionProbability(i, j));
-							break;
-						case STPG:
-						case SMG:
-						case PTA:
-						case LTS:
-							throw new PrismNotSupportedException("Model construction not supported for " + modelType + "s");
-						}
-					}
-				}
-				// For nondet models, add collated transition to model 
-				if (!justReach) {
-					if (modelType == ModelType.MDP) {
-						if (distinguishActions) {
-							mdp.addActionLabelledChoice(src, distr, modelGen.getChoiceAction(i));
-						} else {
-							mdp.addChoice(src, distr);
-						}
-					} else if (modelType == ModelType.CTMDP) {
-						if (distinguishActions) {
-							ctmdp.addActionLabelledChoice(src, distr, modelGen.getChoiceAction(i));
-						} else {
-							ctmdp.addChoice(src, distr);
+						if (modelType == ModelType.MDP) {
+							if (distinguishActions) {
+								mdp.addActionLabelledChoice(src, distr, modelGen.getChoiceAction(i));
+							} else {
+								mdp.addChoice(src, distr);
+							}
+						} else if (modelType == ModelType.CTMDP) {
+							if (distinguishActions) {
+								ctmdp.addActionLabelledChoice(src, distr, modelGen.getChoiceAction(i));
+							} else {
+								ctmdp.addChoice(src, distr);
+							}
 						}
 					}
 				}
+				// Print some progress info occasionally
+				progress.updateIfReady(src + 1);
 			}
-			// Print some progress info occasionally
-			progress.updateIfReady(src + 1);
 		}
 
 		// Finish progress display
@@ -300,7 +368,10 @@ public class ConstructModel extends PrismComponent
 
 		// Reachability complete
 		mainLog.print("Reachable states exploration" + (justReach ? "" : " and model construction"));
-		mainLog.println(" done in " + ((System.currentTimeMillis() - timer) / 1000.0) + " secs.");
+		timer = System.currentTimeMillis() - timer;
+		mainLog.println(" done in " + (timer / 1000.0) + " secs.");
+		printStateStorageInfo(states, timer);
+		printExploredCommandsInfo(modelGens != null ? modelGens : Collections.singletonList(modelGen));
 		//mainLog.println(states);
 
 		// Find/fix deadlocks (if required)
@@ -328,10 +399,18 @@ public class ConstructModel extends PrismComponent
 		if (!justReach) {
 			switch (modelType) {
 			case DTMC:
-				model = sort ? new DTMCSimple(dtmc, permut) : (DTMCSimple) dtmc;
+				if (buildSparse) {
+					model = sort ? new DTMCSparse(dtmc, permut) : new DTMCSparse(dtmc);
+				} else {
+					model = sort ? new DTMCSimple(dtmc, permut) : (DTMCSimple) dtmc;
+				}
 				break;
 			case CTMC:
-				model = sort ? new CTMCSimple(ctmc, permut) : (CTMCSimple) ctmc;
+				if (buildSparse) {
+					model = sort ? new CTMCSparse(ctmc, permut) : new CTMCSparse(ctmc);
+				} else {
+					model = sort ? new CTMCSimple(ctmc, permut) : (CTMCSimple) ctmc;
+				}
 				break;
 			case MDP:
 				if (buildSparse) {
@@ -364,6 +443,273 @@ public class ConstructModel extends PrismComponent
 		return model;
 	}
 
+	/**
+	 * Create {@code n} independent copies of a model generator, one for each thread
+	 * used for parallel exploration. If the model generator does not support this,
+	 * a warning is displayed and null is returned (i.e. exploration will be sequential).
+	 */
+	private List<ModelGenerator> createModelGeneratorCopies(ModelGenerator modelGen, int n) throws PrismException
+	{
+		List<ModelGenerator> modelGens = new ArrayList<>(n);
+		try {
+			for (int k = 0; k < n; k++) {
+				modelGens.add(modelGen.createCopy());
+			}
+		} catch (PrismNotSupportedException e) {
+			mainLog.printWarning("Parallel model construction not possible (" + e.getMessage() + "); using a single thread");
+			return null;
+		}
+		return modelGens;
+	}
+
+	/**
+	 * Perform (the main part of) reachability/model construction in parallel.
+	 * States are explored in batches: the states in each batch are explored concurrently,
+	 * one thread per model generator in {@code modelGens}, each thread looking up/adding
+	 * successor states in the (thread-safe) state storage {@code states}.
+	 * Transitions are then added to the model sequentially, in the same order as
+	 * for sequential exploration, so that, once the states are sorted, the model
+	 * is identical to the one built sequentially.
+	 * @param modelGens Model generators (one per thread)
+	 * @param states State storage (must be thread-safe), containing the initial states
+	 * @param explore The initial states (emptied by this method)
+	 * @param modelSimple The model being constructed (ignored if {@code justReach} is true)
+	 * @param justReach If true, just build the reachable state set, not the model
+	 * @param progress Progress display
+	 * @return the index of the last state explored (i.e. number of states, minus 1)
+	 */
+	private int exploreParallel(List<ModelGenerator> modelGens, final StateStorage<State> states, LinkedList<State> explore, ModelSimple modelSimple,
+			final boolean justReach, ProgressDisplay progress) throws PrismException
+	{
+		// Use the thread pool shared via the settings (or, if there are none, a temporary one)
+		ForkJoinPool pool = settings != null ? settings.getThreadPool(modelGens.size()) : new ForkJoinPool(modelGens.size());
+		try {
+			// Queue of states to be explored
+			ArrayDeque<ExploredState> queue = new ArrayDeque<>();
+			for (State initState : explore) {
+				queue.add(new ExploredState(initState, states.get(initState)));
+			}
+			explore.clear();
+			int numExplored = 0;
+			while (!queue.isEmpty()) {
+				// Take the next batch of states from the queue
+				final ExploredState batch[] = new ExploredState[Math.min(queue.size(), PARALLEL_BATCH_SIZE)];
+				for (int k = 0; k < batch.length; k++) {
+					batch[k] = queue.removeFirst();
+				}
+				// Explore them in parallel; each thread repeatedly claims the next chunk of the batch
+				final AtomicInteger nextChunk = new AtomicInteger(0);
+				List<Callable<Void>> tasks = new ArrayList<>(modelGens.size());
+				for (final ModelGenerator gen : modelGens) {
+					tasks.add(new Callable<Void>()
+					{
+						@Override
+						public Void call() throws PrismException
+						{
+							int lo;
+							while ((lo = nextChunk.getAndAdd(PARALLEL_CHUNK_SIZE)) < batch.length) {
+								int hi = Math.min(lo + PARALLEL_CHUNK_SIZE, batch.length);
+								for (int k = lo; k < hi; k++) {
+									batch[k].explore(gen, states, justReach);
+								}
+							}
+							return null;
+						}
+					});
+				}
+				for (Future<Void> future : pool.invokeAll(tasks)) {
+					future.get();
+				}
+				// Add new states to the queue (and model), and transitions to the model
+				if (!justReach) {
+					modelSimple.addStates(states.size() - modelSimple.getNumStates());
+				}
+				for (ExploredState exploredState : batch) {
+					queue.addAll(exploredState.newStates);
+					if (!justReach) {
+						exploredState.addToModel(modelSimple);
+					}
+				}
+				numExplored += batch.length;
+				// Print some progress info occasionally
+				progress.updateIfReady(numExplored);
+			}
+			return numExplored - 1;
+		} catch (InterruptedException e) {
+			throw new PrismException("Parallel model construction was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof PrismException) {
+				throw (PrismException) e.getCause();
+			}
+			throw new PrismException("Error during parallel model construction: " + e.getCause());
+		} finally {
+			if (settings == null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Transitions for a single state, as found during parallel exploration,
+	 * stored until they can be added to the model.
+	 */
+	private class ExploredState
+	{
+		/** The state */
+		private State state;
+		/** Index of the state in the state storage */
+		private int index;
+		/** Action for each choice */
+		private Object actions[];
+		/** Start index (in dests/probs) of the transitions for each choice (plus one extra at the end) */
+		private int choiceStarts[];
+		/** Target state index of each transition */
+		private int dests[];
+		/** Probability/rate of each transition */
+		private double probs[];
+		/** Successor states first found when exploring this one */
+		private List<ExploredState> newStates;
+
+		private ExploredState(State state, int index)
+		{
+			this.state = state;
+			this.index = index;
+		}
+
+		/**
+		 * Explore this state, using model generator {@code gen},
+		 * and adding any successor states to {@code states}.
+		 */
+		private void explore(ModelGenerator gen, StateStorage<State> states, boolean justReach) throws PrismException
+		{
+			gen.exploreState(state);
+			int nc = gen.getNumChoices();
+			int nt = gen.getNumTransitions();
+			newStates = new ArrayList<>();
+			actions = new Object[nc];
+			choiceStarts = new int[nc + 1];
+			dests = new int[nt];
+			probs = justReach ? null : new double[nt];
+			int t = 0;
+			for (int i = 0; i < nc; i++) {
+				choiceStarts[i] = t;
+				actions[i] = gen.getChoiceAction(i);
+				int ntChoice = gen.getNumTransitions(i);
+				for (int j = 0; j < ntChoice; j++, t++) {
+					State stateNew = gen.computeTransitionTarget(i, j);
+					if (addState(states, stateNew)) {
+						newStates.add(new ExploredState(stateNew, states.getIndexOfLastAdd()));
+					}
+					dests[t] = states.getIndexOfLastAdd();
+					if (!justReach) {
+						probs[t] = gen.getTransitionProbability(i, j);
+					}
+				}
+			}
+			choiceStarts[nc] = t;
+		}
+
+		/**
+		 * Add the transitions for this state to the model.
+		 * The state itself is assumed to have been added to the model already.
+		 */
+		private void addToModel(ModelSimple modelSimple) throws PrismException
+		{
+			int src = index;
+			ModelType modelType = modelSimple.getModelType();
+			for (int i = 0; i < actions.length; i++) {
+				Distribution distr = modelType.nondeterministic() ? new Distribution() : null;
+				for (int t = choiceStarts[i]; t < choiceStarts[i + 1]; t++) {
+					switch (modelType) {
+					case DTMC:
+						((DTMCSimple) modelSimple).addToProbability(src, dests[t], probs[t]);
+						break;
+					case CTMC:
+						((CTMCSimple) modelSimple).addToProbability(src, dests[t], probs[t]);
+						break;
+					case MDP:
+					case CTMDP:
+						distr.add(dests[t], probs[t]);
+						break;
+					default:
+						throw new PrismNotSupportedException("Model construction not supported for " + modelType + "s");
+					}
+				}
+				if (modelType == ModelType.MDP) {
+					if (distinguishActions) {
+						((MDPSimple) modelSimple).addActionLabelledChoice(src, distr, actions[i]);
+					} else {
+						((MDPSimple) modelSimple).addChoice(src, distr);
+					}
+				} else if (modelType == ModelType.CTMDP) {
+					if (distinguishActions) {
+						((CTMDPSimple) modelSimple).addActionLabelledChoice(src, distr, actions[i]);
+					} else {
+						((CTMDPSimple) modelSimple).addChoice(src, distr);
+					}
+				}
+			}
+			// Free up memory
+			actions = null;
+			choiceStarts = null;
+			dests = null;
+			probs = null;
+			newStates = null;
+		}
+	}
+
+	/**
+	 * Add a state to the state storage, returning true if it is new.
+	 * Errors from the storage (e.g. a variable being out of range
+	 * for a packed representation) are converted to a PrismException.
+	 */
+	private boolean addState(StateStorage<State> states, State state) throws PrismException
+	{
+		try {
+			return states.add(state);
+		} catch (IllegalArgumentException e) {
+			throw new PrismException("Could not store state " + state + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * For PRISM models, print statistics about the number of guards evaluated
+	 * per state during reachability (see {@link simulator.GuardIndex}).
+	 * @param modelGens The model generators used for exploration
+	 */
+	private void printExploredCommandsInfo(List<ModelGenerator> modelGens)
+	{
+		List<Updater> updaters = new ArrayList<>();
+		for (ModelGenerator modelGen : modelGens) {
+			if (modelGen instanceof ModulesFileModelGenerator)
+				updaters.add(((ModulesFileModelGenerator) modelGen).getUpdater());
+		}
+		if (!updaters.isEmpty())
+			mainLog.println(Updater.getExploredCommandsInfo(updaters) + ".");
+	}
+
+	/**
+	 * Print some statistics about the state storage after reachability,
+	 * i.e. the exploration rate and, where known, memory usage per state.
+	 * @param states The state storage
+	 * @param time Time taken for reachability (milliseconds)
+	 */
+	private void printStateStorageInfo(StateStorage<State> states, long time)
+	{
+		int numStates = states.size();
+		mainLog.print("State storage: ");
+		if (states instanceof PackedStateStorage) {
+			PackedStateStorage packed = (PackedStateStorage) states;
+			mainLog.print("packed hash table (" + packed.getNumWordsPerState() + " word(s) per state, ");
+			mainLog.print(String.format("%.1f", (double) packed.getMemoryUsage() / Math.max(1, numStates)) + " bytes per state), ");
+		} else if (states instanceof ConcurrentIndexedSet) {
+			mainLog.print("concurrent hash set (" + numThreads + " threads), ");
+		} else {
+			mainLog.print("sorted set, ");
+		}
+		mainLog.println(numStates + " states at " + (time == 0 ? "-" : String.format("%.1f", 1000.0 * numStates / time)) + " states/sec.");
+	}
+
 	private void attachLabels(ModelGenerator modelGen, ModelExplicit model) throws PrismException
 	{
 		// Get state info
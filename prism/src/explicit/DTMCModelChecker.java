@@ -29,6 +29,7 @@ package explicit;
 import java.io.File;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +42,7 @@ import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismFileLog;
 import prism.PrismNotSupportedException;
+import prism.PrismSettings;
 import prism.PrismUtils;
 import acceptance.AcceptanceReach;
 import acceptance.AcceptanceType;
@@ -391,6 +393,46 @@ public class DTMCModelChecker extends ProbModelChecker
 		return StateValues.createFromDoubleArray(res.soln, dtmc);
 	}
 
+	/**
+	 * Compute transient probability distribution (forwards).
+	 * Start from initial state (or uniform distribution over multiple initial states).
+	 */
+	public StateValues doTransient(DTMC dtmc, int k) throws PrismException
+	{
+		return doTransient(dtmc, k, (StateValues) null);
+	}
+
+	/**
+	 * Compute transient probability distribution (forwards).
+	 * Optionally, use the passed in file initDistFile to give the initial probability distribution (time step 0).
+	 * If null, start from initial state (or uniform distribution over multiple initial states).
+	 * @param dtmc The DTMC
+	 * @param k Time step
+	 * @param initDistFile File containing initial distribution
+	 */
+	public StateValues doTransient(DTMC dtmc, int k, File initDistFile) throws PrismException
+	{
+		StateValues initDist = readDistributionFromFile(initDistFile, dtmc);
+		return doTransient(dtmc, k, initDist);
+	}
+
+	/**
+	 * Compute transient probability distribution (forwards).
+	 * Optionally, use the passed in vector initDist as the initial probability distribution (time step 0).
+	 * If null, start from initial state (or uniform distribution over multiple initial states).
+	 * For reasons of efficiency, when a vector is passed in, it will be trampled over,
+	 * so if you wanted it, take a copy. 
+	 * @param dtmc The DTMC
+	 * @param k Time step
+	 * @param initDist Initial distribution (will be overwritten)
+	 */
+	public StateValues doTransient(DTMC dtmc, int k, StateValues initDist) throws PrismException
+	{
+		StateValues initDistNew = (initDist == null) ? buildInitialDistribution(dtmc) : initDist;
+		ModelCheckerResult res = computeTransientProbs(dtmc, k, initDistNew.getDoubleArray());
+		return StateValues.createFromDoubleArray(res.soln, dtmc);
+	}
+
 	/**
 	 * Compute transient probability distribution (forwards).
 	 * Optionally, use the passed in vector initDist as the initial probability distribution (time step 0).
@@ -403,7 +445,27 @@ public class DTMCModelChecker extends ProbModelChecker
 	 */
 	public StateValues doTransient(DTMC dtmc, int k, double initDist[]) throws PrismException
 	{
-		throw new PrismNotSupportedException("Not implemented yet");
+		if (initDist == null)
+			return doTransient(dtmc, k, (StateValues) null);
+		ModelCheckerResult res = computeTransientProbs(dtmc, k, initDist);
+		return StateValues.createFromDoubleArray(res.soln, dtmc);
+	}
+
+	/**
+	 * Compute transient probability distributions (forwards) for several time steps, in a single pass.
+	 * Optionally, use the passed in vector initDist as the initial probability distribution (time step 0).
+	 * If null, start from initial state (or uniform distribution over multiple initial states).
+	 * For reasons of efficiency, when a vector is passed in, it will be trampled over,
+	 * so if you wanted it, take a copy. 
+	 * @param dtmc The DTMC
+	 * @param ks Time steps
+	 * @param initDist Initial distribution (will be overwritten)
+	 * @param handler Handler for the distribution at each time step (called in increasing order of time step)
+	 */
+	public void doTransient(DTMC dtmc, int ks[], StateValues initDist, TransientProbsHandler handler) throws PrismException
+	{
+		StateValues initDistNew = (initDist == null) ? buildInitialDistribution(dtmc) : initDist;
+		computeTransientProbs(dtmc, ks, initDistNew.getDoubleArray(), handler);
 	}
 
 	// Numerical computation functions
@@ -514,7 +576,7 @@ public class DTMCModelChecker extends ProbModelChecker
 		LinEqMethod linEqMethod = this.linEqMethod;
 
 		// Switch to a supported method, if necessary
-		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.GAUSS_SEIDEL)) {
+		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.GAUSS_SEIDEL || linEqMethod == LinEqMethod.TOPOLOGICAL)) {
 			linEqMethod = LinEqMethod.GAUSS_SEIDEL;
 			mainLog.printWarning("Switching to linear equation solution method \"" + linEqMethod.fullName() + "\"");
 		}
@@ -593,6 +655,9 @@ public class DTMCModelChecker extends ProbModelChecker
 		case GAUSS_SEIDEL:
 			res = computeReachProbsGaussSeidel(dtmc, no, yes, init, known);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachProbsTopological(dtmc, no, yes, init, known);
+			break;
 		default:
 			throw new PrismException("Unknown linear equation solution method " + linEqMethod.fullName());
 		}
@@ -916,19 +981,26 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
-		// Start iterations
-		iters = 0;
-		done = false;
-		while (!done && iters < maxIters) {
-			iters++;
-			// Matrix-vector multiply
-			dtmc.mvMult(soln, soln2, unknown, false);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(dtmc, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			done = false;
+			while (!done && iters < maxIters) {
+				iters++;
+				// Matrix-vector multiply
+				mvMult.mvMult(soln, soln2, unknown, false);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+			}
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished value iteration
@@ -1035,6 +1107,64 @@ public class DTMCModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute reachability probabilities using topological value iteration,
+	 * i.e. solving the SCCs of the states with unknown values one at a time, in reverse topological order.
+	 * @param dtmc The DTMC
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsTopological(final DTMC dtmc, BitSet no, BitSet yes, double init[], BitSet known) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[], initVal;
+
+		// Store num states
+		n = dtmc.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) passed in initial value; (4) initVal
+		// where initVal is 0.0 or 1.0, depending on whether we converge from below/above. 
+		initVal = (valIterDir == ValIterDir.BELOW) ? 0.0 : 1.0;
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : initVal;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve, using Jacobi-style updates within each SCC (i.e. Gauss-Seidel)
+		return computeTopological(dtmc, soln, unknown, new StateUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return dtmc.mvMultJacSingle(s, soln);
+			}
+		});
+	}
+
 	/**
 	 * Compute bounded reachability probabilities.
 	 * i.e. compute the probability of reaching a state in {@code target} within k steps.
@@ -1113,23 +1243,30 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (remain != null)
 			unknown.and(remain);
 
-		// Start iterations
-		iters = 0;
-		while (iters < k) {
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(dtmc, getThreadPool());
 
-			iters++;
-			// Matrix-vector multiply
-			dtmc.mvMult(soln, soln2, unknown, false);
-			// Store intermediate results if required
-			// (compute min/max value over initial states for this step)
-			if (results != null) {
-				// TODO: whether this is min or max should be specified somehow
-				results[iters] = Utils.minMaxOverArraySubset(soln2, dtmc.getInitialStates(), true);
+		try {
+			// Start iterations
+			iters = 0;
+			while (iters < k) {
+
+				iters++;
+				// Matrix-vector multiply
+				mvMult.mvMult(soln, soln2, unknown, false);
+				// Store intermediate results if required
+				// (compute min/max value over initial states for this step)
+				if (results != null) {
+					// TODO: whether this is min or max should be specified somehow
+					results[iters] = Utils.minMaxOverArraySubset(soln2, dtmc.getInitialStates(), true);
+				}
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
 			}
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished bounded probabilistic reachability
@@ -1177,7 +1314,7 @@ public class DTMCModelChecker extends ProbModelChecker
 		LinEqMethod linEqMethod = this.linEqMethod;
 
 		// Switch to a supported method, if necessary
-		if (!(linEqMethod == LinEqMethod.POWER)) {
+		if (!(linEqMethod == LinEqMethod.POWER || linEqMethod == LinEqMethod.TOPOLOGICAL)) {
 			linEqMethod = LinEqMethod.POWER;
 			mainLog.printWarning("Switching to linear equation solution method \"" + linEqMethod.fullName() + "\"");
 		}
@@ -1219,6 +1356,9 @@ public class DTMCModelChecker extends ProbModelChecker
 		case POWER:
 			res = computeReachRewardsValIter(dtmc, mcRewards, target, inf, init, known);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachRewardsTopological(dtmc, mcRewards, target, inf, init, known);
+			break;
 		default:
 			throw new PrismException("Unknown linear equation solution method " + linEqMethod.fullName());
 		}
@@ -1288,20 +1428,27 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
-		// Start iterations
-		iters = 0;
-		done = false;
-		while (!done && iters < maxIters) {
-			//mainLog.println(soln);
-			iters++;
-			// Matrix-vector multiply
-			dtmc.mvMultRew(soln, mcRewards, soln2, unknown, false);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(dtmc, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			done = false;
+			while (!done && iters < maxIters) {
+				//mainLog.println(soln);
+				iters++;
+				// Matrix-vector multiply
+				mvMult.mvMultRew(soln, mcRewards, soln2, unknown, false);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+			}
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished value iteration
@@ -1324,6 +1471,64 @@ public class DTMCModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute expected reachability rewards using topological value iteration,
+	 * i.e. solving the SCCs of the states with unknown values one at a time, in reverse topological order.
+	 * @param dtmc The DTMC
+	 * @param mcRewards The rewards
+	 * @param target Target states
+	 * @param inf States for which reward is infinite
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.
+	 */
+	protected ModelCheckerResult computeReachRewardsTopological(final DTMC dtmc, final MCRewards mcRewards, BitSet target, BitSet inf, double init[],
+			BitSet known) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[];
+
+		// Store num states
+		n = dtmc.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 0.0/infinity if in target/inf; (3) passed in initial value; (4) 0.0
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : 0.0;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(target);
+		unknown.andNot(inf);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve, using in-place updates within each SCC
+		return computeTopological(dtmc, soln, unknown, new StateUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return dtmc.mvMultRewSingle(s, soln, mcRewards);
+			}
+		});
+	}
+
 	/**
 	 * Compute (forwards) steady-state probabilities
 	 * i.e. compute the long-run probability of being in each state,
@@ -1375,7 +1580,7 @@ public class DTMCModelChecker extends ProbModelChecker
 		if (allInOneBSCC != -1) {
 			mainLog.println("\nInitial states all in one BSCC (so no reachability probabilities computed)");
 			bscc = bsccs.get(allInOneBSCC);
-			computeSteadyStateProbsForBSCC(dtmc, bscc, solnProbs);
+			computeSteadyStateProbsForBSCCs(dtmc, Collections.singletonList(bscc), solnProbs);
 		}
 
 		// Otherwise, have to consider all the BSCCs
@@ -1398,11 +1603,9 @@ public class DTMCModelChecker extends ProbModelChecker
 			}
 
 			// Compute steady-state probabilities for each BSCC 
+			computeSteadyStateProbsForBSCCs(dtmc, bsccs, solnProbs);
 			for (int b = 0; b < numBSCCs; b++) {
-				mainLog.println("\nComputing steady-state probabilities for BSCC " + (b + 1));
 				bscc = bsccs.get(b);
-				// Compute steady-state probabilities for the BSCC
-				computeSteadyStateProbsForBSCC(dtmc, bscc, solnProbs);
 				// Multiply by BSCC reach prob
 				for (int i = bscc.nextSetBit(0); i >= 0; i = bscc.nextSetBit(i + 1))
 					solnProbs[i] *= probBSCCs[b];
@@ -1449,11 +1652,9 @@ public class DTMCModelChecker extends ProbModelChecker
 		// Compute steady-state probability for each BSCC...
 		probBSCCs = new double[numBSCCs];
 		ssProbs = new double[n];
+		computeSteadyStateProbsForBSCCs(dtmc, bsccs, ssProbs);
 		for (int b = 0; b < numBSCCs; b++) {
-			mainLog.println("\nComputing steady state probabilities for BSCC " + (b + 1));
 			bscc = bsccs.get(b);
-			// Compute steady-state probabilities for the BSCC
-			computeSteadyStateProbsForBSCC(dtmc, bscc, ssProbs);
 			// Compute weighted sum of probabilities with multProbs
 			probBSCCs[b] = 0.0;
 			if (multProbs == null) {
@@ -1510,6 +1711,48 @@ public class DTMCModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute steady-state probabilities for several BSCCs, each one solved separately,
+	 * on a local copy of its transitions (see {@link BSCCSteadyStateSolver}).
+	 * The results are stored in the relevant portions of a full vector {@code result},
+	 * whose size equals the number of states in the DTMC.
+	 * @param dtmc The DTMC
+	 * @param bsccs The BSCCs to be analysed
+	 * @param result Storage for result
+	 */
+	public void computeSteadyStateProbsForBSCCs(DTMC dtmc, List<BitSet> bsccs, double result[]) throws PrismException
+	{
+		long timer;
+
+		timer = System.currentTimeMillis();
+		mainLog.println("\nComputing steady-state probabilities for " + bsccs.size() + " BSCC(s)...");
+
+		// Set up and run solver
+		BSCCSteadyStateSolver solver = new BSCCSteadyStateSolver(dtmc);
+		solver.setTermCrit(termCrit == TermCrit.ABSOLUTE, termCritParam);
+		solver.setMaxIters(maxIters);
+		if ((linEqMethod == LinEqMethod.SOR || linEqMethod == LinEqMethod.BACKWARDS_SOR) && settings != null) {
+			solver.setOmega(settings.getDouble(PrismSettings.PRISM_LIN_EQ_METHOD_PARAM));
+		}
+		solver.setThreadPool(getThreadPool());
+		solver.solve(bsccs, result);
+
+		// Finished
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Steady-state computation took " + timer / 1000.0 + " seconds");
+		mainLog.print(" (" + solver.getNumDirect() + " BSCC(s) solved directly, " + solver.getNumIterative() + " iteratively");
+		if (solver.getNumIterative() > 0)
+			mainLog.print(", max " + solver.getMaxItersTaken() + " iterations");
+		mainLog.println(").");
+
+		// Non-convergence is an error (usually)
+		if (solver.getNumNotConverged() > 0 && errorOnNonConverge) {
+			String msg = "Iterative method did not converge within " + maxIters + " iterations for " + solver.getNumNotConverged() + " BSCC(s).";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+	}
+
 	/**
 	 * Compute steady-state probabilities for a BSCC
 	 * i.e. compute the long-run probability of being in each state of the BSCC.
@@ -1593,7 +1836,96 @@ public class DTMCModelChecker extends ProbModelChecker
 	 */
 	public ModelCheckerResult computeTransientProbs(DTMC dtmc, int k, double initDist[]) throws PrismException
 	{
-		throw new PrismNotSupportedException("Not implemented yet");
+		final ModelCheckerResult res = new ModelCheckerResult();
+		computeTransientProbs(dtmc, new int[] { k }, initDist, new TransientProbsHandler()
+		{
+			@Override
+			public void handle(int k, double probs[])
+			{
+				res.soln = probs;
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Handler for transient probabilities computed for several time steps
+	 * (see {@link DTMCModelChecker#computeTransientProbs(DTMC, int[], double[], TransientProbsHandler)}).
+	 */
+	public interface TransientProbsHandler
+	{
+		/**
+		 * Process the transient probabilities {@code probs} for time step {@code k}.
+		 * The vector is reused for later time steps, so take a copy if it needs to be kept.
+		 */
+		public void handle(int k, double probs[]) throws PrismException;
+	}
+
+	/**
+	 * Compute transient probabilities for several time steps in a single pass,
+	 * i.e. compute the probability of being in each state at each time step in {@code ks},
+	 * assuming the initial distribution {@code initDist}.
+	 * The distribution for each time step is passed to {@code handler} as soon as it is available,
+	 * in increasing order of time step. Only two vectors are used, one of which is {@code initDist},
+	 * so the initial distribution vector will be modified and values over-written.
+	 * If the distribution reaches a fixed point (i.e. one step leaves it exactly unchanged),
+	 * it is used for all remaining time steps, without further computation.
+	 * @param dtmc The DTMC
+	 * @param ks Time steps (in any order; duplicates are only handled once)
+	 * @param initDist Initial distribution (will be overwritten)
+	 * @param handler Handler for each distribution
+	 */
+	public void computeTransientProbs(DTMC dtmc, int ks[], double initDist[], TransientProbsHandler handler) throws PrismException
+	{
+		int n, iters, kMax;
+		int ksSorted[];
+		double soln[], soln2[], tmpsoln[];
+		boolean fixedPoint;
+		long timer;
+
+		// Sort time steps and check them
+		ksSorted = ks.clone();
+		Arrays.sort(ksSorted);
+		if (ksSorted.length > 0 && ksSorted[0] < 0)
+			throw new PrismException("Cannot compute transient probabilities for negative time step " + ksSorted[0]);
+		kMax = ksSorted.length > 0 ? ksSorted[ksSorted.length - 1] : 0;
+
+		// Start iterations
+		timer = System.currentTimeMillis();
+		mainLog.println("\nStarting transient probability computation (up to step " + kMax + ")...");
+
+		// Create solution vectors (use the initial distribution as the first)
+		n = dtmc.getNumStates();
+		soln = initDist;
+		soln2 = new double[n];
+
+		// Step through time points, in order
+		iters = 0;
+		fixedPoint = false;
+		for (int i = 0; i < ksSorted.length; i++) {
+			if (i > 0 && ksSorted[i] == ksSorted[i - 1])
+				continue;
+			while (iters < ksSorted[i] && !fixedPoint) {
+				iters++;
+				// Vector-matrix multiply
+				dtmc.vmMult(soln, soln2);
+				// Check for a fixed point (exactly: a distribution that is just close to
+				// the next one may still change considerably over many more steps)
+				fixedPoint = Arrays.equals(soln, soln2);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+				if (fixedPoint)
+					mainLog.println("Fixed point detected at step " + iters);
+			}
+			handler.handle(ksSorted[i], soln);
+		}
+
+		// Finished
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Transient probability computation");
+		mainLog.println(" took " + iters + " iterations and " + timer / 1000.0 + " seconds.");
 	}
 
 	/**
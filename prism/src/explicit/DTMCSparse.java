@@ -0,0 +1,481 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import common.IterableStateSet;
+
+import prism.PrismException;
+import explicit.rewards.MCRewards;
+
+/**
+ * Sparse matrix (non-mutable) explicit-state representation of a DTMC.
+ * This is much faster to access than e.g. DTMCSimple and should also be more compact.
+ * The catch is that you have to create the model all in one go and then can't modify it.
+ */
+public class DTMCSparse extends DTMCExplicit
+{
+	// Sparse matrix storing transition function
+	/** Probabilities for each transition (array of size numTransitions) */
+	protected double nonZeros[];
+	/** Column (destination) indices for each transition (array of size numTransitions) */
+	protected int cols[];
+	/** Indices into nonZeros/cols giving the start of the transitions for each state;
+	 * array is of size numStates+1 and last entry is always equal to numTransitions */
+	protected int rowStarts[];
+
+	// Constructors
+
+	/**
+	 * Constructor: empty DTMC (for use by subclasses, which fill in the arrays).
+	 */
+	protected DTMCSparse()
+	{
+		initialise(0);
+	}
+
+	/**
+	 * Constructor: DTMC with {@code numStates} states and the transition matrix given
+	 * in compressed sparse row form (the arrays are stored, not copied).
+	 * Initial states, states list, etc. should be set separately afterwards.
+	 * @param numStates Number of states
+	 * @param rowStarts Indices into cols/nonZeros for the start of each state's transitions (size numStates+1)
+	 * @param cols Destination of each transition
+	 * @param nonZeros Probability of each transition
+	 */
+	public DTMCSparse(int numStates, int rowStarts[], int cols[], double nonZeros[])
+	{
+		initialise(numStates);
+		this.rowStarts = rowStarts;
+		this.cols = cols;
+		this.nonZeros = nonZeros;
+	}
+
+	/**
+	 * Copy constructor (from DTMCSimple).
+	 * Transitions for each state are sorted (by ascending order of column index).
+	 * @param dtmc The DTMC to copy
+	 */
+	public DTMCSparse(DTMCSimple dtmc)
+	{
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc);
+		buildFromDistributions(dtmc, null);
+	}
+
+	/**
+	 * Copy constructor (from DTMCSimple), with a state index permutation,
+	 * i.e. old state index i becomes index permut[i].
+	 * Transitions for each state are sorted (by ascending order of column index).
+	 * Note: a states list, if present, will not be permuted and should be set
+	 * separately afterwards if required.
+	 * @param dtmc The DTMC to copy
+	 * @param permut State space permutation
+	 */
+	public DTMCSparse(DTMCSimple dtmc, int permut[])
+	{
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc, permut);
+		buildFromDistributions(dtmc, permut);
+	}
+
+	/**
+	 * Fill in the sparse matrix from the distributions of a DTMCSimple,
+	 * optionally applying a state index permutation (if {@code permut} is non-null).
+	 */
+	private void buildFromDistributions(DTMCSimple dtmc, int permut[])
+	{
+		int i, k, src;
+		int permutInv[] = null;
+		TreeMap<Integer, Double> sorted = new TreeMap<>();
+		// Compute the inverse of the permutation
+		if (permut != null) {
+			permutInv = new int[numStates];
+			for (i = 0; i < numStates; i++) {
+				permutInv[permut[i]] = i;
+			}
+		}
+		// Copy transition function
+		nonZeros = new double[dtmc.getNumTransitions()];
+		cols = new int[dtmc.getNumTransitions()];
+		rowStarts = new int[numStates + 1];
+		k = 0;
+		for (i = 0; i < numStates; i++) {
+			rowStarts[i] = k;
+			src = permut == null ? i : permutInv[i];
+			for (Map.Entry<Integer, Double> e : dtmc.trans.get(src)) {
+				sorted.put(permut == null ? e.getKey() : permut[e.getKey()], e.getValue());
+			}
+			for (Map.Entry<Integer, Double> e : sorted.entrySet()) {
+				cols[k] = e.getKey();
+				nonZeros[k] = e.getValue();
+				k++;
+			}
+			sorted.clear();
+		}
+		rowStarts[numStates] = k;
+	}
+
+	// Mutators (other)
+
+	@Override
+	public void initialise(int numStates)
+	{
+		super.initialise(numStates);
+		nonZeros = new double[0];
+		cols = new int[0];
+		rowStarts = new int[numStates + 1];
+	}
+
+	@Override
+	public void buildFromPrismExplicit(String filename) throws PrismException
+	{
+		DTMCSimple dtmc = new DTMCSimple();
+		dtmc.buildFromPrismExplicit(filename);
+		initialise(dtmc.getNumStates());
+		copyFrom(dtmc);
+		buildFromDistributions(dtmc, null);
+	}
+
+	// Accessors (for Model)
+
+	@Override
+	public int getNumTransitions()
+	{
+		return rowStarts[numStates];
+	}
+
+	@Override
+	public Iterator<Integer> getSuccessorsIterator(final int s)
+	{
+		// Columns are sorted (and distinct) within each row, so no need to remove duplicates
+		return new Iterator<Integer>()
+		{
+			int k = rowStarts[s];
+			final int end = rowStarts[s + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return k < end;
+			}
+
+			@Override
+			public Integer next()
+			{
+				assert (k < end);
+				return cols[k++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean isSuccessor(int s1, int s2)
+	{
+		int k, h;
+		h = rowStarts[s1 + 1];
+		for (k = rowStarts[s1]; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (cols[k] == s2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean allSuccessorsInSet(int s, BitSet set)
+	{
+		int k, h;
+		h = rowStarts[s + 1];
+		for (k = rowStarts[s]; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (!set.get(cols[k])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean someSuccessorsInSet(int s, BitSet set)
+	{
+		int k, h;
+		h = rowStarts[s + 1];
+		for (k = rowStarts[s]; k < h; k++) {
+			// Assume that only non-zero entries are stored
+			if (set.get(cols[k])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void findDeadlocks(boolean fix) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			if (rowStarts[i] == rowStarts[i + 1]) {
+				addDeadlockState(i);
+				if (fix) {
+					throw new PrismException("Can't fix deadlocks in a " + getClass().getSimpleName() + " since it cannot be modified after construction");
+				}
+			}
+		}
+	}
+
+	@Override
+	public void checkForDeadlocks(BitSet except) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			if (rowStarts[i] == rowStarts[i + 1] && (except == null || !except.get(i)))
+				throw new PrismException(getModelType() + " has a deadlock in state " + i);
+		}
+	}
+
+	// Accessors (for DTMC)
+
+	@Override
+	public int getNumTransitions(int s)
+	{
+		return rowStarts[s + 1] - rowStarts[s];
+	}
+
+	@Override
+	public Iterator<Entry<Integer, Double>> getTransitionsIterator(final int s)
+	{
+		return new Iterator<Entry<Integer, Double>>()
+		{
+			int col = rowStarts[s];
+			final int end = rowStarts[s + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return col < end;
+			}
+
+			@Override
+			public Entry<Integer, Double> next()
+			{
+				assert (col < end);
+				final int i = col;
+				col++;
+				return new Entry<Integer, Double>()
+				{
+					int key = cols[i];
+					double value = nonZeros[i];
+
+					@Override
+					public Integer getKey()
+					{
+						return key;
+					}
+
+					@Override
+					public Double getValue()
+					{
+						return value;
+					}
+
+					@Override
+					public Double setValue(Double arg0)
+					{
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public void prob0step(BitSet subset, BitSet u, BitSet result)
+	{
+		for (int i : new IterableStateSet(subset, numStates)) {
+			result.set(i, someSuccessorsInSet(i, u));
+		}
+	}
+
+	@Override
+	public void prob1step(BitSet subset, BitSet u, BitSet v, BitSet result)
+	{
+		for (int i : new IterableStateSet(subset, numStates)) {
+			result.set(i, someSuccessorsInSet(i, v) && allSuccessorsInSet(i, u));
+		}
+	}
+
+	@Override
+	public void mvMult(double vect[], double result[], BitSet subset, boolean complement)
+	{
+		int s, k, h;
+		double d;
+		// Loop directly over the matrix when all states are needed
+		if (subset == null || (complement && subset.isEmpty())) {
+			for (s = 0; s < numStates; s++) {
+				d = 0.0;
+				h = rowStarts[s + 1];
+				for (k = rowStarts[s]; k < h; k++) {
+					d += nonZeros[k] * vect[cols[k]];
+				}
+				result[s] = d;
+			}
+		} else {
+			super.mvMult(vect, result, subset, complement);
+		}
+	}
+
+	@Override
+	public double mvMultSingle(int s, double vect[])
+	{
+		int k, h;
+		double d;
+		d = 0.0;
+		h = rowStarts[s + 1];
+		for (k = rowStarts[s]; k < h; k++) {
+			d += nonZeros[k] * vect[cols[k]];
+		}
+		return d;
+	}
+
+	@Override
+	public double mvMultJacSingle(int s, double vect[])
+	{
+		int k, h, col;
+		double diag, d;
+		diag = 1.0;
+		d = 0.0;
+		h = rowStarts[s + 1];
+		for (k = rowStarts[s]; k < h; k++) {
+			col = cols[k];
+			if (col != s) {
+				d += nonZeros[k] * vect[col];
+			} else {
+				diag -= nonZeros[k];
+			}
+		}
+		if (diag > 0)
+			d /= diag;
+		return d;
+	}
+
+	@Override
+	public double mvMultRewSingle(int s, double vect[], MCRewards mcRewards)
+	{
+		int k, h;
+		double d;
+		d = mcRewards.getStateReward(s);
+		h = rowStarts[s + 1];
+		for (k = rowStarts[s]; k < h; k++) {
+			d += nonZeros[k] * vect[cols[k]];
+		}
+		return d;
+	}
+
+	@Override
+	public void vmMult(double vect[], double result[])
+	{
+		int i, k, h;
+		double d;
+		// Initialise result to 0
+		for (i = 0; i < numStates; i++) {
+			result[i] = 0;
+		}
+		// Go through matrix elements (by row)
+		for (i = 0; i < numStates; i++) {
+			d = vect[i];
+			h = rowStarts[i + 1];
+			for (k = rowStarts[i]; k < h; k++) {
+				result[cols[k]] += nonZeros[k] * d;
+			}
+		}
+	}
+
+	// Standard methods
+
+	@Override
+	public String toString()
+	{
+		int i, k, h;
+		String s = "";
+		s = "trans: [ ";
+		for (i = 0; i < numStates; i++) {
+			if (i > 0)
+				s += ", ";
+			s += i + ": {";
+			h = rowStarts[i + 1];
+			for (k = rowStarts[i]; k < h; k++) {
+				if (k > rowStarts[i])
+					s += ", ";
+				s += cols[k] + "=" + nonZeros[k];
+			}
+			s += "}";
+		}
+		s += " ]";
+		return s;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == null || !(o instanceof DTMCSparse))
+			return false;
+		if (!super.equals(o))
+			return false;
+		DTMCSparse dtmc = (DTMCSparse) o;
+		if (!Utils.doubleArraysAreEqual(nonZeros, dtmc.nonZeros))
+			return false;
+		if (!Utils.intArraysAreEqual(cols, dtmc.cols))
+			return false;
+		if (!Utils.intArraysAreEqual(rowStarts, dtmc.rowStarts))
+			return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		// Simple hash code (consistent with equals)
+		return numStates * 31 + getNumTransitions();
+	}
+}
@@ -31,6 +31,7 @@ import java.util.List;
 
 import prism.PrismComponent;
 import prism.PrismException;
+import prism.PrismSettings;
 
 /**
  * Abstract class for (explicit) classes that compute (M)ECs, i.e. (maximal) end components,
@@ -43,8 +44,10 @@ public abstract class ECComputer extends PrismComponent
 	 */
 	public static ECComputer createECComputer(PrismComponent parent, NondetModel model)
 	{
-		// Only one algorithm implemented currently
-		return new ECComputerDefault(parent, model);
+		if (parent != null && parent.getSettings() != null && "Basic".equals(parent.getSettings().getString(PrismSettings.PRISM_EXPLICIT_MEC_METHOD))) {
+			return new ECComputerDefault(parent, model);
+		}
+		return new ECComputerIncremental(parent, model);
 	}
 
 	/**
@@ -105,6 +105,7 @@ public class ECComputerDefault extends ECComputer
 			restrict.set(0, model.getNumStates());
 		}
 		// Initialise L with set of all states to look in (if non-empty)
+		processedSCCs.clear();
 		List<BitSet> L = new ArrayList<>();
 		if (restrict.isEmpty())
 			return L;
@@ -0,0 +1,444 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import prism.PrismComponent;
+
+/**
+ * Explicit maximal end component computer for a nondeterministic model such as an MDP,
+ * using incremental SCC refinement on primitive arrays.
+ * <br><br>
+ * Each candidate set of states is split into SCCs (using only currently enabled choices);
+ * choices that leave their state's SCC are then disabled and states with no remaining
+ * enabled choices are removed, which in turn disables choices leading to them (an attractor-style
+ * backwards propagation, via a precomputed predecessor relation). Only SCCs that were affected
+ * by this are split again; the others are MECs. The (choice-level) transition structure is
+ * copied into arrays once, on construction (or taken directly from the model, for an {@link MDPSparse}),
+ * so the same object can be used efficiently for several computations on one model.
+ */
+public class ECComputerIncremental extends ECComputer
+{
+	/** The model to compute (M)ECs for **/
+	private NondetModel model;
+	/** Number of states/choices */
+	private int numStates;
+	private int numChoices;
+
+	/** Transition structure: choices of state s are rowStarts[s]..rowStarts[s+1]-1;
+	 * successors of choice c are cols[k] for k = choiceStarts[c]..choiceStarts[c+1]-1 */
+	private int rowStarts[];
+	private int choiceStarts[];
+	private int cols[];
+	/** Predecessor relation: choices with state t as a successor are
+	 * predChoices[k] for k = predStarts[t]..predStarts[t+1]-1 */
+	private int predStarts[];
+	private int predChoices[];
+	/** State owning each choice */
+	private int choiceOwner[];
+
+	/** Computed list of MECs **/
+	private List<BitSet> mecs = new ArrayList<>();
+
+	// Storage used during the computation
+
+	/** Current candidate component of each state, identified by one of its states (-1 if none) */
+	private int comp[];
+	/** Currently enabled choices (i.e., those whose successors all lie in the owner's component) */
+	private BitSet enabled;
+	/** Number of enabled choices for each state */
+	private int numEnabled[];
+	/** Queue of states (with no enabled choices) to be removed */
+	private int removeQueue[];
+	private int removeQueueSize;
+	/** Components which have been affected by the removal of choices/states */
+	private BitSet touched;
+	/** Storage for Tarjan's algorithm (see {@link #splitIntoSCCs}) */
+	private int nodeIndex[];
+	private int lowlink[];
+	private BitSet onStack;
+	private int sccStack[];
+	private int callStack[];
+	private int callChoice[];
+	private int callPos[];
+	/** SCCs found by the last call to {@link #splitIntoSCCs} */
+	private int sccStates[];
+	private int sccStarts[];
+	private int numSCCs;
+
+	/**
+	 * Build (M)EC computer for a given model.
+	 */
+	public ECComputerIncremental(PrismComponent parent, NondetModel model)
+	{
+		super(parent);
+		this.model = model;
+		numStates = model.getNumStates();
+		if (model instanceof MDPSparse) {
+			rowStarts = ((MDPSparse) model).rowStarts;
+			choiceStarts = ((MDPSparse) model).choiceStarts;
+			cols = ((MDPSparse) model).cols;
+			numChoices = rowStarts[numStates];
+		} else {
+			buildTransitionArrays();
+		}
+		buildPredecessorArrays();
+	}
+
+	/**
+	 * Copy the (choice-level) transition structure of the model into arrays.
+	 */
+	private void buildTransitionArrays()
+	{
+		int s, i, n, c, k;
+		Iterator<Integer> it;
+		numChoices = model.getNumChoices();
+		rowStarts = new int[numStates + 1];
+		choiceStarts = new int[numChoices + 1];
+		// First pass: count successors of each choice
+		c = k = 0;
+		for (s = 0; s < numStates; s++) {
+			rowStarts[s] = c;
+			n = model.getNumChoices(s);
+			for (i = 0; i < n; i++) {
+				choiceStarts[c++] = k;
+				for (it = model.getSuccessorsIterator(s, i); it.hasNext(); it.next()) {
+					k++;
+				}
+			}
+		}
+		rowStarts[numStates] = c;
+		choiceStarts[c] = k;
+		// Second pass: store successors
+		cols = new int[k];
+		k = 0;
+		for (s = 0; s < numStates; s++) {
+			n = model.getNumChoices(s);
+			for (i = 0; i < n; i++) {
+				for (it = model.getSuccessorsIterator(s, i); it.hasNext();) {
+					cols[k++] = it.next();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build the (choice-level) predecessor relation and choice owners from the transition arrays.
+	 */
+	private void buildPredecessorArrays()
+	{
+		int s, c, k, t;
+		choiceOwner = new int[numChoices];
+		predStarts = new int[numStates + 1];
+		predChoices = new int[choiceStarts[numChoices]];
+		// Count predecessors of each state (offset by one), then take prefix sums
+		for (k = 0; k < choiceStarts[numChoices]; k++) {
+			predStarts[cols[k] + 1]++;
+		}
+		for (t = 1; t <= numStates; t++) {
+			predStarts[t] += predStarts[t - 1];
+		}
+		int fill[] = Arrays.copyOf(predStarts, numStates);
+		for (s = 0; s < numStates; s++) {
+			for (c = rowStarts[s]; c < rowStarts[s + 1]; c++) {
+				choiceOwner[c] = s;
+				for (k = choiceStarts[c]; k < choiceStarts[c + 1]; k++) {
+					predChoices[fill[cols[k]]++] = c;
+				}
+			}
+		}
+	}
+
+	// Methods for ECComputer interface
+
+	@Override
+	public void computeMECStates()
+	{
+		mecs = findEndComponents(null, null);
+	}
+
+	@Override
+	public void computeMECStates(BitSet restrict)
+	{
+		mecs = findEndComponents(restrict, null);
+	}
+
+	@Override
+	public void computeMECStates(BitSet restrict, BitSet accept)
+	{
+		mecs = findEndComponents(restrict, accept);
+	}
+
+	@Override
+	public List<BitSet> getMECStates()
+	{
+		return mecs;
+	}
+
+	// Computation
+
+	/**
+	 * Find all accepting maximal end components (MECs) in the submodel obtained
+	 * by restricting this one to the set of states {@code restrict},
+	 * where acceptance is defined as those which intersect with {@code accept}.
+	 * If {@code restrict} is null, we look at the whole model, not a submodel.
+	 * If {@code accept} is null, the acceptance condition is trivially satisfied.
+	 * @param restrict BitSet for the set of states to restrict to
+	 * @param accept BitSet for the set of accepting states
+	 * @return a list of BitSets representing the MECs
+	 */
+	private List<BitSet> findEndComponents(BitSet restrict, BitSet accept)
+	{
+		List<BitSet> result = new ArrayList<>();
+		int s, c, i, j, n, label, first;
+
+		// If restrict is null, look within set of all reachable states
+		if (restrict == null) {
+			restrict = new BitSet();
+			restrict.set(0, numStates);
+		}
+		first = restrict.nextSetBit(0);
+		if (first < 0 || first >= numStates)
+			return result;
+
+		// Initialise storage
+		comp = new int[numStates];
+		Arrays.fill(comp, -1);
+		enabled = new BitSet(numChoices);
+		numEnabled = new int[numStates];
+		removeQueue = new int[numStates];
+		removeQueueSize = 0;
+		touched = new BitSet(numStates);
+		nodeIndex = new int[numStates];
+		lowlink = new int[numStates];
+		onStack = new BitSet(numStates);
+		sccStack = new int[numStates];
+		callStack = new int[numStates];
+		callChoice = new int[numStates];
+		callPos = new int[numStates];
+		sccStates = new int[numStates];
+		sccStarts = new int[numStates + 1];
+
+		// Initially, all states of restrict form a single candidate,
+		// using just those choices which remain within it
+		n = 0;
+		for (s = restrict.nextSetBit(0); s >= 0 && s < numStates; s = restrict.nextSetBit(s + 1)) {
+			comp[s] = first;
+			n++;
+		}
+		for (s = restrict.nextSetBit(0); s >= 0 && s < numStates; s = restrict.nextSetBit(s + 1)) {
+			for (c = rowStarts[s]; c < rowStarts[s + 1]; c++) {
+				if (allSuccessorsInComponent(c, first)) {
+					enabled.set(c);
+					numEnabled[s]++;
+				}
+			}
+			if (numEnabled[s] == 0)
+				removeQueue[removeQueueSize++] = s;
+		}
+		removeStates();
+		touched.clear();
+		Deque<int[]> todo = new ArrayDeque<>();
+		int initial[] = new int[n];
+		i = 0;
+		for (s = restrict.nextSetBit(0); s >= 0 && s < numStates; s = restrict.nextSetBit(s + 1)) {
+			if (comp[s] != -1)
+				initial[i++] = s;
+		}
+		if (i > 0)
+			todo.push(Arrays.copyOf(initial, i));
+
+		// Repeatedly refine candidates until they are end components
+		while (!todo.isEmpty()) {
+			int states[] = todo.pop();
+			splitIntoSCCs(states);
+			// Disable choices which leave their SCC
+			for (int t : states) {
+				label = comp[t];
+				for (c = rowStarts[t]; c < rowStarts[t + 1]; c++) {
+					if (enabled.get(c) && !allSuccessorsInComponent(c, label)) {
+						enabled.clear(c);
+						touched.set(label);
+						if (--numEnabled[t] == 0)
+							removeQueue[removeQueueSize++] = t;
+					}
+				}
+			}
+			removeStates();
+			// Unaffected SCCs are MECs; others need to be split again
+			for (i = 0; i < numSCCs; i++) {
+				label = sccStates[sccStarts[i]];
+				for (j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+					if (comp[sccStates[j]] != -1) {
+						label = comp[sccStates[j]];
+						break;
+					}
+				}
+				if (touched.get(label)) {
+					n = 0;
+					for (j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+						if (comp[sccStates[j]] != -1)
+							sccStates[sccStarts[i] + n++] = sccStates[j];
+					}
+					if (n > 0)
+						todo.push(Arrays.copyOfRange(sccStates, sccStarts[i], sccStarts[i] + n));
+				} else if (comp[label] != -1) {
+					BitSet mec = new BitSet();
+					for (j = sccStarts[i]; j < sccStarts[i + 1]; j++) {
+						mec.set(sccStates[j]);
+					}
+					if (accept == null || mec.intersects(accept))
+						result.add(mec);
+				}
+			}
+			// Reset storage for these states
+			for (int t : states) {
+				touched.clear(t);
+				nodeIndex[t] = 0;
+			}
+		}
+
+		// Free memory
+		comp = numEnabled = removeQueue = nodeIndex = lowlink = null;
+		sccStack = callStack = callChoice = callPos = sccStates = sccStarts = null;
+		enabled = touched = onStack = null;
+
+		return result;
+	}
+
+	/**
+	 * Check whether all successors of choice {@code c} are in the component {@code label}.
+	 */
+	private boolean allSuccessorsInComponent(int c, int label)
+	{
+		for (int k = choiceStarts[c]; k < choiceStarts[c + 1]; k++) {
+			if (comp[cols[k]] != label)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remove all states in the queue, and then any further states all of whose enabled choices
+	 * lead to removed states, marking the components that they belonged to as touched.
+	 */
+	private void removeStates()
+	{
+		int t, k, c, o;
+		while (removeQueueSize > 0) {
+			t = removeQueue[--removeQueueSize];
+			touched.set(comp[t]);
+			comp[t] = -1;
+			for (k = predStarts[t]; k < predStarts[t + 1]; k++) {
+				c = predChoices[k];
+				if (enabled.get(c)) {
+					enabled.clear(c);
+					o = choiceOwner[c];
+					if (comp[o] != -1 && --numEnabled[o] == 0)
+						removeQueue[removeQueueSize++] = o;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Split a candidate component (whose states all have the same label in {@code comp})
+	 * into SCCs, using Tarjan's algorithm (iteratively, following only enabled choices).
+	 * Each SCC is relabelled (using its root state) and they are stored in {@code sccStates}/{@code sccStarts}.
+	 */
+	private void splitIntoSCCs(int states[])
+	{
+		int label, nextIndex, sccStackTop, callStackTop, numDone, v, w, u;
+		label = comp[states[0]];
+		nextIndex = 1;
+		sccStackTop = callStackTop = -1;
+		numSCCs = numDone = 0;
+		for (int root : states) {
+			if (nodeIndex[root] != 0)
+				continue;
+			// "Call" root
+			nodeIndex[root] = lowlink[root] = nextIndex++;
+			sccStack[++sccStackTop] = root;
+			onStack.set(root);
+			callStack[++callStackTop] = root;
+			callChoice[callStackTop] = rowStarts[root];
+			callPos[callStackTop] = choiceStarts[rowStarts[root]];
+			while (callStackTop >= 0) {
+				v = callStack[callStackTop];
+				// Find next successor of v (via an enabled choice), if any
+				w = -1;
+				while (callChoice[callStackTop] < rowStarts[v + 1]) {
+					if (enabled.get(callChoice[callStackTop]) && callPos[callStackTop] < choiceStarts[callChoice[callStackTop] + 1]) {
+						w = cols[callPos[callStackTop]++];
+						break;
+					}
+					if (++callChoice[callStackTop] < rowStarts[v + 1])
+						callPos[callStackTop] = choiceStarts[callChoice[callStackTop]];
+				}
+				if (w >= 0) {
+					if (comp[w] != label)
+						continue;
+					if (nodeIndex[w] == 0) {
+						// "Call" w
+						nodeIndex[w] = lowlink[w] = nextIndex++;
+						sccStack[++sccStackTop] = w;
+						onStack.set(w);
+						callStack[++callStackTop] = w;
+						callChoice[callStackTop] = rowStarts[w];
+						callPos[callStackTop] = choiceStarts[rowStarts[w]];
+					} else if (onStack.get(w)) {
+						lowlink[v] = Math.min(lowlink[v], nodeIndex[w]);
+					}
+				} else {
+					// "Return" from v
+					callStackTop--;
+					if (lowlink[v] == nodeIndex[v]) {
+						sccStarts[numSCCs++] = numDone;
+						do {
+							w = sccStack[sccStackTop--];
+							onStack.clear(w);
+							comp[w] = v;
+							sccStates[numDone++] = w;
+						} while (w != v);
+					}
+					if (callStackTop >= 0) {
+						u = callStack[callStackTop];
+						lowlink[u] = Math.min(lowlink[u], lowlink[v]);
+					}
+				}
+			}
+		}
+		sccStarts[numSCCs] = numDone;
+	}
+}
@@ -28,19 +28,19 @@
 
 package explicit;
 
-import java.awt.Point;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.Vector;
 
 import parser.State;
+import parser.Values;
 import parser.VarList;
 import parser.ast.Declaration;
 import parser.ast.DeclarationInt;
@@ -51,16 +51,19 @@ import parser.ast.ExpressionTemporal;
 import parser.ast.ExpressionUnaryOp;
 import parser.type.TypeBool;
 import parser.type.TypePathBool;
+import prism.ModelGenerator;
 import prism.ModelType;
 import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismLangException;
 import prism.PrismNotSupportedException;
+import prism.PrismSettings;
 import prism.PrismUtils;
 import acceptance.AcceptanceBuchi;
 import acceptance.AcceptanceGenRabin;
 import acceptance.AcceptanceOmega;
 import acceptance.AcceptanceRabin;
+import acceptance.AcceptanceReach;
 import acceptance.AcceptanceStreett;
 import acceptance.AcceptanceType;
 import automata.DA;
@@ -76,28 +79,32 @@ public class LTLModelChecker extends PrismComponent
 	/** Make LTL product accessible as a Product */
 	public class LTLProduct<M extends Model> extends Product<M>
 	{
-		private int daSize;
-		private int invMap[];
+		private int modelStates[];
+		private int automatonStates[];
 		private AcceptanceOmega acceptance;
 
-		public LTLProduct(M productModel, M originalModel, AcceptanceOmega acceptance, int daSize, int[] invMap)
+		/**
+		 * Create a product, where product state i corresponds to
+		 * (modelStates[i], automatonStates[i]).
+		 */
+		public LTLProduct(M productModel, M originalModel, AcceptanceOmega acceptance, int modelStates[], int automatonStates[])
 		{
 			super(productModel, originalModel);
-			this.daSize = daSize;
-			this.invMap = invMap;
+			this.modelStates = modelStates;
+			this.automatonStates = automatonStates;
 			this.acceptance = acceptance;
 		}
 
 		@Override
 		public int getModelState(int productState)
 		{
-			return invMap[productState] / daSize;
+			return modelStates[productState];
 		}
 
 		@Override
 		public int getAutomatonState(int productState)
 		{
-			return invMap[productState] % daSize;
+			return automatonStates[productState];
 		}
 
 		public AcceptanceOmega getAcceptance()
@@ -206,6 +213,48 @@ public class LTLModelChecker extends PrismComponent
 		return expr;
 	}
 
+	/**
+	 * Extract maximal state formula from an LTL path formula and replace them with ExpressionLabel objects L0, L1, etc.,
+	 * without model checking them. Expression passed in is modified directly, but the result is also returned.
+	 * Syntactically identical state formulas reuse the same label. The state formulas for each label
+	 * are put into the list labelExprs, which should be empty when this function is called.
+	 */
+	public Expression extractMaximalStateFormulas(Expression expr, List<Expression> labelExprs) throws PrismException
+	{
+		// A state formula
+		if (expr.getType() instanceof TypeBool) {
+			// See if we already have an identical formula
+			// (in which case, reuse it)
+			int i = labelExprs.indexOf(expr);
+			if (i != -1) {
+				return new ExpressionLabel("L" + i);
+			}
+			// Otherwise, add formula to list, return new label
+			labelExprs.add(expr);
+			return new ExpressionLabel("L" + (labelExprs.size() - 1));
+		}
+		// A path formula (recurse, modify, return)
+		else if (expr.getType() instanceof TypePathBool) {
+			if (expr instanceof ExpressionBinaryOp) {
+				ExpressionBinaryOp exprBinOp = (ExpressionBinaryOp) expr;
+				exprBinOp.setOperand1(extractMaximalStateFormulas(exprBinOp.getOperand1(), labelExprs));
+				exprBinOp.setOperand2(extractMaximalStateFormulas(exprBinOp.getOperand2(), labelExprs));
+			} else if (expr instanceof ExpressionUnaryOp) {
+				ExpressionUnaryOp exprUnOp = (ExpressionUnaryOp) expr;
+				exprUnOp.setOperand(extractMaximalStateFormulas(exprUnOp.getOperand(), labelExprs));
+			} else if (expr instanceof ExpressionTemporal) {
+				ExpressionTemporal exprTemp = (ExpressionTemporal) expr;
+				if (exprTemp.getOperand1() != null) {
+					exprTemp.setOperand1(extractMaximalStateFormulas(exprTemp.getOperand1(), labelExprs));
+				}
+				if (exprTemp.getOperand2() != null) {
+					exprTemp.setOperand2(extractMaximalStateFormulas(exprTemp.getOperand2(), labelExprs));
+				}
+			}
+		}
+		return expr;
+	}
+
 	/**
 	 * Construct a deterministic automaton (DA) for an LTL formula, having first extracted maximal state formulas
 	 * and model checked them with the passed in model checker. The maximal state formulas are assigned labels
@@ -223,8 +272,6 @@ public class LTLModelChecker extends PrismComponent
 			AcceptanceType... allowedAcceptance) throws PrismException
 	{
 		Expression ltl;
-		DA<BitSet, ? extends AcceptanceOmega> da;
-		long time;
 
 		if (Expression.containsTemporalTimeBounds(expr)) {
 			if (model.getModelType().continuousTime()) {
@@ -240,12 +287,52 @@ public class LTLModelChecker extends PrismComponent
 		ltl = checkMaximalStateFormulas(mc, model, expr.deepCopy(), labelBS);
 
 		// Convert LTL formula to deterministic automaton
+		return convertLTLFormulaToDA(ltl, mc.getConstantValues(), labelBS.size(), allowedAcceptance);
+	}
+
+	/**
+	 * Construct a deterministic automaton (DA) for an LTL formula, having first extracted maximal state formulas,
+	 * which are assigned labels (L0, L1, etc.) that become the atomic propositions in the resulting DA.
+	 * Unlike {@link #constructDAForLTLFormula(ProbModelChecker, Model, Expression, Vector, AcceptanceType...)},
+	 * the state formulas are not model checked (so they must be propositional): they are just stored
+	 * in the list {@code labelExprs}, which should be empty when this function is called.
+	 *
+	 * @param expr a path expression, i.e. the LTL formula
+	 * @param constantValues values for constants appearing in the formula
+	 * @param labelExprs empty list to be filled with the expressions for subformulas
+	 * @param allowedAcceptance the allowed acceptance types
+	 * @return the DA
+	 */
+	public DA<BitSet, ? extends AcceptanceOmega> constructDAForLTLFormula(Expression expr, Values constantValues, List<Expression> labelExprs,
+			AcceptanceType... allowedAcceptance) throws PrismException
+	{
+		if (Expression.containsTemporalTimeBounds(expr) && !expr.isSimplePathFormula()) {
+			throw new PrismNotSupportedException("Time-bounded operators not supported in LTL: " + expr);
+		}
+
+		// Extract maximal state formulas
+		Expression ltl = extractMaximalStateFormulas(expr.deepCopy(), labelExprs);
+
+		// Convert LTL formula to deterministic automaton
+		return convertLTLFormulaToDA(ltl, constantValues, labelExprs.size(), allowedAcceptance);
+	}
+
+	/**
+	 * Convert an LTL formula, whose atomic propositions are labels L0, L1, etc., to a deterministic automaton (DA),
+	 * and export it if required.
+	 */
+	private DA<BitSet, ? extends AcceptanceOmega> convertLTLFormulaToDA(Expression ltl, Values constantValues, int numLabels,
+			AcceptanceType... allowedAcceptance) throws PrismException
+	{
+		DA<BitSet, ? extends AcceptanceOmega> da;
+		long time;
+
 		mainLog.println("\nBuilding deterministic automaton (for " + ltl + ")...");
 		time = System.currentTimeMillis();
 		LTL2DA ltl2da = new LTL2DA(this);
-		da = ltl2da.convertLTLFormulaToDA(ltl, mc.getConstantValues(), allowedAcceptance);
+		da = ltl2da.convertLTLFormulaToDA(ltl, constantValues, allowedAcceptance);
 		mainLog.println(da.getAutomataType() + " has " + da.size() + " states, " + da.getAcceptance().getSizeStatistics() + ".");
-		da.checkForCanonicalAPs(labelBS.size());
+		da.checkForCanonicalAPs(numLabels);
 		time = System.currentTimeMillis() - time;
 		mainLog.println("Time for " + da.getAutomataType() + " translation: " + time / 1000.0 + " seconds.");
 		// If required, export DA
@@ -372,6 +459,8 @@ public class LTLModelChecker extends PrismComponent
 
 	/**
 	 * Construct the product of a DA and a model.
+	 * Only product states reachable from (the states corresponding to) {@code statesOfInterest} are built,
+	 * and the result is a sparse model (for DTMCs/MDPs), constructed directly, without an intermediate mutable model.
 	 * @param da The DA
 	 * @param model The model
 	 * @param labelBS BitSets giving the set of states for each AP in the DA
@@ -383,11 +472,8 @@ public class LTLModelChecker extends PrismComponent
 	{
 		ModelType modelType = model.getModelType();
 		int daSize = da.size();
-		int numAPs = da.getAPList().size();
 		int modelNumStates = model.getNumStates();
-		int prodNumStates = modelNumStates * daSize;
 		int s_1, s_2, q_1, q_2;
-		BitSet s_labels = new BitSet(numAPs);
 		List<State> prodStatesList = null, daStatesList = null;
 
 		VarList newVarList = null;
@@ -406,39 +492,26 @@ public class LTLModelChecker extends PrismComponent
 			newVarList.addVar(0, decl, 1, model.getConstantValues());
 		}
 
-		// Create a (simple, mutable) model of the appropriate type
-		ModelSimple prodModel = null;
 		switch (modelType) {
-		case DTMC: {
-			DTMCSimple dtmcProd = new DTMCSimple();
-			dtmcProd.setVarList(newVarList);
-			prodModel = dtmcProd;
+		case DTMC:
+		case MDP:
+		case STPG:
 			break;
-		}
-		case MDP: {
-			MDPSimple mdpProd = new MDPSimple();
-			mdpProd.setVarList(newVarList);
-			prodModel = mdpProd;
-			break;
-		}
-		case STPG: {
-			STPGExplicit stpgProd = new STPGExplicit();
-			stpgProd.setVarList(newVarList);
-			prodModel = stpgProd;
-			break;
-		}
 		default:
 			throw new PrismNotSupportedException("Model construction not supported for " + modelType + "s");
 		}
 
-		// Encoding: 
-		// each state s' = <s, q> = s * daSize + q
-		// s(s') = s' / daSize
-		// q(s') = s' % daSize
+		// The DA's transition function, and, for each model state, the (index of the) valuation of the DA's APs
+		DATransitions daTrans = new DATransitions(da);
+		int labelIndex[] = daTrans.computeValuationIndices(labelBS, modelNumStates);
 
-		LinkedList<Point> queue = new LinkedList<>();
-		int map[] = new int[prodNumStates];
-		Arrays.fill(map, -1);
+		// Product states are stored as pairs (s, q), indexed by a hash table.
+		// Since states are explored in the order that they are added (i.e. breadth-first),
+		// the transitions of each state are also found in order of state index,
+		// so the product's transition matrix can be built directly in sparse form.
+		ProductStateSet prodStates = new ProductStateSet();
+		SparseBuilder sparse = new SparseBuilder(modelType.nondeterministic());
+		List<Integer> initialStates = new ArrayList<>();
 
 		if (model.getStatesList() != null) {
 			prodStatesList = new ArrayList<>();
@@ -455,40 +528,24 @@ public class LTLModelChecker extends PrismComponent
 		// (b) to later identify the corresponding product state for the original states
 		//     of interest
 		for (int s_0 : new IterableStateSet(statesOfInterest, model.getNumStates())) {
-			// Get BitSet representing APs (labels) satisfied by state s_0
-			for (int k = 0; k < numAPs; k++) {
-				s_labels.set(k, labelBS.get(Integer.parseInt(da.getAPList().get(k).substring(1))).get(s_0));
-			}
 			// Find corresponding initial state in DA
-			int q_0 = da.getEdgeDestByLabel(da.getStartState(), s_labels);
+			int q_0 = daTrans.getSuccessor(da.getStartState(), labelIndex[s_0]);
 			if (q_0 < 0) {
 				throw new PrismException("The deterministic automaton is not complete (state " + da.getStartState() + ")");
 			}
 			// Add (initial) state to product
-			queue.add(new Point(s_0, q_0));
-			switch (modelType) {
-			case STPG:
-				((STPGExplicit) prodModel).addState(((STPG) model).getPlayer(s_0));
-				break;
-			default:
-				prodModel.addState();
-				break;
-			}
-			prodModel.addInitialState(prodModel.getNumStates() - 1);
-			map[s_0 * daSize + q_0] = prodModel.getNumStates() - 1;
-			if (prodStatesList != null) {
+			int index = prodStates.add(s_0, q_0);
+			if (index == prodStates.size() - 1 && prodStatesList != null) {
 				// Store state information for the product
 				prodStatesList.add(new State(daStatesList.get(q_0), model.getStatesList().get(s_0)));
 			}
+			initialStates.add(index);
 		}
 
 		// Product states
-		BitSet visited = new BitSet(prodNumStates);
-		while (!queue.isEmpty()) {
-			Point p = queue.pop();
-			s_1 = p.x;
-			q_1 = p.y;
-			visited.set(s_1 * daSize + q_1);
+		for (int i = 0; i < prodStates.size(); i++) {
+			s_1 = prodStates.getModelState(i);
+			q_1 = prodStates.getAutomatonState(i);
 
 			// Go through transitions from state s_1 in original model
 			int numChoices = (model instanceof NondetModel) ? ((NondetModel) model).getNumChoices(s_1) : 1;
@@ -507,71 +564,71 @@ public class LTLModelChecker extends PrismComponent
 				default:
 					throw new PrismNotSupportedException("Product construction not implemented for " + modelType + "s");
 				}
-				Distribution prodDistr = null;
-				if (modelType.nondeterministic()) {
-					prodDistr = new Distribution();
-				}
 				while (iter.hasNext()) {
 					Map.Entry<Integer, Double> e = iter.next();
 					s_2 = e.getKey();
 					double prob = e.getValue();
-					// Get BitSet representing APs (labels) satisfied by successor state s_2
-					for (int k = 0; k < numAPs; k++) {
-						s_labels.set(k, labelBS.get(Integer.parseInt(da.getAPList().get(k).substring(1))).get(s_2));
-					}
 					// Find corresponding successor in DA
-					q_2 = da.getEdgeDestByLabel(q_1, s_labels);
+					q_2 = daTrans.getSuccessor(q_1, labelIndex[s_2]);
 					if (q_2 < 0) {
 						throw new PrismException("The deterministic automaton is not complete (state " + q_1 + ")");
 					}
 					// Add state/transition to model
-					if (!visited.get(s_2 * daSize + q_2) && map[s_2 * daSize + q_2] == -1) {
-						queue.add(new Point(s_2, q_2));
-						switch (modelType) {
-						case STPG:
-							((STPGExplicit) prodModel).addState(((STPG) model).getPlayer(s_2));
-							break;
-						default:
-							prodModel.addState();
-							break;
-						}
-						map[s_2 * daSize + q_2] = prodModel.getNumStates() - 1;
-						if (prodStatesList != null) {
-							// Store state information for the product
-							prodStatesList.add(new State(daStatesList.get(q_2), model.getStatesList().get(s_2)));
-						}
-					}
-					switch (modelType) {
-					case DTMC:
-						((DTMCSimple) prodModel).setProbability(map[s_1 * daSize + q_1], map[s_2 * daSize + q_2], prob);
-						break;
-					case MDP:
-					case STPG:
-						prodDistr.set(map[s_2 * daSize + q_2], prob);
-						break;
-					default:
-						throw new PrismNotSupportedException("Product construction not implemented for " + modelType + "s");
+					int numProdStates = prodStates.size();
+					int index = prodStates.add(s_2, q_2);
+					if (index == numProdStates && prodStatesList != null) {
+						// Store state information for the product
+						prodStatesList.add(new State(daStatesList.get(q_2), model.getStatesList().get(s_2)));
 					}
+					sparse.addTransition(index, prob);
 				}
-				switch (modelType) {
-				case MDP:
-					((MDPSimple) prodModel).addActionLabelledChoice(map[s_1 * daSize + q_1], prodDistr, ((MDP) model).getAction(s_1, j));
-					break;
-				case STPG:
-					((STPGExplicit) prodModel).addActionLabelledChoice(map[s_1 * daSize + q_1], prodDistr, ((STPG) model).getAction(s_1, j));
-					break;
-				default:
-					break;
+				if (modelType.nondeterministic()) {
+					sparse.endChoice(((NondetModel) model).getAction(s_1, j));
 				}
 			}
+			sparse.endState();
 		}
 
-		// Build a mapping from state indices to states (s,q), encoded as (s * daSize + q) 
-		int invMap[] = new int[prodModel.getNumStates()];
-		for (int i = 0; i < map.length; i++) {
-			if (map[i] != -1) {
-				invMap[map[i]] = i;
+		// Create the product model of the appropriate type
+		int prodNumStates = prodStates.size();
+		ModelExplicit prodModel = null;
+		switch (modelType) {
+		case DTMC:
+			prodModel = new DTMCSparse(prodNumStates, sparse.getRowStarts(), sparse.getCols(), sparse.getNonZeros());
+			break;
+		case MDP:
+			prodModel = new MDPSparse(prodNumStates, sparse.getRowStarts(), sparse.getChoiceStarts(), sparse.getCols(), sparse.getNonZeros(),
+					sparse.getActions());
+			break;
+		case STPG: {
+			STPGExplicit stpgProd = new STPGExplicit();
+			int rowStarts[] = sparse.getRowStarts();
+			int choiceStarts[] = sparse.getChoiceStarts();
+			int cols[] = sparse.getCols();
+			double nonZeros[] = sparse.getNonZeros();
+			Object actions[] = sparse.getActions();
+			for (int i = 0; i < prodNumStates; i++) {
+				stpgProd.addState(((STPG) model).getPlayer(prodStates.getModelState(i)));
 			}
+			for (int i = 0; i < prodNumStates; i++) {
+				for (int j = rowStarts[i]; j < rowStarts[i + 1]; j++) {
+					Distribution prodDistr = new Distribution();
+					for (int k = choiceStarts[j]; k < choiceStarts[j + 1]; k++) {
+						prodDistr.set(cols[k], nonZeros[k]);
+					}
+					stpgProd.addActionLabelledChoice(i, prodDistr, actions == null ? null : actions[j]);
+				}
+			}
+			prodModel = stpgProd;
+			break;
+		}
+		default:
+			throw new PrismNotSupportedException("Model construction not supported for " + modelType + "s");
+		}
+		sparse = null;
+		prodModel.setVarList(newVarList);
+		for (int in : initialStates) {
+			prodModel.addInitialState(in);
 		}
 
 		prodModel.findDeadlocks(false);
@@ -581,7 +638,7 @@ public class LTLModelChecker extends PrismComponent
 		}
 
 		@SuppressWarnings("unchecked")
-		LTLProduct<M> product = new LTLProduct<>((M) prodModel, model, null, daSize, invMap);
+		LTLProduct<M> product = new LTLProduct<>((M) prodModel, model, null, prodStates.getModelStates(), prodStates.getAutomatonStates());
 
 		// generate acceptance for the product model by lifting
 		product.setAcceptance(liftAcceptance(product, da.getAcceptance()));
@@ -595,6 +652,540 @@ public class LTLModelChecker extends PrismComponent
 		return product;
 	}
 
+	/**
+	 * Construct the product of a DA and a model that is explored on the fly from a model generator,
+	 * i.e., without building the model first. Only model states reachable in the product are explored.
+	 * Moreover, product states whose automaton state is a sink (or a goal state, for reachability acceptance)
+	 * are not expanded, but just given a self-loop, since this does not change whether paths from them are accepted.
+	 * The APs of the DA (L0, L1, etc.) are evaluated on each model state using the expressions in {@code labelExprs}.
+	 * The product has a single initial state, corresponding to the (single) initial state of the model.
+	 * Since no model is built, the original model of the returned product is null.
+	 * @param da The DA
+	 * @param modelGen The model generator
+	 * @param constantValues values for constants appearing in {@code labelExprs}
+	 * @param labelExprs state formulas for each AP in the DA
+	 * @return The product model
+	 */
+	public LTLProduct<Model> constructProductModel(DA<BitSet, ? extends AcceptanceOmega> da, ModelGenerator modelGen, Values constantValues,
+			List<Expression> labelExprs) throws PrismException
+	{
+		ModelType modelType = modelGen.getModelType();
+		int daSize = da.size();
+
+		switch (modelType) {
+		case DTMC:
+		case MDP:
+			break;
+		default:
+			throw new PrismNotSupportedException("On-the-fly product construction not supported for " + modelType + "s");
+		}
+		if (!modelGen.hasSingleInitialState()) {
+			throw new PrismNotSupportedException("On-the-fly product construction requires a single initial state");
+		}
+
+		// The DA's transition function
+		DATransitions daTrans = new DATransitions(da);
+		// The expression for each AP of the DA
+		List<String> apList = da.getAPList();
+		int numAPs = apList.size();
+		Expression apExprs[] = new Expression[numAPs];
+		for (int k = 0; k < numAPs; k++) {
+			apExprs[k] = labelExprs.get(Integer.parseInt(apList.get(k).substring(1)));
+		}
+		// DA states that need not be expanded: sinks, and goal states for reachability acceptance
+		BitSet daDecided = new BitSet(daSize);
+		for (int q = 0; q < daSize; q++) {
+			daDecided.set(q, daTrans.isSink(q));
+		}
+		if (da.getAcceptance() instanceof AcceptanceReach) {
+			daDecided.or(((AcceptanceReach) da.getAcceptance()).getGoalStates());
+		}
+
+		// Model states found so far, and the valuation of the DA's APs for each one
+		StateStorage<State> modelStates = new IndexedSet<>();
+		List<State> modelStatesList = new ArrayList<>();
+		int labelIndex[] = new int[1024];
+
+		ProductStateSet prodStates = new ProductStateSet();
+		SparseBuilder sparse = new SparseBuilder(modelType.nondeterministic());
+		boolean fixDeadlocks = settings.getBoolean(PrismSettings.PRISM_FIX_DEADLOCKS);
+		int numDeadlocks = 0;
+		long timer = System.currentTimeMillis();
+
+		// Initial state
+		State init = modelGen.getInitialState();
+		modelStates.add(init);
+		modelStatesList.add(init);
+		labelIndex[0] = daTrans.computeValuationIndex(apExprs, constantValues, init);
+		int q_0 = daTrans.getSuccessor(da.getStartState(), labelIndex[0]);
+		if (q_0 < 0) {
+			throw new PrismException("The deterministic automaton is not complete (state " + da.getStartState() + ")");
+		}
+		prodStates.add(0, q_0);
+
+		// Product states (explored in order of addition, so the transition matrix can be built directly)
+		for (int i = 0; i < prodStates.size(); i++) {
+			int s_1 = prodStates.getModelState(i);
+			int q_1 = prodStates.getAutomatonState(i);
+
+			// Don't expand states whose acceptance is already decided
+			if (daDecided.get(q_1)) {
+				sparse.addTransition(i, 1.0);
+				if (modelType.nondeterministic()) {
+					sparse.endChoice(null);
+				}
+				sparse.endState();
+				continue;
+			}
+
+			modelGen.exploreState(modelStatesList.get(s_1));
+			int numChoices = modelGen.getNumChoices();
+			if (numChoices == 0) {
+				if (!fixDeadlocks) {
+					throw new PrismException("Model contains deadlock states, e.g. " + modelStatesList.get(s_1));
+				}
+				numDeadlocks++;
+				sparse.addTransition(i, 1.0);
+				if (modelType.nondeterministic()) {
+					sparse.endChoice(null);
+				}
+				sparse.endState();
+				continue;
+			}
+			for (int j = 0; j < numChoices; j++) {
+				int numTransitions = modelGen.getNumTransitions(j);
+				for (int k = 0; k < numTransitions; k++) {
+					State state = modelGen.computeTransitionTarget(j, k);
+					// Find/add model state, computing its AP valuation if new
+					int s_2;
+					if (modelStates.add(state)) {
+						s_2 = modelStatesList.size();
+						modelStatesList.add(state);
+						if (s_2 == labelIndex.length) {
+							labelIndex = Arrays.copyOf(labelIndex, 2 * s_2);
+						}
+						labelIndex[s_2] = daTrans.computeValuationIndex(apExprs, constantValues, state);
+					} else {
+						s_2 = modelStates.getIndexOfLastAdd();
+					}
+					// Find corresponding successor in DA
+					int q_2 = daTrans.getSuccessor(q_1, labelIndex[s_2]);
+					if (q_2 < 0) {
+						throw new PrismException("The deterministic automaton is not complete (state " + q_1 + ")");
+					}
+					// Add state/transition to model
+					// (for DTMCs, transitions from all choices are combined, as in ConstructModel)
+					sparse.addToTransition(prodStates.add(s_2, q_2), modelGen.getTransitionProbability(j, k));
+				}
+				if (modelType.nondeterministic()) {
+					sparse.endChoice(modelGen.getChoiceAction(j));
+				}
+			}
+			sparse.endState();
+		}
+
+		// Create the product model of the appropriate type
+		int prodNumStates = prodStates.size();
+		ModelExplicit prodModel;
+		if (modelType == ModelType.DTMC) {
+			prodModel = new DTMCSparse(prodNumStates, sparse.getRowStarts(), sparse.getCols(), sparse.getNonZeros());
+		} else {
+			prodModel = new MDPSparse(prodNumStates, sparse.getRowStarts(), sparse.getChoiceStarts(), sparse.getCols(), sparse.getNonZeros(),
+					sparse.getActions());
+		}
+		sparse = null;
+		prodModel.addInitialState(0);
+		prodModel.findDeadlocks(false);
+
+		timer = System.currentTimeMillis() - timer;
+		mainLog.println("Explored " + modelStatesList.size() + " model states in " + (timer / 1000.0) + " seconds.");
+		if (numDeadlocks > 0) {
+			mainLog.printWarning("Deadlocks detected and fixed in " + numDeadlocks + " states");
+		}
+
+		LTLProduct<Model> product = new LTLProduct<Model>(prodModel, null, null, prodStates.getModelStates(), prodStates.getAutomatonStates());
+
+		// generate acceptance for the product model by lifting
+		product.setAcceptance(liftAcceptance(product, da.getAcceptance()));
+
+		return product;
+	}
+
+	/**
+	 * The transition function of a DA, for looking up successors by AP valuation.
+	 * Each valuation of the DA's APs is identified by an index. If the DA is small enough
+	 * (see {@link #MAX_TABLE_SIZE}), the index is the valuation as a bit vector (AP k being bit k)
+	 * and successors are stored in a table, for each state and valuation. Otherwise, valuations are
+	 * numbered in order of first appearance and successors are looked up using the edge labels
+	 * (and then cached, in a map for each state).
+	 */
+	private static class DATransitions
+	{
+		/** Maximum size (DA states times AP valuations) of a successor table */
+		private static final long MAX_TABLE_SIZE = 1 << 22;
+
+		private DA<BitSet, ? extends AcceptanceOmega> da;
+		private int numAPs;
+		/** Successor of each state for each valuation (or -1 if there is none), or null if not used */
+		private int table[][];
+		/** Otherwise: the valuations, their indices and the successors found so far for each state */
+		private List<BitSet> valuations;
+		private Map<BitSet, Integer> valuationIndices;
+		private List<Map<Integer, Integer>> succMaps;
+
+		public DATransitions(DA<BitSet, ? extends AcceptanceOmega> da)
+		{
+			this.da = da;
+			numAPs = da.getAPList().size();
+			int daSize = da.size();
+			if (numAPs < 31 && ((long) daSize << numAPs) <= MAX_TABLE_SIZE) {
+				table = new int[daSize][1 << numAPs];
+				for (int q = 0; q < daSize; q++) {
+					Arrays.fill(table[q], -1);
+					int numEdges = da.getNumEdges(q);
+					for (int j = 0; j < numEdges; j++) {
+						table[q][toBits(da.getEdgeLabel(q, j))] = da.getEdgeDest(q, j);
+					}
+				}
+			} else {
+				valuations = new ArrayList<>();
+				valuationIndices = new HashMap<>();
+				succMaps = new ArrayList<>(daSize);
+				for (int q = 0; q < daSize; q++) {
+					succMaps.add(new HashMap<Integer, Integer>());
+				}
+			}
+		}
+
+		private int toBits(BitSet valuation)
+		{
+			int v = 0;
+			for (int k = valuation.nextSetBit(0); k >= 0 && k < numAPs; k = valuation.nextSetBit(k + 1)) {
+				v |= 1 << k;
+			}
+			return v;
+		}
+
+		/**
+		 * Get the index of a valuation of the APs (AP k being bit k of {@code valuation}).
+		 */
+		public int getValuationIndex(BitSet valuation)
+		{
+			if (table != null)
+				return toBits(valuation);
+			Integer v = valuationIndices.get(valuation);
+			if (v == null) {
+				v = valuations.size();
+				valuations.add(valuation);
+				valuationIndices.put(valuation, v);
+			}
+			return v;
+		}
+
+		/**
+		 * Compute the index of the valuation of the APs in a state.
+		 * @param apExprs The expression for each AP
+		 * @param constantValues Values for constants in the expressions
+		 * @param state The state
+		 */
+		public int computeValuationIndex(Expression apExprs[], Values constantValues, State state) throws PrismLangException
+		{
+			BitSet valuation = new BitSet(numAPs);
+			for (int k = 0; k < numAPs; k++) {
+				if (apExprs[k].evaluateBoolean(constantValues, state)) {
+					valuation.set(k);
+				}
+			}
+			return getValuationIndex(valuation);
+		}
+
+		/**
+		 * For each state of a model, compute the index of the valuation of the APs.
+		 * @param labelBS BitSets giving the set of states for each AP in the DA
+		 * @param numStates The number of states in the model
+		 */
+		public int[] computeValuationIndices(Vector<BitSet> labelBS, int numStates)
+		{
+			List<String> apList = da.getAPList();
+			int labelIndex[] = new int[numStates];
+			if (table != null) {
+				// Build bit vectors directly
+				for (int k = 0; k < numAPs; k++) {
+					BitSet bs = labelBS.get(Integer.parseInt(apList.get(k).substring(1)));
+					for (int s = bs.nextSetBit(0); s >= 0 && s < numStates; s = bs.nextSetBit(s + 1)) {
+						labelIndex[s] |= 1 << k;
+					}
+				}
+			} else {
+				BitSet apBS[] = new BitSet[numAPs];
+				for (int k = 0; k < numAPs; k++) {
+					apBS[k] = labelBS.get(Integer.parseInt(apList.get(k).substring(1)));
+				}
+				for (int s = 0; s < numStates; s++) {
+					BitSet valuation = new BitSet(numAPs);
+					for (int k = 0; k < numAPs; k++) {
+						if (apBS[k].get(s)) {
+							valuation.set(k);
+						}
+					}
+					labelIndex[s] = getValuationIndex(valuation);
+				}
+			}
+			return labelIndex;
+		}
+
+		/**
+		 * Get the successor of state {@code q} for the valuation with index {@code v} (or -1 if there is none).
+		 */
+		public int getSuccessor(int q, int v)
+		{
+			if (table != null)
+				return table[q][v];
+			Map<Integer, Integer> succMap = succMaps.get(q);
+			Integer q_2 = succMap.get(v);
+			if (q_2 == null) {
+				q_2 = da.getEdgeDestByLabel(q, valuations.get(v));
+				succMap.put(v, q_2);
+			}
+			return q_2;
+		}
+
+		/**
+		 * Is state {@code q} a sink, i.e., do all of its edges lead back to it?
+		 */
+		public boolean isSink(int q)
+		{
+			int numEdges = da.getNumEdges(q);
+			for (int j = 0; j < numEdges; j++) {
+				if (da.getEdgeDest(q, j) != q) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Set of product states, i.e., pairs (s,q) of a model state and an automaton state,
+	 * each of which is given an index (in order of addition).
+	 * Pairs are stored in primitive arrays, indexed by an open-addressing hash table.
+	 */
+	private static class ProductStateSet
+	{
+		/** Marker for an empty slot in the hash table */
+		private static final int EMPTY = -1;
+
+		/** Model/automaton state for each product state */
+		private int modelStates[] = new int[1024];
+		private int automatonStates[] = new int[1024];
+		/** Number of product states */
+		private int size = 0;
+		/** Hash table, mapping (hash of) pairs to indices, or EMPTY */
+		private int table[] = new int[2048];
+
+		public ProductStateSet()
+		{
+			Arrays.fill(table, EMPTY);
+		}
+
+		/**
+		 * Add the pair (s,q), if not already present, and return its index.
+		 */
+		public int add(int s, int q)
+		{
+			int mask = table.length - 1;
+			int pos = hash(s, q) & mask;
+			while (true) {
+				int index = table[pos];
+				if (index == EMPTY)
+					break;
+				if (modelStates[index] == s && automatonStates[index] == q)
+					return index;
+				pos = (pos + 1) & mask;
+			}
+			if (size == modelStates.length) {
+				if (size == Integer.MAX_VALUE - 8)
+					throw new OutOfMemoryError("Too many product states");
+				int newLength = (int) Math.min(Integer.MAX_VALUE - 8, 2L * size);
+				modelStates = Arrays.copyOf(modelStates, newLength);
+				automatonStates = Arrays.copyOf(automatonStates, newLength);
+			}
+			modelStates[size] = s;
+			automatonStates[size] = q;
+			table[pos] = size;
+			size++;
+			// Keep load factor of hash table below 1/2
+			if (2L * size > table.length) {
+				rehash();
+			}
+			return size - 1;
+		}
+
+		public int size()
+		{
+			return size;
+		}
+
+		public int getModelState(int i)
+		{
+			return modelStates[i];
+		}
+
+		public int getAutomatonState(int i)
+		{
+			return automatonStates[i];
+		}
+
+		/**
+		 * Get (a trimmed copy of) the array of model states for each product state.
+		 */
+		public int[] getModelStates()
+		{
+			return Arrays.copyOf(modelStates, size);
+		}
+
+		/**
+		 * Get (a trimmed copy of) the array of automaton states for each product state.
+		 */
+		public int[] getAutomatonStates()
+		{
+			return Arrays.copyOf(automatonStates, size);
+		}
+
+		private static int hash(int s, int q)
+		{
+			long h = (((long) s << 32) | (q & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			return (int) h;
+		}
+
+		private void rehash()
+		{
+			int newTable[] = new int[table.length * 2];
+			Arrays.fill(newTable, EMPTY);
+			int mask = newTable.length - 1;
+			for (int index = 0; index < size; index++) {
+				int pos = hash(modelStates[index], automatonStates[index]) & mask;
+				while (newTable[pos] != EMPTY) {
+					pos = (pos + 1) & mask;
+				}
+				newTable[pos] = index;
+			}
+			table = newTable;
+		}
+	}
+
+	/**
+	 * Incremental construction of a sparse (compressed row) transition matrix,
+	 * with transitions added in order of source state (and choice, if nondeterministic).
+	 */
+	private static class SparseBuilder
+	{
+		private boolean nondet;
+		private int rowStarts[] = new int[1025];
+		private int choiceStarts[];
+		private int cols[] = new int[4096];
+		private double nonZeros[] = new double[4096];
+		private Object actions[];
+		private boolean hasActions = false;
+		private int numStates = 0;
+		private int numChoices = 0;
+		private int numTransitions = 0;
+
+		public SparseBuilder(boolean nondet)
+		{
+			this.nondet = nondet;
+			if (nondet) {
+				choiceStarts = new int[1025];
+				actions = new Object[1024];
+			}
+		}
+
+		public void addTransition(int dest, double prob)
+		{
+			if (numTransitions == cols.length) {
+				int newLength = grow(numTransitions);
+				cols = Arrays.copyOf(cols, newLength);
+				nonZeros = Arrays.copyOf(nonZeros, newLength);
+			}
+			cols[numTransitions] = dest;
+			nonZeros[numTransitions] = prob;
+			numTransitions++;
+		}
+
+		/**
+		 * Add a transition, or add to the probability of an existing one to the same destination
+		 * in the current row (or choice, if nondeterministic).
+		 */
+		public void addToTransition(int dest, double prob)
+		{
+			int start = nondet ? choiceStarts[numChoices] : rowStarts[numStates];
+			for (int k = start; k < numTransitions; k++) {
+				if (cols[k] == dest) {
+					nonZeros[k] += prob;
+					return;
+				}
+			}
+			addTransition(dest, prob);
+		}
+
+		public void endChoice(Object action)
+		{
+			if (numChoices + 1 == choiceStarts.length) {
+				int newLength = grow(numChoices + 1);
+				choiceStarts = Arrays.copyOf(choiceStarts, newLength);
+				actions = Arrays.copyOf(actions, newLength);
+			}
+			actions[numChoices] = action;
+			hasActions |= action != null;
+			numChoices++;
+			choiceStarts[numChoices] = numTransitions;
+		}
+
+		public void endState()
+		{
+			if (numStates + 1 == rowStarts.length) {
+				rowStarts = Arrays.copyOf(rowStarts, grow(numStates + 1));
+			}
+			numStates++;
+			rowStarts[numStates] = nondet ? numChoices : numTransitions;
+		}
+
+		public int[] getRowStarts()
+		{
+			return Arrays.copyOf(rowStarts, numStates + 1);
+		}
+
+		public int[] getChoiceStarts()
+		{
+			return Arrays.copyOf(choiceStarts, numChoices + 1);
+		}
+
+		public int[] getCols()
+		{
+			return Arrays.copyOf(cols, numTransitions);
+		}
+
+		public double[] getNonZeros()
+		{
+			return Arrays.copyOf(nonZeros, numTransitions);
+		}
+
+		public Object[] getActions()
+		{
+			return hasActions ? Arrays.copyOf(actions, numChoices) : null;
+		}
+
+		private static int grow(int length)
+		{
+			if (length >= Integer.MAX_VALUE - 8)
+				throw new OutOfMemoryError("Product model too large");
+			return (int) Math.min(Integer.MAX_VALUE - 8, 2L * length);
+		}
+	}
+
 	/**
 	 * Find the set of states that belong to accepting BSCCs in a model wrt an acceptance condition.
 	 * @param model The model
@@ -677,6 +1268,8 @@ public class LTLModelChecker extends PrismComponent
 	{
 		BitSet allAcceptingStates = new BitSet();
 		int numStates = model.getNumStates();
+		// EC computer (reused for each pair)
+		ECComputer ecComputer = ECComputer.createECComputer(this, model);
 
 		// Go through the DRA acceptance pairs (L_i, K_i) 
 		for (int i = 0; i < acceptance.size(); i++) {
@@ -692,7 +1285,6 @@ public class LTLModelChecker extends PrismComponent
 			if (statesLi_not.cardinality() == 0)
 				continue;
 			// Compute accepting maximum end components (MECs) in !L_i
-			ECComputer ecComputer = ECComputer.createECComputer(this, model);
 			ecComputer.computeMECStates(statesLi_not, acceptance.get(i).getK());
 			List<BitSet> mecs = ecComputer.getMECStates();
 			// Union MEC states
@@ -756,7 +1348,6 @@ public class LTLModelChecker extends PrismComponent
 			} else if (restrict.isEmpty()) {
 				// nothing to do
 			} else {
-				ecComputer = ECComputer.createECComputer(this, model);
 				ecComputer.computeMECStates(restrict);
 				for (BitSet mecs : ecComputer.getMECStates()) {
 					ECandPairs newEcp = new ECandPairs();
@@ -779,6 +1370,8 @@ public class LTLModelChecker extends PrismComponent
 	{
 		BitSet allAcceptingStates = new BitSet();
 		int numStates = model.getNumStates();
+		// EC computer (reused for each pair)
+		ECComputer ecComputer = ECComputer.createECComputer(this, model);
 
 		// Go through the GR acceptance pairs (L_i, K_i_1, ..., K_i_n) 
 		for (int i = 0; i < acceptance.size(); i++) {
@@ -795,7 +1388,6 @@ public class LTLModelChecker extends PrismComponent
 			if (statesLi_not.cardinality() == 0)
 				continue;
 			// Compute maximum end components (MECs) in !L_i
-			ECComputer ecComputer = ECComputer.createECComputer(this, model);
 			ecComputer.computeMECStates(statesLi_not);
 			List<BitSet> mecs = ecComputer.getMECStates();
 			// Check which MECs contain a state from each K_i_j
@@ -394,7 +394,11 @@ public class MDPModelChecker extends ProbModelChecker
 		// Precomputation
 		timerProb0 = System.currentTimeMillis();
 		if (precomp && prob0) {
-			no = prob0(mdp, remain, target, min, strat);
+			if (preRel && !min) {
+				no = prob0(mdp, remain, target, mdp.getPredecessorRelation(this, true));
+			} else {
+				no = prob0(mdp, remain, target, min, strat);
+			}
 		} else {
 			no = new BitSet();
 		}
@@ -436,6 +440,9 @@ public class MDPModelChecker extends ProbModelChecker
 			case GAUSS_SEIDEL:
 				res = computeReachProbsGaussSeidel(mdp, no, yes, min, init, known, strat);
 				break;
+			case TOPOLOGICAL:
+				res = computeReachProbsTopological(mdp, no, yes, min, init, known, strat);
+				break;
 			case POLICY_ITERATION:
 				res = computeReachProbsPolIter(mdp, no, yes, min, strat);
 				break;
@@ -476,6 +483,50 @@ public class MDPModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Prob0 precomputation algorithm for max probabilities (Prob0A), using the predecessor relation,
+	 * i.e. determine the states of an MDP which, with max probability 0,
+	 * reach a state in {@code target}, while remaining in those in {@code remain}.
+	 * These are the states that cannot reach {@code target} at all, so no strategy info is needed.
+	 * @param mdp The MDP
+	 * @param remain Remain in these states (optional: null means "all")
+	 * @param target Target states
+	 * @param pre The predecessor relation of the MDP
+	 */
+	public BitSet prob0(MDP mdp, BitSet remain, BitSet target, PredecessorRelation pre)
+	{
+		BitSet canReachTarget, result;
+		long timer;
+
+		// Start precomputation
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting Prob0 (max)...");
+
+		// Special case: no target states
+		if (target.isEmpty()) {
+			BitSet soln = new BitSet(mdp.getNumStates());
+			soln.set(0, mdp.getNumStates());
+			return soln;
+		}
+
+		// calculate all states that can reach 'target'
+		// while remaining in 'remain' in the underlying graph,
+		// where all the 'target' states are made absorbing
+		canReachTarget = pre.calculatePreStar(remain, target, target);
+
+		// prob0 = complement of 'canReachTarget'
+		result = new BitSet();
+		result.set(0, mdp.getNumStates(), true);
+		result.andNot(canReachTarget);
+
+		// Finished precomputation
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Prob0 (max)");
+		mainLog.println(" took " + timer / 1000.0 + " seconds.");
+
+		return result;
+	}
+
 	/**
 	 * Prob0 precomputation algorithm.
 	 * i.e. determine the states of an MDP which, with min/max probability 0,
@@ -725,19 +776,26 @@ public class MDPModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
-		// Start iterations
-		iters = 0;
-		done = false;
-		while (!done && iters < maxIters) {
-			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultMinMax(soln, min, soln2, unknown, false, strat);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(mdp, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			done = false;
+			while (!done && iters < maxIters) {
+				iters++;
+				// Matrix-vector multiply and min/max ops
+				mvMult.mvMultMinMax(soln, min, soln2, unknown, false, strat);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+			}
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished value iteration
@@ -847,6 +905,67 @@ public class MDPModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute reachability probabilities using topological value iteration,
+	 * i.e. solving the SCCs of the states with unknown values one at a time, in reverse topological order.
+	 * @param mdp The MDP
+	 * @param no Probability 0 states
+	 * @param yes Probability 1 states
+	 * @param min Min or max probabilities (true=min, false=max)
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.  
+	 */
+	protected ModelCheckerResult computeReachProbsTopological(final MDP mdp, BitSet no, BitSet yes, final boolean min, double init[], BitSet known,
+			final int strat[]) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[], initVal;
+
+		// Store num states
+		n = mdp.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 1.0/0.0 if in yes/no; (3) passed in initial value; (4) initVal
+		// where initVal is 0.0 or 1.0, depending on whether we converge from below/above. 
+		initVal = (valIterDir == ValIterDir.BELOW) ? 0.0 : 1.0;
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = yes.get(i) ? 1.0 : no.get(i) ? 0.0 : initVal;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(yes);
+		unknown.andNot(no);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve, using Jacobi-style updates within each SCC (i.e. Gauss-Seidel)
+		return computeTopological(mdp, soln, unknown, new StateUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return mdp.mvMultJacMinMaxSingle(s, soln, min, strat);
+			}
+		});
+	}
+
 	/**
 	 * Compute reachability probabilities using policy iteration.
 	 * Optionally, store optimal (memoryless) strategy info. 
@@ -1142,22 +1261,29 @@ public class MDPModelChecker extends ProbModelChecker
 		if (remain != null)
 			unknown.and(remain);
 
-		// Start iterations
-		iters = 0;
-		while (iters < k) {
-			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultMinMax(soln, min, soln2, unknown, false, null);
-			// Store intermediate results if required
-			// (compute min/max value over initial states for this step)
-			if (results != null) {
-				// TODO: whether this is min or max should be specified somehow
-				results[iters] = Utils.minMaxOverArraySubset(soln2, mdp.getInitialStates(), true);
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(mdp, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			while (iters < k) {
+				iters++;
+				// Matrix-vector multiply and min/max ops
+				mvMult.mvMultMinMax(soln, min, soln2, unknown, false, null);
+				// Store intermediate results if required
+				// (compute min/max value over initial states for this step)
+				if (results != null) {
+					// TODO: whether this is min or max should be specified somehow
+					results[iters] = Utils.minMaxOverArraySubset(soln2, mdp.getInitialStates(), true);
+				}
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
 			}
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished bounded probabilistic reachability
@@ -1203,16 +1329,23 @@ public class MDPModelChecker extends ProbModelChecker
 		for (i = 0; i < n; i++)
 			soln[i] = soln2[i] = 0.0;
 
-		// Start iterations
-		iters = 0;
-		while (iters < k) {
-			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultRewMinMax(soln, mdpRewards, min, soln2, null, false, null);
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(mdp, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			while (iters < k) {
+				iters++;
+				// Matrix-vector multiply and min/max ops
+				mvMult.mvMultRewMinMax(soln, mdpRewards, min, soln2, null, false, null);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+			}
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished value iteration
@@ -1265,7 +1398,7 @@ public class MDPModelChecker extends ProbModelChecker
 
 		// Switch to a supported method, if necessary
 		if (!(mdpSolnMethod == MDPSolnMethod.VALUE_ITERATION || mdpSolnMethod == MDPSolnMethod.GAUSS_SEIDEL
-				|| mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION)) {
+				|| mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION || mdpSolnMethod == MDPSolnMethod.TOPOLOGICAL)) {
 			mdpSolnMethod = MDPSolnMethod.GAUSS_SEIDEL;
 			mainLog.printWarning("Switching to MDP solution method \"" + mdpSolnMethod.fullName() + "\"");
 		}
@@ -1361,6 +1494,9 @@ public class MDPModelChecker extends ProbModelChecker
 		case GAUSS_SEIDEL:
 			res = computeReachRewardsGaussSeidel(mdp, mdpRewards, target, inf, min, init, known, strat);
 			break;
+		case TOPOLOGICAL:
+			res = computeReachRewardsTopological(mdp, mdpRewards, target, inf, min, init, known, strat);
+			break;
 		case POLICY_ITERATION:
 			res = computeReachRewardsPolIter(mdp, mdpRewards, target, inf, min, strat);
 			break;
@@ -1450,20 +1586,27 @@ public class MDPModelChecker extends ProbModelChecker
 		if (known != null)
 			unknown.andNot(known);
 
-		// Start iterations
-		iters = 0;
-		done = false;
-		while (!done && iters < maxIters) {
-			//mainLog.println(soln);
-			iters++;
-			// Matrix-vector multiply and min/max ops
-			mdp.mvMultRewMinMax(soln, mdpRewards, min, soln2, unknown, false, strat);
-			// Check termination
-			done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
-			// Swap vectors for next iter
-			tmpsoln = soln;
-			soln = soln2;
-			soln2 = tmpsoln;
+		// Set up matrix-vector multiplication (in parallel, if enabled)
+		ParallelMVMult mvMult = new ParallelMVMult(mdp, getThreadPool());
+
+		try {
+			// Start iterations
+			iters = 0;
+			done = false;
+			while (!done && iters < maxIters) {
+				//mainLog.println(soln);
+				iters++;
+				// Matrix-vector multiply and min/max ops
+				mvMult.mvMultRewMinMax(soln, mdpRewards, min, soln2, unknown, false, strat);
+				// Check termination
+				done = PrismUtils.doublesAreClose(soln, soln2, termCritParam, termCrit == TermCrit.ABSOLUTE);
+				// Swap vectors for next iter
+				tmpsoln = soln;
+				soln = soln2;
+				soln2 = tmpsoln;
+			}
+		} finally {
+			mvMult.shutdown();
 		}
 
 		// Finished value iteration
@@ -1574,6 +1717,66 @@ public class MDPModelChecker extends ProbModelChecker
 		return res;
 	}
 
+	/**
+	 * Compute expected reachability rewards using topological value iteration,
+	 * i.e. solving the SCCs of the states with unknown values one at a time, in reverse topological order.
+	 * @param mdp The MDP
+	 * @param mdpRewards The rewards
+	 * @param target Target states
+	 * @param inf States for which reward is infinite
+	 * @param min Min or max rewards (true=min, false=max)
+	 * @param init Optionally, an initial solution vector (will be overwritten) 
+	 * @param known Optionally, a set of states for which the exact answer is known
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * Note: if 'known' is specified (i.e. is non-null, 'init' must also be given and is used for the exact values.
+	 */
+	protected ModelCheckerResult computeReachRewardsTopological(final MDP mdp, final MDPRewards mdpRewards, BitSet target, BitSet inf, final boolean min,
+			double init[], BitSet known, final int strat[]) throws PrismException
+	{
+		BitSet unknown;
+		int i, n;
+		double soln[];
+
+		// Store num states
+		n = mdp.getNumStates();
+
+		// Create solution vector
+		soln = (init == null) ? new double[n] : init;
+
+		// Initialise solution vector. Use (where available) the following in order of preference:
+		// (1) exact answer, if already known; (2) 0.0/infinity if in target/inf; (3) passed in initial value; (4) 0.0
+		if (init != null) {
+			if (known != null) {
+				for (i = 0; i < n; i++)
+					soln[i] = known.get(i) ? init[i] : target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			} else {
+				for (i = 0; i < n; i++)
+					soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : init[i];
+			}
+		} else {
+			for (i = 0; i < n; i++)
+				soln[i] = target.get(i) ? 0.0 : inf.get(i) ? Double.POSITIVE_INFINITY : 0.0;
+		}
+
+		// Determine set of states actually need to compute values for
+		unknown = new BitSet();
+		unknown.set(0, n);
+		unknown.andNot(target);
+		unknown.andNot(inf);
+		if (known != null)
+			unknown.andNot(known);
+
+		// Solve, using Jacobi-style updates within each SCC (i.e. Gauss-Seidel)
+		return computeTopological(mdp, soln, unknown, new StateUpdate()
+		{
+			@Override
+			public double update(int s, double soln[])
+			{
+				return mdp.mvMultRewJacMinMaxSingle(s, soln, mdpRewards, min, strat);
+			}
+		});
+	}
+
 	/**
 	 * Compute expected reachability rewards using policy iteration.
 	 * The array {@code strat} is used both to pass in the initial strategy for policy iteration,
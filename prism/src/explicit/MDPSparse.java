@@ -78,6 +78,32 @@ public class MDPSparse extends MDPExplicit
 
 	// Constructors
 
+	/**
+	 * Constructor: MDP with {@code numStates} states and the transition function given
+	 * in compressed sparse row form (the arrays are stored, not copied).
+	 * Initial states, states list, etc. should be set separately afterwards.
+	 * @param numStates Number of states
+	 * @param rowStarts Indices into choiceStarts for the start of each state's choices (size numStates+1)
+	 * @param choiceStarts Indices into cols/nonZeros for the start of each choice's transitions (size numDistrs+1)
+	 * @param cols Destination of each transition
+	 * @param nonZeros Probability of each transition
+	 * @param actions Action label of each choice (null if there are no actions)
+	 */
+	public MDPSparse(int numStates, int rowStarts[], int choiceStarts[], int cols[], double nonZeros[], Object actions[])
+	{
+		initialise(numStates);
+		this.rowStarts = rowStarts;
+		this.choiceStarts = choiceStarts;
+		this.cols = cols;
+		this.nonZeros = nonZeros;
+		this.actions = actions;
+		numDistrs = rowStarts[numStates];
+		numTransitions = choiceStarts[numDistrs];
+		for (int s = 0; s < numStates; s++) {
+			maxNumDistrs = Math.max(maxNumDistrs, rowStarts[s + 1] - rowStarts[s]);
+		}
+	}
+
 	/**
 	 * Copy constructor (from MDPSimple).
 	 */
@@ -356,7 +356,9 @@ public class NonProbModelChecker extends StateModelChecker
 			// if there are no remaining successors into T, i.e, if count[s]==0
 
 			// For all predecessors s of t....
-			for (int s : pre.getPre(t)) {
+			int numPre = pre.getNumPredecessors(t);
+			for (int k = 0; k < numPre; k++) {
+				int s = pre.getPredecessor(t, k);
 				// ... ignore if we have already proven that it does not satisfy E[ a R b ]
 				if (!T.get(s))
 					continue;
@@ -435,7 +437,9 @@ public class NonProbModelChecker extends StateModelChecker
 
 			// For all predecessors s of t....
 
-			for (int s : pre.getPre(t)) {
+			int numPre = pre.getNumPredecessors(t);
+			for (int k = 0; k < numPre; k++) {
+				int s = pre.getPredecessor(t, k);
 				// ... ignore if we have already proven that it does not satisfy E[ a R b ]
 				if (!T.get(s))
 					continue;
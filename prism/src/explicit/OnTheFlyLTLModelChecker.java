@@ -0,0 +1,259 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import parser.Values;
+import parser.ast.Expression;
+import parser.ast.ExpressionProb;
+import parser.ast.LabelList;
+import parser.ast.ModulesFile;
+import parser.ast.PropertiesFile;
+import prism.ModelType;
+import prism.OpRelOpBound;
+import prism.PrismComponent;
+import prism.PrismException;
+import prism.PrismNotSupportedException;
+import prism.Result;
+import simulator.ModulesFileModelGenerator;
+import acceptance.AcceptanceOmega;
+import acceptance.AcceptanceReach;
+import acceptance.AcceptanceType;
+import automata.DA;
+
+/**
+ * Model checker for LTL properties of DTMCs/MDPs that explores the product
+ * of the model and a deterministic automaton on the fly, directly from the model description,
+ * rather than first building the (full) model.
+ * This is only applicable to properties P~p [ path ] whose state subformulas are propositional,
+ * for models with a single initial state.
+ */
+public class OnTheFlyLTLModelChecker extends PrismComponent
+{
+	// Model file
+	private ModulesFile modulesFile;
+	// Properties file
+	private PropertiesFile propertiesFile;
+	// Constants from model
+	private Values constantValues;
+	// Labels from the model
+	private LabelList labelListModel;
+	// Labels from the property file
+	private LabelList labelListProp;
+
+	/**
+	 * Constructor.
+	 */
+	public OnTheFlyLTLModelChecker(PrismComponent parent, ModulesFile modulesFile, PropertiesFile propertiesFile)
+	{
+		super(parent);
+		this.modulesFile = modulesFile;
+		this.propertiesFile = propertiesFile;
+
+		// Get combined constant values from model/properties
+		constantValues = new Values();
+		constantValues.addValues(modulesFile.getConstantValues());
+		if (propertiesFile != null)
+			constantValues.addValues(propertiesFile.getConstantValues());
+		this.labelListModel = modulesFile.getLabelList();
+		this.labelListProp = propertiesFile == null ? null : propertiesFile.getLabelList();
+	}
+
+	/**
+	 * Returns {@code true} if a property can be checked by this model checker,
+	 * i.e., it is a P operator whose path formula is LTL, with propositional state subformulas
+	 * (not referring to the "init"/"deadlock" labels), and the model is a DTMC/MDP with a single initial state.
+	 */
+	public boolean isSupported(Expression expr) throws PrismException
+	{
+		ModelType modelType = modulesFile.getModelType();
+		if (modelType != ModelType.DTMC && modelType != ModelType.MDP) {
+			return false;
+		}
+		if (modulesFile.getInitialStates() != null) {
+			return false;
+		}
+		if (!(expr instanceof ExpressionProb)) {
+			return false;
+		}
+		Expression pathExpr = expandLabels(((ExpressionProb) expr).getExpression());
+		if (!LTLModelChecker.isSupportedLTLFormula(modelType, pathExpr)) {
+			return false;
+		}
+		List<Expression> labelExprs = new ArrayList<>();
+		new LTLModelChecker(this).extractMaximalStateFormulas(pathExpr, labelExprs);
+		for (Expression labelExpr : labelExprs) {
+			if (!labelExpr.isProposition() || !labelExpr.getAllLabels().isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Model check a property.
+	 */
+	public Result check(Expression expr) throws PrismException
+	{
+		Result res;
+		String resultString;
+		long timer;
+
+		// Starting model checking
+		timer = System.currentTimeMillis();
+
+		// Do model checking
+		if (!isSupported(expr)) {
+			throw new PrismNotSupportedException("On-the-fly LTL model checking not supported for " + expr);
+		}
+		res = checkExpressionProb((ExpressionProb) expr);
+
+		// Model checking complete
+		timer = System.currentTimeMillis() - timer;
+		mainLog.println("\nTime for model checking: " + timer / 1000.0 + " seconds.");
+
+		// Print result to log
+		// (like for the other model checkers, where the property is wrapped in a filter, no result name is included)
+		resultString = "Result: " + res.getResultString();
+		mainLog.print("\n" + resultString + "\n");
+
+		// Return result
+		return res;
+	}
+
+	/**
+	 * Model check a P operator.
+	 */
+	private Result checkExpressionProb(ExpressionProb expr) throws PrismException
+	{
+		ModelType modelType = modulesFile.getModelType();
+		OpRelOpBound opInfo = expr.getRelopBoundInfo(constantValues);
+		MinMax minMax = opInfo.getMinMax(modelType);
+		Expression pathExpr = expandLabels(expr.getExpression());
+
+		// For min probabilities, need to negate the formula
+		// (add parentheses to allow re-parsing if required)
+		if (minMax.isMin()) {
+			pathExpr = Expression.Not(Expression.Parenth(pathExpr));
+		}
+
+		// For LTL model checking routines
+		LTLModelChecker mcLtl = new LTLModelChecker(this);
+
+		// Convert LTL formula to automaton
+		AcceptanceType[] allowedAcceptance;
+		if (modelType == ModelType.DTMC) {
+			allowedAcceptance = new AcceptanceType[] { AcceptanceType.RABIN, AcceptanceType.REACH, AcceptanceType.GENERIC };
+		} else {
+			allowedAcceptance = new AcceptanceType[] { AcceptanceType.BUCHI, AcceptanceType.RABIN, AcceptanceType.GENERALIZED_RABIN, AcceptanceType.REACH };
+		}
+		List<Expression> labelExprs = new ArrayList<>();
+		DA<BitSet, ? extends AcceptanceOmega> da = mcLtl.constructDAForLTLFormula(pathExpr, constantValues, labelExprs, allowedAcceptance);
+
+		// Build product of model and automaton, exploring the model on the fly
+		mainLog.println("\nConstructing " + (modelType == ModelType.DTMC ? "MC" : "MDP") + "-" + da.getAutomataType() + " product on the fly...");
+		ModulesFileModelGenerator modelGen = new ModulesFileModelGenerator(modulesFile, this);
+		LTLModelChecker.LTLProduct<Model> product = mcLtl.constructProductModel(da, modelGen, constantValues, labelExprs);
+		Model prodModel = product.getProductModel();
+		mainLog.print("\n" + prodModel.infoStringTable());
+
+		// Find accepting states + compute reachability probabilities
+		BitSet acc;
+		double soln[];
+		if (product.getAcceptance() instanceof AcceptanceReach) {
+			mainLog.println("\nSkipping " + (modelType == ModelType.DTMC ? "BSCC" : "accepting MEC") + " computation since acceptance is defined via goal states...");
+			acc = ((AcceptanceReach) product.getAcceptance()).getGoalStates();
+		} else if (modelType == ModelType.DTMC) {
+			mainLog.println("\nFinding accepting BSCCs...");
+			acc = mcLtl.findAcceptingBSCCs(prodModel, product.getAcceptance());
+		} else {
+			mainLog.println("\nFinding accepting MECs...");
+			acc = mcLtl.findAcceptingECStates((NondetModel) prodModel, product.getAcceptance());
+		}
+		mainLog.println("\nComputing reachability probabilities...");
+		if (modelType == ModelType.DTMC) {
+			soln = new DTMCModelChecker(this).computeReachProbs((DTMC) prodModel, acc).soln;
+		} else {
+			soln = new MDPModelChecker(this).computeReachProbs((MDP) prodModel, acc, false).soln;
+		}
+
+		// Get value in the initial state (product state 0),
+		// subtracting from 1 if we're model checking a negated formula for regular Pmin
+		double prob = soln[0];
+		if (minMax.isMin()) {
+			prob = 1.0 - prob;
+		}
+
+		// Compare against the bound, if required
+		Result res = new Result();
+		if (opInfo.isNumeric()) {
+			res.setResult(new Double(prob));
+			res.setExplanation("value in the initial state");
+			mainLog.println("\nValue in the initial state: " + prob);
+		} else {
+			boolean sat;
+			double bound = opInfo.getBound();
+			switch (opInfo.getRelOp()) {
+			case GEQ:
+				sat = prob >= bound;
+				break;
+			case GT:
+				sat = prob > bound;
+				break;
+			case LEQ:
+				sat = prob <= bound;
+				break;
+			case LT:
+				sat = prob < bound;
+				break;
+			default:
+				throw new PrismException("Unsupported operator " + opInfo.getRelOp() + " for P operator");
+			}
+			res.setResult(new Boolean(sat));
+			res.setExplanation("property " + (sat ? "" : "not ") + "satisfied in the initial state");
+			mainLog.println("\nProperty " + (sat ? "" : "not ") + "satisfied in the initial state");
+		}
+		return res;
+	}
+
+	/**
+	 * Expand property references and labels (from the model and properties file) in an expression.
+	 * The expression passed in is not modified.
+	 */
+	private Expression expandLabels(Expression expr) throws PrismException
+	{
+		expr = expr.deepCopy();
+		expr = (Expression) expr.expandPropRefsAndLabels(propertiesFile, labelListModel);
+		if (labelListProp != null)
+			expr = (Expression) expr.expandPropRefsAndLabels(propertiesFile, labelListProp);
+		return expr;
+	}
+}
@@ -0,0 +1,439 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import parser.State;
+import parser.VarList;
+import parser.type.TypeBool;
+import parser.type.TypeInt;
+import prism.PrismException;
+import prism.PrismNotSupportedException;
+
+/**
+ * Storage for a set of (PRISM model) states, where each state is bit-packed
+ * into one or more {@code long} words, using the variable bounds from a {@link VarList},
+ * and the set is indexed by an open-addressing hash table of primitive integers.
+ * <br><br>
+ * Variables are packed most-significant first, in the order of the {@link VarList},
+ * so the unsigned lexicographic order of the packed words coincides with
+ * the ordering of {@link State#compareTo(State)}. This means that a sorting permutation
+ * can be built once, at the end of reachability, rather than maintaining a sorted set throughout.
+ * <br><br>
+ * Only bounded integer and Boolean variables are supported.
+ */
+public class PackedStateStorage implements StateStorage<State>
+{
+	/** Marker for an empty slot in the hash table */
+	private static final int EMPTY = -1;
+	/** Initial capacity (number of states) */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// Packing layout
+
+	/** Variable info (used for encoding/decoding values) */
+	protected VarList varList;
+	/** Number of variables */
+	protected int numVars;
+	/** Number of words used to store each state */
+	protected int numWords;
+	/** Index of the word in which each variable is stored */
+	protected int varWord[];
+	/** Shift of each variable within its word */
+	protected int varShift[];
+	/** Number of values (range) of each variable */
+	protected int varRange[];
+	/** Number of bits used to store each variable */
+	protected int varBits[];
+
+	// Storage
+
+	/** Packed states: the state with index i occupies words[i*numWords]...words[(i+1)*numWords-1] */
+	protected long words[];
+	/** Number of states stored */
+	protected int size;
+	/** Hash table, mapping (hash of) packed states to indices, or EMPTY */
+	protected int table[];
+	/** Index of the state most recently added */
+	protected int indexOfLastAdd;
+	/** Temporary storage used to pack a state for lookup */
+	protected long scratch[];
+
+	/**
+	 * Create an empty set of states, packed according to the variables in {@code varList}.
+	 * Throws an exception if any variable is not a bounded integer or Boolean.
+	 */
+	public PackedStateStorage(VarList varList) throws PrismException
+	{
+		this.varList = varList;
+		numVars = varList.getNumVars();
+		varWord = new int[numVars];
+		varShift = new int[numVars];
+		varRange = new int[numVars];
+		varBits = new int[numVars];
+		// Lay out variables, most significant first,
+		// starting a new word whenever the current one is full
+		int word = 0, bitsLeft = 64;
+		for (int i = 0; i < numVars; i++) {
+			if (!(varList.getType(i) instanceof TypeInt || varList.getType(i) instanceof TypeBool)) {
+				throw new PrismNotSupportedException("Packed state storage does not support variable \"" + varList.getName(i) + "\"");
+			}
+			if (varList.getDeclaration(i).getDeclType() instanceof parser.ast.DeclarationIntUnbounded) {
+				throw new PrismNotSupportedException("Packed state storage does not support unbounded variable \"" + varList.getName(i) + "\"");
+			}
+			varRange[i] = varList.getRange(i);
+			int bits = varBits[i] = Math.max(1, varList.getRangeLogTwo(i));
+			if (bits > bitsLeft) {
+				word++;
+				bitsLeft = 64;
+			}
+			bitsLeft -= bits;
+			varWord[i] = word;
+			varShift[i] = bitsLeft;
+		}
+		numWords = word + 1;
+		scratch = new long[numWords];
+		words = new long[INITIAL_CAPACITY * numWords];
+		table = new int[2 * INITIAL_CAPACITY];
+		Arrays.fill(table, EMPTY);
+		size = 0;
+		indexOfLastAdd = -1;
+	}
+
+	// Packing
+
+	/**
+	 * Pack state {@code state} into {@code dest}.
+	 * Throws an IllegalArgumentException if a variable value is outside its declared range.
+	 */
+	protected void pack(State state, long dest[])
+	{
+		Arrays.fill(dest, 0L);
+		for (int i = 0; i < numVars; i++) {
+			Object o = state.varValues[i];
+			int val;
+			if (o instanceof Integer) {
+				val = ((Integer) o).intValue() - varList.getLow(i);
+			} else if (o instanceof Boolean) {
+				val = ((Boolean) o).booleanValue() ? 1 : 0;
+			} else {
+				throw new IllegalArgumentException("Value " + o + " is wrong type for variable " + varList.getName(i));
+			}
+			if (val < 0 || val >= varRange[i]) {
+				throw new IllegalArgumentException("Value " + o + " of variable " + varList.getName(i) + " is outside its declared range");
+			}
+			dest[varWord[i]] |= ((long) val) << varShift[i];
+		}
+	}
+
+	/**
+	 * Unpack the state with index {@code index} into a new State object.
+	 */
+	protected State unpack(int index)
+	{
+		State state = new State(numVars);
+		int base = index * numWords;
+		for (int i = 0; i < numVars; i++) {
+			long w = words[base + varWord[i]] >>> varShift[i];
+			int val = (int) (w & ((1L << varBits[i]) - 1));
+			state.setValue(i, varList.decodeFromInt(i, val));
+		}
+		return state;
+	}
+
+	/**
+	 * Compute a hash code for the packed state in {@code src}.
+	 */
+	private int hash(long src[], int offset)
+	{
+		long h = 0;
+		for (int k = 0; k < numWords; k++) {
+			h = (h ^ src[offset + k]) * 0x9E3779B97F4A7C15L;
+			// Mix high bits into low bits (values are packed into the most significant bits)
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+		}
+		return (int) h;
+	}
+
+	/**
+	 * Check whether the packed state in {@code src} is equal to the stored state with index {@code index}.
+	 */
+	private boolean matches(long src[], int index)
+	{
+		int base = index * numWords;
+		for (int k = 0; k < numWords; k++) {
+			if (words[base + k] != src[k])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Find the position in the hash table for the packed state in {@code src},
+	 * i.e. either the slot containing its index, if present, or the (empty) slot where it belongs.
+	 */
+	private int findSlot(long src[])
+	{
+		int mask = table.length - 1;
+		int pos = hash(src, 0) & mask;
+		while (true) {
+			int index = table[pos];
+			if (index == EMPTY || matches(src, index))
+				return pos;
+			pos = (pos + 1) & mask;
+		}
+	}
+
+	/**
+	 * Grow the state/hash table storage, if needed, so that one more state can be added.
+	 */
+	private void ensureCapacity()
+	{
+		// Packed states array
+		if ((size + 1) * numWords > words.length) {
+			long newLength = Math.max(words.length + (words.length >> 1), (long) (size + 1) * numWords);
+			if (newLength > Integer.MAX_VALUE - 8)
+				newLength = Integer.MAX_VALUE - 8;
+			words = Arrays.copyOf(words, (int) newLength);
+		}
+		// Hash table (keep load factor below 1/2)
+		if (2 * (size + 1) > table.length) {
+			int newTable[] = new int[table.length * 2];
+			Arrays.fill(newTable, EMPTY);
+			int mask = newTable.length - 1;
+			for (int index = 0; index < size; index++) {
+				int pos = hash(words, index * numWords) & mask;
+				while (newTable[pos] != EMPTY) {
+					pos = (pos + 1) & mask;
+				}
+				newTable[pos] = index;
+			}
+			table = newTable;
+		}
+	}
+
+	/**
+	 * Compare the stored states with indices {@code i1} and {@code i2},
+	 * in the style of {@link State#compareTo(State)}.
+	 */
+	private int compare(int i1, int i2)
+	{
+		int base1 = i1 * numWords;
+		int base2 = i2 * numWords;
+		for (int k = 0; k < numWords; k++) {
+			int c = Long.compareUnsigned(words[base1 + k], words[base2 + k]);
+			if (c != 0)
+				return c;
+		}
+		return 0;
+	}
+
+	// Methods for StateStorage interface
+
+	@Override
+	public int get(State state)
+	{
+		pack(state, scratch);
+		return table[findSlot(scratch)];
+	}
+
+	@Override
+	public boolean add(State state)
+	{
+		pack(state, scratch);
+		ensureCapacity();
+		int pos = findSlot(scratch);
+		if (table[pos] != EMPTY) {
+			indexOfLastAdd = table[pos];
+			return false;
+		}
+		System.arraycopy(scratch, 0, words, size * numWords, numWords);
+		table[pos] = size;
+		indexOfLastAdd = size;
+		size++;
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		words = new long[INITIAL_CAPACITY * numWords];
+		table = new int[2 * INITIAL_CAPACITY];
+		Arrays.fill(table, EMPTY);
+		size = 0;
+		indexOfLastAdd = -1;
+	}
+
+	@Override
+	public boolean contains(State state)
+	{
+		return get(state) != -1;
+	}
+
+	@Override
+	public int getIndexOfLastAdd()
+	{
+		return indexOfLastAdd;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get access to the underlying set of map entries.
+	 * Note: for this class, the states are unpacked and a new map is created on each call.
+	 */
+	@Override
+	public Set<Map.Entry<State, Integer>> getEntrySet()
+	{
+		Map<State, Integer> map = new LinkedHashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			map.put(unpack(i), i);
+		}
+		return map.entrySet();
+	}
+
+	@Override
+	public ArrayList<State> toArrayList()
+	{
+		ArrayList<State> list = new ArrayList<>(size);
+		toArrayList(list);
+		return list;
+	}
+
+	@Override
+	public void toArrayList(ArrayList<State> list)
+	{
+		for (int i = 0; i < size; i++) {
+			list.add(unpack(i));
+		}
+	}
+
+	@Override
+	public ArrayList<State> toPermutedArrayList(int permut[])
+	{
+		ArrayList<State> list = new ArrayList<>(size);
+		toPermutedArrayList(permut, list);
+		return list;
+	}
+
+	@Override
+	public void toPermutedArrayList(int permut[], ArrayList<State> list)
+	{
+		for (int i = 0; i < size; i++)
+			list.add(null);
+		for (int i = 0; i < size; i++) {
+			list.set(permut[i], unpack(i));
+		}
+	}
+
+	/**
+	 * Build sort permutation. This returns a permutation (integer array) mapping
+	 * current indices to new indices under the sorting order of {@link State#compareTo(State)}.
+	 * The sort is done once, here, directly on the packed representation.
+	 */
+	@Override
+	public int[] buildSortingPermutation()
+	{
+		// Sort state indices (bottom-up merge sort, comparing packed states)
+		int order[] = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		int tmp[] = new int[size];
+		for (int width = 1; width < size; width *= 2) {
+			for (int lo = 0; lo < size; lo += 2 * width) {
+				int mid = Math.min(lo + width, size);
+				int hi = Math.min(lo + 2 * width, size);
+				int a = lo, b = mid, k = lo;
+				while (a < mid && b < hi) {
+					tmp[k++] = compare(order[a], order[b]) <= 0 ? order[a++] : order[b++];
+				}
+				while (a < mid)
+					tmp[k++] = order[a++];
+				while (b < hi)
+					tmp[k++] = order[b++];
+			}
+			int swap[] = order;
+			order = tmp;
+			tmp = swap;
+		}
+		// Invert to get permutation
+		int perm[] = new int[size];
+		for (int i = 0; i < size; i++) {
+			perm[order[i]] = i;
+		}
+		return perm;
+	}
+
+	// Other methods
+
+	/**
+	 * Get the number of {@code long} words used to store each state.
+	 */
+	public int getNumWordsPerState()
+	{
+		return numWords;
+	}
+
+	/**
+	 * Get the (approximate) number of bytes of memory currently used by this storage,
+	 * i.e. the packed states and hash table arrays (including unused capacity).
+	 */
+	public long getMemoryUsage()
+	{
+		return 8L * words.length + 4L * table.length;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < size; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(unpack(i)).append("=").append(i);
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+}
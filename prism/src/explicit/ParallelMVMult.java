@@ -0,0 +1,326 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import explicit.rewards.MCRewards;
+import explicit.rewards.MDPRewards;
+
+/**
+ * Matrix-vector multiplication kernels (as used by value iteration etc.) for a fixed model,
+ * which are executed in parallel, using a fork-join pool, when the model is sparse
+ * (i.e. an {@link MDPSparse} or {@link DTMCSparse}) and more than one thread is requested.
+ * Otherwise, calls are just passed on to the (serial) methods of the model itself.
+ * <br><br>
+ * States are split into contiguous blocks, each containing (roughly) the same number
+ * of transitions, as determined from the row offsets of the sparse matrix.
+ * Each state's value (and strategy choice, if required) depends only on the input vector
+ * (and its own previous strategy choice), so results are identical to the serial versions,
+ * including strategy tie-breaking.
+ * <br><br>
+ * The fork-join pool is supplied by the caller (typically one per model checker, see
+ * {@link ProbModelChecker#getThreadPool()}) and reused across computations.
+ * Once no longer needed, {@link #shutdown()} should be called (e.g. in a finally block)
+ * to stop the kernels from using it.
+ */
+public class ParallelMVMult
+{
+	/** Minimum number of states per block (smaller models are always dealt with serially) */
+	public static final int MIN_BLOCK_SIZE = 1024;
+	/** Number of blocks to create per thread (more gives better load balancing) */
+	private static final int BLOCKS_PER_THREAD = 4;
+
+	/** The model (one of these is non-null) */
+	private DTMC dtmc;
+	private MDP mdp;
+	/** Number of states */
+	private int numStates;
+	/** Indices of the first state of each block (of size numBlocks+1), or null if serial */
+	private int blockStarts[];
+	/** Pool used for parallel execution, or null if serial */
+	private ForkJoinPool pool;
+
+	/**
+	 * Create kernels for a DTMC, executed using {@code pool} (or serially, if it is null).
+	 */
+	public ParallelMVMult(DTMC dtmc, ForkJoinPool pool)
+	{
+		this.dtmc = dtmc;
+		numStates = dtmc.getNumStates();
+		if (dtmc instanceof DTMCSparse && pool != null) {
+			createBlocks(((DTMCSparse) dtmc).rowStarts, null, pool);
+		}
+	}
+
+	/**
+	 * Create kernels for an MDP, executed using {@code pool} (or serially, if it is null).
+	 */
+	public ParallelMVMult(MDP mdp, ForkJoinPool pool)
+	{
+		this.mdp = mdp;
+		numStates = mdp.getNumStates();
+		if (mdp instanceof MDPSparse && pool != null) {
+			createBlocks(((MDPSparse) mdp).rowStarts, ((MDPSparse) mdp).choiceStarts, pool);
+		}
+	}
+
+	/**
+	 * Split the state space into blocks of contiguous states of roughly equal numbers of transitions.
+	 * The start of state s's transitions is {@code rowStarts[s]}, or {@code choiceStarts[rowStarts[s]]}
+	 * if {@code choiceStarts} is non-null. No blocks are created (and the pool is not used)
+	 * if there is only one thread or the model is too small for parallel execution to be worthwhile.
+	 */
+	private void createBlocks(int rowStarts[], int choiceStarts[], ForkJoinPool pool)
+	{
+		int numThreads, numBlocks, b, s;
+		long total, target;
+
+		numThreads = pool.getParallelism();
+		numBlocks = Math.min(numThreads * BLOCKS_PER_THREAD, numStates / MIN_BLOCK_SIZE);
+		if (numThreads <= 1 || numBlocks <= 1) {
+			return;
+		}
+		total = offset(rowStarts, choiceStarts, numStates);
+		blockStarts = new int[numBlocks + 1];
+		s = 0;
+		for (b = 1; b < numBlocks; b++) {
+			target = total * b / numBlocks;
+			while (s < numStates && offset(rowStarts, choiceStarts, s) < target) {
+				s++;
+			}
+			blockStarts[b] = s;
+		}
+		blockStarts[numBlocks] = numStates;
+		this.pool = pool;
+	}
+
+	private static long offset(int rowStarts[], int choiceStarts[], int s)
+	{
+		return choiceStarts == null ? rowStarts[s] : choiceStarts[rowStarts[s]];
+	}
+
+	/**
+	 * Is this executing in parallel (or just delegating to the model)?
+	 */
+	public boolean isParallel()
+	{
+		return pool != null;
+	}
+
+	/**
+	 * Stop using the thread pool (if any); the pool itself belongs to the caller
+	 * and is not shut down. The kernels can still be used afterwards, but will execute serially.
+	 */
+	public void shutdown()
+	{
+		pool = null;
+	}
+
+	// Kernels
+
+	/**
+	 * Do a matrix-vector multiplication for the DTMC, as for {@link DTMC#mvMult}.
+	 */
+	public void mvMult(final double vect[], final double result[], BitSet subset, boolean complement)
+	{
+		if (pool == null) {
+			dtmc.mvMult(vect, result, subset, complement);
+			return;
+		}
+		runBlocks(new BlockKernel(subset, complement)
+		{
+			@Override
+			public void apply(int s)
+			{
+				result[s] = dtmc.mvMultSingle(s, vect);
+			}
+		});
+	}
+
+	/**
+	 * Do a matrix-vector multiplication and sum of rewards for the DTMC, as for {@link DTMC#mvMultRew}.
+	 */
+	public void mvMultRew(final double vect[], final MCRewards mcRewards, final double result[], BitSet subset, boolean complement)
+	{
+		if (pool == null) {
+			dtmc.mvMultRew(vect, mcRewards, result, subset, complement);
+			return;
+		}
+		runBlocks(new BlockKernel(subset, complement)
+		{
+			@Override
+			public void apply(int s)
+			{
+				result[s] = dtmc.mvMultRewSingle(s, vect, mcRewards);
+			}
+		});
+	}
+
+	/**
+	 * Do a matrix-vector multiplication followed by min/max for the MDP, as for {@link MDP#mvMultMinMax}.
+	 */
+	public void mvMultMinMax(final double vect[], final boolean min, final double result[], BitSet subset, boolean complement, final int strat[])
+	{
+		if (pool == null) {
+			mdp.mvMultMinMax(vect, min, result, subset, complement, strat);
+			return;
+		}
+		runBlocks(new BlockKernel(subset, complement)
+		{
+			@Override
+			public void apply(int s)
+			{
+				result[s] = mdp.mvMultMinMaxSingle(s, vect, min, strat);
+			}
+		});
+	}
+
+	/**
+	 * Do a matrix-vector multiplication and sum of rewards followed by min/max for the MDP,
+	 * as for {@link MDP#mvMultRewMinMax}.
+	 */
+	public void mvMultRewMinMax(final double vect[], final MDPRewards mdpRewards, final boolean min, final double result[], BitSet subset, boolean complement,
+			final int strat[])
+	{
+		if (pool == null) {
+			mdp.mvMultRewMinMax(vect, mdpRewards, min, result, subset, complement, strat);
+			return;
+		}
+		runBlocks(new BlockKernel(subset, complement)
+		{
+			@Override
+			public void apply(int s)
+			{
+				result[s] = mdp.mvMultRewMinMaxSingle(s, vect, mdpRewards, min, strat);
+			}
+		});
+	}
+
+	// Parallel execution
+
+	/**
+	 * Operation to be applied to each state of a block that is in
+	 * {@code subset} (or not in it, if {@code complement} is true).
+	 * If {@code subset} is null, all states are used.
+	 */
+	private static abstract class BlockKernel
+	{
+		private final BitSet subset;
+		private final boolean complement;
+
+		public BlockKernel(BitSet subset, boolean complement)
+		{
+			this.subset = subset;
+			this.complement = complement;
+		}
+
+		public abstract void apply(int s);
+
+		public void applyToBlock(int lo, int hi)
+		{
+			int s;
+			if (subset == null) {
+				for (s = lo; s < hi; s++) {
+					apply(s);
+				}
+			} else if (complement) {
+				for (s = subset.nextClearBit(lo); s < hi; s = subset.nextClearBit(s + 1)) {
+					apply(s);
+				}
+			} else {
+				for (s = subset.nextSetBit(lo); s >= 0 && s < hi; s = subset.nextSetBit(s + 1)) {
+					apply(s);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply a kernel to all blocks in parallel, returning once all are finished.
+	 */
+	private void runBlocks(BlockKernel kernel)
+	{
+		pool.invoke(new BlocksTask(kernel, blockStarts));
+	}
+
+	/**
+	 * Task applying a kernel to all blocks (each one as a separate subtask).
+	 */
+	private static class BlocksTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final BlockKernel kernel;
+		private final int blockStarts[];
+
+		public BlocksTask(BlockKernel kernel, int blockStarts[])
+		{
+			this.kernel = kernel;
+			this.blockStarts = blockStarts;
+		}
+
+		@Override
+		protected void compute()
+		{
+			List<BlockTask> tasks = new ArrayList<>(blockStarts.length - 1);
+			for (int b = 0; b < blockStarts.length - 1; b++) {
+				tasks.add(new BlockTask(kernel, blockStarts[b], blockStarts[b + 1]));
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Task applying a kernel to a single block of states {@code lo}, ..., {@code hi}-1.
+	 */
+	private static class BlockTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final BlockKernel kernel;
+		private final int lo;
+		private final int hi;
+
+		public BlockTask(BlockKernel kernel, int lo, int hi)
+		{
+			this.kernel = kernel;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute()
+		{
+			kernel.applyToBlock(lo, hi);
+		}
+	}
+}
@@ -26,20 +26,22 @@
 
 package explicit;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 
 import prism.PrismComponent;
-import common.IterableBitSet;
 
 /**
  * A class for storing and accessing the predecessor relation of an explicit Model.
  * <p>
  * As Model only provide easy access to successors of states,
  * the predecessor relation is computed and stored for subsequent efficient access.
+ * It is stored in compressed sparse row form, i.e. as a single array of predecessor
+ * states, grouped by state, plus an array of offsets into it for each state.
+ * Predecessors can be accessed without boxing via {@link #getNumPredecessors(int)}
+ * and {@link #getPredecessor(int, int)}.
  * <p>
  * Note: Naturally, if the model changes, the predecessor relation
  * has to be recomputed to remain accurate.
@@ -47,9 +49,11 @@ import common.IterableBitSet;
 public class PredecessorRelation
 {
 	/**
-	 * pre[i] provides the list of predecessors of state with index i.
+	 * The predecessors of state s are preStates[preStarts[s]] to preStates[preStarts[s+1]-1].
+	 * preStarts is of size numStates+1.
 	 */
-	List<ArrayList<Integer>> pre;
+	private int preStarts[];
+	private int preStates[];
 
 	/**
 	 * Constructor. Computes the predecessor relation for the given model
@@ -59,49 +63,105 @@ public class PredecessorRelation
 	 */
 	public PredecessorRelation(Model model)
 	{
-		pre = new ArrayList<>(model.getNumStates());
-		// construct the (empty) array list for all states
-		for (int s = 0; s < model.getNumStates(); s++) {
-			pre.add(s, new ArrayList<Integer>());
-		}
-
 		compute(model);
 	}
 
-	/** Compute the predecessor relation using getSuccessorsIterator. */
+	/** Compute the predecessor relation using getSuccessorsIterator (in two passes). */
 	private void compute(Model model)
 	{
 		int n = model.getNumStates();
+		int s, numEntries;
 
-		for (int s = 0; s < n; s++) {
+		// First pass: count the predecessors of each state
+		// (stored, for now, in preStarts[successor+1])
+		preStarts = new int[n + 1];
+		for (s = 0; s < n; s++) {
+			Iterator<Integer> it = model.getSuccessorsIterator(s);
+			while (it.hasNext()) {
+				preStarts[it.next() + 1]++;
+			}
+		}
+		// Convert to offsets
+		for (s = 0; s < n; s++) {
+			preStarts[s + 1] += preStarts[s];
+		}
+		numEntries = preStarts[n];
+
+		// Second pass: store the predecessors
+		// As getSuccessorsIterator guarantees that
+		// there are no duplicates in the successors,
+		// s will be added to pre(successor) exactly once.
+		preStates = new int[numEntries];
+		int next[] = Arrays.copyOf(preStarts, n);
+		for (s = 0; s < n; s++) {
 			Iterator<Integer> it = model.getSuccessorsIterator(s);
 			while (it.hasNext()) {
-				Integer successor = it.next();
-
-				// Add the current state s to pre[successor].
-				//
-				// As getSuccessorsIterator guarantees that
-				// there are no duplicates in the successors,
-				// s will be added to successor exactly once.
-				pre.get(successor).add(s);
+				preStates[next[it.next()]++] = s;
 			}
 		}
 	}
 
+	/**
+	 * Get the number of predecessor states of {@code s}.
+	 */
+	public int getNumPredecessors(int s)
+	{
+		return preStarts[s + 1] - preStarts[s];
+	}
+
+	/**
+	 * Get the {@code i}th predecessor state of {@code s}.
+	 */
+	public int getPredecessor(int s, int i)
+	{
+		return preStates[preStarts[s] + i];
+	}
+
 	/**
 	 * Get an Iterable over the predecessor states of {@code s}.
 	 */
-	public Iterable<Integer> getPre(int s)
+	public Iterable<Integer> getPre(final int s)
 	{
-		return pre.get(s);
+		return new Iterable<Integer>()
+		{
+			@Override
+			public Iterator<Integer> iterator()
+			{
+				return getPredecessorsIterator(s);
+			}
+		};
 	}
 
 	/**
 	 * Get an Iterator over the predecessor states of {@code s}.
 	 */
-	public Iterator<Integer> getPredecessorsIterator(int s)
+	public Iterator<Integer> getPredecessorsIterator(final int s)
 	{
-		return getPre(s).iterator();
+		return new Iterator<Integer>()
+		{
+			int k = preStarts[s];
+			final int end = preStarts[s + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return k < end;
+			}
+
+			@Override
+			public Integer next()
+			{
+				if (k >= end)
+					throw new NoSuchElementException();
+				return preStates[k++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
@@ -149,43 +209,36 @@ public class PredecessorRelation
 	public BitSet calculatePreStar(BitSet remain, BitSet target, BitSet absorbing)
 	{
 		BitSet result;
+		int todo[], todoSize, s, p, k, end;
 
 		// all target states are in Pre*
 		result = (BitSet) target.clone();
 
 		// the stack of states whose predecessors have to be considered
-		Stack<Integer> todo = new Stack<>();
+		// (each state is pushed at most once, since it is added to result at the same time)
+		todo = new int[preStarts.length - 1];
+		todoSize = 0;
 
 		// initial todo: all the target states
-		for (Integer s : IterableBitSet.getSetBits(target)) {
-			todo.add(s);
+		for (s = target.nextSetBit(0); s >= 0; s = target.nextSetBit(s + 1)) {
+			todo[todoSize++] = s;
 		}
 
-
-		// the set of states that are finished
-		BitSet done = new BitSet();
-
-		while (!todo.isEmpty()) {
-			int s = todo.pop();
-			// already considered?
-			if (done.get(s))
-				continue;
-
-			done.set(s);
+		while (todoSize > 0) {
+			s = todo[--todoSize];
 
 			// for each predecessor in the graph
-			for (int p : getPre(s)) {
+			end = preStarts[s + 1];
+			for (k = preStarts[s]; k < end; k++) {
+				p = preStates[k];
 				if (absorbing != null && absorbing.get(p)) {
 					// predecessor is absorbing, thus the edge is considered to not exist
 					continue;
 				}
-				if (remain == null || remain.get(p)) {
-					// can reach result (and is in remain)
+				if ((remain == null || remain.get(p)) && !result.get(p)) {
+					// can reach result (and is in remain): add to result and stack
 					result.set(p);
-					if (!done.get(p)) {
-						// add to stack
-						todo.add(p);
-					}
+					todo[todoSize++] = p;
 				}
 			}
 		}
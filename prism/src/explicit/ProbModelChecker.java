@@ -29,6 +29,7 @@ package explicit;
 import java.io.File;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import parser.ast.Coalition;
 import parser.ast.Expression;
@@ -49,6 +50,7 @@ import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismNotSupportedException;
 import prism.PrismSettings;
+import prism.PrismUtils;
 import explicit.rewards.ConstructRewards;
 import explicit.rewards.MCRewards;
 import explicit.rewards.MDPRewards;
@@ -85,6 +87,10 @@ public class ProbModelChecker extends NonProbModelChecker
 	protected SolnMethod solnMethod = SolnMethod.VALUE_ITERATION;
 	// Is non-convergence of an iterative method an error?
 	protected boolean errorOnNonConverge = true;
+	// Number of threads for (parallelisable) numerical computation
+	protected int numThreads = 1;
+	// Thread pool for (parallelisable) numerical computation (created when first needed)
+	private ForkJoinPool threadPool = null;
 	// Adversary export
 	protected boolean exportAdv = false;
 	protected String exportAdvFilename;
@@ -93,7 +99,7 @@ public class ProbModelChecker extends NonProbModelChecker
 
 	// Method used for numerical solution
 	public enum LinEqMethod {
-		POWER, JACOBI, GAUSS_SEIDEL, BACKWARDS_GAUSS_SEIDEL, JOR, SOR, BACKWARDS_SOR;
+		POWER, JACOBI, GAUSS_SEIDEL, BACKWARDS_GAUSS_SEIDEL, JOR, SOR, BACKWARDS_SOR, TOPOLOGICAL;
 		public String fullName()
 		{
 			switch (this) {
@@ -111,6 +117,8 @@ public class ProbModelChecker extends NonProbModelChecker
 				return "SOR";
 			case BACKWARDS_SOR:
 				return "Backwards SOR";
+			case TOPOLOGICAL:
+				return "Topological";
 			default:
 				return this.toString();
 			}
@@ -119,7 +127,7 @@ public class ProbModelChecker extends NonProbModelChecker
 
 	// Method used for solving MDPs
 	public enum MDPSolnMethod {
-		VALUE_ITERATION, GAUSS_SEIDEL, POLICY_ITERATION, MODIFIED_POLICY_ITERATION, LINEAR_PROGRAMMING;
+		VALUE_ITERATION, GAUSS_SEIDEL, POLICY_ITERATION, MODIFIED_POLICY_ITERATION, LINEAR_PROGRAMMING, TOPOLOGICAL;
 		public String fullName()
 		{
 			switch (this) {
@@ -133,6 +141,8 @@ public class ProbModelChecker extends NonProbModelChecker
 				return "Modified policy iteration";
 			case LINEAR_PROGRAMMING:
 				return "Linear programming";
+			case TOPOLOGICAL:
+				return "Topological";
 			default:
 				return this.toString();
 			}
@@ -180,6 +190,8 @@ public class ProbModelChecker extends NonProbModelChecker
 				setLinEqMethod(LinEqMethod.SOR);
 			} else if (s.equals("Backwards SOR")) {
 				setLinEqMethod(LinEqMethod.BACKWARDS_SOR);
+			} else if (s.equals("Topological")) {
+				setLinEqMethod(LinEqMethod.TOPOLOGICAL);
 			} else {
 				throw new PrismNotSupportedException("Explicit engine does not support linear equation solution method \"" + s + "\"");
 			}
@@ -195,6 +207,8 @@ public class ProbModelChecker extends NonProbModelChecker
 				setMDPSolnMethod(MDPSolnMethod.MODIFIED_POLICY_ITERATION);
 			} else if (s.equals("Linear programming")) {
 				setMDPSolnMethod(MDPSolnMethod.LINEAR_PROGRAMMING);
+			} else if (s.equals("Topological")) {
+				setMDPSolnMethod(MDPSolnMethod.TOPOLOGICAL);
 			} else {
 				throw new PrismNotSupportedException("Explicit engine does not support MDP solution method \"" + s + "\"");
 			}
@@ -224,6 +238,8 @@ public class ProbModelChecker extends NonProbModelChecker
 				throw new PrismNotSupportedException("The explicit engine does not support model checking MDPs under fairness");
 			}
 
+			// PRISM_NUM_THREADS
+			setNumThreads(settings.getInteger(PrismSettings.PRISM_NUM_THREADS));
 			// PRISM_EXPORT_ADV
 			s = settings.getString(PrismSettings.PRISM_EXPORT_ADV);
 			if (!(s.equals("None")))
@@ -254,6 +270,10 @@ public class ProbModelChecker extends NonProbModelChecker
 		setValIterDir(other.getValIterDir());
 		setSolnMethod(other.getSolnMethod());
 		setErrorOnNonConverge(other.geterrorOnNonConverge());
+		setNumThreads(other.getNumThreads());
+		// Without settings, there is no shared pool, so share the other model checker's one
+		if (settings == null && other.settings == null)
+			threadPool = other.getThreadPool();
 	}
 
 	/**
@@ -274,6 +294,7 @@ public class ProbModelChecker extends NonProbModelChecker
 		mainLog.print("valIterDir = " + valIterDir + " ");
 		mainLog.print("solnMethod = " + solnMethod + " ");
 		mainLog.print("errorOnNonConverge = " + errorOnNonConverge + " ");
+		mainLog.print("numThreads = " + numThreads + " ");
 	}
 
 	// Set methods for flags/settings
@@ -383,6 +404,14 @@ public class ProbModelChecker extends NonProbModelChecker
 		this.errorOnNonConverge = errorOnNonConverge;
 	}
 
+	/**
+	 * Set number of threads to use for (parallelisable) numerical computation.
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		this.numThreads = numThreads;
+	}
+
 	public void setExportAdv(boolean exportAdv)
 	{
 		this.exportAdv = exportAdv;
@@ -464,6 +493,32 @@ public class ProbModelChecker extends NonProbModelChecker
 		return errorOnNonConverge;
 	}
 
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * Get the thread pool to use for (parallelisable) numerical computation,
+	 * or null if only a single thread is to be used. This is the pool belonging
+	 * to the settings object, so it is shared by all model checkers using the same settings.
+	 */
+	public ForkJoinPool getThreadPool()
+	{
+		if (numThreads <= 1)
+			return null;
+		if (settings != null)
+			return settings.getThreadPool(numThreads);
+		// No settings: use (and share with any child model checkers) a pool of our own
+		if (threadPool != null && threadPool.getParallelism() != numThreads) {
+			threadPool.shutdown();
+			threadPool = null;
+		}
+		if (threadPool == null)
+			threadPool = new ForkJoinPool(numThreads);
+		return threadPool;
+	}
+
 	// Model checking functions
 
 	@Override
@@ -801,13 +856,21 @@ public class ProbModelChecker extends NonProbModelChecker
 		BitSet target = checkExpression(model, expr.getOperand2(), null).getBitSet();
 
 		// Compute/return the probabilities
+		// (for DTMCs/CTMCs, possibly starting from the solution of a previous run)
 		ModelCheckerResult res = null;
+		double init[];
 		switch (model.getModelType()) {
 		case CTMC:
-			res = ((CTMCModelChecker) this).computeUntilProbs((CTMC) model, remain, target);
+			init = getWarmStartInit(model);
+			res = ((CTMCModelChecker) this).computeReachProbs((CTMC) model, remain, target, init, null);
+			if (warmStart != null)
+				warmStart.store(res, init);
 			break;
 		case DTMC:
-			res = ((DTMCModelChecker) this).computeUntilProbs((DTMC) model, remain, target);
+			init = getWarmStartInit(model);
+			res = ((DTMCModelChecker) this).computeReachProbs((DTMC) model, remain, target, init, null);
+			if (warmStart != null)
+				warmStart.store(res, init);
 			break;
 		case MDP:
 			res = ((MDPModelChecker) this).computeUntilProbs((MDP) model, remain, target, minMax.isMin());
@@ -1064,13 +1127,21 @@ public class ProbModelChecker extends NonProbModelChecker
 		BitSet target = checkExpression(model, expr.getOperand2(), null).getBitSet();
 
 		// Compute/return the rewards
+		// (for DTMCs/CTMCs, possibly starting from the solution of a previous run)
 		ModelCheckerResult res = null;
+		double init[];
 		switch (model.getModelType()) {
 		case DTMC:
-			res = ((DTMCModelChecker) this).computeReachRewards((DTMC) model, (MCRewards) modelRewards, target);
+			init = getWarmStartInit(model);
+			res = ((DTMCModelChecker) this).computeReachRewards((DTMC) model, (MCRewards) modelRewards, target, init, null);
+			if (warmStart != null)
+				warmStart.store(res, init);
 			break;
 		case CTMC:
-			res = ((CTMCModelChecker) this).computeReachRewards((CTMC) model, (MCRewards) modelRewards, target);
+			init = getWarmStartInit(model);
+			res = ((CTMCModelChecker) this).computeReachRewards((CTMC) model, (MCRewards) modelRewards, target, init, null);
+			if (warmStart != null)
+				warmStart.store(res, init);
 			break;
 		case MDP:
 			res = ((MDPModelChecker) this).computeReachRewards((MDP) model, (MDPRewards) modelRewards, target, minMax.isMin());
@@ -1146,6 +1217,126 @@ public class ProbModelChecker extends NonProbModelChecker
 		return StateValues.createFromDoubleArray(res.soln, model);
 	}
 
+	// Topological value iteration
+
+	/**
+	 * Gauss-Seidel style update of a single state's value (see {@link #computeTopological}).
+	 */
+	protected interface StateUpdate
+	{
+		/**
+		 * Compute a new value for state {@code s}, based on the current values {@code soln}.
+		 */
+		public double update(int s, double soln[]);
+	}
+
+	/**
+	 * Solve a numerical problem using topological value iteration: the states in {@code unknown}
+	 * are decomposed into strongly connected components (SCCs), which are then solved one at a time,
+	 * in reverse topological order, so that the values of all successor SCCs are already final.
+	 * Each SCC is solved to convergence with Gauss-Seidel style updates (computed by {@code update}),
+	 * except for trivial SCCs (a single state with no self-loop), which just need one update.
+	 * @param model The model
+	 * @param soln Solution vector, containing final values for states not in {@code unknown}
+	 * and initial values for those in {@code unknown} (will be overwritten)
+	 * @param unknown States for which values are to be computed
+	 * @param update Function computing the new value for a state
+	 */
+	protected ModelCheckerResult computeTopological(Model model, double soln[], BitSet unknown, StateUpdate update) throws PrismException
+	{
+		ModelCheckerResult res;
+		int sccStates[], sccStarts[];
+		int numSCCs, numNonTrivial, scc, lo, hi, i, s, iters, totalIters, maxSCCIters;
+		double d;
+		boolean absolute, done, allDone;
+		long timer;
+
+		// Start topological value iteration
+		timer = System.currentTimeMillis();
+		mainLog.println("Starting topological value iteration...");
+
+		// Compute SCCs of the unknown states, in reverse topological order
+		SCCComputer sccComputer = SCCComputer.createSCCComputer(this, model);
+		sccComputer.computeTopologicalSCCs(unknown);
+		sccStates = sccComputer.getTopologicalSCCStates();
+		sccStarts = sccComputer.getTopologicalSCCStarts();
+		numSCCs = sccStarts.length - 1;
+
+		// Solve each SCC in turn
+		absolute = (termCrit == TermCrit.ABSOLUTE);
+		numNonTrivial = totalIters = maxSCCIters = 0;
+		allDone = true;
+		for (scc = 0; scc < numSCCs; scc++) {
+			lo = sccStarts[scc];
+			hi = sccStarts[scc + 1];
+			// Trivial SCC: a single update suffices
+			if (hi - lo == 1 && !model.isSuccessor(sccStates[lo], sccStates[lo])) {
+				s = sccStates[lo];
+				soln[s] = update.update(s, soln);
+				totalIters++;
+				maxSCCIters = Math.max(maxSCCIters, 1);
+				continue;
+			}
+			// Otherwise, iterate until convergence
+			numNonTrivial++;
+			iters = 0;
+			done = false;
+			while (!done && iters < maxIters) {
+				iters++;
+				done = true;
+				for (i = lo; i < hi; i++) {
+					s = sccStates[i];
+					d = update.update(s, soln);
+					// Check termination (as for PrismUtils.doublesAreClose on whole vectors)
+					if (done && !PrismUtils.doublesAreClose(soln[s], d, termCritParam, absolute))
+						done = false;
+					soln[s] = d;
+				}
+			}
+			totalIters += iters;
+			maxSCCIters = Math.max(maxSCCIters, iters);
+			if (!done) {
+				allDone = false;
+				// No point continuing if this is going to be an error
+				if (errorOnNonConverge)
+					break;
+			}
+		}
+
+		// Finished topological value iteration
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print("Topological value iteration (" + numSCCs + " SCCs, " + numNonTrivial + " non-trivial)");
+		mainLog.print(" took " + totalIters + " iterations in total (at most " + maxSCCIters + " for a single SCC)");
+		mainLog.println(" and " + timer / 1000.0 + " seconds.");
+
+		// Non-convergence is an error (usually)
+		if (!allDone && errorOnNonConverge) {
+			String msg = "Iterative method did not converge within " + maxSCCIters + " iterations.";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+
+		// Return results
+		res = new ModelCheckerResult();
+		res.soln = soln;
+		res.numIters = maxSCCIters;
+		res.timeTaken = timer / 1000.0;
+		return res;
+	}
+
+	/**
+	 * Get the initial solution vector for the next reachability computation on {@code model}
+	 * from the warm start info (see {@link #setWarmStart(WarmStart)}), or null to start from scratch.
+	 * Warm starts are only used if Prob0 precomputation is enabled: otherwise, states that cannot
+	 * reach the target would keep whatever value they had in the previous solution.
+	 */
+	protected double[] getWarmStartInit(Model model)
+	{
+		if (warmStart == null || !(precomp && prob0))
+			return null;
+		return warmStart.getInit(model);
+	}
+
 	// Utility methods for probability distributions
 
 	/**
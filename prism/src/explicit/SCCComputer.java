@@ -31,6 +31,7 @@ import java.util.BitSet;
 import java.util.List;
 
 import prism.PrismComponent;
+import prism.PrismSettings;
 
 /**
  * Abstract class for (explicit) classes that compute (B)SCCs,
@@ -40,12 +41,14 @@ public abstract class SCCComputer extends PrismComponent
 {
 	// Method used for finding (B)SCCs
 	public enum SCCMethod {
-		TARJAN;
+		TARJAN, TARJAN_ITERATIVE;
 		public String fullName()
 		{
 			switch (this) {
 			case TARJAN:
 				return "Tarjan";
+			case TARJAN_ITERATIVE:
+				return "Iterative Tarjan";
 			default:
 				return this.toString();
 			}
@@ -57,8 +60,29 @@ public abstract class SCCComputer extends PrismComponent
 	 */
 	public static SCCComputer createSCCComputer(PrismComponent parent, Model model)
 	{
-		// Only one algorithm implemented currently
-		return new SCCComputerTarjan(parent, model);
+		SCCMethod sccMethod = SCCMethod.TARJAN_ITERATIVE;
+		if (parent != null && parent.getSettings() != null) {
+			String s = parent.getSettings().getString(PrismSettings.PRISM_EXPLICIT_SCC_METHOD);
+			for (SCCMethod m : SCCMethod.values()) {
+				if (m.fullName().equals(s))
+					sccMethod = m;
+			}
+		}
+		return createSCCComputer(parent, model, sccMethod);
+	}
+
+	/**
+	 * Static method to create a new SCCComputer object, depending on requested method.
+	 */
+	public static SCCComputer createSCCComputer(PrismComponent parent, Model model, SCCMethod sccMethod)
+	{
+		switch (sccMethod) {
+		case TARJAN:
+			return new SCCComputerTarjan(parent, model);
+		case TARJAN_ITERATIVE:
+		default:
+			return new SCCComputerTarjanIterative(parent, model);
+		}
 	}
 
 	/**
@@ -88,6 +112,30 @@ public abstract class SCCComputer extends PrismComponent
 	 */
 	public abstract BitSet getNotInSCCs();
 
+	/**
+	 * Compute all strongly connected components (SCCs), including trivial ones,
+	 * of the sub-graph of the model induced by the states in {@code restrict}
+	 * (or of the whole model, if {@code restrict} is null), and store them in
+	 * reverse topological order, i.e., each SCC appears after all the SCCs reachable from it.
+	 * They should be retrieved using {@link #getTopologicalSCCStates()} and {@link #getTopologicalSCCStarts()}.
+	 */
+	public abstract void computeTopologicalSCCs(BitSet restrict);
+
+	/**
+	 * Get the states of the SCCs computed by {@link #computeTopologicalSCCs(BitSet)},
+	 * grouped by SCC, with the SCCs in reverse topological order.
+	 * The states of the i-th SCC are stored at indices
+	 * {@code getTopologicalSCCStarts()[i]} to {@code getTopologicalSCCStarts()[i+1]-1}.
+	 */
+	public abstract int[] getTopologicalSCCStates();
+
+	/**
+	 * Get the indices into {@link #getTopologicalSCCStates()} of the start of each SCC
+	 * computed by {@link #computeTopologicalSCCs(BitSet)}. The array is of size numSCCs+1
+	 * and the last entry is always equal to the total number of states in the SCCs.
+	 */
+	public abstract int[] getTopologicalSCCStarts();
+
 	/**
 	 * Compute bottom strongly connected components (BSCCs) and store them.
 	 * They can be retrieved using {@link #getBSCCs()} and {@link #getNotInBSCCs()}.
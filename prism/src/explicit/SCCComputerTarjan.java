@@ -53,6 +53,11 @@ public class SCCComputerTarjan extends SCCComputer
 	/* States not in any BSCC */
 	private BitSet notInBSCCs;
 
+	/* States of all SCCs (grouped by SCC, in reverse topological order) */
+	private int topoStates[];
+	/* Indices of the start of each SCC in topoStates */
+	private int topoStarts[];
+
 	/* Next index to give to a node */
 	private int index = 0;
 	/* Stack of nodes */
@@ -119,6 +124,29 @@ public class SCCComputerTarjan extends SCCComputer
 		}
 	}
 
+	@Override
+	public void computeTopologicalSCCs(BitSet restrict)
+	{
+		// Use the iterative, array-based implementation, since, for models with long
+		// chains of states, the recursion depth of tarjan() would be too large
+		SCCComputerTarjanIterative sccIter = new SCCComputerTarjanIterative(this, model);
+		sccIter.computeTopologicalSCCs(restrict);
+		topoStates = sccIter.getTopologicalSCCStates();
+		topoStarts = sccIter.getTopologicalSCCStarts();
+	}
+
+	@Override
+	public int[] getTopologicalSCCStates()
+	{
+		return topoStates;
+	}
+
+	@Override
+	public int[] getTopologicalSCCStarts()
+	{
+		return topoStarts;
+	}
+
 	@Override
 	public List<BitSet> getSCCs()
 	{
@@ -0,0 +1,329 @@
+//==============================================================================
+//
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//
+//------------------------------------------------------------------------------
+//
+//	This file is part of PRISM.
+//
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import prism.PrismComponent;
+
+/**
+ * Tarjan's SCC algorithm operating on a Model object, implemented iteratively
+ * (with an explicit call stack, so there is no risk of stack overflow for models
+ * with long chains of states) and using integer arrays for all per-state data.
+ * For sparse models ({@link DTMCSparse} and {@link MDPSparse}), successors
+ * are read directly from the sparse matrix, rather than via iterators.
+ */
+public class SCCComputerTarjanIterative extends SCCComputer
+{
+	/* The model to compute (B)SCCs for */
+	private Model model;
+	/* Number of nodes (model states) */
+	private int numNodes;
+
+	/* Sparse matrix storage for the model, if available (cols is null otherwise).
+	 * Successors of state s are cols[k] for k from start(s) to start(s+1)-1, where
+	 * start(s) is rowStarts[s], or choiceStarts[rowStarts[s]] if choiceStarts is non-null. */
+	private int cols[];
+	private int rowStarts[];
+	private int choiceStarts[];
+
+	/* Computed list of SCCs */
+	private List<BitSet> sccs = new ArrayList<>();
+	/* States not in non-trivial SCCs */
+	private BitSet notInSCCs;
+	/* Computed list of BSCCs */
+	private List<BitSet> bsccs = new ArrayList<>();
+	/* States not in any BSCC */
+	private BitSet notInBSCCs;
+
+	/* States of all SCCs (grouped by SCC, in reverse topological order) */
+	private int topoStates[];
+	/* Indices of the start of each SCC in topoStates */
+	private int topoStarts[];
+
+	// Storage used during Tarjan's algorithm
+
+	/* Index of each node, in the order visited (1-based; 0 means not yet visited) */
+	private int nodeIndex[];
+	/* Lowlink of each node */
+	private int lowlink[];
+	/* Nodes currently on the stack */
+	private BitSet onStack;
+	/* Stack of nodes (not yet assigned to an SCC) */
+	private int sccStack[];
+	private int sccStackTop;
+	/* Call stack of nodes (i.e. the current path of the depth-first search) */
+	private int callStack[];
+	private int callStackTop;
+	/* For each call stack entry: position of, and end of, remaining successors (sparse models) */
+	private int succPos[];
+	private int succEnd[];
+	/* For each call stack entry: iterator over remaining successors (other models) */
+	private Iterator<Integer> succIters[];
+	/* Next index to give to a node */
+	private int nextIndex;
+
+	/**
+	 * Build (B)SCC computer for a given model.
+	 */
+	public SCCComputerTarjanIterative(PrismComponent parent, Model model)
+	{
+		super(parent);
+		this.model = model;
+		this.numNodes = model.getNumStates();
+		if (model instanceof DTMCSparse) {
+			cols = ((DTMCSparse) model).cols;
+			rowStarts = ((DTMCSparse) model).rowStarts;
+		} else if (model instanceof MDPSparse) {
+			cols = ((MDPSparse) model).cols;
+			rowStarts = ((MDPSparse) model).rowStarts;
+			choiceStarts = ((MDPSparse) model).choiceStarts;
+		}
+	}
+
+	// Methods for SCCComputer interface
+
+	@Override
+	public void computeSCCs()
+	{
+		int i, j, s, n;
+		tarjan(null);
+		// Convert to BitSets, separating out trivial SCCs
+		sccs = new ArrayList<>();
+		notInSCCs = new BitSet();
+		n = topoStarts.length - 1;
+		for (i = 0; i < n; i++) {
+			s = topoStates[topoStarts[i]];
+			if (topoStarts[i + 1] - topoStarts[i] == 1 && !model.isSuccessor(s, s)) {
+				notInSCCs.set(s);
+			} else {
+				BitSet scc = new BitSet();
+				for (j = topoStarts[i]; j < topoStarts[i + 1]; j++) {
+					scc.set(topoStates[j]);
+				}
+				sccs.add(scc);
+			}
+		}
+	}
+
+	@Override
+	public void computeBSCCs()
+	{
+		computeSCCs();
+		bsccs = new ArrayList<>();
+		notInBSCCs = (BitSet) getNotInSCCs().clone();
+		for (BitSet scc : sccs) {
+			boolean bottom = true;
+			for (int s = scc.nextSetBit(0); s >= 0; s = scc.nextSetBit(s + 1)) {
+				if (!model.allSuccessorsInSet(s, scc)) {
+					bottom = false;
+					break;
+				}
+			}
+			if (bottom)
+				bsccs.add(scc);
+			else
+				notInBSCCs.or(scc);
+		}
+	}
+
+	@Override
+	public void computeTopologicalSCCs(BitSet restrict)
+	{
+		tarjan(restrict);
+	}
+
+	@Override
+	public int[] getTopologicalSCCStates()
+	{
+		return topoStates;
+	}
+
+	@Override
+	public int[] getTopologicalSCCStarts()
+	{
+		return topoStarts;
+	}
+
+	@Override
+	public List<BitSet> getSCCs()
+	{
+		return sccs;
+	}
+
+	@Override
+	public BitSet getNotInSCCs()
+	{
+		return notInSCCs;
+	}
+
+	@Override
+	public List<BitSet> getBSCCs()
+	{
+		return bsccs;
+	}
+
+	@Override
+	public BitSet getNotInBSCCs()
+	{
+		return notInBSCCs;
+	}
+
+	// SCC Computation
+
+	/**
+	 * Execute Tarjan's algorithm on the sub-graph induced by {@code restrict}
+	 * (or the whole graph if {@code restrict} is null), storing all SCCs
+	 * (including trivial ones) in {@code topoStates}/{@code topoStarts}.
+	 */
+	private void tarjan(BitSet restrict)
+	{
+		int numRestrict, numSCCs, numDone;
+		int root, v, w, u;
+
+		numRestrict = restrict == null ? numNodes : restrict.cardinality();
+		nodeIndex = new int[numNodes];
+		lowlink = new int[numNodes];
+		onStack = new BitSet(numNodes);
+		sccStack = new int[numRestrict];
+		callStack = new int[numRestrict];
+		if (cols != null) {
+			succPos = new int[numRestrict];
+			succEnd = new int[numRestrict];
+		} else {
+			succIters = newIteratorArray(numRestrict);
+		}
+		topoStates = new int[numRestrict];
+		topoStarts = new int[numRestrict + 1];
+		nextIndex = 1;
+		sccStackTop = callStackTop = -1;
+		numSCCs = numDone = 0;
+
+		for (root = nextRoot(restrict, 0); root >= 0; root = nextRoot(restrict, root + 1)) {
+			if (nodeIndex[root] != 0)
+				continue;
+			visit(root);
+			while (callStackTop >= 0) {
+				v = callStack[callStackTop];
+				w = nextSuccessor();
+				if (w >= 0) {
+					if (restrict != null && !restrict.get(w))
+						continue;
+					if (nodeIndex[w] == 0) {
+						visit(w);
+					} else if (onStack.get(w)) {
+						lowlink[v] = Math.min(lowlink[v], nodeIndex[w]);
+					}
+				} else {
+					// "Return" from v
+					if (succIters != null)
+						succIters[callStackTop] = null;
+					callStackTop--;
+					if (lowlink[v] == nodeIndex[v]) {
+						topoStarts[numSCCs++] = numDone;
+						do {
+							w = sccStack[sccStackTop--];
+							onStack.clear(w);
+							topoStates[numDone++] = w;
+						} while (w != v);
+					}
+					if (callStackTop >= 0) {
+						u = callStack[callStackTop];
+						lowlink[u] = Math.min(lowlink[u], lowlink[v]);
+					}
+				}
+			}
+		}
+		topoStarts[numSCCs] = numDone;
+		topoStarts = Arrays.copyOf(topoStarts, numSCCs + 1);
+
+		// Free memory
+		nodeIndex = lowlink = sccStack = callStack = succPos = succEnd = null;
+		succIters = null;
+		onStack = null;
+	}
+
+	/**
+	 * Create an array of (successor) iterators of size {@code n}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Iterator<Integer>[] newIteratorArray(int n)
+	{
+		return (Iterator<Integer>[]) new Iterator<?>[n];
+	}
+
+	/**
+	 * Get the first state, from {@code s} onwards, to be used as a root of the search
+	 * (i.e. in {@code restrict}, if non-null), or -1 if there are none.
+	 */
+	private int nextRoot(BitSet restrict, int s)
+	{
+		if (restrict == null)
+			return s < numNodes ? s : -1;
+		s = restrict.nextSetBit(s);
+		return s < numNodes ? s : -1;
+	}
+
+	/**
+	 * "Call" node {@code v}, i.e. assign its index and push it onto both stacks.
+	 */
+	private void visit(int v)
+	{
+		nodeIndex[v] = lowlink[v] = nextIndex++;
+		sccStack[++sccStackTop] = v;
+		onStack.set(v);
+		callStack[++callStackTop] = v;
+		if (cols != null) {
+			if (choiceStarts == null) {
+				succPos[callStackTop] = rowStarts[v];
+				succEnd[callStackTop] = rowStarts[v + 1];
+			} else {
+				succPos[callStackTop] = choiceStarts[rowStarts[v]];
+				succEnd[callStackTop] = choiceStarts[rowStarts[v + 1]];
+			}
+		} else {
+			succIters[callStackTop] = model.getSuccessorsIterator(v);
+		}
+	}
+
+	/**
+	 * Get the next (unexplored) successor of the node at the top of the call stack, or -1 if there are none.
+	 */
+	private int nextSuccessor()
+	{
+		if (cols != null) {
+			return succPos[callStackTop] < succEnd[callStackTop] ? cols[succPos[callStackTop]++] : -1;
+		} else {
+			Iterator<Integer> it = succIters[callStackTop];
+			return it.hasNext() ? it.next() : -1;
+		}
+	}
+}
@@ -113,6 +113,9 @@ public class StateModelChecker extends PrismComponent
 	// Do bisimulation minimisation before model checking?
 	protected boolean doBisim = false;
 
+	// Solutions from previous model checking runs, to warm-start computations (optional)
+	protected WarmStart warmStart = null;
+
 	// Model info (for reward structures, etc.)
 	protected ModulesFile modulesFile = null;
 	protected ModelInfo modelInfo = null;
@@ -291,6 +294,16 @@ public class StateModelChecker extends PrismComponent
 		this.doBisim = doBisim;
 	}
 
+	/**
+	 * Specify solutions from previous model checking runs, to be used (and updated)
+	 * to warm-start numerical computations, or null (the default) for none.
+	 * This is not inherited by other model checkers created from this one.
+	 */
+	public void setWarmStart(WarmStart warmStart)
+	{
+		this.warmStart = warmStart;
+	}
+
 	// Get methods for flags/settings
 
 	public int getVerbosity()
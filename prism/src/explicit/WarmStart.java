@@ -0,0 +1,153 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package explicit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import prism.PrismLog;
+
+/**
+ * Solution vectors kept across repeated model checking of the same property on the same model,
+ * e.g. in an experiment where only the values of property constants change, so that iterative
+ * numerical computations can start from the previous solution rather than from scratch.
+ * <br><br>
+ * Each model checking run is one "step" (see {@link #startStep()}); the computations within
+ * a step are matched to those of the previous step by the order in which they are done.
+ * Stored solutions are discarded if the model changes.
+ * <br><br>
+ * This is only used where the result does not depend on the initial vector,
+ * i.e. for reachability probabilities and rewards of DTMCs/CTMCs, whose solution
+ * (after Prob0/Prob1 precomputation) is the unique fixed point of the iteration;
+ * it is therefore not used if Prob0 precomputation is disabled.
+ */
+public class WarmStart
+{
+	// Model that the stored solutions are for
+	private Model model = null;
+	// Solution vector of each computation in the last step
+	private List<double[]> solns = new ArrayList<>();
+	// Iterations/time for each computation when first done from scratch
+	private List<Integer> coldIters = new ArrayList<>();
+	private List<Double> coldTimes = new ArrayList<>();
+
+	// Info about the current step
+	private int step = 0;
+	private int next = 0;
+	private int numWarm = 0;
+	private int iters = 0;
+	private double time = 0.0;
+	private int itersWarm = 0;
+	private double timeWarm = 0.0;
+	private int itersCold = 0;
+	private double timeCold = 0.0;
+
+	/**
+	 * Start a new step (i.e. model checking run).
+	 */
+	public void startStep()
+	{
+		step++;
+		next = numWarm = iters = itersWarm = itersCold = 0;
+		time = timeWarm = timeCold = 0.0;
+	}
+
+	/**
+	 * Get an initial solution vector for the next computation on {@code model},
+	 * or null if none is available. The vector is a copy and can be modified.
+	 */
+	public double[] getInit(Model model)
+	{
+		if (model != this.model) {
+			this.model = model;
+			solns.clear();
+			coldIters.clear();
+			coldTimes.clear();
+			return null;
+		}
+		if (next >= solns.size() || solns.get(next) == null || solns.get(next).length != model.getNumStates())
+			return null;
+		double init[] = solns.get(next).clone();
+		// Values from the previous step may be infinite (expected rewards); start those from 0
+		for (int i = 0; i < init.length; i++) {
+			if (Double.isInfinite(init[i]) || Double.isNaN(init[i]))
+				init[i] = 0.0;
+		}
+		return init;
+	}
+
+	/**
+	 * Store the result of the next computation, which was initialised with {@code init}
+	 * (as returned by {@link #getInit(Model)}, possibly null).
+	 */
+	public void store(ModelCheckerResult res, double init[])
+	{
+		if (next == solns.size()) {
+			solns.add(null);
+			coldIters.add(null);
+			coldTimes.add(null);
+		}
+		solns.set(next, res.soln.clone());
+		iters += res.numIters;
+		time += res.timeTaken;
+		if (init == null) {
+			coldIters.set(next, res.numIters);
+			coldTimes.set(next, res.timeTaken);
+		} else if (coldIters.get(next) != null) {
+			numWarm++;
+			itersWarm += res.numIters;
+			timeWarm += res.timeTaken;
+			itersCold += coldIters.get(next);
+			timeCold += coldTimes.get(next);
+		}
+		next++;
+	}
+
+	/**
+	 * Print info about the iterations done in the current step, alongside those done
+	 * when the same computations were first done from scratch, for reference
+	 * (the exact saving is unknown, since the computations differ between steps).
+	 */
+	public void printStepInfo(PrismLog log)
+	{
+		if (next == 0)
+			return;
+		log.print("\nWarm start (step " + step + "): " + iters + " iterations, " + round(time) + " seconds");
+		if (numWarm > 0) {
+			log.print(" (" + numWarm + " of " + next + " computations warm-started: ");
+			log.print(itersWarm + " iterations, " + round(timeWarm) + " seconds");
+			log.println("; first done from scratch: " + itersCold + " iterations, " + round(timeCold) + " seconds)");
+		} else {
+			log.println(" (from scratch)");
+		}
+	}
+
+	private static double round(double secs)
+	{
+		return Math.round(secs * 1000) / 1000.0;
+	}
+}
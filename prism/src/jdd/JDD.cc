@@ -129,6 +129,41 @@ JNIEXPORT void JNICALL Java_jdd_JDD_DD_1PrintCacheInfo(JNIEnv *env, jclass cls)
 	DD_PrintCacheInfo(ddman);
 }
 
+//------------------------------------------------------------------------------
+
+JNIEXPORT void JNICALL Java_jdd_JDD_DD_1MakeVarGroup(JNIEnv *env, jclass cls, jint low, jint size, jboolean fixed)
+{
+	DD_MakeVarGroup(ddman, low, size, fixed);
+}
+
+//------------------------------------------------------------------------------
+
+JNIEXPORT void JNICALL Java_jdd_JDD_DD_1FreeVarGroups(JNIEnv *env, jclass cls)
+{
+	DD_FreeVarGroups(ddman);
+}
+
+//------------------------------------------------------------------------------
+
+JNIEXPORT jboolean JNICALL Java_jdd_JDD_DD_1ReorderSift(JNIEnv *env, jclass cls)
+{
+	return DD_ReorderSift(ddman);
+}
+
+//------------------------------------------------------------------------------
+
+JNIEXPORT jint JNICALL Java_jdd_JDD_DD_1GetVarLevel(JNIEnv *env, jclass cls, jint index)
+{
+	return DD_GetVarLevel(ddman, index);
+}
+
+//------------------------------------------------------------------------------
+
+JNIEXPORT jboolean JNICALL Java_jdd_JDD_DD_1ResetVarOrder(JNIEnv *env, jclass cls)
+{
+	return DD_ResetVarOrder(ddman);
+}
+
 //==============================================================================
 //
 //	Wrapper functions for dd_basics
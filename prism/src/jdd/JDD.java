@@ -59,6 +59,16 @@ public class JDD
 
 	private static native void DD_PrintCacheInfo();
 
+	private static native void DD_MakeVarGroup(int low, int size, boolean fixed);
+
+	private static native void DD_FreeVarGroups();
+
+	private static native boolean DD_ReorderSift();
+
+	private static native int DD_GetVarLevel(int index);
+
+	private static native boolean DD_ResetVarOrder();
+
 	private static native boolean DD_GetErrorFlag();
 
 	// dd_basics
@@ -414,6 +424,61 @@ public class JDD
 		DD_PrintCacheInfo();
 	}
 
+	// dynamic variable reordering
+	// (note: the rest of PRISM assumes that dd var indices and levels coincide,
+	// so reordering can only be used to pick an ordering, which must then be undone)
+
+	/**
+	 * group the {@code size} dd vars whose levels start at that of dd var index {@code low},
+	 * so that they are kept together by {@link #ReorderSift()}; if {@code fixed} is true,
+	 * their relative order is also kept, otherwise the vars (or subgroups) inside are sifted too.
+	 * groups can be nested, but should be created outermost first.
+	 * <br>[ REFS: <i>none</i>, DEREFS: <i>none</i> ]
+	 */
+	public static void MakeVarGroup(int low, int size, boolean fixed)
+	{
+		DD_MakeVarGroup(low, size, fixed);
+		checkForCuddError();
+	}
+
+	/**
+	 * remove all groups created by {@link #MakeVarGroup(int, int, boolean)}
+	 * <br>[ REFS: <i>none</i>, DEREFS: <i>none</i> ]
+	 */
+	public static void FreeVarGroups()
+	{
+		DD_FreeVarGroups();
+	}
+
+	/**
+	 * reorder dd vars (or groups of them) by sifting, to reduce the size of all live dds
+	 * <br>[ REFS: <i>none</i>, DEREFS: <i>none</i> ]
+	 */
+	public static void ReorderSift()
+	{
+		if (!DD_ReorderSift())
+			throw new CuddOutOfMemoryException();
+	}
+
+	/**
+	 * returns the current level of the dd var with index {@code index}
+	 * <br>[ REFS: <i>none</i>, DEREFS: <i>none</i> ]
+	 */
+	public static int GetVarLevel(int index)
+	{
+		return DD_GetVarLevel(index);
+	}
+
+	/**
+	 * undo any reordering, i.e. put each dd var back at the level matching its index
+	 * <br>[ REFS: <i>none</i>, DEREFS: <i>none</i> ]
+	 */
+	public static void ResetVarOrder()
+	{
+		if (!DD_ResetVarOrder())
+			throw new CuddOutOfMemoryException();
+	}
+
 	// wrapper methods for dd_basics
 
 	/**
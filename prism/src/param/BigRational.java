@@ -38,6 +38,13 @@ import prism.PrismLangException;
  * (NAN)are provided. For them, the usual rules apply (INF * INF = INF,
  * MINF&INF=MINF, etc.), with the exception that INF+MINF=0, INF-INF=0, etc
  * rather than NAN.
+ * <br>
+ * Values whose numerator and denominator both fit into a {@code long}
+ * (which is the case for nearly all values occurring in models) are
+ * stored as two longs, and arithmetic on them is done using overflow-checked
+ * long operations. Only if these overflow are {@code BigInteger}s used.
+ * The representation is canonical (a value is stored as longs iff it fits),
+ * so this does not affect equality or hash codes.
  * 
  * @author Ernst Moritz Hahn <emhahn@cs.ox.ac.uk> (University of Oxford)
  */
@@ -63,9 +70,13 @@ public final class BigRational implements Comparable<BigRational>
 	/** the BigRational "not a number" */
 	final static BigRational NAN = new BigRational(BigInteger.ZERO, BigInteger.ZERO);
 
-	/** numerator */
+	/** numerator, if small (i.e. {@code num} is null) */
+	private long lnum;
+	/** denominator, if small (i.e. {@code den} is null) */
+	private long lden;
+	/** numerator, if too large for a long (null otherwise) */
 	private BigInteger num;
-	/** denominator */
+	/** denominator, if too large for a long (null otherwise) */
 	private BigInteger den;
 
 	// constructors
@@ -75,8 +86,8 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational()
 	{
-		this.num = BigInteger.ZERO;
-		this.den = BigInteger.ONE;
+		this.lnum = 0;
+		this.lden = 1;
 	}
 
 	/**
@@ -86,8 +97,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational(BigInteger num)
 	{
-		this.num = num;
-		this.den = BigInteger.ONE;
+		set(num, BigInteger.ONE);
 	}
 
 	/**
@@ -113,6 +123,10 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational(BigInteger num, BigInteger den, boolean cancel)
 	{
+		if (isSmall(num) && isSmall(den)) {
+			setSmall(num.longValue(), den.longValue(), cancel);
+			return;
+		}
 		if (den.equals(BigInteger.ZERO)) {
 			int cmp = num.compareTo(BigInteger.ZERO);
 			switch (cmp) {
@@ -138,8 +152,22 @@ public final class BigRational implements Comparable<BigRational>
 				}
 			}
 		}
-		this.num = num;
-		this.den = den;
+		set(num, den);
+	}
+
+	/**
+	 * Creates a new BigRational with value {@code num} / {@code den},
+	 * where neither {@code num} nor {@code den} is {@code Long.MIN_VALUE}.
+	 * Whether cancellation between {@code num} and {@code den} is applied depends
+	 * on {@code cancel}.
+	 * 
+	 * @param num numerator of this BigRational
+	 * @param den denominator of this BigRational
+	 * @param cancel true to ensure resulting BigRational is coprime
+	 */
+	private BigRational(long num, long den, boolean cancel)
+	{
+		setSmall(num, den, cancel);
 	}
 
 	/**
@@ -151,7 +179,11 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational(long num, long den)
 	{
-		this(new BigInteger(Long.toString(num)), new BigInteger(Long.toString(den)));
+		if (num != Long.MIN_VALUE && den != Long.MIN_VALUE) {
+			setSmall(num, den, true);
+		} else {
+			set(new BigRational(BigInteger.valueOf(num), BigInteger.valueOf(den)));
+		}
 	}
 
 	/**
@@ -174,12 +206,12 @@ public final class BigRational implements Comparable<BigRational>
 	public BigRational(String string)
 	{
 		if (string.equals("Infinity") || string.equals("Inf")) {
-			this.num = new BigInteger("1");
-			this.den = new BigInteger("0");
+			this.lnum = 1;
+			this.lden = 0;
 			return;
 		} else if (string.equals("-Infinity") || string.equals("-Inf")) {
-			this.num = new BigInteger("-1");
-			this.den = new BigInteger("0");
+			this.lnum = -1;
+			this.lden = 0;
 			return;
 		}
 		BigInteger num;
@@ -224,16 +256,12 @@ public final class BigRational implements Comparable<BigRational>
 			} else { // expo < 0
 				den = ten.pow(-expo);
 			}
-			BigRational result = new BigRational(num, den, true);
-			this.num = result.num;
-			this.den = result.den;
+			set(new BigRational(num, den, true));
 		} else {
 			// fractional
 			num = new BigInteger(string.substring(0, slashIdx));
 			den = new BigInteger(string.substring(slashIdx + 1, string.length()));
-			BigRational r = cancel(num, den);
-			this.num = r.num;
-			this.den = r.den;
+			set(cancel(num, den));
 			return;
 		}
 	}
@@ -247,7 +275,7 @@ public final class BigRational implements Comparable<BigRational>
 	{
 		if (value instanceof BigRational) {
 			BigRational v = (BigRational)value;
-			return new BigRational(v.num, v.den);
+			return v.isSmall() ? new BigRational(v.lnum, v.lden, true) : new BigRational(v.num, v.den);
 		} else if (value instanceof Integer) {
 			return new BigRational((int) value);
 		} else if (value instanceof Long) {
@@ -265,6 +293,120 @@ public final class BigRational implements Comparable<BigRational>
 
 	// helper functions
 
+	/**
+	 * Returns true iff {@code b} can be stored as a long
+	 * (excluding {@code Long.MIN_VALUE}, so that negation cannot overflow).
+	 */
+	private static boolean isSmall(BigInteger b)
+	{
+		return b.bitLength() < 64 && b.longValue() != Long.MIN_VALUE;
+	}
+
+	/**
+	 * Returns true iff this BigRational is stored using longs.
+	 */
+	private boolean isSmall()
+	{
+		return num == null;
+	}
+
+	/**
+	 * Set the value of this BigRational to {@code num} / {@code den},
+	 * without cancellation, using the small representation if possible.
+	 */
+	private void set(BigInteger num, BigInteger den)
+	{
+		if (isSmall(num) && isSmall(den)) {
+			this.lnum = num.longValue();
+			this.lden = den.longValue();
+			this.num = null;
+			this.den = null;
+		} else {
+			this.num = num;
+			this.den = den;
+		}
+	}
+
+	/**
+	 * Set the value of this BigRational to that of {@code other}.
+	 */
+	private void set(BigRational other)
+	{
+		this.lnum = other.lnum;
+		this.lden = other.lden;
+		this.num = other.num;
+		this.den = other.den;
+	}
+
+	/**
+	 * Set the value of this BigRational to {@code num} / {@code den},
+	 * where neither is {@code Long.MIN_VALUE}, normalising as for
+	 * {@link #BigRational(BigInteger, BigInteger, boolean)}.
+	 */
+	private void setSmall(long num, long den, boolean cancel)
+	{
+		if (den == 0) {
+			num = Long.signum(num);
+		}
+		if (cancel) {
+			if (num == 0) {
+				den = 1;
+			} else {
+				long gcd = gcd(num, den);
+				num /= gcd;
+				den /= gcd;
+				if (den < 0) {
+					num = -num;
+					den = -den;
+				}
+			}
+		}
+		this.lnum = num;
+		this.lden = den;
+	}
+
+	/**
+	 * Greatest common divisor of {@code a} and {@code b} (non-negative;
+	 * neither argument may be {@code Long.MIN_VALUE}, and {@code a} must be non-zero).
+	 */
+	private static long gcd(long a, long b)
+	{
+		a = Math.abs(a);
+		b = Math.abs(b);
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * Create a BigRational {@code num} / {@code den} from the result of
+	 * a long computation, i.e., unless one of them is {@code Long.MIN_VALUE}
+	 * (in which case null is returned, so that the caller can use BigIntegers).
+	 */
+	private static BigRational fromLongs(long num, long den, boolean cancel)
+	{
+		if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+			return null;
+		}
+		return new BigRational(num, den, cancel);
+	}
+
+	/**
+	 * Hash code of {@code BigInteger.valueOf(v)}, computed without creating it
+	 * ({@code v} must not be {@code Long.MIN_VALUE}).
+	 */
+	private static int bigIntegerHashCode(long v)
+	{
+		long abs = Math.abs(v);
+		int hi = (int) (abs >>> 32);
+		int lo = (int) abs;
+		int hash = hi == 0 ? lo : 31 * hi + lo;
+		return hash * Long.signum(v);
+	}
+
 	/**
 	 * Negates this number.
 	 * Negation of INF, MINF are as usual, negation of NAN is NAN.
@@ -273,6 +415,9 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational negate()
 	{
+		if (isSmall()) {
+			return new BigRational(-lnum, lden, false);
+		}
 		return new BigRational(num.negate(), den, false);
 	}
 
@@ -283,6 +428,9 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational cancel()
 	{
+		if (isSmall()) {
+			return new BigRational(lnum, lden, true);
+		}
 		return new BigRational(this.num, this.den, true);
 	}
 
@@ -316,8 +464,24 @@ public final class BigRational implements Comparable<BigRational>
 		if (this.isMInf() || other.isMInf()) {
 			return MINF;
 		}
-		BigInteger num = this.num.multiply(other.den).add(other.num.multiply(this.den));
-		BigInteger den = this.den.multiply(other.den);
+		if (this.isSmall() && other.isSmall()) {
+			try {
+				BigRational result;
+				if (cancel && this.lden == other.lden) {
+					result = fromLongs(Math.addExact(this.lnum, other.lnum), this.lden, true);
+				} else {
+					long num = Math.addExact(Math.multiplyExact(this.lnum, other.lden), Math.multiplyExact(other.lnum, this.lden));
+					result = fromLongs(num, Math.multiplyExact(this.lden, other.lden), cancel);
+				}
+				if (result != null) {
+					return result;
+				}
+			} catch (ArithmeticException e) {
+				// overflow: use BigIntegers below
+			}
+		}
+		BigInteger num = this.getNum().multiply(other.getDen()).add(other.getNum().multiply(this.getDen()));
+		BigInteger den = this.getDen().multiply(other.getDen());
 		return new BigRational(num, den, cancel);
 	}
 
@@ -346,8 +510,24 @@ public final class BigRational implements Comparable<BigRational>
 		if (other.isMInf()) {
 			return MINF;
 		}
-		BigInteger num = this.num.multiply(other.den).subtract(other.num.multiply(this.den));
-		BigInteger den = this.den.multiply(other.den);
+		if (this.isSmall() && other.isSmall()) {
+			try {
+				BigRational result;
+				if (this.lden == other.lden) {
+					result = fromLongs(Math.subtractExact(this.lnum, other.lnum), this.lden, true);
+				} else {
+					long num = Math.subtractExact(Math.multiplyExact(this.lnum, other.lden), Math.multiplyExact(other.lnum, this.lden));
+					result = fromLongs(num, Math.multiplyExact(this.lden, other.lden), true);
+				}
+				if (result != null) {
+					return result;
+				}
+			} catch (ArithmeticException e) {
+				// overflow: use BigIntegers below
+			}
+		}
+		BigInteger num = this.getNum().multiply(other.getDen()).subtract(other.getNum().multiply(this.getDen()));
+		BigInteger den = this.getDen().multiply(other.getDen());
 		return new BigRational(num, den);
 	}
 
@@ -368,8 +548,18 @@ public final class BigRational implements Comparable<BigRational>
 		if (this.isInf() || other.isInf()) {
 			return this.signum() * other.signum() == 1 ? INF : MINF;
 		}
-		BigInteger num = this.num.multiply(other.num);
-		BigInteger den = this.den.multiply(other.den);
+		if (this.isSmall() && other.isSmall()) {
+			try {
+				BigRational result = fromLongs(Math.multiplyExact(this.lnum, other.lnum), Math.multiplyExact(this.lden, other.lden), cancel);
+				if (result != null) {
+					return result;
+				}
+			} catch (ArithmeticException e) {
+				// overflow: use BigIntegers below
+			}
+		}
+		BigInteger num = this.getNum().multiply(other.getNum());
+		BigInteger den = this.getDen().multiply(other.getDen());
 		return new BigRational(num, den, cancel);
 	}
 
@@ -414,7 +604,7 @@ public final class BigRational implements Comparable<BigRational>
 		if (other.isInf() || other.isMInf()) {
 			return NAN;
 		}
-		BigRational inverseOther = new BigRational(other.den, other.num, cancel);
+		BigRational inverseOther = other.isSmall() ? new BigRational(other.lden, other.lnum, cancel) : new BigRational(other.den, other.num, cancel);
 		return multiply(inverseOther, cancel);
 	}
 
@@ -449,6 +639,9 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public int signum()
 	{
+		if (isSmall()) {
+			return Long.signum(lnum) * Long.signum(lden);
+		}
 		return num.signum() * den.signum();
 	}
 
@@ -465,11 +658,11 @@ public final class BigRational implements Comparable<BigRational>
 		if (exponent == 0) {
 			return ONE;
 		} else if (exponent > 0) {
-			num = this.num.pow(exponent);
-			den = this.den.pow(exponent);
+			num = this.getNum().pow(exponent);
+			den = this.getDen().pow(exponent);
 		} else { // exponent < 0
-			num = this.den.pow(exponent);
-			den = this.num.pow(exponent);
+			num = this.getDen().pow(exponent);
+			den = this.getNum().pow(exponent);
 		}
 		return new BigRational(num, den, false);
 	}
@@ -498,6 +691,10 @@ public final class BigRational implements Comparable<BigRational>
 		if (isMInf()) {
 			return other.isMInf();
 		}
+		if (this.isSmall() || other.isSmall()) {
+			// representation is canonical, so can only be equal if both are small
+			return this.isSmall() && other.isSmall() && this.lnum == other.lnum && this.lden == other.lden;
+		}
 		return this.num.equals(other.num) && this.den.equals(other.den);
 	}
 
@@ -509,6 +706,10 @@ public final class BigRational implements Comparable<BigRational>
 	@Override
 	public int hashCode()
 	{
+		// (same as for the BigInteger representation)
+		if (isSmall()) {
+			return 37 * bigIntegerHashCode(lnum) + bigIntegerHashCode(lden);
+		}
 		return 37 * num.hashCode() + den.hashCode();
 	}
 
@@ -536,6 +737,8 @@ public final class BigRational implements Comparable<BigRational>
 			return 0.0;
 		}
 		BigInteger shiftedNum;
+		BigInteger num = getNum();
+		BigInteger den = getDen();
 		int signum = num.signum() * den.signum();
 		BigInteger posNum = (num.signum() == 1) ? num : num.negate();
 		BigInteger posDen = (den.signum() == 1) ? den : den.negate();
@@ -561,6 +764,8 @@ public final class BigRational implements Comparable<BigRational>
 			return "Inf";
 		} else if (isMInf()) {
 			return "-Inf";
+		} else if (isSmall()) {
+			return lden == 1 ? Long.toString(lnum) : lnum + "/" + lden;
 		} else if (den.equals(BigInteger.ONE)) {
 			return num.toString();
 		} else {
@@ -590,7 +795,14 @@ public final class BigRational implements Comparable<BigRational>
 				return -1;
 			}
 		}
-		return this.num.multiply(other.den).compareTo(other.num.multiply(this.den));
+		if (this.isSmall() && other.isSmall()) {
+			try {
+				return Long.compare(Math.multiplyExact(this.lnum, other.lden), Math.multiplyExact(other.lnum, this.lden));
+			} catch (ArithmeticException e) {
+				// overflow: use BigIntegers below
+			}
+		}
+		return this.getNum().multiply(other.getDen()).compareTo(other.getNum().multiply(this.getDen()));
 	}
 
 	/**
@@ -610,7 +822,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public java.math.BigInteger getNum()
 	{
-		return num;
+		return isSmall() ? BigInteger.valueOf(lnum) : num;
 	}
 
 	/**
@@ -620,7 +832,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public java.math.BigInteger getDen()
 	{
-		return den;
+		return isSmall() ? BigInteger.valueOf(lden) : den;
 	}
 
 	/**
@@ -630,6 +842,9 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public BigRational abs()
 	{
+		if (isSmall()) {
+			return lnum < 0 ? new BigRational(-lnum, lden, true) : this;
+		}
 		if (num.signum() == -1) {
 			return new BigRational(num.negate(), den);
 		} else {
@@ -719,7 +934,8 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isZero()
 	{
-		return num.equals(BigInteger.ZERO) && den.equals(BigInteger.ONE);
+		// (special values and small numbers always use the small representation)
+		return isSmall() && lnum == 0 && lden == 1;
 	}
 
 	/**
@@ -729,7 +945,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isOne()
 	{
-		return num.equals(BigInteger.ONE) && den.equals(BigInteger.ONE);
+		return isSmall() && lnum == 1 && lden == 1;
 	}
 
 	/**
@@ -739,7 +955,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isNaN()
 	{
-		return num.equals(BigInteger.ZERO) && den.equals(BigInteger.ZERO);
+		return isSmall() && lnum == 0 && lden == 0;
 	}
 
 	/**
@@ -749,7 +965,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isInf()
 	{
-		return num.equals(BigInteger.ONE) && den.equals(BigInteger.ZERO);
+		return isSmall() && lnum == 1 && lden == 0;
 	}
 
 	/**
@@ -759,7 +975,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isMInf()
 	{
-		return num.equals(BMONE) && den.equals(BigInteger.ZERO);
+		return isSmall() && lnum == -1 && lden == 0;
 	}
 
 	/**
@@ -783,7 +999,7 @@ public final class BigRational implements Comparable<BigRational>
 	 */
 	public boolean isInteger()
 	{
-		return isRational() && getDen().equals(BigInteger.ONE);
+		return isRational() && (isSmall() ? lden == 1 : den.equals(BigInteger.ONE));
 	}
 
 	/**
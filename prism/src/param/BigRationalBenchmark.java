@@ -0,0 +1,181 @@
+//==============================================================================
+//	
+//	Copyright (c) 2013-
+//	Authors:
+//	* Ernst Moritz Hahn <emhahn@cs.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package param;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Micro-benchmark for rational arithmetic, both directly on {@code BigRational}s
+ * and via the function factories (JAS, cached JAS, DAG), for the kind of small
+ * coefficients (1/2, 3/10, ...) that occur in typical models.
+ * Usage: BigRationalBenchmark [repetitions]
+ * 
+ * @see BigRational
+ * @see FunctionFactory
+ */
+public final class BigRationalBenchmark
+{
+	/** number of values/points per run */
+	private final static int NUM_VALUES = 2000;
+	/** number of repetitions of each run (first one is for warm-up) */
+	private int reps;
+	/** used to avoid the JIT removing computations */
+	private long sink;
+
+	private BigRationalBenchmark(int reps)
+	{
+		this.reps = reps;
+	}
+
+	public static void main(String[] args)
+	{
+		int reps = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		new BigRationalBenchmark(reps).run();
+	}
+
+	private void run()
+	{
+		Random random = new Random(1);
+		final BigRational[] values = new BigRational[NUM_VALUES];
+		for (int i = 0; i < NUM_VALUES; i++) {
+			values[i] = new BigRational(random.nextInt(20) + 1, 10 * (random.nextInt(5) + 1));
+		}
+
+		// Plain BigRational arithmetic, on small values
+		// (e.g. sums of products of probabilities) and on large values
+		runBenchmark("BigRational add/multiply (small)", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int k = 0; k < 50; k++) {
+					for (int i = 1; i < values.length; i++) {
+						BigRational sum = values[i - 1].add(values[i]).multiply(values[i]).subtract(values[i - 1].divide(values[i]));
+						sink += sum.hashCode();
+					}
+				}
+			}
+		});
+		final BigRational[] largeValues = new BigRational[NUM_VALUES];
+		for (int i = 0; i < NUM_VALUES; i++) {
+			largeValues[i] = values[i].pow(40).add(values[(i + 1) % NUM_VALUES]);
+		}
+		runBenchmark("BigRational add/multiply (large)", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int i = 1; i < values.length; i++) {
+					BigRational sum = largeValues[i - 1].add(values[i]).multiply(largeValues[i]).subtract(values[i - 1].divide(values[i]));
+					sink += sum.hashCode();
+				}
+			}
+		});
+		runBenchmark("BigRational multiply/compare", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (int k = 0; k < 50; k++) {
+					for (int i = 1; i < values.length; i++) {
+						BigRational prod = values[i].multiply(values[i - 1]);
+						sink += prod.compareTo(values[i]) + (prod.equals(values[i]) ? 1 : 0);
+					}
+				}
+			}
+		});
+
+		// Function factories: build a polynomial in two parameters with
+		// small rational coefficients and evaluate it at many points
+		String[] paramNames = new String[] { "p", "q" };
+		BigRational[] lower = new BigRational[] { BigRational.ZERO, BigRational.ZERO };
+		BigRational[] upper = new BigRational[] { BigRational.ONE, BigRational.ONE };
+		final Point[] points = new Point[NUM_VALUES];
+		for (int i = 0; i < NUM_VALUES; i++) {
+			points[i] = new Point(new BigRational[] { values[i], values[(i + 1) % NUM_VALUES] });
+		}
+		JasFunctionFactory jas = new JasFunctionFactory(paramNames, lower, upper);
+		FunctionFactory[] factories = new FunctionFactory[] { jas, new CachedFunctionFactory(jas),
+				new DagFunctionFactory(paramNames, lower, upper, 1E-100, false) };
+		String[] factoryNames = new String[] { "JAS", "JAS-cached", "DAG" };
+		for (int f = 0; f < factories.length; f++) {
+			final FunctionFactory factory = factories[f];
+			final Function p = factory.getVar(0);
+			final Function q = factory.getVar(1);
+			runBenchmark(factoryNames[f] + " construct", new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int k = 0; k < 5; k++) {
+						Function fn = factory.getZero();
+						for (int i = 0; i < 200; i++) {
+							fn = fn.multiply(p.add(factory.fromBigRational(values[i]))).add(q.multiply(factory.fromBigRational(values[i + 1])));
+							if (i % 10 == 9) {
+								fn = factory.getZero().add(fn.evaluate(points[i], true).isZero() ? factory.getOne() : q);
+							}
+						}
+						sink += fn.hashCode();
+					}
+				}
+			});
+			Function poly = factory.getOne();
+			for (int i = 0; i < 8; i++) {
+				poly = poly.multiply(p.multiply(factory.fromBigRational(values[i])).add(q.multiply(factory.fromBigRational(values[i + 8]))).add(factory.getOne()));
+			}
+			final Function fn = poly;
+			runBenchmark(factoryNames[f] + " evaluate", new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (Point point : points) {
+						sink += fn.evaluate(point, true).signum();
+					}
+				}
+			});
+		}
+		System.out.println("(checksum " + sink + ")");
+	}
+
+	/**
+	 * Run a benchmark repeatedly and print min/median times (ignoring the first, warm-up, run).
+	 */
+	private void runBenchmark(String name, Runnable benchmark)
+	{
+		long[] times = new long[reps];
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			benchmark.run();
+			times[r] = System.nanoTime() - start;
+		}
+		long[] sorted = Arrays.copyOfRange(times, reps > 1 ? 1 : 0, reps);
+		Arrays.sort(sorted);
+		System.out.printf("%-35s min %8.2f ms, median %8.2f ms%n", name, sorted[0] / 1e6, sorted[sorted.length / 2] / 1e6);
+	}
+}
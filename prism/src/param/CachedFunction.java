@@ -36,6 +36,8 @@ final class CachedFunction extends Function
 {
 	/** unique number of cached function this function represents */
 	private int number;
+	/** function (of the factory being cached) this function represents */
+	private Function function;
 	/** factory this function belongs to */
 	private CachedFunctionFactory factory;
 
@@ -43,12 +45,14 @@ final class CachedFunction extends Function
 	 * Constructs a new cached function.
 	 * 
 	 * @param factory function factory this function belongs to
+	 * @param function function of the factory being cached this function represents
 	 * @param number unique number of cached function this function represents
 	 */
-	CachedFunction(CachedFunctionFactory factory, int number)
+	CachedFunction(CachedFunctionFactory factory, Function function, int number)
 	{
 		super(factory);
 		this.factory = factory;
+		this.function = function;
 		this.number = number;
 	}
 
@@ -62,10 +66,20 @@ final class CachedFunction extends Function
 		return number;
 	}
 
+	/**
+	 * Returns the function of the factory being cached this function represents.
+	 * 
+	 * @return function represented
+	 */
+	Function getFunction()
+	{
+		return function;
+	}
+
 	@Override
 	public String toString()
 	{
-		return factory.getFunction(number).toString();
+		return function.toString();
 	}
 
 	@Override
@@ -26,8 +26,8 @@
 
 package param;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Function factory implementing a cache for functions from other factories.
@@ -36,6 +36,8 @@ import java.util.HashMap;
  * cache for operations on functions, so that if an operation on the same
  * two functions has already been performed before, the result will be
  * looked up instead of being performed again.
+ * The caches are safe for concurrent use, so this factory is thread-safe
+ * whenever the factory whose functions it caches is.
  * 
  * @author Ernst Moritz Hahn <emhahn@cs.ox.ac.uk> (University of Oxford)
  * @see FunctionFactory
@@ -90,14 +92,10 @@ final class CachedFunctionFactory extends FunctionFactory
 
 	/** function factory of which we cache functions */
 	private FunctionFactory context;
-	/** maps each function from {@code context} to a unique integer */
-	private HashMap<Function, Integer> functionToNumber;
-	/** maps each integer to function from {@code context}, cf. also {@code functionToNumber} */
-	private ArrayList<Function> functions;
-	/** list of all function of this function factory */
-	private ArrayList<CachedFunction> cachedFunctions;
+	/** maps each function from {@code context} to its unique cached function */
+	private ConcurrentHashMap<Function, CachedFunction> functionToCached;
 	/** next new function will be assigned this number */
-	private int nextFunctionNumber;
+	private AtomicInteger nextFunctionNumber;
 	/** function representing one (1) */
 	private CachedFunction one;
 	/** function representing zero (0) */
@@ -105,11 +103,11 @@ final class CachedFunctionFactory extends FunctionFactory
 	/** true iff operation cache is to be used */
 	private boolean useOpCache;
 	/** cache for additions (and indirectly subtractions) */
-	private HashMap<OpCacheKey, CachedFunction> addCache;
+	private ConcurrentHashMap<OpCacheKey, CachedFunction> addCache;
 	/** cache for multiplications (and indirectly divisions) */
-	private HashMap<OpCacheKey, CachedFunction> multCache;
+	private ConcurrentHashMap<OpCacheKey, CachedFunction> multCache;
 	/** cache for star operation */
-	private HashMap<CachedFunction, CachedFunction> starCache;
+	private ConcurrentHashMap<CachedFunction, CachedFunction> starCache;
 
 	/**
 	 * Constructs a new cached function factory.
@@ -121,15 +119,13 @@ final class CachedFunctionFactory extends FunctionFactory
 	{
 		super(context.parameterNames, context.lowerBounds, context.upperBounds);
 		this.context = context;
-		functionToNumber = new HashMap<>();
-		cachedFunctions = new ArrayList<>();
-		functions = new ArrayList<>();
-		nextFunctionNumber = 0;
+		functionToCached = new ConcurrentHashMap<>();
+		nextFunctionNumber = new AtomicInteger(0);
 		one = makeUnique(context.getOne());
 		zero = makeUnique(context.getZero());
-		addCache = new HashMap<>();
-		multCache = new HashMap<>();
-		starCache = new HashMap<>();
+		addCache = new ConcurrentHashMap<>();
+		multCache = new ConcurrentHashMap<>();
+		starCache = new ConcurrentHashMap<>();
 		useOpCache = true;
 	}
 
@@ -143,39 +139,32 @@ final class CachedFunctionFactory extends FunctionFactory
 		return useOpCache;
 	}
 
+	@Override
+	boolean isThreadSafe()
+	{
+		return context.isThreadSafe();
+	}
+
 	/**
-	 * Returns the unique integer representing the given function.
+	 * Returns the unique cached function representing the given function.
 	 * In case the function already exists in the function cache, returns
-	 * the assigned integer. Otherwise, inserts function in the cache and
-	 * returns the newly assigned integer.
+	 * the existing cached function. Otherwise, inserts function in the cache,
+	 * assigning it a new unique integer. If several threads insert the same
+	 * function concurrently, all of them obtain the same cached function
+	 * (numbers assigned by the losing threads are then just not used).
 	 * 
-	 * @param function function to return unique integer of
-	 * @return unique integer representing function
+	 * @param function function to return unique cached function of
+	 * @return unique cached function representing function
 	 */
 	private CachedFunction makeUnique(Function function)
 	{
-		Integer number = functionToNumber.get(function);
-		if (number != null) {
-			return cachedFunctions.get(number);
-		} else {
-			CachedFunction cachedFunction = new CachedFunction(this, nextFunctionNumber);
-			functionToNumber.put(function, nextFunctionNumber);
-			cachedFunctions.add(cachedFunction);
-			functions.add(function);
-			nextFunctionNumber++;
+		CachedFunction cachedFunction = functionToCached.get(function);
+		if (cachedFunction != null) {
 			return cachedFunction;
 		}
-	}
-
-	/**
-	 * Returns integer with the given unique number.
-	 * 
-	 * @param number number of function to return
-	 * @return function with the given number
-	 */
-	Function getFunction(int number)
-	{
-		return functions.get(number);
+		cachedFunction = new CachedFunction(this, function, nextFunctionNumber.getAndIncrement());
+		CachedFunction existing = functionToCached.putIfAbsent(function, cachedFunction);
+		return existing != null ? existing : cachedFunction;
 	}
 
 	@Override
@@ -192,7 +181,7 @@ final class CachedFunctionFactory extends FunctionFactory
 
 	private Function getFunctionFromCache(Function cached)
 	{
-		return functions.get(((CachedFunction) cached).getNumber());
+		return ((CachedFunction) cached).getFunction();
 	}
 
 	Function add(Function cached1, Function cached2)
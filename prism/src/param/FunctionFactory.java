@@ -170,6 +170,17 @@ abstract class FunctionFactory
 		return parameterNames.length;
 	}
 
+	/**
+	 * Returns whether functions of this factory can safely be created and
+	 * operated on by several threads concurrently.
+	 * 
+	 * @return true iff this factory is thread-safe
+	 */
+	boolean isThreadSafe()
+	{
+		return false;
+	}
+
 	/**
 	 * Returns a function representing the value of the given number.
 	 * 
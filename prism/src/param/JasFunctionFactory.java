@@ -142,6 +142,16 @@ final class JasFunctionFactory extends FunctionFactory
 		return new JasFunction(this, result, JasFunction.NORMAL);
 	}
 
+	/**
+	 * JAS polynomials and quotients are immutable, and the rings used to
+	 * create them are not modified after construction of this factory.
+	 */
+	@Override
+	boolean isThreadSafe()
+	{
+		return true;
+	}
+
 	@Override
 	Function getVar(int var)
 	{
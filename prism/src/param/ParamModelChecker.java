@@ -132,6 +132,7 @@ final public class ParamModelChecker extends PrismComponent
 	private int numRandomPoints;
 	private Lumper.BisimType bisimType;
 	private boolean simplifyRegions;
+	private int numThreads = 1;
 
 	private ModelBuilder modelBuilder;
 
@@ -167,6 +168,8 @@ final public class ParamModelChecker extends PrismComponent
 				eliminationOrder = EliminationOrder.BACKWARD_REVERSED;
 			} else if (eliminationOrderString.equals("Random")) {
 				eliminationOrder = EliminationOrder.RANDOM;
+			} else if (eliminationOrderString.equals("Min-fill")) {
+				eliminationOrder = EliminationOrder.MIN_FILL;
 			} else {
 				throw new PrismException("unknown state elimination order " + eliminationOrderString);
 			}
@@ -182,6 +185,7 @@ final public class ParamModelChecker extends PrismComponent
 				throw new PrismException("unknown bisimulation type " + bisimTypeString);
 			}
 			simplifyRegions = settings.getBoolean(PrismSettings.PRISM_PARAM_SUBSUME_REGIONS);
+			numThreads = settings.getInteger(PrismSettings.PRISM_NUM_THREADS);
 		}
 	}
 
@@ -219,6 +223,8 @@ final public class ParamModelChecker extends PrismComponent
 		regionFactory = new BoxRegionFactory(functionFactory, constraintChecker, precision, model.getNumStates(), model.getFirstInitialState(), simplifyRegions,
 				splitMethod);
 		valueComputer = new ValueComputer(paramModel, regionFactory, precision, eliminationOrder, bisimType);
+		// Use the thread pool shared via the settings for (parallel) state elimination
+		valueComputer.setThreadPool(numThreads > 1 && settings != null ? settings.getThreadPool(numThreads) : null);
 
 		long timer = 0;
 
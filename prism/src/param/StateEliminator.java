@@ -26,12 +26,18 @@
 
 package param;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Performs computation of reachability probabilities and rewards.
@@ -43,6 +49,9 @@ import java.util.ListIterator;
  * is maintained, but the state no longer has any incoming transitions,
  * except in some cases self loops. This way, after all states have been
  * treated, the value of concern can be obtained by a simple computation.
+ * If several threads are to be used (and the function factory is thread-safe),
+ * states whose neighbourhoods (the state, its predecessors and successors)
+ * are disjoint are eliminated concurrently, in rounds.
  * 
  * @author Ernst Moritz Hahn <emhahn@cs.ox.ac.uk> (University of Oxford)
  */
@@ -63,13 +72,158 @@ final class StateEliminator
 		/** states close to target states last */
 		BACKWARD_REVERSED,
 		/** random */
-		RANDOM;
+		RANDOM,
+		/** states whose elimination creates fewest new transitions first (minimum fill-in) */
+		MIN_FILL;
+	}
+
+	/**
+	 * Source of states to be eliminated.
+	 */
+	private interface StateQueue
+	{
+		/**
+		 * Remove and return the next state to be eliminated, or -1 if there are none left.
+		 */
+		int poll();
+
+		/**
+		 * Put back states (previously obtained from {@code poll}) which could
+		 * not be eliminated yet, such that they are returned again first.
+		 */
+		void putBack(List<Integer> states);
+
+		/**
+		 * Notify that some state with the given neighbourhood has been eliminated.
+		 */
+		void eliminated(int[] neighbours);
+	}
+
+	/**
+	 * Queue of states in a fixed order.
+	 */
+	private static class OrderedStateQueue implements StateQueue
+	{
+		private ArrayDeque<Integer> queue;
+
+		OrderedStateQueue(int[] states)
+		{
+			queue = new ArrayDeque<>(states.length);
+			for (int state : states) {
+				queue.add(state);
+			}
+		}
+
+		@Override
+		public int poll()
+		{
+			Integer state = queue.pollFirst();
+			return state == null ? -1 : state;
+		}
+
+		@Override
+		public void putBack(List<Integer> states)
+		{
+			for (int i = states.size() - 1; i >= 0; i--) {
+				queue.addFirst(states.get(i));
+			}
+		}
+
+		@Override
+		public void eliminated(int[] neighbours)
+		{
+			// order is fixed
+		}
+	}
+
+	/**
+	 * Queue of states ordered by the number of transitions their
+	 * elimination would create (number of predecessors times number of
+	 * successors, self-loops excluded), Markowitz-style. Costs are updated
+	 * for the neighbours of each eliminated state.
+	 */
+	private class MinFillStateQueue implements StateQueue
+	{
+		/** entries are cost (upper 32 bits) and state (lower 32 bits); outdated ones are skipped */
+		private PriorityQueue<Long> queue;
+		/** current cost of each state */
+		private long[] cost;
+		/** states returned by poll */
+		private BitSet done;
+
+		MinFillStateQueue()
+		{
+			int numStates = pmc.getNumStates();
+			queue = new PriorityQueue<>(Math.max(1, numStates));
+			cost = new long[numStates];
+			done = new BitSet(numStates);
+			for (int state = 0; state < numStates; state++) {
+				cost[state] = computeCost(state);
+				queue.add((cost[state] << 32) | state);
+			}
+		}
+
+		private long computeCost(int state)
+		{
+			long numPred = 0;
+			long numSucc = 0;
+			for (int pred : pmc.incoming.get(state)) {
+				if (pred != state) {
+					numPred++;
+				}
+			}
+			for (int succ : pmc.transitionTargets.get(state)) {
+				if (succ != state) {
+					numSucc++;
+				}
+			}
+			return Math.min(numPred * numSucc, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public int poll()
+		{
+			while (!queue.isEmpty()) {
+				long entry = queue.poll();
+				int state = (int) entry;
+				if (!done.get(state) && (entry >>> 32) == cost[state]) {
+					done.set(state);
+					return state;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public void putBack(List<Integer> states)
+		{
+			for (int state : states) {
+				done.clear(state);
+				queue.add((cost[state] << 32) | state);
+			}
+		}
+
+		@Override
+		public void eliminated(int[] neighbours)
+		{
+			for (int state : neighbours) {
+				if (!done.get(state)) {
+					long newCost = computeCost(state);
+					if (newCost != cost[state]) {
+						cost[state] = newCost;
+						queue.add((newCost << 32) | state);
+					}
+				}
+			}
+		}
 	}
 
 	/** the mutable parametric Markov chain to compute values of */
 	private MutablePMC pmc;
 	/** order in which states are eliminated */
 	private EliminationOrder eliminationOrder;
+	/** thread pool to use for elimination (null means eliminate serially) */
+	private ForkJoinPool threadPool = null;
 
 	/**
 	 * Create a new state eliminator object.
@@ -83,6 +237,18 @@ final class StateEliminator
 		this.eliminationOrder = eliminationOrder;
 	}
 
+	/**
+	 * Set the thread pool used to eliminate states in parallel.
+	 * Only has an effect if the function factory of the model is thread-safe.
+	 * The pool is owned by the caller and is not shut down here.
+	 * 
+	 * @param threadPool thread pool, or null to eliminate states serially
+	 */
+	void setThreadPool(ForkJoinPool threadPool)
+	{
+		this.threadPool = threadPool;
+	}
+
 	/**
 	 * Orders states so that states near initial states are eliminated first.
 	 * 
@@ -268,12 +434,135 @@ final class StateEliminator
 				states[state] = statesList.get(state);
 			}
 			break;
+		case MIN_FILL:
+			break;
 		default:
 			throw new RuntimeException("unknown state elimination order");
 		}
 
-		for (int stateNr = 0; stateNr < pmc.getNumStates(); stateNr++) {
-			eliminate(states[stateNr]);
+		StateQueue queue;
+		if (eliminationOrder == EliminationOrder.MIN_FILL) {
+			queue = new MinFillStateQueue();
+		} else {
+			queue = new OrderedStateQueue(states);
+		}
+		if (threadPool != null && threadPool.getParallelism() > 1 && pmc.getFunctionFactory().isThreadSafe()) {
+			eliminateParallel(queue);
+		} else {
+			int state;
+			while ((state = queue.poll()) != -1) {
+				int[] neighbours = getNeighbours(state);
+				eliminate(state);
+				queue.eliminated(neighbours);
+			}
+		}
+	}
+
+	/**
+	 * Returns the neighbourhood of a state, i.e. the state itself and its
+	 * current predecessors and successors (possibly with duplicates).
+	 * Eliminating the state only reads and modifies the transitions, rewards
+	 * and incoming lists of states in its neighbourhood.
+	 * 
+	 * @param state state to compute neighbourhood of
+	 * @return neighbourhood of state
+	 */
+	private int[] getNeighbours(int state)
+	{
+		List<Integer> preds = pmc.incoming.get(state);
+		List<Integer> succs = pmc.transitionTargets.get(state);
+		int[] neighbours = new int[1 + preds.size() + succs.size()];
+		int i = 0;
+		neighbours[i++] = state;
+		for (int pred : preds) {
+			neighbours[i++] = pred;
+		}
+		for (int succ : succs) {
+			neighbours[i++] = succ;
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Eliminate all states from a queue using several threads.
+	 * In each round, a window of the next states in the queue is scanned
+	 * and those whose neighbourhoods are disjoint from the ones of the
+	 * states chosen so far are eliminated concurrently. The others are
+	 * put back in the queue for the next round.
+	 * 
+	 * @param queue queue of states to eliminate
+	 */
+	private void eliminateParallel(StateQueue queue)
+	{
+		int window = 8 * threadPool.getParallelism();
+		BitSet touched = new BitSet(pmc.getNumStates());
+		List<Integer> chosen = new ArrayList<>();
+		List<int[]> chosenNeighbours = new ArrayList<>();
+		List<Integer> skipped = new ArrayList<>();
+		List<Callable<Object>> tasks = new ArrayList<>();
+		try {
+			while (true) {
+				// Pick a set of states with disjoint neighbourhoods
+				int state;
+				for (int k = 0; k < window && (state = queue.poll()) != -1; k++) {
+					int[] neighbours = getNeighbours(state);
+					boolean independent = true;
+					for (int neighbour : neighbours) {
+						if (touched.get(neighbour)) {
+							independent = false;
+							break;
+						}
+					}
+					if (independent) {
+						for (int neighbour : neighbours) {
+							touched.set(neighbour);
+						}
+						chosen.add(state);
+						chosenNeighbours.add(neighbours);
+					} else {
+						skipped.add(state);
+					}
+				}
+				if (chosen.isEmpty()) {
+					break;
+				}
+				queue.putBack(skipped);
+				// Eliminate them
+				if (chosen.size() == 1) {
+					eliminate(chosen.get(0));
+				} else {
+					for (final int midState : chosen) {
+						tasks.add(new Callable<Object>()
+						{
+							@Override
+							public Object call()
+							{
+								eliminate(midState);
+								return null;
+							}
+						});
+					}
+					for (Future<Object> future : threadPool.invokeAll(tasks)) {
+						future.get();
+					}
+				}
+				for (int[] neighbours : chosenNeighbours) {
+					queue.eliminated(neighbours);
+				}
+				touched.clear();
+				chosen.clear();
+				chosenNeighbours.clear();
+				skipped.clear();
+				tasks.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("state elimination interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
 		}
 	}
 
@@ -31,6 +31,7 @@ import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Computes values for properties of a parametric Markov model. 
@@ -232,6 +233,7 @@ final class ValueComputer
 	private HashMap<ResultCacheKey, ResultCacheEntry> resultCache;
 	private StateEliminator.EliminationOrder eliminationOrder;
 	private Lumper.BisimType bisimType;
+	private ForkJoinPool threadPool = null;
 
 	ValueComputer(ParamModel model, RegionFactory regionFactory, BigRational precision, StateEliminator.EliminationOrder eliminationOrder,
 			Lumper.BisimType bisimType)
@@ -247,6 +249,14 @@ final class ValueComputer
 		this.bisimType = bisimType;
 	}
 
+	/**
+	 * Set the thread pool used for state elimination (null means serial elimination).
+	 */
+	void setThreadPool(ForkJoinPool threadPool)
+	{
+		this.threadPool = threadPool;
+	}
+
 	RegionValues computeUnbounded(RegionValues b1, RegionValues b2, boolean min, ParamRewardStruct rew)
 	{
 		RegionValues result = new RegionValues(regionFactory);
@@ -589,6 +599,7 @@ final class ValueComputer
 
 		MutablePMC quot = lumper.getQuotient();
 		StateEliminator eliminator = new StateEliminator(quot, eliminationOrder);
+		eliminator.setThreadPool(threadPool);
 		eliminator.eliminate();
 		int[] origToCopy = lumper.getOriginalToOptimised();
 		StateValues result = new StateValues(pmc.getNumStates(), initState);
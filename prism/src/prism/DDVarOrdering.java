@@ -0,0 +1,451 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package prism;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import parser.VarList;
+import parser.ast.Command;
+import parser.ast.Declaration;
+import parser.ast.Module;
+import parser.ast.ModulesFile;
+import parser.ast.Update;
+import parser.ast.Updates;
+
+/**
+ * Heuristics for ordering the variables of a PRISM model, as used for its MTBDD variables.
+ * <br><br>
+ * These work on the dependency graph of the model, a hypergraph whose nodes are variables
+ * and which has one edge per unsynchronised command and one per synchronising action,
+ * containing the variables read (in guards, probabilities/rates or updates) or written.
+ * <br><br>
+ * Modules2MTBDD assumes that variable order in the MTBDD matches that in the model
+ * (globals first, then the variables of each module in turn), so an ordering is
+ * always "realised" in this form, and applied by rearranging a copy of the model:
+ * global variables, modules and the variables within each module can all be permuted.
+ */
+public class DDVarOrdering
+{
+	/** Max number of FORCE iterations without improvement before stopping */
+	private static final int FORCE_MAX_STALLS = 5;
+	/** Max number of FORCE iterations overall */
+	private static final int FORCE_MAX_ITERS = 100;
+
+	// Model and its variables
+	private ModulesFile modulesFile;
+	private VarList varList;
+	private int numVars;
+	// Hyperedges of the dependency graph (variable indices, each with at least two)
+	private List<int[]> edges;
+	// Number of FORCE iterations in last call to force()
+	private int forceIters;
+
+	/**
+	 * Create an object for ordering the variables of a model,
+	 * whose constants should have been defined already.
+	 */
+	public DDVarOrdering(ModulesFile modulesFile) throws PrismException
+	{
+		this.modulesFile = modulesFile;
+		varList = modulesFile.createVarList();
+		numVars = varList.getNumVars();
+		buildDependencyGraph();
+	}
+
+	/**
+	 * Build the hyperedges of the dependency graph.
+	 */
+	private void buildDependencyGraph() throws PrismException
+	{
+		Map<String, Set<Integer>> synchEdges = new HashMap<>();
+		List<Set<Integer>> allEdges = new ArrayList<>();
+		int numModules = modulesFile.getNumModules();
+		for (int m = 0; m < numModules; m++) {
+			Module module = modulesFile.getModule(m);
+			int numCommands = module.getNumCommands();
+			for (int c = 0; c < numCommands; c++) {
+				Command command = module.getCommand(c);
+				Set<Integer> edge;
+				String synch = command.getSynch();
+				if ("".equals(synch)) {
+					edge = new LinkedHashSet<>();
+					allEdges.add(edge);
+				} else {
+					edge = synchEdges.get(synch);
+					if (edge == null) {
+						edge = new LinkedHashSet<>();
+						synchEdges.put(synch, edge);
+						allEdges.add(edge);
+					}
+				}
+				// Variables read anywhere in the command
+				for (String var : command.getAllVars()) {
+					addVarToEdge(edge, var);
+				}
+				// Variables written
+				Updates updates = command.getUpdates();
+				int numUpdates = updates.getNumUpdates();
+				for (int u = 0; u < numUpdates; u++) {
+					Update update = updates.getUpdate(u);
+					int numElements = update.getNumElements();
+					for (int e = 0; e < numElements; e++) {
+						addVarToEdge(edge, update.getVar(e));
+					}
+				}
+			}
+		}
+		edges = new ArrayList<>();
+		for (Set<Integer> edge : allEdges) {
+			if (edge.size() > 1) {
+				int[] vars = new int[edge.size()];
+				int i = 0;
+				for (int v : edge) {
+					vars[i++] = v;
+				}
+				edges.add(vars);
+			}
+		}
+	}
+
+	private void addVarToEdge(Set<Integer> edge, String var)
+	{
+		int v = varList.getIndex(var);
+		if (v != -1)
+			edge.add(v);
+	}
+
+	/**
+	 * Get the order of variables in the model as it stands.
+	 */
+	public int[] getDefaultOrder()
+	{
+		int[] order = new int[numVars];
+		for (int v = 0; v < numVars; v++) {
+			order[v] = v;
+		}
+		return order;
+	}
+
+	/**
+	 * Get the number of iterations performed in the last call to {@link #force()}.
+	 */
+	public int getForceIterations()
+	{
+		return forceIters;
+	}
+
+	/**
+	 * Compute a variable order using the FORCE heuristic (Aloul, Markov, Sakallah):
+	 * repeatedly move each variable to the mean "centre of gravity" of the edges
+	 * it belongs to, keeping the (realised) order with the smallest total span of edges.
+	 * The result is realised as described for {@link #realise(double[])}.
+	 */
+	public int[] force()
+	{
+		double[] pos = new double[numVars];
+		for (int v = 0; v < numVars; v++) {
+			pos[v] = v;
+		}
+		double[] best = pos.clone();
+		long bestSpan = getSpan(realise(pos));
+		int stalls = 0;
+		forceIters = 0;
+		double[] cogSum = new double[numVars];
+		int[] cogCount = new int[numVars];
+		while (forceIters < FORCE_MAX_ITERS && stalls < FORCE_MAX_STALLS) {
+			forceIters++;
+			Arrays.fill(cogSum, 0.0);
+			Arrays.fill(cogCount, 0);
+			for (int[] edge : edges) {
+				double cog = 0.0;
+				for (int v : edge) {
+					cog += pos[v];
+				}
+				cog /= edge.length;
+				for (int v : edge) {
+					cogSum[v] += cog;
+					cogCount[v]++;
+				}
+			}
+			double[] newPos = new double[numVars];
+			for (int v = 0; v < numVars; v++) {
+				newPos[v] = cogCount[v] > 0 ? cogSum[v] / cogCount[v] : pos[v];
+			}
+			// Replace positions with ranks (ties broken by previous position)
+			int[] ranked = sortByPosition(newPos, pos);
+			boolean changed = false;
+			for (int i = 0; i < numVars; i++) {
+				if (pos[ranked[i]] != i)
+					changed = true;
+				newPos[ranked[i]] = i;
+			}
+			if (!changed)
+				break;
+			pos = newPos;
+			long span = getSpan(realise(pos));
+			if (span < bestSpan) {
+				bestSpan = span;
+				best = pos.clone();
+				stalls = 0;
+			} else {
+				stalls++;
+			}
+		}
+		return realise(best);
+	}
+
+	/**
+	 * Compute a variable order by greedily placing next the variable most strongly
+	 * coupled to those already placed, where the coupling between two variables
+	 * is the number of edges containing both (each weighted by 1/(size-1)),
+	 * starting with the most strongly coupled variable overall.
+	 * The result is realised as described for {@link #realise(double[])}.
+	 */
+	public int[] coupling()
+	{
+		double[][] weight = new double[numVars][numVars];
+		double[] total = new double[numVars];
+		for (int[] edge : edges) {
+			double w = 1.0 / (edge.length - 1);
+			for (int u : edge) {
+				for (int v : edge) {
+					if (u != v) {
+						weight[u][v] += w;
+						total[u] += w;
+					}
+				}
+			}
+		}
+		double[] pos = new double[numVars];
+		boolean[] placed = new boolean[numVars];
+		double[] attraction = new double[numVars];
+		for (int i = 0; i < numVars; i++) {
+			double[] score = (i == 0) ? total : attraction;
+			int next = -1;
+			for (int v = 0; v < numVars; v++) {
+				if (!placed[v] && (next == -1 || score[v] > score[next]))
+					next = v;
+			}
+			pos[next] = i;
+			placed[next] = true;
+			for (int v = 0; v < numVars; v++) {
+				attraction[v] += weight[next][v];
+			}
+		}
+		return realise(pos);
+	}
+
+	/**
+	 * Convert (possibly fractional) positions for each variable into a variable
+	 * order that can be applied to the model: global variables first, sorted by position;
+	 * then modules, sorted by the mean position of their variables (any modules
+	 * with no variables last); and the variables of each module sorted by position.
+	 * Ties are broken by the existing order of the model.
+	 */
+	public int[] realise(double[] pos)
+	{
+		int numModules = modulesFile.getNumModules();
+		final double[] modulePos = new double[numModules];
+		int[] moduleSize = new int[numModules];
+		for (int v = 0; v < numVars; v++) {
+			int m = varList.getModule(v);
+			if (m >= 0) {
+				modulePos[m] += pos[v];
+				moduleSize[m]++;
+			}
+		}
+		for (int m = 0; m < numModules; m++) {
+			modulePos[m] = moduleSize[m] > 0 ? modulePos[m] / moduleSize[m] : Double.POSITIVE_INFINITY;
+		}
+		// Sort key for each variable: (module position, variable position)
+		// (using module position -infinity for globals)
+		final double[] major = new double[numVars];
+		final double[] minor = pos;
+		for (int v = 0; v < numVars; v++) {
+			int m = varList.getModule(v);
+			major[v] = m >= 0 ? modulePos[m] : Double.NEGATIVE_INFINITY;
+		}
+		Integer[] order = new Integer[numVars];
+		for (int v = 0; v < numVars; v++) {
+			order[v] = v;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer v1, Integer v2)
+			{
+				int res = Double.compare(major[v1], major[v2]);
+				if (res == 0)
+					res = Integer.compare(varList.getModule(v1), varList.getModule(v2));
+				if (res == 0)
+					res = Double.compare(minor[v1], minor[v2]);
+				if (res == 0)
+					res = Integer.compare(v1, v2);
+				return res;
+			}
+		});
+		int[] res = new int[numVars];
+		for (int i = 0; i < numVars; i++) {
+			res[i] = order[i];
+		}
+		return res;
+	}
+
+	/**
+	 * Get the total span of the edges of the dependency graph for a variable order,
+	 * measured in MTBDD levels (i.e., taking into account the number of bits for each variable,
+	 * but ignoring the interleaved row/column variables).
+	 */
+	public long getSpan(int[] order)
+	{
+		int[] start = new int[numVars];
+		int[] end = new int[numVars];
+		int level = 0;
+		for (int v : order) {
+			start[v] = level;
+			level += varList.getRangeLogTwo(v);
+			end[v] = Math.max(level - 1, start[v]);
+		}
+		long span = 0;
+		for (int[] edge : edges) {
+			int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+			for (int v : edge) {
+				min = Math.min(min, start[v]);
+				max = Math.max(max, end[v]);
+			}
+			span += max - min;
+		}
+		return span;
+	}
+
+	/**
+	 * Get the names of the variables, in a given order.
+	 */
+	public List<String> getVarNames(int[] order)
+	{
+		List<String> names = new ArrayList<>(numVars);
+		for (int v : order) {
+			names.add(varList.getName(v));
+		}
+		return names;
+	}
+
+	/**
+	 * Create a copy of the model with its variables in the given order,
+	 * which should have been produced by {@link #realise(double[])}.
+	 * Returns the model itself if the order is unchanged.
+	 */
+	public ModulesFile apply(int[] order) throws PrismException
+	{
+		boolean changed = false;
+		for (int i = 0; i < numVars; i++) {
+			if (order[i] != i)
+				changed = true;
+		}
+		if (!changed)
+			return modulesFile;
+
+		ModulesFile mf = (ModulesFile) modulesFile.deepCopy();
+		int numModules = mf.getNumModules();
+		// Find declarations (in the copy) and new positions of modules
+		Map<String, Declaration> decls = new HashMap<>();
+		for (int g = 0; g < mf.getNumGlobals(); g++) {
+			decls.put(mf.getGlobal(g).getName(), mf.getGlobal(g));
+		}
+		Module[] modules = new Module[numModules];
+		for (int m = 0; m < numModules; m++) {
+			modules[m] = mf.getModule(m);
+			for (Declaration decl : modules[m].getDeclarations()) {
+				decls.put(decl.getName(), decl);
+			}
+		}
+		List<Integer> moduleOrder = new ArrayList<>();
+		int[] numDecls = new int[numModules];
+		int numGlobals = 0;
+		for (int v : order) {
+			int m = varList.getModule(v);
+			Declaration decl = decls.get(varList.getName(v));
+			if (m < 0) {
+				mf.setGlobal(numGlobals++, decl);
+			} else {
+				if (numDecls[m] == 0)
+					moduleOrder.add(m);
+				modules[m].setDeclaration(numDecls[m]++, decl);
+			}
+		}
+		// Modules without variables go last
+		for (int m = 0; m < numModules; m++) {
+			if (!moduleOrder.contains(m))
+				moduleOrder.add(m);
+		}
+		for (int i = 0; i < numModules; i++) {
+			mf.setModule(i, modules[moduleOrder.get(i)]);
+		}
+
+		// Re-do variable indexing etc. and constant values
+		mf.tidyUp();
+		if (!mf.getUndefinedConstants().isEmpty())
+			mf.setUndefinedConstants(modulesFile.getUndefinedConstantValues());
+		return mf;
+	}
+
+	/**
+	 * Sort variables by position, breaking ties by a second position and then index.
+	 */
+	private int[] sortByPosition(final double[] pos, final double[] pos2)
+	{
+		Integer[] vars = new Integer[numVars];
+		for (int v = 0; v < numVars; v++) {
+			vars[v] = v;
+		}
+		Arrays.sort(vars, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer v1, Integer v2)
+			{
+				int res = Double.compare(pos[v1], pos[v2]);
+				if (res == 0)
+					res = Double.compare(pos2[v1], pos2[v2]);
+				if (res == 0)
+					res = Integer.compare(v1, v2);
+				return res;
+			}
+		});
+		int[] res = new int[numVars];
+		for (int i = 0; i < numVars; i++) {
+			res[i] = vars[i];
+		}
+		return res;
+	}
+}
@@ -211,4 +211,10 @@ public abstract class DefaultModelGenerator implements ModelGenerator
 	{
 		return 0.0;
 	}
+
+	@Override
+	public ModelGenerator createCopy() throws PrismException
+	{
+		throw new PrismNotSupportedException("This model generator cannot be copied");
+	}
 }
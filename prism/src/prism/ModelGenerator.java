@@ -147,6 +147,13 @@ public interface ModelGenerator extends ModelInfo
 	 */
 	public double getStateReward(int index, State state) throws PrismException;
 
+	/**
+	 * Create a new, independent copy of this model generator, i.e. one that generates the same model
+	 * and which can be used concurrently with this one (e.g. from a different thread).
+	 * Throws a {@link PrismNotSupportedException} if this is not supported. 
+	 */
+	public ModelGenerator createCopy() throws PrismException;
+
 	// TODO: can we remove this?
 	public VarList createVarList();
 }
@@ -117,6 +117,10 @@ public class Modules2MTBDD
 	private int numModulesAfterSymm; // number of modules in the PRISM file after the symmetric ones
 	private int numSymmModules; // number of symmetric components
 
+	// variable ordering options
+	private String ddVarOrder; // heuristic used to reorder variables ("Default" means as in model file)
+	private boolean ddSift; // improve the variable order by sifting?
+
 	// hidden option - do we also store each part of the transition matrix separately? (now defunct)
 	private boolean storeTransParts = false;
 	// hidden option - do we also store action info for the transition matrix? (supersedes the above)
@@ -166,6 +170,9 @@ public class Modules2MTBDD
 		// get symmetry reduction info
 		String s = prism.getSettings().getString(PrismSettings.PRISM_SYMM_RED_PARAMS);
 		doSymmetry = !(s == null || s == "");
+		// get variable ordering options
+		ddVarOrder = prism.getSettings().getString(PrismSettings.PRISM_DD_VAR_ORDER);
+		ddSift = prism.getSettings().getBoolean(PrismSettings.PRISM_DD_SIFT);
 	}
 
 	@SuppressWarnings("unchecked") // for clone of vector in translate()
@@ -177,6 +184,18 @@ public class Modules2MTBDD
 		JDDNode tmp, tmp2;
 		JDDVars ddv;
 		int i;
+		boolean reordered = false;
+
+		// if required, choose a new order for the model's variables
+		// (by building from a copy of the model with its variables rearranged)
+		if (!"Default".equals(ddVarOrder) || ddSift) {
+			if (doSymmetry) {
+				mainLog.printWarning("MTBDD variable reordering is not available with symmetry reduction");
+			} else {
+				modulesFile = chooseVarOrder(modulesFile);
+				reordered = true;
+			}
+		}
 
 		// get variable info from ModulesFile
 		varList = modulesFile.createVarList();
@@ -304,6 +323,10 @@ public class Modules2MTBDD
 		// find/fix any deadlocks
 		model.findDeadlocks(prism.getFixDeadlocks());
 
+		if (reordered) {
+			mainLog.println("Transition matrix (reordered variables): " + JDD.GetNumNodes(model.getTrans()) + " nodes");
+		}
+
 		// deref spare dds
 		globalDDRowVars.derefAll();
 		globalDDColVars.derefAll();
@@ -340,6 +363,148 @@ public class Modules2MTBDD
 		return model;
 	}
 
+	/**
+	 * Choose an order for the variables of a model, using a static heuristic
+	 * and/or sifting, and return a copy of the model with its variables in that order.
+	 */
+	private ModulesFile chooseVarOrder(ModulesFile mf) throws PrismException
+	{
+		DDVarOrdering ordering = new DDVarOrdering(mf);
+		int[] order = ordering.getDefaultOrder();
+
+		// static heuristics
+		if (!"Default".equals(ddVarOrder)) {
+			long spanBefore = ordering.getSpan(order);
+			if ("FORCE".equals(ddVarOrder)) {
+				order = ordering.force();
+			} else if ("Coupling".equals(ddVarOrder)) {
+				order = ordering.coupling();
+			} else {
+				throw new PrismException("Unknown MTBDD variable ordering heuristic \"" + ddVarOrder + "\"");
+			}
+			mainLog.print("\nVariable ordering (" + ddVarOrder + "): ");
+			mainLog.print("dependency span " + spanBefore + " -> " + ordering.getSpan(order) + " MTBDD levels");
+			mainLog.println("FORCE".equals(ddVarOrder) ? " (" + ordering.getForceIterations() + " iterations)" : "");
+			mf = ordering.apply(order);
+		}
+
+		// sifting: build the model with the current order, sift its MTBDDs, then undo
+		if (ddSift) {
+			mainLog.println("\nBuilding model to find MTBDD variable ordering by sifting...");
+			Modules2MTBDD mod2mtbdd = new Modules2MTBDD(prism, mf);
+			mod2mtbdd.ddVarOrder = "Default";
+			mod2mtbdd.ddSift = false;
+			Model model = mod2mtbdd.translate();
+			double[] pos = siftVars(model);
+			JDD.ResetVarOrder();
+			ordering = new DDVarOrdering(mf);
+			order = ordering.realise(pos);
+			mf = ordering.apply(order);
+		}
+
+		mainLog.println("Variable order: " + ordering.getVarNames(order));
+		return mf;
+	}
+
+	/**
+	 * Sift the MTBDD variables of a model and return the resulting position of each model variable.
+	 * Sifting is restricted so that the result can be realised by rearranging the model:
+	 * the dd vars for each variable are kept together and in order, the globals stay before
+	 * the module variables, and the variables of each module stay together.
+	 * Only the transition matrix is sifted: the model is cleared first (and the
+	 * dd vars are left permuted, so should be reset with JDD.ResetVarOrder() afterwards).
+	 */
+	private double[] siftVars(Model model)
+	{
+		JDDVars[] varDDRowVars = model.getVarDDRowVars();
+		JDDVars[] varDDColVars = model.getVarDDColVars();
+		VarList vl = model.getVarList();
+		int n = model.getNumVars();
+		int nm = model.getNumModules();
+		int[] low = new int[n];
+		int[] high = new int[n];
+		double[] pos = new double[n];
+		long l;
+
+		// find range of dd var indices for each variable (row/col vars are contiguous)
+		for (int i = 0; i < n; i++) {
+			low[i] = Integer.MAX_VALUE;
+			high[i] = -1;
+			for (int j = 0; j < varDDRowVars[i].n(); j++) {
+				low[i] = Math.min(low[i], Math.min(varDDRowVars[i].getVarIndex(j), varDDColVars[i].getVarIndex(j)));
+				high[i] = Math.max(high[i], Math.max(varDDRowVars[i].getVarIndex(j), varDDColVars[i].getVarIndex(j)));
+			}
+		}
+		// create groups, outermost first: everything up to the last variable (fixed, so that nondet vars
+		// and globals stay in place), globals, all modules, each module, each variable (fixed)
+		int[] globalRange = getVarRange(vl, low, high, -1, -1);
+		int[] modulesRange = getVarRange(vl, low, high, 0, nm - 1);
+		int[] allRange = getVarRange(vl, low, high, -1, nm - 1);
+		if (allRange == null) {
+			model.clear();
+			return pos;
+		}
+		makeVarGroup(0, allRange[1], true);
+		if (globalRange != null)
+			makeVarGroup(globalRange[0], globalRange[1], false);
+		if (modulesRange != null)
+			makeVarGroup(modulesRange[0], modulesRange[1], false);
+		for (int m = 0; m < nm; m++) {
+			int[] moduleRange = getVarRange(vl, low, high, m, m);
+			if (moduleRange != null)
+				makeVarGroup(moduleRange[0], moduleRange[1], false);
+		}
+		for (int i = 0; i < n; i++) {
+			if (high[i] >= 0)
+				makeVarGroup(low[i], high[i], true);
+		}
+
+		JDDNode trans = model.getTrans().copy();
+		model.clear();
+		int before = JDD.GetNumNodes(trans);
+		l = System.currentTimeMillis();
+		JDD.ReorderSift();
+		l = System.currentTimeMillis() - l;
+		mainLog.print("Sifting: transition matrix " + before + " -> " + JDD.GetNumNodes(trans) + " nodes");
+		mainLog.println(" (" + l / 1000.0 + " seconds)");
+		JDD.FreeVarGroups();
+		JDD.Deref(trans);
+
+		// variables with no dd vars stay just after the preceding one
+		for (int i = 0; i < n; i++) {
+			if (high[i] >= 0) {
+				pos[i] = JDD.GetVarLevel(low[i]);
+			} else {
+				pos[i] = (i > 0 ? pos[i - 1] : -1) + 0.5;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Get the range of dd var indices used by the variables in modules {@code m1}...{@code m2}
+	 * (where -1 denotes globals), or null if there are none.
+	 */
+	private int[] getVarRange(VarList vl, int[] low, int[] high, int m1, int m2)
+	{
+		int[] range = null;
+		for (int i = 0; i < low.length; i++) {
+			int m = vl.getModule(i);
+			if (m >= m1 && m <= m2 && high[i] >= 0) {
+				if (range == null)
+					range = new int[] { low[i], high[i] };
+				range[0] = Math.min(range[0], low[i]);
+				range[1] = Math.max(range[1], high[i]);
+			}
+		}
+		return range;
+	}
+
+	private void makeVarGroup(int low, int high, boolean fixed)
+	{
+		JDD.MakeVarGroup(low, high - low + 1, fixed);
+	}
+
 	// allocate DD vars for system
 	// i.e. decide on variable ordering and request variables from CUDD
 
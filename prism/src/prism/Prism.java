@@ -26,6 +26,7 @@
 
 package prism;
 
+import automata.LTL2DA;
 import hybrid.PrismHybrid;
 
 import java.io.ByteArrayInputStream;
@@ -50,12 +51,16 @@ import parser.PrismParser;
 import parser.State;
 import parser.Values;
 import parser.ast.Expression;
+import parser.ast.ExpressionProb;
+import parser.ast.ExpressionReward;
 import parser.ast.ForLoop;
 import parser.ast.LabelList;
 import parser.ast.ModulesFile;
 import parser.ast.PropertiesFile;
 import parser.ast.Property;
 import parser.type.TypeBool;
+import parser.type.TypePathBool;
+import parser.visitor.ASTTraverse;
 import pta.DigitalClocks;
 import pta.PTAModelChecker;
 import simulator.GenerateSimulationPath;
@@ -72,6 +77,8 @@ import explicit.DTMC;
 import explicit.DTMCModelChecker;
 import explicit.FastAdaptiveUniformisation;
 import explicit.FastAdaptiveUniformisationModelChecker;
+import explicit.LTLModelChecker;
+import explicit.OnTheFlyLTLModelChecker;
 
 /**
  * Main class for all PRISM's core functionality.
@@ -118,6 +125,7 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 	public static final int BSOR = 9;
 	public static final int PSOR = 10;
 	public static final int BPSOR = 11;
+	public static final int TOPOLOGICAL = 12;
 
 	// methods for solving MDPs
 	public static final int MDP_VALITER = 1;
@@ -125,6 +133,7 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 	public static final int MDP_POLITER = 3;
 	public static final int MDP_MODPOLITER = 4;
 	public static final int MDP_LP = 5;
+	public static final int MDP_TOPOLOGICAL = 6;
 
 	// methods for solving multi-objective queries on MDPs
 	public static final int MDP_MULTI_VALITER = 1;
@@ -201,6 +210,8 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 	protected boolean genStrat = false;
 	// Do bisimulation minimisation before model checking?
 	protected boolean doBisim = false;
+	// Solutions kept across model checking runs, to warm-start the explicit engine (optional)
+	protected explicit.WarmStart warmStart = null;
 
 	// A few miscellaneous options (i.e. defunct/hidden/undocumented/etc.)
 	// See constructor below for default values
@@ -590,6 +601,18 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		this.storeVector = storeVector;
 	}
 
+	/**
+	 * Specify solutions to be kept across calls to {@link #modelCheck(PropertiesFile, Property)}
+	 * and used to warm-start numerical computations in the explicit engine,
+	 * e.g. when checking the same property for a range of property constant values;
+	 * or null (the default) to start from scratch each time.
+	 * Call {@link explicit.WarmStart#startStep()} before each call to modelCheck. 
+	 */
+	public void setWarmStart(explicit.WarmStart warmStart)
+	{
+		this.warmStart = warmStart;
+	}
+
 	/**
 	 * Specify whether or not a strategy should be generated during model checking.
 	 */
@@ -2742,6 +2765,60 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 			tmpLog.close();
 	}
 
+	/**
+	 * Translate the LTL formulas in some properties to deterministic automata in advance, in parallel,
+	 * if an external LTL->DA tool is being used, so that model checking the properties
+	 * (e.g. many times, for a range of constant values) finds the automata in the LTL->DA cache.
+	 * This is just an optimisation, so any problems are only reported as warnings.
+	 * @param props The properties to be checked
+	 */
+	public void precomputeLTLAutomata(List<Property> props)
+	{
+		String ltl2daTool = settings.getString(PrismSettings.PRISM_LTL2DA_TOOL);
+		if (ltl2daTool == null || ltl2daTool.isEmpty() || currentModelType == null) {
+			return;
+		}
+		try {
+			// Collect the LTL formulas of (non-simple) path formulas in P/R operators,
+			// with maximal state formulas replaced by labels, as for model checking
+			final List<Expression> ltls = new ArrayList<Expression>();
+			final LTLModelChecker mcLtl = new LTLModelChecker(this);
+			final boolean nondet = currentModelType.nondeterministic();
+			for (Property prop : props) {
+				prop.getExpression().accept(new ASTTraverse()
+				{
+					public void visitPost(ExpressionProb e) throws PrismLangException
+					{
+						addLTL(e.getExpression(), nondet && (e.getRelOp().isMin() || e.getRelOp().isLowerBound()));
+					}
+
+					public void visitPost(ExpressionReward e) throws PrismLangException
+					{
+						addLTL(e.getExpression(), false);
+					}
+
+					private void addLTL(Expression path, boolean negate) throws PrismLangException
+					{
+						if (path == null || !(path.getType() instanceof TypePathBool) || path.isSimplePathFormula()) {
+							return;
+						}
+						if (negate) {
+							path = Expression.Not(Expression.Parenth(path));
+						}
+						try {
+							ltls.add(mcLtl.extractMaximalStateFormulas(path.deepCopy(), new ArrayList<Expression>()));
+						} catch (PrismException e) {
+							throw new PrismLangException(e.getMessage());
+						}
+					}
+				});
+			}
+			new LTL2DA(this).precomputeWithExternalTool(ltls);
+		} catch (PrismException e) {
+			mainLog.printWarning("Could not translate LTL formulas in advance: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Perform model checking of a property on the currently loaded model and return result.
 	 * @param propertiesFile Parent property file of property (for labels/constants/...)
@@ -2798,8 +2875,25 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 				lastEngine = getEngine();
 				setEngine(Prism.EXPLICIT);
 			}
+		} else if ((currentModelType == ModelType.DTMC || currentModelType == ModelType.CTMC) && getLinEqMethod() == Prism.TOPOLOGICAL) {
+			if (!getExplicit()) {
+				mainLog.printWarning("Switching to explicit engine to allow use of chosen linear equation solution method.");
+				engineSwitch = true;
+				lastEngine = getEngine();
+				setEngine(Prism.EXPLICIT);
+			}
 		}
 		try {
+			// For LTL properties, if requested (and possible), explore the product on the fly
+			// rather than building the model (explicit engine only)
+			if (getExplicit() && settings.getBoolean(PrismSettings.PRISM_LTL_ON_THE_FLY) && currentModelSource == ModelSource.PRISM_MODEL) {
+				OnTheFlyLTLModelChecker otfMC = new OnTheFlyLTLModelChecker(this, currentModulesFile, propertiesFile);
+				if (otfMC.isSupported(prop.getExpression())) {
+					return otfMC.check(prop.getExpression());
+				}
+				mainLog.println("\nProperty not supported by on-the-fly LTL model checking; building model instead...");
+			}
+
 			// Build model, if necessary
 			buildModelIfRequired();
 
@@ -3359,7 +3453,8 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		else {
 			buildModelIfRequired();
 			if (currentModelType == ModelType.DTMC) {
-				throw new PrismException("Not implemented yet");
+				DTMCModelChecker mcDTMC = new DTMCModelChecker(this);
+				probsExpl = mcDTMC.doTransient((DTMC) currentModelExpl, (int) time, fileIn);
 			} else if (currentModelType == ModelType.CTMC) {
 				CTMCModelChecker mcCTMC = new CTMCModelChecker(this);
 				probsExpl = mcCTMC.doTransient((CTMC) currentModelExpl, time, fileIn);
@@ -3426,6 +3521,12 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		if (exportType == EXPORT_ROWS)
 			exportType = EXPORT_PLAIN; // rows format does not apply to states output
 
+		// Explicit engine, DTMCs: compute all time points in a single pass
+		if (getExplicit() && currentModelType == ModelType.DTMC) {
+			doTransientExplicitDTMC(times, exportType, fileOut, fileIn);
+			return;
+		}
+
 		// Step through required time points
 		for (i = 0; i < times.getNumPropertyIterations(); i++) {
 
@@ -3475,19 +3576,15 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 					probs = mc.doTransient(timeInt - initTimeInt, initDist);
 				}
 			}
-			// Explicit
+			// Explicit (CTMCs only; DTMCs are handled by doTransientExplicitDTMC above)
 			else {
 				buildModelIfRequired();
-				if (currentModelType.continuousTime()) {
-					CTMCModelChecker mc = new CTMCModelChecker(this);
-					if (i == 0) {
-						initDistExpl = mc.readDistributionFromFile(fileIn, currentModelExpl);
-						initTimeDouble = 0;
-					}
-					probsExpl = mc.doTransient((CTMC) currentModelExpl, timeDouble - initTimeDouble, initDistExpl);
-				} else {
-					throw new PrismException("Not implemented yet");
+				CTMCModelChecker mc = new CTMCModelChecker(this);
+				if (i == 0) {
+					initDistExpl = mc.readDistributionFromFile(fileIn, currentModelExpl);
+					initTimeDouble = 0;
 				}
+				probsExpl = mc.doTransient((CTMC) currentModelExpl, timeDouble - initTimeDouble, initDistExpl);
 			}
 
 			l = System.currentTimeMillis() - l;
@@ -3537,6 +3634,72 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 			tmpLog.close();
 	}
 
+	/**
+	 * Compute transient probabilities (forwards) for the current model (a DTMC, explicit engine)
+	 * for a range of time points, as for {@link #doTransient(UndefinedConstants, int, File, File)},
+	 * but computing all of the distributions in a single pass.
+	 */
+	private void doTransientExplicitDTMC(UndefinedConstants times, final int exportType, final File fileOut, File fileIn) throws PrismException
+	{
+		int i, ks[];
+		final int numTimes;
+		final long timer[] = new long[1];
+
+		// Get time points, check non-negative
+		numTimes = times.getNumPropertyIterations();
+		ks = new int[numTimes];
+		for (i = 0; i < numTimes; i++) {
+			ks[i] = ((Integer) times.getPFConstantValues().getValue(0)).intValue();
+			if (ks[i] < 0)
+				throw new PrismException("Cannot compute transient probabilities for negative time value");
+			times.iterateProperty();
+		}
+
+		// Compute distributions, printing out/exporting each one as soon as it is available
+		buildModelIfRequired();
+		final DTMCModelChecker mc = new DTMCModelChecker(this);
+		explicit.StateValues initDistExpl = mc.readDistributionFromFile(fileIn, currentModelExpl);
+		timer[0] = System.currentTimeMillis();
+		mc.doTransient((DTMC) currentModelExpl, ks, initDistExpl, new DTMCModelChecker.TransientProbsHandler()
+		{
+			@Override
+			public void handle(int k, double probs[]) throws PrismException
+			{
+				long l = System.currentTimeMillis() - timer[0];
+				File fileOutActual;
+				PrismLog tmpLog;
+
+				mainLog.printSeparator();
+				mainLog.println("\nComputed transient probabilities (time = " + k + ")");
+
+				// If output is to a file and there are multiple points, change filename
+				if (fileOut != null && numTimes > 1) {
+					fileOutActual = new File(PrismUtils.addSuffixToFilename(fileOut.getPath(), Integer.toString(k)));
+				} else {
+					fileOutActual = fileOut;
+				}
+
+				// print message
+				mainLog.print("\nPrinting transient probabilities ");
+				mainLog.print(getStringForExportType(exportType) + " ");
+				mainLog.println(getDestinationStringForFile(fileOutActual));
+
+				// create new file log or use main log
+				tmpLog = getPrismLogForFile(fileOutActual);
+
+				// print out or export probabilities
+				explicit.StateValues probsExpl = explicit.StateValues.createFromDoubleArray(probs, currentModelExpl);
+				probsExpl.print(tmpLog, fileOut == null, exportType == EXPORT_MATLAB, fileOut == null, true);
+				if (fileOut != null)
+					tmpLog.close();
+
+				// print out computation time (since the previous time point)
+				mainLog.println("\nTime for transient probability computation: " + l / 1000.0 + " seconds.");
+				timer[0] = System.currentTimeMillis();
+			}
+		});
+	}
+
 	public void explicitBuildTest()
 	{
 		/* old code...
@@ -3605,6 +3768,8 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		PrismSparse.closeDown();
 		PrismHybrid.closeDown();
 		ParamModelChecker.closeDown();
+		// Stop any threads used for parallel computation
+		settings.shutdownThreadPool();
 		// Close down CUDD/JDD
 		if (cuddStarted) {
 			JDD.CloseDownCUDD(check);
@@ -3657,6 +3822,7 @@ public class Prism extends PrismComponent implements PrismSettingsListener
 		mc.setStoreVector(storeVector);
 		mc.setGenStrat(genStrat);
 		mc.setDoBisim(doBisim);
+		mc.setWarmStart(warmStart);
 
 		return mc;
 	}
@@ -282,6 +282,11 @@ public class PrismCL implements PrismModelListener
 			results[i] = new ResultsCollection(undefinedConstants[i], propertiesToCheck.get(i).getExpression().getResultName());
 		}
 
+		// if an external LTL->DA tool is used, translate any LTL formulas up front (in parallel)
+		if (numPropertiesToCheck > 0 && !simulate) {
+			prism.precomputeLTLAutomata(propertiesToCheck);
+		}
+
 		// iterate through as many models as necessary
 		for (i = 0; i < undefinedMFConstants.getNumModelIterations(); i++) {
 
@@ -356,6 +361,16 @@ public class PrismCL implements PrismModelListener
 				}
 				// otherwise, treat each case individually
 				else {
+					// if required, start each case from the solution of the previous one
+					// (only property constants change here, so the model is the same;
+					// this is only sound if Prob0 precomputation is done)
+					explicit.WarmStart warmStart = null;
+					if (!simulate && !param && prism.getSettings().getBoolean(PrismSettings.PRISM_WARM_START)
+							&& prism.getSettings().getBoolean(PrismSettings.PRISM_PRECOMPUTATION) && prism.getSettings().getBoolean(PrismSettings.PRISM_PROB0)
+							&& undefinedConstants[j].getNumPropertyIterations() > 1) {
+						warmStart = new explicit.WarmStart();
+					}
+					prism.setWarmStart(warmStart);
 					for (k = 0; k < undefinedConstants[j].getNumPropertyIterations(); k++) {
 
 						try {
@@ -366,7 +381,11 @@ public class PrismCL implements PrismModelListener
 							}
 							// Normal model checking
 							if (!simulate && !param) {
+								if (warmStart != null)
+									warmStart.startStep();
 								res = prism.modelCheck(propertiesFile, propertiesToCheck.get(j));
+								if (warmStart != null)
+									warmStart.printStepInfo(mainLog);
 							}
 							// Parametric model checking
 							else if (param) {
@@ -447,6 +466,7 @@ public class PrismCL implements PrismModelListener
 						// iterate to next property
 						undefinedConstants[j].iterateProperty();
 					}
+					prism.setWarmStart(null);
 				}
 
 				// in case of build failure during model checking, store as result for any further properties and continue
@@ -2237,6 +2257,8 @@ public class PrismCL implements PrismModelListener
 		mainLog.println("-simvar <n> .................... Set the minimum number of samples to know the variance is null or not");
 		mainLog.println("-simmaxrwd <x> ................. Set the maximum reward -- useful to display the CI/ACI methods progress");
 		mainLog.println("-simpathlen <n> ................ Set the maximum path length for the simulator");
+		mainLog.println("-simseed <n> ................... Set the seed for the simulator's random number generator (0 means random)");
+		mainLog.println("-simpathspill <n> .............. Keep at most <n> steps of full simulation paths in memory, spilling older ones to disk");
 
 		mainLog.println();
 		mainLog.println("You can also use \"prism -help xxx\" for help on some switches -xxx with non-obvious syntax.");
@@ -2268,6 +2290,7 @@ public class PrismCL implements PrismModelListener
 		else if (sw.equals("simpath")) {
 			mainLog.println("Switch: -simpath <options> <file>\n");
 			mainLog.println("Generate a random path with the simulator and export it to <file> (or to the screen if <file>=\"stdout\").");
+			mainLog.println("If <file> ends in \".gz\", the exported path is gzip-compressed.");
 			mainLog.println("<options> is a comma-separated list of options taken from:");
 			GenerateSimulationPath.printOptions(mainLog);
 		}
@@ -29,6 +29,7 @@
 package prism;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.io.*;
 import java.awt.*;
 
@@ -89,9 +90,12 @@ public class PrismSettings implements Observer
 	public static final String PRISM_TERM_CRIT = "prism.termCrit";//"prism.termination";
 	public static final String PRISM_TERM_CRIT_PARAM = "prism.termCritParam";//"prism.terminationEpsilon";
 	public static final String PRISM_MAX_ITERS = "prism.maxIters";//"prism.maxIterations";
+	public static final String PRISM_WARM_START = "prism.warmStart";
 
 	public static final String PRISM_CUDD_MAX_MEM = "prism.cuddMaxMem";
 	public static final String PRISM_CUDD_EPSILON = "prism.cuddEpsilon";
+	public static final String PRISM_DD_VAR_ORDER = "prism.ddVarOrder";
+	public static final String PRISM_DD_SIFT = "prism.ddSift";
 	public static final String PRISM_NUM_SB_LEVELS = "prism.numSBLevels";//"prism.hybridNumLevels";
 	public static final String PRISM_SB_MAX_MEM = "prism.SBMaxMem";//"prism.hybridMaxMemory";
 	public static final String PRISM_NUM_SOR_LEVELS = "prism.numSORLevels";//"prism.hybridSORLevels";
@@ -103,10 +107,16 @@ public class PrismSettings implements Observer
 	public static final String PRISM_SYMM_RED_PARAMS = "prism.symmRedParams";
 	public static final String PRISM_EXACT_ENABLED = "prism.exact.enabled";
 	public static final String PRISM_PTA_METHOD = "prism.ptaMethod";
+	public static final String PRISM_PTA_ZONE_STORAGE = "prism.ptaZoneStorage";
 	public static final String PRISM_TRANSIENT_METHOD = "prism.transientMethod";
+	public static final String PRISM_STATE_STORAGE = "prism.stateStorage";
+	public static final String PRISM_NUM_THREADS = "prism.numThreads";
+	public static final String PRISM_EXPLICIT_SCC_METHOD = "prism.explicitSCCMethod";
+	public static final String PRISM_EXPLICIT_MEC_METHOD = "prism.explicitMECMethod";
 	public static final String PRISM_AR_OPTIONS = "prism.arOptions";
 	public static final String PRISM_PATH_VIA_AUTOMATA = "prism.pathViaAutomata";
 	public static final String PRISM_NO_DA_SIMPLIFY = "prism.noDaSimplify";
+	public static final String PRISM_LTL_ON_THE_FLY = "prism.ltlOnTheFly";
 	public static final String PRISM_EXPORT_ADV = "prism.exportAdv";
 	public static final String PRISM_EXPORT_ADV_FILENAME = "prism.exportAdvFilename";
 
@@ -116,6 +126,7 @@ public class PrismSettings implements Observer
 
 	public static final String PRISM_LTL2DA_TOOL = "prism.ltl2daTool";
 	public static final String PRISM_LTL2DA_SYNTAX = "prism.ltl2daSyntax";
+	public static final String PRISM_LTL2DA_CACHE_DIR = "prism.ltl2daCacheDir";
 
 	public static final String PRISM_JDD_SANITY_CHECKS = "prism.ddsanity";
 
@@ -149,6 +160,8 @@ public class PrismSettings implements Observer
 	public static final String SIMULATOR_NEW_PATH_ASK_VIEW = "simulator.newPathAskView";
 	public static final String SIMULATOR_RENDER_ALL_VALUES = "simulator.renderAllValues";
 	public static final String SIMULATOR_NETWORK_FILE = "simulator.networkFile";
+	public static final String SIMULATOR_SEED = "simulator.seed";
+	public static final String SIMULATOR_PATH_SPILL_STEPS = "simulator.pathSpillSteps";
 
 	//GUI Model
 	public static final String MODEL_AUTO_PARSE = "model.autoParse";
@@ -213,16 +226,26 @@ public class PrismSettings implements Observer
 
 			{ CHOICE_TYPE, PRISM_PTA_METHOD, "PTA model checking method", "3.3", "Stochastic games", "Digital clocks,Stochastic games,Backwards reachability",
 					"Which method to use for model checking of PTAs." },
+			{ CHOICE_TYPE, PRISM_PTA_ZONE_STORAGE, "PTA zone storage", "4.3.1", "Inclusion", "Exact,Inclusion,Inclusion with replacement",
+					"How zones are stored during forwards reachability for PTAs (inclusion checking discards zones subsumed by existing ones, and optionally replaces unexplored zones subsumed by new ones)." },
 			{ CHOICE_TYPE, PRISM_TRANSIENT_METHOD, "Transient probability computation method", "3.3", "Uniformisation",
 					"Uniformisation,Fast adaptive uniformisation", "Which method to use for computing transient probabilities in CTMCs." },
+			{ CHOICE_TYPE, PRISM_STATE_STORAGE, "Explicit state storage", "4.3.1", "Sorted set", "Sorted set,Packed hash table",
+					"Data structure used to store reachable states during explicit-state model construction (a packed hash table needs much less memory but requires all variables to be bounded)." },
+			{ INTEGER_TYPE, PRISM_NUM_THREADS, "Number of threads", "4.3.1", new Integer(1), "1,",
+					"Number of threads to use for computations that can be parallelised in the explicit engine, e.g. model construction and value iteration, for generating sample paths in the simulator, and for parametric state elimination." },
+			{ CHOICE_TYPE, PRISM_EXPLICIT_SCC_METHOD, "Explicit SCC decomposition method", "4.3.1", "Iterative Tarjan", "Tarjan,Iterative Tarjan",
+					"Which algorithm to use for decomposition of a graph into strongly connected components (SCCs) in the explicit engine (the iterative version avoids deep recursion on large models)." },
+			{ CHOICE_TYPE, PRISM_EXPLICIT_MEC_METHOD, "Explicit MEC decomposition method", "4.3.1", "Incremental", "Basic,Incremental",
+					"Which algorithm to use for computing maximal end components (MECs) in the explicit engine (the incremental version only re-splits components affected by removed choices)." },
 			// NUMERICAL SOLUTION OPTIONS:
 			{ CHOICE_TYPE, PRISM_LIN_EQ_METHOD, "Linear equations method", "2.1", "Jacobi",
-					"Power,Jacobi,Gauss-Seidel,Backwards Gauss-Seidel,Pseudo-Gauss-Seidel,Backwards Pseudo-Gauss-Seidel,JOR,SOR,Backwards SOR,Pseudo-SOR,Backwards Pseudo-SOR",
+					"Power,Jacobi,Gauss-Seidel,Backwards Gauss-Seidel,Pseudo-Gauss-Seidel,Backwards Pseudo-Gauss-Seidel,JOR,SOR,Backwards SOR,Pseudo-SOR,Backwards Pseudo-SOR,Topological",
 					"Which iterative method to use when solving linear equation systems." },
 			{ DOUBLE_TYPE, PRISM_LIN_EQ_METHOD_PARAM, "Over-relaxation parameter", "2.1", new Double(0.9), "",
 					"Over-relaxation parameter for iterative numerical methods such as JOR/SOR." },
 			{ CHOICE_TYPE, PRISM_MDP_SOLN_METHOD, "MDP solution method", "4.0", "Value iteration",
-					"Value iteration,Gauss-Seidel,Policy iteration,Modified policy iteration,Linear programming",
+					"Value iteration,Gauss-Seidel,Policy iteration,Modified policy iteration,Linear programming,Topological",
 					"Which method to use when solving Markov decision processes." },
 			{ CHOICE_TYPE, PRISM_MDP_MULTI_SOLN_METHOD, "MDP multi-objective solution method", "4.0.3", "Value iteration",
 					"Value iteration,Gauss-Seidel,Linear programming",
@@ -233,6 +256,8 @@ public class PrismSettings implements Observer
 					"Epsilon value to use for checking termination of iterative numerical methods." },
 			{ INTEGER_TYPE, PRISM_MAX_ITERS, "Termination max. iterations", "2.1", new Integer(10000), "0,",
 					"Maximum number of iterations to perform if iterative methods do not converge." },
+			{ BOOLEAN_TYPE, PRISM_WARM_START, "Warm-start experiments", "4.3.1", new Boolean(false), "",
+					"In experiments where only property constants vary, start iterative methods from the solution for the previous constant values (explicit engine, reachability probabilities/rewards for DTMCs/CTMCs; only if Prob0 precomputation is enabled)." },
 			// MODEL CHECKING OPTIONS:
 			{ BOOLEAN_TYPE, PRISM_PRECOMPUTATION, "Use precomputation", "2.1", new Boolean(true), "",
 					"Whether to use model checking precomputation algorithms (Prob0, Prob1, etc.), where optional." },
@@ -261,6 +286,8 @@ public class PrismSettings implements Observer
 					"Handle all path formulas via automata constructions." },
 			{ BOOLEAN_TYPE, PRISM_NO_DA_SIMPLIFY, "Do not simplify deterministic automata", "4.3", new Boolean(false), "",
 					"Do not attempt to simplify deterministic automata, acceptance conditions (for debugging)." },
+			{ BOOLEAN_TYPE, PRISM_LTL_ON_THE_FLY, "On-the-fly LTL product", "4.3.1", new Boolean(false), "",
+					"For LTL properties in the explicit engine, explore the product of the model and the automaton directly, without first building the model (only model states reached in the product are explored)." },
 
 			// MULTI-OBJECTIVE MODEL CHECKING OPTIONS:
 			{ INTEGER_TYPE, PRISM_MULTI_MAX_POINTS, "Max. multi-objective corner points", "4.0.3", new Integer(50), "0,",
@@ -290,6 +317,10 @@ public class PrismSettings implements Observer
 					"Maximum memory available to CUDD (underlying BDD/MTBDD library), e.g. 125k, 50m, 4g. Note: Restart PRISM after changing this." },
 			{ DOUBLE_TYPE, PRISM_CUDD_EPSILON, "CUDD epsilon", "2.1", new Double(1.0E-15), "0.0,",
 					"Epsilon value used by CUDD (underlying BDD/MTBDD library) for terminal cache comparisons." },
+			{ CHOICE_TYPE, PRISM_DD_VAR_ORDER, "MTBDD variable ordering heuristic", "4.3.1", "Default", "Default,FORCE,Coupling",
+					"How to order model variables when building MTBDDs: as declared in the model file (Default), by minimising the span of commands in the guard/update dependency graph (FORCE), or by placing strongly coupled variables together (Coupling)." },
+			{ BOOLEAN_TYPE, PRISM_DD_SIFT, "MTBDD variable sifting", "4.3.1", new Boolean(false), "",
+					"Improve the ordering of model variables by dynamic reordering (sifting) of an initial transition matrix MTBDD, and then rebuild the model using the resulting order." },
 			// ADVERSARIES/COUNTEREXAMPLES:
 			{ CHOICE_TYPE, PRISM_EXPORT_ADV, "Adversary export", "3.3", "None", "None,DTMC,MDP",
 					"Type of adversary to generate and export during MDP model checking" },
@@ -302,6 +333,9 @@ public class PrismSettings implements Observer
 			{ CHOICE_TYPE, PRISM_LTL2DA_SYNTAX, "LTL syntax for external LTL->DA tool", "4.2.1", "LBT", "LBT,Spin,Spot,Rabinizer",
 					"The syntax for LTL formulas passed to the external LTL->DA tool." },
 
+			{ STRING_TYPE, PRISM_LTL2DA_CACHE_DIR, "Cache directory for external LTL->DA tool", "4.3.1", "", null,
+					"If non-empty, a directory in which automata produced by the external LTL->DA tool are stored, to be reused across runs." },
+
 			// DEBUG / SANITY CHECK OPTIONS:
 			{ BOOLEAN_TYPE, PRISM_JDD_SANITY_CHECKS, "Do BDD sanity checks", "4.3.1", new Boolean(false), "",
 					"Perform internal sanity checks during computations (can cause significant slow-down)." },
@@ -317,8 +351,8 @@ public class PrismSettings implements Observer
 			{ CHOICE_TYPE, PRISM_PARAM_FUNCTION, "Parametric model checking function representation", "4.1", "JAS-cached", "JAS-cached,JAS,DAG",
 					"Type of representation for functions used during parametric model checking." },
 			{ CHOICE_TYPE, PRISM_PARAM_ELIM_ORDER, "Parametric model checking state elimination order", "4.1", "Backward",
-					"Arbitrary,Forward,Forward-reversed,Backward,Backward-reversed,Random",
-					"Order in which states are eliminated during unbounded parametric model checking analysis." },
+					"Arbitrary,Forward,Forward-reversed,Backward,Backward-reversed,Random,Min-fill",
+					"Order in which states are eliminated during unbounded parametric model checking analysis (min-fill eliminates states creating fewest new transitions first)." },
 			{ INTEGER_TYPE, PRISM_PARAM_RANDOM_POINTS, "Parametric model checking random evaluations", "4.1", new Integer(5), "",
 					"Number of random points to evaluate per region to increase chance of correctness during parametric model checking." },
 			{ BOOLEAN_TYPE, PRISM_PARAM_SUBSUME_REGIONS, "Parametric model checking region subsumption", "4.1", new Boolean(true), "",
@@ -362,7 +396,11 @@ public class PrismSettings implements Observer
 					{ CHOICE_TYPE, SIMULATOR_RENDER_ALL_VALUES, "Path render style", "3.2", "Render all values", "Render changes,Render all values",
 							"Display style for paths in the simulator user interface: only show variable values when they change, or show all values regardless." },
 					{ FILE_TYPE, SIMULATOR_NETWORK_FILE, "Network profile", "2.1", new File(""), "",
-							"File specifying the network profile used by the distributed PRISM simulator." } },
+							"File specifying the network profile used by the distributed PRISM simulator." },
+					{ INTEGER_TYPE, SIMULATOR_SEED, "Random seed", "4.3.1", new Integer(0), "0,",
+							"Seed for the random number generator used for approximate (simulation-based) model checking, so that results can be reproduced (0 means use a different seed each time)." },
+					{ INTEGER_TYPE, SIMULATOR_PATH_SPILL_STEPS, "Path steps in memory", "4.3.1", new Integer(0), "0,",
+							"Maximum number of steps of a (full) simulation path kept in memory; older steps are moved to a temporary file (0 means keep all steps in memory)." } },
 			{ { BOOLEAN_TYPE, MODEL_AUTO_PARSE, "Auto parse", "2.1", new Boolean(true), "",
 					"Parse PRISM models automatically as they are loaded/edited in the text editor." },
 					{ BOOLEAN_TYPE, MODEL_AUTO_MANUAL, "Manual parse for large models", "2.1", new Boolean(true), "",
@@ -420,6 +458,9 @@ public class PrismSettings implements Observer
 
 	private ArrayList<PrismSettingsListener> settingsListeners;
 
+	/** Thread pool for parallel computation, shared by all users of these settings (created lazily) */
+	private ForkJoinPool threadPool = null;
+
 	/**
 	 * Default constructor: set all options to default values. 
 	 */
@@ -860,6 +901,21 @@ public class PrismSettings implements Observer
 				throw new PrismException("No parameter specified for -" + sw + " switch");
 			}
 		}
+		else if (sw.equals("ptazones")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("exact"))
+					set(PRISM_PTA_ZONE_STORAGE, "Exact");
+				else if (s.equals("inclusion"))
+					set(PRISM_PTA_ZONE_STORAGE, "Inclusion");
+				else if (s.equals("replace"))
+					set(PRISM_PTA_ZONE_STORAGE, "Inclusion with replacement");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: exact, inclusion, replace)");
+			} else {
+				throw new PrismException("No parameter specified for -" + sw + " switch");
+			}
+		}
 		// Transient methods
 		else if (sw.equals("transientmethod")) {
 			if (i < args.length - 1) {
@@ -874,6 +930,93 @@ public class PrismSettings implements Observer
 				throw new PrismException("No parameter specified for -" + sw + " switch");
 			}
 		}
+		// Number of threads (explicit engine/simulator)
+		else if (sw.equals("numthreads")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 1)
+						throw new NumberFormatException("");
+					set(PRISM_NUM_THREADS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Random seed for simulator
+		else if (sw.equals("simseed")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_SEED, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// Max steps of simulation paths kept in memory
+		else if (sw.equals("simpathspill")) {
+			if (i < args.length - 1) {
+				try {
+					j = Integer.parseInt(args[++i]);
+					if (j < 0)
+						throw new NumberFormatException("");
+					set(SIMULATOR_PATH_SPILL_STEPS, j);
+				} catch (NumberFormatException e) {
+					throw new PrismException("Invalid value for -" + sw + " switch");
+				}
+			} else {
+				throw new PrismException("No value specified for -" + sw + " switch");
+			}
+		}
+		// State storage for explicit model construction
+		else if (sw.equals("statestorage")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("sorted"))
+					set(PRISM_STATE_STORAGE, "Sorted set");
+				else if (s.equals("packed"))
+					set(PRISM_STATE_STORAGE, "Packed hash table");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: sorted, packed)");
+			} else {
+				throw new PrismException("No parameter specified for -" + sw + " switch");
+			}
+		}
+		// SCC computation algorithm for explicit engine
+		else if (sw.equals("explicitsccmethod")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("tarjan"))
+					set(PRISM_EXPLICIT_SCC_METHOD, "Tarjan");
+				else if (s.equals("iterative"))
+					set(PRISM_EXPLICIT_SCC_METHOD, "Iterative Tarjan");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: tarjan, iterative)");
+			} else {
+				throw new PrismException("No parameter specified for -" + sw + " switch");
+			}
+		}
+		// MEC computation algorithm for explicit engine
+		else if (sw.equals("explicitmecmethod")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("basic"))
+					set(PRISM_EXPLICIT_MEC_METHOD, "Basic");
+				else if (s.equals("incremental"))
+					set(PRISM_EXPLICIT_MEC_METHOD, "Incremental");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: basic, incremental)");
+			} else {
+				throw new PrismException("No parameter specified for -" + sw + " switch");
+			}
+		}
 
 		// NUMERICAL SOLUTION OPTIONS:
 
@@ -902,6 +1045,9 @@ public class PrismSettings implements Observer
 			set(PRISM_LIN_EQ_METHOD, "Pseudo-SOR");
 		} else if (sw.equals("bpsor")) {
 			set(PRISM_LIN_EQ_METHOD, "Backwards Pseudo-SOR");
+		} else if (sw.equals("topological") || sw.equals("topo")) {
+			set(PRISM_LIN_EQ_METHOD, "Topological");
+			set(PRISM_MDP_SOLN_METHOD, "Topological");
 		} else if (sw.equals("valiter")) {
 			set(PRISM_MDP_SOLN_METHOD, "Value iteration");
 			set(PRISM_MDP_MULTI_SOLN_METHOD, "Value iteration");
@@ -962,6 +1108,10 @@ public class PrismSettings implements Observer
 				throw new PrismException("No value specified for -" + sw + " switch");
 			}
 		}
+		// Warm-start experiments
+		else if (sw.equals("warmstart")) {
+			set(PRISM_WARM_START, true);
+		}
 
 		// MODEL CHECKING OPTIONS:
 
@@ -1057,6 +1207,10 @@ public class PrismSettings implements Observer
 		else if (sw.equals("nodasimplify")) {
 			set(PRISM_NO_DA_SIMPLIFY, true);
 		}
+		// Build LTL products on the fly (explicit engine)
+		else if (sw.equals("ltlonthefly")) {
+			set(PRISM_LTL_ON_THE_FLY, true);
+		}
 
 		// MULTI-OBJECTIVE MODEL CHECKING OPTIONS:
 
@@ -1196,6 +1350,26 @@ public class PrismSettings implements Observer
 				throw new PrismException("No value specified for -" + sw + " switch");
 			}
 		}
+		// MTBDD variable ordering heuristic
+		else if (sw.equals("ddvarorder")) {
+			if (i < args.length - 1) {
+				s = args[++i];
+				if (s.equals("default"))
+					set(PRISM_DD_VAR_ORDER, "Default");
+				else if (s.equals("force"))
+					set(PRISM_DD_VAR_ORDER, "FORCE");
+				else if (s.equals("coupling"))
+					set(PRISM_DD_VAR_ORDER, "Coupling");
+				else
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: default, force, coupling)");
+			} else {
+				throw new PrismException("No parameter specified for -" + sw + " switch");
+			}
+		}
+		// MTBDD variable sifting
+		else if (sw.equals("ddsift")) {
+			set(PRISM_DD_SIFT, true);
+		}
 
 		// ADVERSARIES/COUNTEREXAMPLES:
 
@@ -1248,6 +1422,12 @@ public class PrismSettings implements Observer
 			} else {
 				throw new PrismException("The -" + sw + " switch requires one argument (options are: lbt, spin, spot, rabinizer)");
 			}
+		} else if (sw.equals("ltl2dacachedir")) {
+			if (i < args.length - 1) {
+				set(PRISM_LTL2DA_CACHE_DIR, args[++i]);
+			} else {
+				throw new PrismException("The -" + sw + " switch requires one argument (a directory)");
+			}
 		}
 
 		// DEBUGGING / SANITY CHECKS
@@ -1320,8 +1500,10 @@ public class PrismSettings implements Observer
 					set(PRISM_PARAM_ELIM_ORDER, "Backward-reversed");
 				else if (s.equals("rand"))
 					set(PRISM_PARAM_ELIM_ORDER, "Random");
+				else if (s.equals("minfill"))
+					set(PRISM_PARAM_ELIM_ORDER, "Min-fill");
 				else
-					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: arb,fw,fwrev,bw,bwrev,rand)");
+					throw new PrismException("Unrecognised option for -" + sw + " switch (options are: arb,fw,fwrev,bw,bwrev,rand,minfill)");
 			} else {
 				throw new PrismException("No value specified for -" + sw + " switch");
 			}
@@ -1504,7 +1686,12 @@ public class PrismSettings implements Observer
 		mainLog.println("-explicit (or -ex) ............. Use the explicit engine");
 		mainLog.println("-exact ......................... Perform exact (arbitrary precision) model checking");
 		mainLog.println("-ptamethod <name> .............. Specify PTA engine (games, digital, backwards) [default: games]");
+		mainLog.println("-ptazones <name> ............... Zone storage for PTA reachability (exact, inclusion, replace) [default: inclusion]");
 		mainLog.println("-transientmethod <name> ........ CTMC transient analysis methof (unif, fau) [default: unif]");
+		mainLog.println("-statestorage <name> ........... State storage for explicit model construction (sorted, packed) [default: sorted]");
+		mainLog.println("-numthreads <n> ................ Number of threads to use in explicit, simulation and parametric engines [default: 1]");
+		mainLog.println("-explicitsccmethod <name> ...... Explicit engine SCC computation method (tarjan, iterative) [default: iterative]");
+		mainLog.println("-explicitmecmethod <name> ...... Explicit engine MEC computation method (basic, incremental) [default: incremental]");
 		mainLog.println();
 		mainLog.println("SOLUTION METHODS (LINEAR EQUATIONS):");
 		mainLog.println("-power (or -pow, -pwr) ......... Use the Power method for numerical computation");
@@ -1518,6 +1705,7 @@ public class PrismSettings implements Observer
 		mainLog.println("-bsor .......................... Use Backwards SOR for numerical computation");
 		mainLog.println("-psor .......................... Use Pseudo SOR for numerical computation");
 		mainLog.println("-bpsor ......................... Use Backwards Pseudo SOR for numerical computation");
+		mainLog.println("-topological (or -topo) ........ Use topological (SCC-based) value iteration for numerical computation (explicit engine only)");
 		mainLog.println("-omega <x> ..................... Set over-relaxation parameter (for JOR/SOR/...) [default: 0.9]");
 		mainLog.println();
 		mainLog.println("SOLUTION METHODS (MDPS):");
@@ -1525,12 +1713,14 @@ public class PrismSettings implements Observer
 		mainLog.println("-gaussseidel (or -gs) .......... Use Gauss-Seidel value iteration for solving MDPs");
 		mainLog.println("-politer ....................... Use policy iteration for solving MDPs");
 		mainLog.println("-modpoliter .................... Use modified policy iteration for solving MDPs");
+		mainLog.println("-topological (or -topo) ........ Use topological (SCC-based) value iteration for solving MDPs");
 		mainLog.println();
 		mainLog.println("SOLUTION METHOD SETTINGS");
 		mainLog.println("-relative (or -rel) ............ Use relative error for detecting convergence [default]");
 		mainLog.println("-absolute (or -abs) ............ Use absolute error for detecting convergence");
 		mainLog.println("-epsilon <x> (or -e <x>) ....... Set value of epsilon (for convergence check) [default: 1e-6]");
 		mainLog.println("-maxiters <n> .................. Set max number of iterations [default: 10000]");
+		mainLog.println("-warmstart ..................... In experiments over property constants, reuse previous solutions (explicit; not with -nopre/-noprob0)");
 		mainLog.println();
 		mainLog.println("MODEL CHECKING OPTIONS:");
 		mainLog.println("-nopre ......................... Skip precomputation algorithms (where optional)");
@@ -1550,10 +1740,12 @@ public class PrismSettings implements Observer
 		mainLog.println("-aroptions <string> ............ Abstraction-refinement engine options string");
 		mainLog.println("-pathviaautomata ............... Handle all path formulas via automata constructions");
 		mainLog.println("-nodasimplify .................. Do not attempt to simplify deterministic automata, acceptance conditions");
+		mainLog.println("-ltlonthefly ................... Explore LTL products directly from the model description (explicit engine)");
 		mainLog.println("-exportadv <file> .............. Export an adversary from MDP model checking (as a DTMC)");
 		mainLog.println("-exportadvmdp <file> ........... Export an adversary from MDP model checking (as an MDP)");
 		mainLog.println("-ltl2datool <exec> ............. Run executable <exec> to convert LTL formulas to deterministic automata");
 		mainLog.println("-ltl2dasyntax <x> .............. Specify output format for -ltl2datool switch (lbt, spin, spot, rabinizer)");
+		mainLog.println("-ltl2dacachedir <dir> .......... Store automata from the -ltl2datool tool in <dir>, for reuse across runs");
 
 		mainLog.println();
 		mainLog.println("MULTI-OBJECTIVE MODEL CHECKING:");
@@ -1575,6 +1767,8 @@ public class PrismSettings implements Observer
 		mainLog.println("-gsmax <n> (or sormax <n>) ..... Set memory limit (KB) for hybrid GS/SOR [default: 1024]");
 		mainLog.println("-cuddmaxmem <n> ................ Set max memory for CUDD package, e.g. 125k, 50m, 4g [default: 1g]");
 		mainLog.println("-cuddepsilon <x> ............... Set epsilon value for CUDD package [default: 1e-15]");
+		mainLog.println("-ddvarorder <name> ............. Set MTBDD variable ordering heuristic (default, force, coupling) [default: default]");
+		mainLog.println("-ddsift ........................ Improve MTBDD variable ordering by sifting, then rebuild the model");
 		mainLog.println("-ddsanity ...................... Enable internal sanity checks (causes slow-down)");
 		mainLog.println();
 		mainLog.println("PARAMETRIC MODEL CHECKING OPTIONS:");
@@ -1583,7 +1777,7 @@ public class PrismSettings implements Observer
 		mainLog.println("-paramsplit <name> ............. Set method to split parameter regions (longest,all) [default: longest]");
 		mainLog.println("-parambisim <name> ............. Set bisimulation minimisation for parameter synthesis (weak,strong,none) [default: weak]");
 		mainLog.println("-paramfunction <name> .......... Set function representation for parameter synthesis (jascached,jas) [default: jascached]");
-		mainLog.println("-paramelimorder <name> ......... Set elimination order for parameter synthesis (arb,fw,fwrev,bw,bwrev,rand) [default: bw]");
+		mainLog.println("-paramelimorder <name> ......... Set elimination order for parameter synthesis (arb,fw,fwrev,bw,bwrev,rand,minfill) [default: bw]");
 		mainLog.println("-paramrandompoints <n> ......... Set number of random points to evaluate per region [default: 5]");
 		mainLog.println("-paramsubsumeregions <b> ....... Subsume adjacent regions during analysis [default: true]");
 		mainLog.println("-paramdagmaxerror <b> .......... Maximal error probability allowed for DAG function representation [default: 1E-100]");
@@ -1748,6 +1942,42 @@ public class PrismSettings implements Observer
 			return DEFAULT_FILE;
 	}
 
+	/**
+	 * Get the thread pool used for parallel computation, with {@code numThreads} threads.
+	 * The pool is shared by everything that uses this settings object;
+	 * if the existing one has a different number of threads, it is shut down and replaced.
+	 */
+	public synchronized ForkJoinPool getThreadPool(int numThreads)
+	{
+		if (threadPool != null && threadPool.getParallelism() != numThreads) {
+			threadPool.shutdown();
+			threadPool = null;
+		}
+		if (threadPool == null)
+			threadPool = new ForkJoinPool(numThreads);
+		return threadPool;
+	}
+
+	/**
+	 * Get the shared thread pool used for parallel computation,
+	 * with the number of threads given by the {@link #PRISM_NUM_THREADS} setting.
+	 */
+	public ForkJoinPool getThreadPool()
+	{
+		return getThreadPool(getInteger(PRISM_NUM_THREADS));
+	}
+
+	/**
+	 * Shut down the shared thread pool (if it has been created).
+	 */
+	public synchronized void shutdownThreadPool()
+	{
+		if (threadPool != null) {
+			threadPool.shutdown();
+			threadPool = null;
+		}
+	}
+
 	public boolean isModified()
 	{
 		return modified;
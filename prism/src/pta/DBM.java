@@ -26,6 +26,8 @@
 
 package pta;
 
+import java.util.Arrays;
+
 /**
  * Implementation of the difference-bound matrix (DBM) data structure.
  * 
@@ -37,13 +39,18 @@ public class DBM extends Zone
 {
 	/* Parent PTA */
 	protected PTA pta;
+	/* Matrix dimension, i.e. number of clocks + 1 */
+	protected int dim;
 	/*
 	 * Canonical zone representation: DBM
 	 * (numClocks+1)^2 matrix d, indexed 1...numClocks for clocks in PTA and 0 for special zero clock.
-	 * Each entry d[i][j] gives the bound for clock difference xi-xj.
+	 * The matrix is stored in a single array, row by row: entry d[i*dim+j] gives the bound for clock difference xi-xj.
 	 * Difference bounds are encoded as a single integer; see help class DB for details.
 	 */
-	protected int d[][];
+	protected int d[];
+	/* Cached hash code (valid if hashValid is true; reset by any operation that modifies the zone) */
+	protected int hash;
+	protected boolean hashValid;
 
 	/**
 	 * Construct an empty DBM (don't use this).
@@ -51,7 +58,9 @@ public class DBM extends Zone
 	public DBM(PTA pta)
 	{
 		this.pta = pta;
-		this.d = new int[pta.numClocks + 1][pta.numClocks + 1];
+		this.dim = pta.numClocks + 1;
+		this.d = new int[dim * dim];
+		this.hashValid = false;
 	}
 
 	// Methods required for Zone interface
@@ -73,33 +82,20 @@ public class DBM extends Zone
 	@Override
 	public void addConstraint(int x, int y, int db)
 	{
+		hashValid = false;
 		// Check if this causes inconsistency (i.e. zone emptiness)
 		// and, if so, flag this by setting d[0][0] to -1;
-		if (DB.add(d[y][x], db) < DB.LEQ_ZERO)
-			d[0][0] = DB.LEQ_MINUS_ONE;
+		if (DB.add(d[y * dim + x], db) < DB.LEQ_ZERO)
+			d[0] = DB.LEQ_MINUS_ONE;
 		// Now add the constraint (if it is tighter than existing one)
-		else if (db < d[x][y]) {
-			int i, j, n, dTmp;
+		else if (db < d[x * dim + y]) {
 			// Store new constraint
-			d[x][y] = db;
+			d[x * dim + y] = db;
 			// Partial re-canonicalisation
 			// Note we do 2 (separate) outer iterations of Floyd-Warshall,
 			// unlike the incorrect formulation in the DBM algorithm notes.
-			n = pta.numClocks;
-			for (i = 0; i < n + 1; i++) {
-				for (j = 0; j < n + 1; j++) {
-					dTmp = DB.add(d[i][x], d[x][j]);
-					if (dTmp < d[i][j])
-						d[i][j] = dTmp;
-				}
-			}
-			for (i = 0; i < n + 1; i++) {
-				for (j = 0; j < n + 1; j++) {
-					dTmp = DB.add(d[i][y], d[y][j]);
-					if (dTmp < d[i][j])
-						d[i][j] = dTmp;
-				}
-			}
+			closeThrough(x);
+			closeThrough(y);
 		}
 	}
 
@@ -128,13 +124,13 @@ public class DBM extends Zone
 	@Override
 	public void intersect(Zone z)
 	{
-		int i, j, n;
+		int i, j, db;
 		DBM dbm = (DBM) z;
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				if (i != j && !DB.isInfty(dbm.d[i][j]))
-					addConstraint(i, j, dbm.d[i][j]);
+		for (i = 0; i < dim; i++) {
+			for (j = 0; j < dim; j++) {
+				db = dbm.d[i * dim + j];
+				if (i != j && !DB.isInfty(db))
+					addConstraint(i, j, db);
 			}
 		}
 	}
@@ -145,10 +141,10 @@ public class DBM extends Zone
 	@Override
 	public void up(Iterable<Constraint> constraints)
 	{
-		int i, n;
-		n = pta.numClocks;
-		for (i = 1; i < n + 1; i++) {
-			d[i][0] = DB.INFTY;
+		int i;
+		hashValid = false;
+		for (i = 1; i < dim; i++) {
+			d[i * dim] = DB.INFTY;
 		}
 		if (constraints != null) {
 			for (Constraint c : constraints) {
@@ -163,13 +159,13 @@ public class DBM extends Zone
 	@Override
 	public void down(Iterable<Constraint> constraints)
 	{
-		int i, j, n;
-		n = pta.numClocks;
-		for (i = 1; i < n + 1; i++) {
-			d[0][i] = DB.LEQ_ZERO;
-			for (j = 1; j < n + 1; j++) {
-				if (d[j][i] < d[0][i])
-					d[0][i] = d[j][i];
+		int i, j;
+		hashValid = false;
+		for (i = 1; i < dim; i++) {
+			d[i] = DB.LEQ_ZERO;
+			for (j = 1; j < dim; j++) {
+				if (d[j * dim + i] < d[i])
+					d[i] = d[j * dim + i];
 			}
 		}
 		if (constraints != null) {
@@ -185,12 +181,12 @@ public class DBM extends Zone
 	@Override
 	public void free(int x)
 	{
-		int i, n;
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
+		int i;
+		hashValid = false;
+		for (i = 0; i < dim; i++) {
 			if (i != x) {
-				d[x][i] = DB.INFTY;
-				d[i][x] = d[i][0];
+				d[x * dim + i] = DB.INFTY;
+				d[i * dim + x] = d[i * dim];
 			}
 		}
 	}
@@ -201,11 +197,13 @@ public class DBM extends Zone
 	@Override
 	public void reset(int x, int v)
 	{
-		int i, n;
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			d[x][i] = DB.add(DB.createLeq(v), d[0][i]);
-			d[i][x] = DB.add(d[i][0], DB.createLeq(-v));
+		int i, leq, geq;
+		hashValid = false;
+		leq = DB.createLeq(v);
+		geq = DB.createLeq(-v);
+		for (i = 0; i < dim; i++) {
+			d[x * dim + i] = DB.add(leq, d[i]);
+			d[i * dim + x] = DB.add(d[i * dim], geq);
 		}
 	}
 
@@ -229,20 +227,26 @@ public class DBM extends Zone
 	@Override
 	public void cClosure(int c)
 	{
-		int i, j, n;
+		int i, n, leq, lt;
+		boolean changed = false;
 		if (isEmpty())
 			return;
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				if (!DB.isInfty(d[i][j]) && DB.createLeq(c) < d[i][j]) {
-					d[i][j] = DB.INFTY;
-				} else if (!DB.isInfty(d[i][j]) && d[i][j] < DB.createLt(-c)) {
-					d[i][j] = DB.createLt(-c);
-				}
+		hashValid = false;
+		leq = DB.createLeq(c);
+		lt = DB.createLt(-c);
+		n = d.length;
+		for (i = 0; i < n; i++) {
+			if (!DB.isInfty(d[i]) && leq < d[i]) {
+				d[i] = DB.INFTY;
+				changed = true;
+			} else if (!DB.isInfty(d[i]) && d[i] < lt) {
+				d[i] = lt;
+				changed = true;
 			}
 		}
-		canonicalise();
+		// The DBM is canonical beforehand, so only re-canonicalise if it changed
+		if (changed)
+			canonicalise();
 	}
 
 	// Zone operations (create new zone)
@@ -255,21 +259,20 @@ public class DBM extends Zone
 	{
 		DBMList list = new DBMList(pta);
 		DBM dbmNew;
-		int i, j, n;
+		int i, j;
 		// Special case: complement of empty DBM is True
 		if (isEmpty()) {
 			list.addDBM(createTrue(pta));
 			return list;
 		}
-		n = d.length - 1;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
+		for (i = 0; i < dim; i++) {
+			for (j = 0; j < dim; j++) {
 				if (i == j)
 					continue;
-				if (DB.isInfty(d[i][j]))
+				if (DB.isInfty(d[i * dim + j]))
 					continue;
-				dbmNew = new DBMFactory().createTrue(pta);
-				dbmNew.addConstraint(j, i, DB.dual(d[i][j]));
+				dbmNew = createTrue(pta);
+				dbmNew.addConstraint(j, i, DB.dual(d[i * dim + j]));
 				if (!dbmNew.isEmpty()) {
 					list.addDBM(dbmNew);
 				}
@@ -288,7 +291,7 @@ public class DBM extends Zone
 	{
 		// Internally, inconsistency is flagged by setting d[0][0] to -1.
 		// (Note: strictly speaking "<0" checks that the difference bound is less than "<0".)
-		return d[0][0] < 0;
+		return d[0] < 0;
 	}
 
 	/**
@@ -297,7 +300,7 @@ public class DBM extends Zone
 	@Override
 	public boolean isSatisfied(Constraint c)
 	{
-		return DB.add(c.db, d[c.y][c.x]) > 0;
+		return DB.add(c.db, d[c.y * dim + c.x]) > 0;
 	}
 
 	/**
@@ -306,14 +309,12 @@ public class DBM extends Zone
 	@Override
 	public boolean includes(DBM dbm)
 	{
-		int i, j, n;
-		int[][] d2 = dbm.d;
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				if (d[i][j] < d2[i][j])
-					return false;
-			}
+		int i, n;
+		int[] d2 = dbm.d;
+		n = d.length;
+		for (i = 0; i < n; i++) {
+			if (d[i] < d2[i])
+				return false;
 		}
 		return true;
 	}
@@ -324,7 +325,7 @@ public class DBM extends Zone
 	@Override
 	public int getClockMin(int x)
 	{
-		return -DB.getSignedDiff(d[0][x]);
+		return -DB.getSignedDiff(d[x]);
 	}
 
 	/**
@@ -333,7 +334,7 @@ public class DBM extends Zone
 	@Override
 	public int getClockMax(int x)
 	{
-		return DB.getSignedDiff(d[x][0]);
+		return DB.getSignedDiff(d[x * dim]);
 	}
 
 	/**
@@ -342,7 +343,7 @@ public class DBM extends Zone
 	@Override
 	public boolean clockIsUnbounded(int x)
 	{
-		return DB.isInfty(d[x][0]);
+		return DB.isInfty(d[x * dim]);
 	}
 
 	/**
@@ -351,10 +352,9 @@ public class DBM extends Zone
 	@Override
 	public boolean allClocksAreUnbounded()
 	{
-		int i, n;
-		n = pta.numClocks;
-		for (i = 1; i < n + 1; i++) {
-			if (!DB.isInfty(d[i][0])) {
+		int i;
+		for (i = 1; i < dim; i++) {
+			if (!DB.isInfty(d[i * dim])) {
 				return false;
 			}
 		}
@@ -369,18 +369,21 @@ public class DBM extends Zone
 	@Override
 	public DBM deepCopy()
 	{
-		int i, j, n;
 		DBM copy = new DBM(pta);
-		n = pta.numClocks;
-		copy.d = new int[n + 1][n + 1];
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				copy.d[i][j] = d[i][j];
-			}
-		}
+		copy.copyFrom(this);
 		return copy;
 	}
 
+	/**
+	 * Overwrite the contents of this DBM with those of another one (for the same PTA).
+	 */
+	public void copyFrom(DBM dbm)
+	{
+		System.arraycopy(dbm.d, 0, d, 0, d.length);
+		hash = dbm.hash;
+		hashValid = dbm.hashValid;
+	}
+
 	/**
 	 * Get storage info string
 	 */
@@ -395,12 +398,13 @@ public class DBM extends Zone
 	@Override
 	public int hashCode()
 	{
-		int n = pta.numClocks + 1;
-		int hash = 0;
-		for (int i = 0; i < n; i++) {
-			for (int j = 0; j < n; j++) {
-				hash = (hash * 7) + d[i][j];
+		if (!hashValid) {
+			int h = 0;
+			for (int i = 0; i < d.length; i++) {
+				h = (h * 7) + d[i];
 			}
+			hash = h;
+			hashValid = true;
 		}
 		return hash;
 	}
@@ -409,20 +413,22 @@ public class DBM extends Zone
 	public boolean equals(Object o)
 	{
 		DBM dbm;
-		int i, j, n;
+		int i, n;
 		if (o == null)
 			return false;
+		if (o == this)
+			return true;
 		try {
 			dbm = (DBM) o;
 		} catch (ClassCastException e) {
 			return false;
 		}
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				if (d[i][j] != dbm.d[i][j])
-					return false;
-			}
+		if (hashValid && dbm.hashValid && hash != dbm.hash)
+			return false;
+		n = d.length;
+		for (i = 0; i < n; i++) {
+			if (d[i] != dbm.d[i])
+				return false;
 		}
 		return true;
 	}
@@ -440,25 +446,26 @@ public class DBM extends Zone
 	 */
 	public String toStringTextual()
 	{
-		int i, j, n;
+		int i, j, dij, dji;
 		boolean first = true;
 		String s = "", s2;
-		n = pta.numClocks;
 		// Trivial case - empty
 		if (isEmpty())
 			return "empty";
 		// Generate textual description for each difference (pair)
-		for (i = 0; i < n + 1; i++) {
-			for (j = i + 1; j < n + 1; j++) {
+		for (i = 0; i < dim; i++) {
+			for (j = i + 1; j < dim; j++) {
 				s2 = null;
-				if (!DB.isInfty(d[i][j])) {
-					if (!DB.isInfty(d[j][i])) {
-						s2 = DB.constraintPairToString(i, j, d[i][j], d[j][i], pta);
+				dij = d[i * dim + j];
+				dji = d[j * dim + i];
+				if (!DB.isInfty(dij)) {
+					if (!DB.isInfty(dji)) {
+						s2 = DB.constraintPairToString(i, j, dij, dji, pta);
 					} else {
-						s2 = DB.constraintToString(i, j, d[i][j], pta);
+						s2 = DB.constraintToString(i, j, dij, pta);
 					}
-				} else if (!DB.isInfty(d[j][i])) {
-					s2 = DB.constraintToString(j, i, d[j][i], pta);
+				} else if (!DB.isInfty(dji)) {
+					s2 = DB.constraintToString(j, i, dji, pta);
 				}
 				if (s2 != null) {
 					if (!first)
@@ -480,16 +487,15 @@ public class DBM extends Zone
 	 */
 	public String toStringDBM()
 	{
-		int i, j, n;
+		int i, j;
 		String s = "[ ";
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
+		for (i = 0; i < dim; i++) {
+			for (j = 0; j < dim; j++) {
 				if (j > 0)
 					s += " ";
-				s += DB.toString(d[i][j]);
+				s += DB.toString(d[i * dim + j]);
 			}
-			if (i < n)
+			if (i < dim - 1)
 				s += ", ";
 		}
 		s += " ]";
@@ -503,15 +509,30 @@ public class DBM extends Zone
 	 */
 	private void canonicalise()
 	{
-		int k, i, j, db, n;
-		n = pta.numClocks;
-		for (k = 0; k < n + 1; k++) {
-			for (i = 0; i < n + 1; i++) {
-				for (j = 0; j < n + 1; j++) {
-					db = DB.add(d[i][k], d[k][j]);
-					if (db < d[i][j])
-						d[i][j] = db;
-				}
+		int k;
+		for (k = 0; k < dim; k++) {
+			closeThrough(k);
+		}
+	}
+
+	/**
+	 * Do a single outer iteration of Floyd-Warshall, i.e. tighten all bounds
+	 * using paths through clock k. Rows with an infinite bound to k are skipped
+	 * since they cannot be tightened.
+	 */
+	private void closeThrough(int k)
+	{
+		int i, j, dik, db, rowI, rowK;
+		rowK = k * dim;
+		for (i = 0; i < dim; i++) {
+			rowI = i * dim;
+			dik = d[rowI + k];
+			if (DB.isInfty(dik))
+				continue;
+			for (j = 0; j < dim; j++) {
+				db = DB.add(dik, d[rowK + j]);
+				if (db < d[rowI + j])
+					d[rowI + j] = db;
 			}
 		}
 	}
@@ -523,14 +544,8 @@ public class DBM extends Zone
 	 */
 	public static DBM createZero(PTA pta)
 	{
-		int i, j, n;
 		DBM dbm = new DBM(pta);
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
-				dbm.d[i][j] = DB.LEQ_ZERO;
-			}
-		}
+		Arrays.fill(dbm.d, DB.LEQ_ZERO);
 		return dbm;
 	}
 
@@ -539,17 +554,17 @@ public class DBM extends Zone
 	 */
 	public static DBM createTrue(PTA pta)
 	{
-		int i, j, n;
+		int i, j, dim;
 		DBM dbm = new DBM(pta);
-		n = pta.numClocks;
-		for (i = 0; i < n + 1; i++) {
-			for (j = 0; j < n + 1; j++) {
+		dim = dbm.dim;
+		for (i = 0; i < dim; i++) {
+			for (j = 0; j < dim; j++) {
 				if (i == j)
-					dbm.d[i][j] = DB.LEQ_ZERO;
+					dbm.d[i * dim + j] = DB.LEQ_ZERO;
 				else if (i == 0)
-					dbm.d[i][j] = DB.LEQ_ZERO;
+					dbm.d[i * dim + j] = DB.LEQ_ZERO;
 				else
-					dbm.d[i][j] = DB.INFTY;
+					dbm.d[i * dim + j] = DB.INFTY;
 			}
 		}
 		return dbm;
@@ -0,0 +1,166 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package pta;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import parser.ast.ModulesFile;
+import prism.Prism;
+import prism.PrismDevNullLog;
+import prism.PrismException;
+import prism.PrismPrintStreamLog;
+import prism.UndefinedConstants;
+
+/**
+ * Simple benchmark for zone operations, using the symbolic states found
+ * by forwards reachability for a PTA given as a PRISM model file.
+ * Usage: DBMBenchmark <model.nm> [const defs] [repetitions]
+ * <br>
+ * Reports the time for building the forwards reachability graph and
+ * for the individual DBM operations (copy, hash, equality, c-closure)
+ * applied to all zones of the graph.
+ */
+public class DBMBenchmark
+{
+	public static void main(String args[])
+	{
+		try {
+			if (args.length < 1) {
+				System.err.println("Usage: DBMBenchmark <model.nm> [const defs] [repetitions]");
+				System.exit(1);
+			}
+			String constSwitch = args.length > 1 ? args[1] : "";
+			int reps = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+			new DBMBenchmark().run(args[0], constSwitch, reps);
+		} catch (Exception e) {
+			System.err.println("\nError: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	public void run(String modelFilename, String constSwitch, int reps) throws Exception
+	{
+		// Build the PTA
+		Prism prism = new Prism(new PrismPrintStreamLog(System.out));
+		prism.initialise();
+		ModulesFile modulesFile = prism.parseModelFile(new File(modelFilename));
+		UndefinedConstants undefinedConstants = new UndefinedConstants(modulesFile, null);
+		undefinedConstants.defineUsingConstSwitch(constSwitch);
+		modulesFile.setUndefinedConstants(undefinedConstants.getMFConstantValues());
+		PTA pta = new Modules2PTA(prism, modulesFile).translate();
+		System.out.println(pta.infoString());
+
+		// Forwards reachability (no targets, so the whole graph is explored)
+		ForwardsReach forwardsReach = new ForwardsReach(new PrismDevNullLog());
+		ReachabilityGraph graph = null;
+		BitSet noTarget = new BitSet();
+		long times[] = new long[reps];
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			graph = forwardsReach.buildForwardsGraph(pta, noTarget, null);
+			times[r] = System.nanoTime() - start;
+		}
+		report("Forwards reachability (" + graph.states.size() + " states)", times);
+
+		// Collect zones
+		List<DBM> zones = new ArrayList<>();
+		for (LocZone lz : graph.states) {
+			if (lz.zone instanceof DBM)
+				zones.add((DBM) lz.zone);
+		}
+		if (zones.isEmpty())
+			throw new PrismException("No DBMs to benchmark");
+		int n = zones.size();
+		int opReps = Math.max(1, 1000000 / n);
+		long sink = 0;
+
+		// Copy
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			for (int k = 0; k < opReps; k++)
+				for (int i = 0; i < n; i++)
+					sink += zones.get(i).deepCopy().hashCode();
+			times[r] = System.nanoTime() - start;
+		}
+		report("Copy+hash (" + (opReps * n) + " ops)", times);
+
+		// Hash
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			for (int k = 0; k < opReps; k++)
+				for (int i = 0; i < n; i++)
+					sink += zones.get(i).hashCode();
+			times[r] = System.nanoTime() - start;
+		}
+		report("Hash (" + (opReps * n) + " ops)", times);
+
+		// Equality (against a copy, to force a full comparison)
+		List<DBM> copies = new ArrayList<>();
+		for (DBM dbm : zones)
+			copies.add(dbm.deepCopy());
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			for (int k = 0; k < opReps; k++)
+				for (int i = 0; i < n; i++)
+					sink += zones.get(i).equals(copies.get(i)) ? 1 : 0;
+			times[r] = System.nanoTime() - start;
+		}
+		report("Equals (" + (opReps * n) + " ops)", times);
+
+		// Time successor plus c-closure, on a fresh copy each time
+		int maxConst = pta.getMaxClockConstraint();
+		for (int r = 0; r < reps; r++) {
+			long start = System.nanoTime();
+			for (int k = 0; k < opReps; k++)
+				for (int i = 0; i < n; i++) {
+					DBM dbm = zones.get(i).deepCopy();
+					dbm.up(null);
+					dbm.cClosure(maxConst);
+					sink += dbm.isEmpty() ? 1 : 0;
+				}
+			times[r] = System.nanoTime() - start;
+		}
+		report("Copy+up+c-closure (" + (opReps * n) + " ops)", times);
+
+		// Print sink so that the JIT cannot eliminate the work above
+		System.out.println("(checksum " + sink + ")");
+	}
+
+	/**
+	 * Print min/median times for a list of runs, ignoring the first (warm-up) run.
+	 */
+	private static void report(String name, long times[])
+	{
+		long sorted[] = Arrays.copyOfRange(times, times.length > 1 ? 1 : 0, times.length);
+		Arrays.sort(sorted);
+		System.out.printf("%-45s min %8.2f ms, median %8.2f ms%n", name, sorted[0] / 1e6, sorted[sorted.length / 2] / 1e6);
+	}
+}
@@ -0,0 +1,108 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package pta;
+
+import java.util.ArrayDeque;
+
+/**
+ * Simple pool of DBMs for a single PTA, used to recycle the many short-lived
+ * copies of zones created during forwards reachability.
+ * Zones should only be released to the pool once there are no remaining references to them.
+ * Not thread-safe: use one pool per thread.
+ */
+public class DBMPool
+{
+	/* Default maximum number of DBMs kept in the pool */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+
+	/* Parent PTA */
+	protected PTA pta;
+	/* Free DBMs */
+	protected ArrayDeque<DBM> free;
+	/* Maximum number of free DBMs to keep */
+	protected int maxSize;
+	/* Stats */
+	protected int numAllocated;
+	protected int numReused;
+
+	public DBMPool(PTA pta)
+	{
+		this(pta, DEFAULT_MAX_SIZE);
+	}
+
+	public DBMPool(PTA pta, int maxSize)
+	{
+		this.pta = pta;
+		this.maxSize = maxSize;
+		free = new ArrayDeque<>();
+	}
+
+	/**
+	 * Get a copy of a zone, reusing a previously released DBM if possible.
+	 * Zones that are not DBMs (or are for a different PTA) are just copied with deepCopy().
+	 */
+	public Zone copy(Zone zone)
+	{
+		if (!(zone instanceof DBM) || zone.getPTA() != pta)
+			return zone.deepCopy();
+		DBM dbm = free.pollFirst();
+		if (dbm == null) {
+			dbm = new DBM(pta);
+			numAllocated++;
+		} else {
+			numReused++;
+		}
+		dbm.copyFrom((DBM) zone);
+		return dbm;
+	}
+
+	/**
+	 * Return a zone to the pool, so that it can be reused by a later copy.
+	 * The zone must not be used by the caller after this.
+	 */
+	public void release(Zone zone)
+	{
+		if (zone instanceof DBM && zone.getPTA() == pta && free.size() < maxSize)
+			free.addFirst((DBM) zone);
+	}
+
+	/**
+	 * Get the number of DBMs allocated by this pool.
+	 */
+	public int getNumAllocated()
+	{
+		return numAllocated;
+	}
+
+	/**
+	 * Get the number of copies that reused a released DBM.
+	 */
+	public int getNumReused()
+	{
+		return numReused;
+	}
+}
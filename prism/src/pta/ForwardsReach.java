@@ -36,6 +36,27 @@ public class ForwardsReach
 	// Log for output
 	protected PrismLog mainLog;
 
+	// How to store symbolic states found during reachability
+	public enum ZoneStorage {
+		EXACT, INCLUSION, INCLUSION_REPLACE;
+		public String fullName()
+		{
+			switch (this) {
+			case EXACT:
+				return "Exact";
+			case INCLUSION:
+				return "Inclusion";
+			case INCLUSION_REPLACE:
+				return "Inclusion with replacement";
+			default:
+				return this.toString();
+			}
+		}
+	}
+
+	// Zone storage method
+	protected ZoneStorage zoneStorage = ZoneStorage.EXACT;
+
 	// PTA target info
 	protected BitSet targetLocs;
 	protected Constraint targetConstraint;
@@ -56,6 +77,26 @@ public class ForwardsReach
 		this.mainLog = log;
 	}
 
+	// Settings
+
+	/**
+	 * Set the method used to store symbolic states during reachability:
+	 * either exactly (zones are only identified if equal) or checking for inclusion
+	 * (zones included in an existing zone for the same location are not added)
+	 * and, optionally, replacing unexplored zones included in newly found ones.
+	 * Inclusion checking is not used if there is a target clock constraint
+	 * since the status of a zone as a target can then depend on the zone.
+	 */
+	public void setZoneStorage(ZoneStorage zoneStorage)
+	{
+		this.zoneStorage = zoneStorage;
+	}
+
+	public ZoneStorage getZoneStorage()
+	{
+		return zoneStorage;
+	}
+
 	// Accessors for other info generated during construction of reachability graph
 
 	public BitSet getTarget()
@@ -88,6 +129,8 @@ public class ForwardsReach
 		LocZone init, lz, lz2;
 		LinkedList<LocZone> X;
 		StateStorage<LocZone> Yset;
+		LocZoneInclusionSet inclSet;
+		DBMPool pool;
 		//LocZoneSetOld Zset;
 		ReachabilityGraph graph;
 		int src, dest, count, dests[];
@@ -110,10 +153,18 @@ public class ForwardsReach
 			pta.recomputeMaxClockConstraint(targetConstraint);
 
 		// Initialise data structures
+		// (inclusion checking is only safe if target status depends just on the location)
 		graph = new ReachabilityGraph(pta);
-		Yset = new IndexedSet<>();
+		inclSet = null;
+		if (zoneStorage != ZoneStorage.EXACT && targetConstraint == null) {
+			Yset = inclSet = new LocZoneInclusionSet(zoneStorage == ZoneStorage.INCLUSION_REPLACE);
+		} else {
+			Yset = new IndexedSet<>();
+		}
 		X = new LinkedList<>();
 		target = new BitSet();
+		// Pool for (short-lived) copies of zones
+		pool = new DBMPool(pta);
 
 		// Build initial symbolic state (NB: assume initial location = 0)
 		init = new LocZone(0, DBM.createZero(pta));
@@ -129,14 +180,17 @@ public class ForwardsReach
 			// (so we know index of lz is src+1)
 			lz = X.removeFirst();
 			src++;
+			if (inclSet != null)
+				inclSet.setNumExplored(src + 1);
 			// Compute timed post for this zone (NB: do this before checking if target)
-			lz = lz.deepCopy();
+			lz = lz.deepCopy(pool);
 			lz.tPost(pta);
 			// Is this a target state? (If so, don't explore)
 			if (targetLocs.get(lz.loc) && (targetConstraint == null || lz.zone.isSatisfied(targetConstraint))) {
 				target.set(src);
 				// Add null for this state (no need to store info)
 				graph.addState();
+				pool.release(lz.zone);
 				continue;
 			}
 			// Check if time can diverge in this state
@@ -189,18 +243,22 @@ public class ForwardsReach
 				for (Edge edge : transition.getEdges()) {
 					// Do "discrete post" for this edge
 					// (followed by c-closure)
-					lz2 = lz.deepCopy();
+					lz2 = lz.deepCopy(pool);
 					lz2.dPost(edge);
 					lz2.cClosure(pta);
 					// If non-empty, create edge, also adding state to X if new 
+					// (zones that are not stored are returned to the pool)
 					if (!lz2.zone.isEmpty()) {
 						if (Yset.add(lz2)) {
 							X.add(lz2);
+						} else if (inclSet == null || !inclSet.lastAddReplaced()) {
+							pool.release(lz2.zone);
 						}
 						dest = Yset.getIndexOfLastAdd();
 						enabled = true;
 						dests[count] = dest;
 					} else {
+						pool.release(lz2.zone);
 						unenabled = true;
 						// Store first unenabled edge
 						unenabledEdge = (unenabledEdge == null) ? edge : unenabledEdge;
@@ -229,6 +287,7 @@ public class ForwardsReach
 				s += " when " + lz.zone;
 				throw new PrismException(s);
 			}
+			pool.release(lz.zone);
 			// Print some progress info occasionally
 			if (progress.ready())
 				progress.update(Yset.size());
@@ -250,6 +309,10 @@ public class ForwardsReach
 		mainLog.println("Graph constructed in " + (timer / 1000.0) + " secs.");
 		mainLog.print("Graph: " + graph.states.size() + " symbolic states");
 		mainLog.println(" (" + initialStates.size() + " initial, " + target.cardinality() + " target)");
+		if (inclSet != null) {
+			mainLog.print("Zone inclusion: " + inclSet.getNumSubsumed() + " zones subsumed");
+			mainLog.println(zoneStorage == ZoneStorage.INCLUSION_REPLACE ? ", " + inclSet.getNumReplaced() + " replaced" : "");
+		}
 
 		// Print a warning if there are no target states
 		if (target.cardinality() == 0)
@@ -117,6 +117,14 @@ public class LocZone
 		return new LocZone(loc, zone.deepCopy());
 	}
 
+	/**
+	 * Clone this location/zone pair, taking the zone copy from a pool of DBMs.
+	 */
+	public LocZone deepCopy(DBMPool pool)
+	{
+		return new LocZone(loc, pool.copy(zone));
+	}
+
 	// Standard Java methods
 
 	@Override
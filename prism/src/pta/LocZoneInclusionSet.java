@@ -0,0 +1,262 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <david.parker@comlab.ox.ac.uk> (University of Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package pta;
+
+import java.util.*;
+
+import explicit.StateStorage;
+
+/**
+ * Storage for a set of symbolic states (location-zone pairs) during forwards reachability,
+ * which checks zone inclusion, rather than equality, when adding states:
+ * a state whose zone is included in the zone of an existing state for the same location
+ * is "subsumed" by it and is not added (the index of the existing state is used instead).
+ * Optionally, if a newly added zone includes the zone of an existing state that has not
+ * yet been explored, the existing state's zone is replaced (enlarged) in place instead.
+ * <br><br>
+ * States are indexed in the order they are added. All zones are assumed to be DBMs.
+ */
+public class LocZoneInclusionSet implements StateStorage<LocZone>
+{
+	// All stored states, by index
+	private ArrayList<LocZone> states;
+	// Indices of stored states, for each location
+	private ArrayList<ArrayList<Integer>> statesByLoc;
+	// Replace stored (unexplored) zones that are included in newly added ones?
+	private boolean replace;
+	// Number of stored states that have already been explored (so cannot be replaced)
+	private int numExplored;
+	// Index of state found/added by last call to add()
+	private int indexOfLastAdd;
+	// Statistics
+	private int numSubsumed;
+	private int numReplaced;
+	// Did the last add replace the zone of an existing state?
+	private boolean lastAddReplaced;
+
+	/**
+	 * Create an empty set.
+	 * @param replace Replace stored (unexplored) zones that are included in newly added ones?
+	 */
+	public LocZoneInclusionSet(boolean replace)
+	{
+		this.replace = replace;
+		states = new ArrayList<>();
+		statesByLoc = new ArrayList<>();
+		indexOfLastAdd = -1;
+	}
+
+	/**
+	 * Notify the set that the states with indices 0,...,n-1 have been explored
+	 * (so their zones can no longer be replaced).
+	 */
+	public void setNumExplored(int n)
+	{
+		numExplored = n;
+	}
+
+	/**
+	 * Get the number of additions that were subsumed by an existing (strictly larger) zone.
+	 */
+	public int getNumSubsumed()
+	{
+		return numSubsumed;
+	}
+
+	/**
+	 * Get the number of existing zones that were replaced by a larger one.
+	 */
+	public int getNumReplaced()
+	{
+		return numReplaced;
+	}
+
+	/**
+	 * Get the list of indices of stored states for location {@code loc} (created if needed).
+	 */
+	private ArrayList<Integer> getIndicesForLoc(int loc)
+	{
+		while (statesByLoc.size() <= loc)
+			statesByLoc.add(new ArrayList<Integer>());
+		return statesByLoc.get(loc);
+	}
+
+	/**
+	 * Did the last call to {@link #add} store the zone of its argument
+	 * in place of the zone of an existing (unexplored) state?
+	 */
+	public boolean lastAddReplaced()
+	{
+		return lastAddReplaced;
+	}
+
+	// Methods for StateStorage
+
+	@Override
+	public int get(LocZone lz)
+	{
+		if (lz.loc < statesByLoc.size()) {
+			for (int i : statesByLoc.get(lz.loc)) {
+				if (states.get(i).zone.includes((DBM) lz.zone))
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean add(LocZone lz)
+	{
+		ArrayList<Integer> indices = getIndicesForLoc(lz.loc);
+		lastAddReplaced = false;
+		// Is the new zone included in an existing one?
+		for (int i : indices) {
+			Zone zone = states.get(i).zone;
+			if (zone.includes((DBM) lz.zone)) {
+				if (!zone.equals(lz.zone))
+					numSubsumed++;
+				indexOfLastAdd = i;
+				return false;
+			}
+		}
+		// Does the new zone include an existing (unexplored) one? If so, replace it
+		if (replace) {
+			for (int i : indices) {
+				if (i >= numExplored && lz.zone.includes((DBM) states.get(i).zone)) {
+					states.get(i).zone = lz.zone;
+					numReplaced++;
+					lastAddReplaced = true;
+					indexOfLastAdd = i;
+					return false;
+				}
+			}
+		}
+		// Otherwise add
+		indexOfLastAdd = states.size();
+		states.add(lz);
+		indices.add(indexOfLastAdd);
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		states.clear();
+		statesByLoc.clear();
+		numExplored = 0;
+		indexOfLastAdd = -1;
+		numSubsumed = numReplaced = 0;
+	}
+
+	@Override
+	public boolean contains(LocZone lz)
+	{
+		return get(lz) != -1;
+	}
+
+	@Override
+	public int getIndexOfLastAdd()
+	{
+		return indexOfLastAdd;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return states.isEmpty();
+	}
+
+	@Override
+	public int size()
+	{
+		return states.size();
+	}
+
+	@Override
+	public Set<Map.Entry<LocZone, Integer>> getEntrySet()
+	{
+		Map<LocZone, Integer> map = new LinkedHashMap<>();
+		int i = 0;
+		for (LocZone lz : states)
+			map.put(lz, i++);
+		return map.entrySet();
+	}
+
+	@Override
+	public ArrayList<LocZone> toArrayList()
+	{
+		return new ArrayList<>(states);
+	}
+
+	@Override
+	public void toArrayList(ArrayList<LocZone> list)
+	{
+		list.addAll(states);
+	}
+
+	@Override
+	public ArrayList<LocZone> toPermutedArrayList(int permut[])
+	{
+		ArrayList<LocZone> list = new ArrayList<>(states.size());
+		toPermutedArrayList(permut, list);
+		return list;
+	}
+
+	@Override
+	public void toPermutedArrayList(int permut[], ArrayList<LocZone> list)
+	{
+		int i, n;
+
+		n = states.size();
+		for (i = 0; i < n; i++)
+			list.add(null);
+		for (i = 0; i < n; i++)
+			list.set(permut[i], states.get(i));
+	}
+
+	/**
+	 * Build sort permutation. States are not sorted, so this is just the identity.
+	 */
+	@Override
+	public int[] buildSortingPermutation()
+	{
+		int i, n;
+		int perm[];
+
+		n = states.size();
+		perm = new int[n];
+		for (i = 0; i < n; i++)
+			perm[i] = i;
+		return perm;
+	}
+
+	@Override
+	public String toString()
+	{
+		return states.toString();
+	}
+}
@@ -31,6 +31,7 @@ import java.util.*;
 import prism.ModelType;
 import prism.PrismComponent;
 import prism.PrismException;
+import prism.PrismSettings;
 import explicit.*;
 
 /**
@@ -89,6 +90,15 @@ public class PTAAbstractRefine extends QuantAbstractRefine
 
 		// Build forwards reachability graph
 		forwardsReach = new ForwardsReach(mainLog);
+		if (settings != null) {
+			String zoneStorage = settings.getString(PrismSettings.PRISM_PTA_ZONE_STORAGE);
+			if (zoneStorage.equals("Exact"))
+				forwardsReach.setZoneStorage(ForwardsReach.ZoneStorage.EXACT);
+			else if (zoneStorage.equals("Inclusion"))
+				forwardsReach.setZoneStorage(ForwardsReach.ZoneStorage.INCLUSION);
+			else if (zoneStorage.equals("Inclusion with replacement"))
+				forwardsReach.setZoneStorage(ForwardsReach.ZoneStorage.INCLUSION_REPLACE);
+		}
 		graph = forwardsReach.buildForwardsGraph(pta, targetLocs, targetConstraint);
 		// Store the set of target/initial states from forwards reachability
 		target = forwardsReach.getTarget();
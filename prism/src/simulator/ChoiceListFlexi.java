@@ -45,8 +45,8 @@ public class ChoiceListFlexi implements Choice
 	// List of multiple updates and associated probabilities/rates
 	// Size of list is stored implicitly in target.length
 	// Probabilities/rates are already evaluated, target states are not
-	// but are just stored as lists of updates (for efficiency)
-	protected List<List<Update>> updates;
+	// but are just stored as lists of (compiled) updates (for efficiency)
+	protected List<List<CompiledUpdate>> updates;
 	protected List<Double> probability;
 
 	/**
@@ -66,10 +66,10 @@ public class ChoiceListFlexi implements Choice
 	{
 		moduleOrActionIndex = ch.moduleOrActionIndex;
 		updates = new ArrayList<>(ch.updates.size());
-		for (List<Update> list : ch.updates) {
-			List<Update> listNew = new ArrayList<>(list.size());
+		for (List<CompiledUpdate> list : ch.updates) {
+			List<CompiledUpdate> listNew = new ArrayList<>(list.size());
 			updates.add(listNew);
-			for (Update up : list) {
+			for (CompiledUpdate up : list) {
 				listNew.add(up);
 			}
 		}
@@ -94,14 +94,26 @@ public class ChoiceListFlexi implements Choice
 	/**
 	 * Add a transition to this choice.
 	 * @param probability Probability (or rate) of the transition
-	 * @param ups List of Update objects defining transition
+	 * @param ups List of (compiled) Update objects defining transition
 	 */
-	public void add(double probability, List<Update> ups)
+	public void add(double probability, List<CompiledUpdate> ups)
 	{
 		this.updates.add(ups);
 		this.probability.add(probability);
 	}
 
+	/**
+	 * Add a transition, comprising a single update, to this choice.
+	 * @param probability Probability (or rate) of the transition
+	 * @param up (Compiled) Update object defining transition
+	 */
+	public void add(double probability, CompiledUpdate up)
+	{
+		List<CompiledUpdate> list = new ArrayList<>(1);
+		list.add(up);
+		add(probability, list);
+	}
+
 	@Override
 	public void scaleProbabilitiesBy(double d)
 	{
@@ -117,7 +129,7 @@ public class ChoiceListFlexi implements Choice
 	 */
 	public void productWith(ChoiceListFlexi ch)
 	{
-		List<Update> list;
+		List<CompiledUpdate> list;
 		int i, j, n, n2;
 		double pi;
 
@@ -130,10 +142,10 @@ public class ChoiceListFlexi implements Choice
 			for (j = 0; j < n2; j++) {
 				// Create new element (i,j) of product 
 				list = new ArrayList<>(updates.get(j).size() + ch.updates.get(i).size());
-				for (Update u : updates.get(j)) {
+				for (CompiledUpdate u : updates.get(j)) {
 					list.add(u);
 				}
-				for (Update u : ch.updates.get(i)) {
+				for (CompiledUpdate u : ch.updates.get(i)) {
 					list.add(u);
 				}
 				add(pi * getProbability(j), list);
@@ -142,7 +154,7 @@ public class ChoiceListFlexi implements Choice
 		// Modify elements of current choice to get (0,j) elements of product
 		pi = ch.getProbability(0);
 		for (j = 0; j < n2; j++) {
-			for (Update u : ch.updates.get(0)) {
+			for (CompiledUpdate u : ch.updates.get(0)) {
 				updates.get(j).add(u);
 			}
 			probability.set(j, pi * probability.get(j));
@@ -161,7 +173,7 @@ public class ChoiceListFlexi implements Choice
 	public String getModuleOrAction()
 	{
 		// Action label (or absence of) will be the same for all updates in a choice
-		Update u = updates.get(0).get(0);
+		Update u = updates.get(0).get(0).getUpdate();
 		Command c = u.getParent().getParent();
 		if ("".equals(c.getSynch()))
 			return c.getParent().getName();
@@ -181,7 +193,8 @@ public class ChoiceListFlexi implements Choice
 		int j, n;
 		String s = "";
 		boolean first = true;
-		for (Update up : updates.get(i)) {
+		for (CompiledUpdate cup : updates.get(i)) {
+			Update up = cup.getUpdate();
 			n = up.getNumElements();
 			for (j = 0; j < n; j++) {
 				if (first)
@@ -199,7 +212,8 @@ public class ChoiceListFlexi implements Choice
 	{
 		String s = "";
 		boolean first = true;
-		for (Update up : updates.get(i)) {
+		for (CompiledUpdate cup : updates.get(i)) {
+			Update up = cup.getUpdate();
 			if (up.getNumElements() == 0)
 				continue;
 			if (first)
@@ -215,7 +229,7 @@ public class ChoiceListFlexi implements Choice
 	public State computeTarget(int i, State currentState) throws PrismLangException
 	{
 		State newState = new State(currentState);
-		for (Update up : updates.get(i))
+		for (CompiledUpdate up : updates.get(i))
 			up.update(currentState, newState);
 		return newState;
 	}
@@ -223,7 +237,7 @@ public class ChoiceListFlexi implements Choice
 	@Override
 	public void computeTarget(int i, State currentState, State newState) throws PrismLangException
 	{
-		for (Update up : updates.get(i))
+		for (CompiledUpdate up : updates.get(i))
 			up.update(currentState, newState);
 	}
 
@@ -268,8 +282,8 @@ public class ChoiceListFlexi implements Choice
 		int i, n;
 		n = size();
 		for (i = 0; i < n; i++) {
-			for (Update up : updates.get(i))
-				up.checkUpdate(currentState, varList);
+			for (CompiledUpdate up : updates.get(i))
+				up.getUpdate().checkUpdate(currentState, varList);
 		}
 	}
 
@@ -0,0 +1,122 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import parser.State;
+import parser.ast.Command;
+import parser.ast.Expression;
+import parser.ast.Updates;
+import prism.PrismLangException;
+
+/**
+ * A {@link Command} with its guard, probabilities/rates and updates compiled
+ * (see {@link CompiledExpression}), as used by the {@link Updater}.
+ */
+public class CompiledCommand
+{
+	// The original command
+	private Command command;
+	// Compiled guard
+	private CompiledExpression guard;
+	// Compiled probability/rate for each update (null if implicitly 1)
+	private CompiledExpression probs[];
+	// Compiled updates
+	private CompiledUpdate updates[];
+
+	public CompiledCommand(Command command)
+	{
+		this.command = command;
+		guard = CompiledExpression.compile(command.getGuard());
+		Updates ups = command.getUpdates();
+		int n = ups.getNumUpdates();
+		probs = new CompiledExpression[n];
+		updates = new CompiledUpdate[n];
+		for (int i = 0; i < n; i++) {
+			Expression p = ups.getProbability(i);
+			probs[i] = (p == null) ? null : CompiledExpression.compile(p);
+			updates[i] = new CompiledUpdate(ups.getUpdate(i));
+		}
+	}
+
+	/**
+	 * Get the original (uncompiled) command.
+	 */
+	public Command getCommand()
+	{
+		return command;
+	}
+
+	/**
+	 * Get the (original) Updates object for this command.
+	 */
+	public Updates getUpdates()
+	{
+		return command.getUpdates();
+	}
+
+	/**
+	 * Get the action label index of this command (0 if unlabelled).
+	 */
+	public int getSynchIndex()
+	{
+		return command.getSynchIndex();
+	}
+
+	/**
+	 * Evaluate the guard of this command in a state.
+	 */
+	public boolean isEnabled(State state) throws PrismLangException
+	{
+		return guard.evaluateBoolean(state);
+	}
+
+	/**
+	 * Get the number of updates.
+	 */
+	public int getNumUpdates()
+	{
+		return updates.length;
+	}
+
+	/**
+	 * Evaluate the probability/rate of the {@code i}th update in a state
+	 * (as {@link Updates#getProbabilityInState(int, State)}).
+	 */
+	public double getProbabilityInState(int i, State state) throws PrismLangException
+	{
+		CompiledExpression p = probs[i];
+		return (p == null) ? 1.0 : p.evaluateDouble(state);
+	}
+
+	/**
+	 * Get the {@code i}th (compiled) update.
+	 */
+	public CompiledUpdate getUpdate(int i)
+	{
+		return updates[i];
+	}
+}
@@ -0,0 +1,1030 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.State;
+import parser.ast.Expression;
+import parser.ast.ExpressionBinaryOp;
+import parser.ast.ExpressionFunc;
+import parser.ast.ExpressionITE;
+import parser.ast.ExpressionLiteral;
+import parser.ast.ExpressionUnaryOp;
+import parser.ast.ExpressionVar;
+import parser.type.Type;
+import parser.type.TypeBool;
+import parser.type.TypeDouble;
+import parser.type.TypeInt;
+import prism.PrismLangException;
+
+/**
+ * An {@link Expression} compiled into a tree of evaluators that work directly on primitive
+ * values read from the variable values of a {@link State}, avoiding the boxing of intermediate
+ * results, the repeated type tests and the generic dispatch of evaluating the AST.
+ * Common patterns (e.g. comparison of a variable with a constant, n-ary conjunctions)
+ * are fused into single evaluators.
+ * <br><br>
+ * Integer and Boolean values are represented as {@code int}s (Booleans as 0/1);
+ * whether a node produces an int or a double is fixed at compile time from the
+ * (type-checked) types of the expression, mirroring the AST evaluation code.
+ * Sub-expressions that are not supported by the compiler (e.g. undefined constants)
+ * are evaluated via the AST instead, so semantics (including error messages)
+ * are the same as for the {@code evaluate} methods of {@link Expression}.
+ */
+public class CompiledExpression
+{
+	// The original expression
+	private Expression expr;
+	// Result type (one of TypeInt/TypeBool/TypeDouble, or null if not compiled)
+	private Type type;
+	// Root of the compiled evaluator
+	private Node root;
+
+	/**
+	 * Compile an expression, whose variables (if any) have been indexed
+	 * and whose constants should already have been replaced with their values.
+	 * If the expression's type is not one that can be compiled,
+	 * the returned object just evaluates the expression directly.
+	 */
+	public static CompiledExpression compile(Expression expr)
+	{
+		return new CompiledExpression(expr);
+	}
+
+	private CompiledExpression(Expression expr)
+	{
+		this.expr = expr;
+		Type t = expr.getType();
+		if (t instanceof TypeInt || t instanceof TypeBool) {
+			type = t;
+			root = compileInt(expr);
+		} else if (t instanceof TypeDouble) {
+			type = t;
+			root = compileDouble(expr);
+		}
+	}
+
+	/**
+	 * Get the expression that was compiled.
+	 */
+	public Expression getExpression()
+	{
+		return expr;
+	}
+
+	/**
+	 * Is the expression actually compiled (rather than evaluated via the AST)?
+	 */
+	public boolean isCompiled()
+	{
+		return root != null && !(root instanceof ASTNode);
+	}
+
+	/**
+	 * Evaluate in a state, returning an Object (as {@link Expression#evaluate(State)}).
+	 */
+	public Object evaluate(State state) throws PrismLangException
+	{
+		if (root == null)
+			return expr.evaluate(state);
+		if (type instanceof TypeInt)
+			return Integer.valueOf(root.evalInt(state.varValues, state));
+		if (type instanceof TypeBool)
+			return Boolean.valueOf(root.evalInt(state.varValues, state) != 0);
+		return Double.valueOf(root.evalDouble(state.varValues, state));
+	}
+
+	/**
+	 * Evaluate in a state as an integer (as {@link Expression#evaluateInt(State)}).
+	 */
+	public int evaluateInt(State state) throws PrismLangException
+	{
+		if (root == null || type instanceof TypeDouble)
+			return expr.evaluateInt(state);
+		return root.evalInt(state.varValues, state);
+	}
+
+	/**
+	 * Evaluate in a state as a double (as {@link Expression#evaluateDouble(State)}).
+	 */
+	public double evaluateDouble(State state) throws PrismLangException
+	{
+		if (root == null)
+			return expr.evaluateDouble(state);
+		return root.evalDouble(state.varValues, state);
+	}
+
+	/**
+	 * Evaluate in a state as a Boolean (as {@link Expression#evaluateBoolean(State)}).
+	 */
+	public boolean evaluateBoolean(State state) throws PrismLangException
+	{
+		if (root == null || !(type instanceof TypeBool))
+			return expr.evaluateBoolean(state);
+		return root.evalInt(state.varValues, state) != 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return expr.toString();
+	}
+
+	// Compilation
+
+	private static boolean isInt(Expression e)
+	{
+		return e.getType() instanceof TypeInt || e.getType() instanceof TypeBool;
+	}
+
+	/**
+	 * If {@code e} is (a parenthesised) literal, return it, otherwise null.
+	 */
+	private static ExpressionLiteral asLiteral(Expression e)
+	{
+		while (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.PARENTH)
+			e = ((ExpressionUnaryOp) e).getOperand();
+		return e instanceof ExpressionLiteral ? (ExpressionLiteral) e : null;
+	}
+
+	/**
+	 * If {@code e} is (a parenthesised) indexed variable, return it, otherwise null.
+	 */
+	private static ExpressionVar asVar(Expression e)
+	{
+		while (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.PARENTH)
+			e = ((ExpressionUnaryOp) e).getOperand();
+		return (e instanceof ExpressionVar && ((ExpressionVar) e).getIndex() >= 0) ? (ExpressionVar) e : null;
+	}
+
+	/**
+	 * Compile {@code e} (an int or Boolean) to an evaluator whose {@code evalInt} gives its value.
+	 */
+	private static Node compileInt(Expression e)
+	{
+		if (!isInt(e)) {
+			return new ASTNode(e);
+		}
+		if (e instanceof ExpressionLiteral) {
+			try {
+				return new IntConst(e.evaluateInt());
+			} catch (PrismLangException ex) {
+				return new ASTNode(e);
+			}
+		}
+		if (e instanceof ExpressionVar && ((ExpressionVar) e).getIndex() >= 0) {
+			return new IntVar(((ExpressionVar) e).getIndex());
+		}
+		if (e instanceof ExpressionUnaryOp) {
+			ExpressionUnaryOp u = (ExpressionUnaryOp) e;
+			switch (u.getOperator()) {
+			case ExpressionUnaryOp.NOT:
+				return new Not(compileInt(u.getOperand()));
+			case ExpressionUnaryOp.MINUS:
+				return new IntNeg(compileInt(u.getOperand()));
+			case ExpressionUnaryOp.PARENTH:
+				return compileInt(u.getOperand());
+			}
+			return new ASTNode(e);
+		}
+		if (e instanceof ExpressionBinaryOp) {
+			return compileBinaryOpInt((ExpressionBinaryOp) e);
+		}
+		if (e instanceof ExpressionITE) {
+			ExpressionITE ite = (ExpressionITE) e;
+			return new IntITE(compileInt(ite.getOperand1()), compileInt(ite.getOperand2()), compileInt(ite.getOperand3()));
+		}
+		if (e instanceof ExpressionFunc) {
+			return compileFuncInt((ExpressionFunc) e);
+		}
+		return new ASTNode(e);
+	}
+
+	/**
+	 * Compile {@code e} to an evaluator whose {@code evalDouble} gives its value (converted to a double).
+	 */
+	private static Node compileDouble(Expression e)
+	{
+		if (isInt(e)) {
+			// Int nodes also implement evalDouble
+			return compileInt(e);
+		}
+		if (!(e.getType() instanceof TypeDouble)) {
+			return new ASTNode(e);
+		}
+		if (e instanceof ExpressionLiteral) {
+			try {
+				return new DoubleConst(e.evaluateDouble());
+			} catch (PrismLangException ex) {
+				return new ASTNode(e);
+			}
+		}
+		if (e instanceof ExpressionVar && ((ExpressionVar) e).getIndex() >= 0) {
+			return new DoubleVar(((ExpressionVar) e).getIndex());
+		}
+		if (e instanceof ExpressionUnaryOp) {
+			ExpressionUnaryOp u = (ExpressionUnaryOp) e;
+			switch (u.getOperator()) {
+			case ExpressionUnaryOp.MINUS:
+				return new DoubleNeg(compileDouble(u.getOperand()));
+			case ExpressionUnaryOp.PARENTH:
+				return compileDouble(u.getOperand());
+			}
+			return new ASTNode(e);
+		}
+		if (e instanceof ExpressionBinaryOp) {
+			return compileBinaryOpDouble((ExpressionBinaryOp) e);
+		}
+		if (e instanceof ExpressionITE) {
+			ExpressionITE ite = (ExpressionITE) e;
+			return new DoubleITE(compileInt(ite.getOperand1()), compileDouble(ite.getOperand2()), compileDouble(ite.getOperand3()));
+		}
+		if (e instanceof ExpressionFunc) {
+			return compileFuncDouble((ExpressionFunc) e);
+		}
+		return new ASTNode(e);
+	}
+
+	/**
+	 * Compile a binary operator of int or Boolean type.
+	 */
+	private static Node compileBinaryOpInt(ExpressionBinaryOp e)
+	{
+		Expression e1 = e.getOperand1();
+		Expression e2 = e.getOperand2();
+		boolean intOps = e1.getType() == TypeInt.getInstance() && e2.getType() == TypeInt.getInstance();
+		int op = e.getOperator();
+		switch (op) {
+		case ExpressionBinaryOp.AND:
+		case ExpressionBinaryOp.OR: {
+			// Flatten nested conjunctions/disjunctions
+			List<Node> list = new ArrayList<>();
+			flatten(e, op, list);
+			Node ops[] = list.toArray(new Node[list.size()]);
+			return op == ExpressionBinaryOp.AND ? new And(ops) : new Or(ops);
+		}
+		case ExpressionBinaryOp.IMPLIES:
+			return new Implies(compileInt(e1), compileInt(e2));
+		case ExpressionBinaryOp.IFF:
+			return new IntCompare(ExpressionBinaryOp.EQ, compileInt(e1), compileInt(e2));
+		case ExpressionBinaryOp.EQ:
+		case ExpressionBinaryOp.NE:
+		case ExpressionBinaryOp.GT:
+		case ExpressionBinaryOp.GE:
+		case ExpressionBinaryOp.LT:
+		case ExpressionBinaryOp.LE:
+			if (intOps) {
+				// Fuse (very common) variable/constant comparisons
+				ExpressionVar v = asVar(e1);
+				ExpressionLiteral l = asLiteral(e2);
+				if (v != null && l != null) {
+					try {
+						return VarConstCompare.create(op, v.getIndex(), l.evaluateInt());
+					} catch (PrismLangException ex) {
+						// Fall through
+					}
+				}
+				return new IntCompare(op, compileInt(e1), compileInt(e2));
+			} else {
+				return new DoubleCompare(op, compileDouble(e1), compileDouble(e2));
+			}
+		case ExpressionBinaryOp.PLUS:
+		case ExpressionBinaryOp.MINUS:
+		case ExpressionBinaryOp.TIMES:
+			if (intOps) {
+				// Fuse (very common) variable plus/minus constant
+				ExpressionVar v = asVar(e1);
+				ExpressionLiteral l = asLiteral(e2);
+				if (v != null && l != null && op != ExpressionBinaryOp.TIMES) {
+					try {
+						int c = l.evaluateInt();
+						return new VarPlusConst(v.getIndex(), op == ExpressionBinaryOp.PLUS ? c : -c);
+					} catch (PrismLangException ex) {
+						// Fall through
+					}
+				}
+				return new IntArith(op, compileInt(e1), compileInt(e2));
+			}
+			return new ASTNode(e);
+		}
+		return new ASTNode(e);
+	}
+
+	/**
+	 * Collect the operands of a nested conjunction/disjunction (with operator {@code op}).
+	 */
+	private static void flatten(Expression e, int op, List<Node> list)
+	{
+		if (e instanceof ExpressionBinaryOp && ((ExpressionBinaryOp) e).getOperator() == op) {
+			flatten(((ExpressionBinaryOp) e).getOperand1(), op, list);
+			flatten(((ExpressionBinaryOp) e).getOperand2(), op, list);
+		} else if (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.PARENTH) {
+			flatten(((ExpressionUnaryOp) e).getOperand(), op, list);
+		} else {
+			list.add(compileInt(e));
+		}
+	}
+
+	/**
+	 * Compile a binary operator of double type.
+	 */
+	private static Node compileBinaryOpDouble(ExpressionBinaryOp e)
+	{
+		Expression e1 = e.getOperand1();
+		Expression e2 = e.getOperand2();
+		boolean intOps = e1.getType() == TypeInt.getInstance() && e2.getType() == TypeInt.getInstance();
+		int op = e.getOperator();
+		switch (op) {
+		case ExpressionBinaryOp.PLUS:
+		case ExpressionBinaryOp.MINUS:
+		case ExpressionBinaryOp.TIMES:
+			if (!intOps) {
+				return new DoubleArith(op, compileDouble(e1), compileDouble(e2));
+			}
+			return new ASTNode(e);
+		case ExpressionBinaryOp.DIVIDE:
+			return new DoubleArith(op, compileDouble(e1), compileDouble(e2));
+		}
+		return new ASTNode(e);
+	}
+
+	/**
+	 * Compile a function of int type.
+	 */
+	private static Node compileFuncInt(ExpressionFunc e)
+	{
+		int n = e.getNumOperands();
+		boolean intType = e.getType() instanceof TypeInt;
+		switch (e.getNameCode()) {
+		case ExpressionFunc.MIN:
+		case ExpressionFunc.MAX:
+			if (intType) {
+				Node ops[] = new Node[n];
+				for (int i = 0; i < n; i++)
+					ops[i] = compileInt(e.getOperand(i));
+				return new IntMinMax(e.getNameCode() == ExpressionFunc.MIN, ops);
+			}
+			break;
+		case ExpressionFunc.FLOOR:
+		case ExpressionFunc.CEIL:
+			if (n == 1)
+				return new FloorCeil(e, e.getNameCode() == ExpressionFunc.FLOOR, compileDouble(e.getOperand(0)));
+			break;
+		case ExpressionFunc.POW:
+			if (intType && n == 2)
+				return new IntPowMod(e, true, compileInt(e.getOperand(0)), compileInt(e.getOperand(1)));
+			break;
+		case ExpressionFunc.MOD:
+			if (n == 2)
+				return new IntPowMod(e, false, compileInt(e.getOperand(0)), compileInt(e.getOperand(1)));
+			break;
+		}
+		return new ASTNode(e);
+	}
+
+	/**
+	 * Compile a function of double type.
+	 */
+	private static Node compileFuncDouble(ExpressionFunc e)
+	{
+		int n = e.getNumOperands();
+		switch (e.getNameCode()) {
+		case ExpressionFunc.MIN:
+		case ExpressionFunc.MAX: {
+			Node ops[] = new Node[n];
+			for (int i = 0; i < n; i++)
+				ops[i] = compileDouble(e.getOperand(i));
+			return new DoubleMinMax(e.getNameCode() == ExpressionFunc.MIN, ops);
+		}
+		case ExpressionFunc.POW:
+		case ExpressionFunc.LOG:
+			if (n == 2)
+				return new DoublePowLog(e.getNameCode() == ExpressionFunc.POW, compileDouble(e.getOperand(0)), compileDouble(e.getOperand(1)));
+			break;
+		}
+		return new ASTNode(e);
+	}
+
+	// Evaluators
+
+	/**
+	 * Base class for evaluators. Those for int/Boolean expressions implement {@code evalInt}
+	 * (and get {@code evalDouble} for free); those for doubles implement {@code evalDouble}.
+	 * The state is passed both as its array of variable values and (for AST fall-backs) as a State.
+	 */
+	private static abstract class Node
+	{
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			throw new PrismLangException("Cannot evaluate to an integer");
+		}
+
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			return evalInt(vars, state);
+		}
+	}
+
+	/** Read an int (or Boolean, as 0/1) variable value */
+	private static int intValue(Object o)
+	{
+		return (o instanceof Integer) ? ((Integer) o).intValue() : (((Boolean) o).booleanValue() ? 1 : 0);
+	}
+
+	private static final class ASTNode extends Node
+	{
+		private final Expression e;
+
+		ASTNode(Expression e)
+		{
+			this.e = e;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			return e.evaluateInt(state);
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			return e.evaluateDouble(state);
+		}
+	}
+
+	private static final class IntConst extends Node
+	{
+		private final int c;
+
+		IntConst(int c)
+		{
+			this.c = c;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state)
+		{
+			return c;
+		}
+	}
+
+	private static final class DoubleConst extends Node
+	{
+		private final double c;
+
+		DoubleConst(double c)
+		{
+			this.c = c;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state)
+		{
+			return c;
+		}
+	}
+
+	private static final class IntVar extends Node
+	{
+		private final int index;
+
+		IntVar(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state)
+		{
+			return intValue(vars[index]);
+		}
+	}
+
+	private static final class DoubleVar extends Node
+	{
+		private final int index;
+
+		DoubleVar(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state)
+		{
+			Object o = vars[index];
+			if (o instanceof Double)
+				return ((Double) o).doubleValue();
+			return intValue(o);
+		}
+	}
+
+	private static final class Not extends Node
+	{
+		private final Node a;
+
+		Not(Node a)
+		{
+			this.a = a;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			return a.evalInt(vars, state) == 0 ? 1 : 0;
+		}
+	}
+
+	private static final class IntNeg extends Node
+	{
+		private final Node a;
+
+		IntNeg(Node a)
+		{
+			this.a = a;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			return -a.evalInt(vars, state);
+		}
+	}
+
+	private static final class DoubleNeg extends Node
+	{
+		private final Node a;
+
+		DoubleNeg(Node a)
+		{
+			this.a = a;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			return -a.evalDouble(vars, state);
+		}
+	}
+
+	private static final class And extends Node
+	{
+		private final Node ops[];
+
+		And(Node ops[])
+		{
+			this.ops = ops;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			for (Node op : ops) {
+				if (op.evalInt(vars, state) == 0)
+					return 0;
+			}
+			return 1;
+		}
+	}
+
+	private static final class Or extends Node
+	{
+		private final Node ops[];
+
+		Or(Node ops[])
+		{
+			this.ops = ops;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			for (Node op : ops) {
+				if (op.evalInt(vars, state) != 0)
+					return 1;
+			}
+			return 0;
+		}
+	}
+
+	private static final class Implies extends Node
+	{
+		private final Node a, b;
+
+		Implies(Node a, Node b)
+		{
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			return (a.evalInt(vars, state) == 0 || b.evalInt(vars, state) != 0) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Comparison of an int variable with a constant.
+	 * One subclass per operator, so that evaluation involves no further dispatch.
+	 */
+	private static abstract class VarConstCompare extends Node
+	{
+		protected final int index, c;
+
+		VarConstCompare(int index, int c)
+		{
+			this.index = index;
+			this.c = c;
+		}
+
+		static Node create(int op, int index, int c)
+		{
+			switch (op) {
+			case ExpressionBinaryOp.EQ:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) == c ? 1 : 0;
+					}
+				};
+			case ExpressionBinaryOp.NE:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) != c ? 1 : 0;
+					}
+				};
+			case ExpressionBinaryOp.GT:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) > c ? 1 : 0;
+					}
+				};
+			case ExpressionBinaryOp.GE:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) >= c ? 1 : 0;
+					}
+				};
+			case ExpressionBinaryOp.LT:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) < c ? 1 : 0;
+					}
+				};
+			default:
+				return new VarConstCompare(index, c)
+				{
+					@Override
+					int evalInt(Object vars[], State state)
+					{
+						return intValue(vars[index]) <= c ? 1 : 0;
+					}
+				};
+			}
+		}
+	}
+
+	private static final class IntCompare extends Node
+	{
+		private final int op;
+		private final Node a, b;
+
+		IntCompare(int op, Node a, Node b)
+		{
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			int i = a.evalInt(vars, state);
+			int j = b.evalInt(vars, state);
+			switch (op) {
+			case ExpressionBinaryOp.EQ:
+				return i == j ? 1 : 0;
+			case ExpressionBinaryOp.NE:
+				return i != j ? 1 : 0;
+			case ExpressionBinaryOp.GT:
+				return i > j ? 1 : 0;
+			case ExpressionBinaryOp.GE:
+				return i >= j ? 1 : 0;
+			case ExpressionBinaryOp.LT:
+				return i < j ? 1 : 0;
+			default:
+				return i <= j ? 1 : 0;
+			}
+		}
+	}
+
+	private static final class DoubleCompare extends Node
+	{
+		private final int op;
+		private final Node a, b;
+
+		DoubleCompare(int op, Node a, Node b)
+		{
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			double d1 = a.evalDouble(vars, state);
+			double d2 = b.evalDouble(vars, state);
+			switch (op) {
+			case ExpressionBinaryOp.EQ:
+				return d1 == d2 ? 1 : 0;
+			case ExpressionBinaryOp.NE:
+				return d1 != d2 ? 1 : 0;
+			case ExpressionBinaryOp.GT:
+				return d1 > d2 ? 1 : 0;
+			case ExpressionBinaryOp.GE:
+				return d1 >= d2 ? 1 : 0;
+			case ExpressionBinaryOp.LT:
+				return d1 < d2 ? 1 : 0;
+			default:
+				return d1 <= d2 ? 1 : 0;
+			}
+		}
+	}
+
+	private static final class VarPlusConst extends Node
+	{
+		private final int index, c;
+
+		VarPlusConst(int index, int c)
+		{
+			this.index = index;
+			this.c = c;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state)
+		{
+			return intValue(vars[index]) + c;
+		}
+	}
+
+	private static final class IntArith extends Node
+	{
+		private final int op;
+		private final Node a, b;
+
+		IntArith(int op, Node a, Node b)
+		{
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			int i = a.evalInt(vars, state);
+			int j = b.evalInt(vars, state);
+			switch (op) {
+			case ExpressionBinaryOp.PLUS:
+				return i + j;
+			case ExpressionBinaryOp.MINUS:
+				return i - j;
+			default:
+				return i * j;
+			}
+		}
+	}
+
+	private static final class DoubleArith extends Node
+	{
+		private final int op;
+		private final Node a, b;
+
+		DoubleArith(int op, Node a, Node b)
+		{
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			double d1 = a.evalDouble(vars, state);
+			double d2 = b.evalDouble(vars, state);
+			switch (op) {
+			case ExpressionBinaryOp.PLUS:
+				return d1 + d2;
+			case ExpressionBinaryOp.MINUS:
+				return d1 - d2;
+			case ExpressionBinaryOp.TIMES:
+				return d1 * d2;
+			default:
+				return d1 / d2;
+			}
+		}
+	}
+
+	private static final class IntITE extends Node
+	{
+		private final Node a, b, c;
+
+		IntITE(Node a, Node b, Node c)
+		{
+			this.a = a;
+			this.b = b;
+			this.c = c;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			return a.evalInt(vars, state) != 0 ? b.evalInt(vars, state) : c.evalInt(vars, state);
+		}
+	}
+
+	private static final class DoubleITE extends Node
+	{
+		private final Node a, b, c;
+
+		DoubleITE(Node a, Node b, Node c)
+		{
+			this.a = a;
+			this.b = b;
+			this.c = c;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			return a.evalInt(vars, state) != 0 ? b.evalDouble(vars, state) : c.evalDouble(vars, state);
+		}
+	}
+
+	private static final class IntMinMax extends Node
+	{
+		private final boolean min;
+		private final Node ops[];
+
+		IntMinMax(boolean min, Node ops[])
+		{
+			this.min = min;
+			this.ops = ops;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			int res = ops[0].evalInt(vars, state);
+			for (int i = 1; i < ops.length; i++) {
+				int j = ops[i].evalInt(vars, state);
+				if (min ? j < res : j > res)
+					res = j;
+			}
+			return res;
+		}
+	}
+
+	private static final class DoubleMinMax extends Node
+	{
+		private final boolean min;
+		private final Node ops[];
+
+		DoubleMinMax(boolean min, Node ops[])
+		{
+			this.min = min;
+			this.ops = ops;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			double res = ops[0].evalDouble(vars, state);
+			for (int i = 1; i < ops.length; i++) {
+				double d = ops[i].evalDouble(vars, state);
+				if (min ? d < res : d > res)
+					res = d;
+			}
+			return res;
+		}
+	}
+
+	private static final class FloorCeil extends Node
+	{
+		private final ExpressionFunc e;
+		private final boolean floor;
+		private final Node a;
+
+		FloorCeil(ExpressionFunc e, boolean floor, Node a)
+		{
+			this.e = e;
+			this.floor = floor;
+			this.a = a;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			double d = a.evalDouble(vars, state);
+			try {
+				return floor ? ExpressionFunc.evaluateFloor(d) : ExpressionFunc.evaluateCeil(d);
+			} catch (PrismLangException ex) {
+				ex.setASTElement(e);
+				throw ex;
+			}
+		}
+	}
+
+	private static final class IntPowMod extends Node
+	{
+		private final ExpressionFunc e;
+		private final boolean pow;
+		private final Node a, b;
+
+		IntPowMod(ExpressionFunc e, boolean pow, Node a, Node b)
+		{
+			this.e = e;
+			this.pow = pow;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		int evalInt(Object vars[], State state) throws PrismLangException
+		{
+			int i = a.evalInt(vars, state);
+			int j = b.evalInt(vars, state);
+			try {
+				return pow ? ExpressionFunc.evaluatePowInt(i, j) : ExpressionFunc.evaluateMod(i, j);
+			} catch (PrismLangException ex) {
+				ex.setASTElement(e);
+				throw ex;
+			}
+		}
+	}
+
+	private static final class DoublePowLog extends Node
+	{
+		private final boolean pow;
+		private final Node a, b;
+
+		DoublePowLog(boolean pow, Node a, Node b)
+		{
+			this.pow = pow;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		double evalDouble(Object vars[], State state) throws PrismLangException
+		{
+			double d1 = a.evalDouble(vars, state);
+			double d2 = b.evalDouble(vars, state);
+			return pow ? ExpressionFunc.evaluatePowDouble(d1, d2) : ExpressionFunc.evaluateLog(d1, d2);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import parser.State;
+import parser.ast.Update;
+import prism.PrismLangException;
+
+/**
+ * A single {@link Update} (i.e. a set of variable assignments)
+ * whose right-hand sides are compiled into {@link CompiledExpression}s.
+ */
+public class CompiledUpdate
+{
+	// The original update
+	private Update update;
+	// Index of each updated variable
+	private int varIndices[];
+	// Compiled expression for each updated variable
+	private CompiledExpression exprs[];
+
+	public CompiledUpdate(Update update)
+	{
+		this.update = update;
+		int n = update.getNumElements();
+		varIndices = new int[n];
+		exprs = new CompiledExpression[n];
+		for (int i = 0; i < n; i++) {
+			varIndices[i] = update.getVarIndex(i);
+			exprs[i] = CompiledExpression.compile(update.getExpression(i));
+		}
+	}
+
+	/**
+	 * Get the original (uncompiled) update.
+	 */
+	public Update getUpdate()
+	{
+		return update;
+	}
+
+	/**
+	 * Execute this update (as {@link Update#update(State, State)}):
+	 * apply the changes, evaluated in {@code oldState}, to {@code newState}.
+	 */
+	public void update(State oldState, State newState) throws PrismLangException
+	{
+		int n = exprs.length;
+		for (int i = 0; i < n; i++) {
+			newState.setValue(varIndices[i], exprs[i].evaluate(oldState));
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return update.toString();
+	}
+}
@@ -26,20 +26,46 @@
 
 package simulator;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPOutputStream;
 
 import parser.State;
 import parser.VarList;
 import parser.ast.ModulesFile;
 import prism.PrismException;
-import prism.PrismFileLog;
 import prism.PrismLog;
+import prism.PrismPrintStreamLog;
+import prism.PrismSettings;
 import userinterface.graph.Graph;
 
+/**
+ * Generation of random paths through a model with the simulator, for export to a file (or the log) or plotting.
+ * <br><br>
+ * Exported paths are streamed: each step is written (to a buffered, and optionally gzip-compressed, file)
+ * as soon as it is generated, and only the current state and the info needed for loop detection are kept,
+ * so memory usage does not depend on the length of the path.
+ * Several independent paths can also be generated, in parallel, to separate files (see the "paths=" option).
+ */
 public class GenerateSimulationPath
 {
+	/** Buffer size used for exporting paths to files */
+	private static final int EXPORT_BUFFER_SIZE = 1 << 16;
+
 	// The simulator engine and a log for output
 	private SimulatorEngine engine;
 	private PrismLog mainLog;
@@ -66,6 +92,7 @@ public class GenerateSimulationPath
 	private ArrayList<Integer> simVars = null;
 	private boolean simLoopCheck = true;
 	private int simPathRepeat = 1;
+	private int simPathNumPaths = 1;
 	private boolean simPathShowProbs = false;
 	private boolean simPathShowRewards = false;
 	private boolean simPathShowChangesOnly = false;
@@ -114,12 +141,38 @@ public class GenerateSimulationPath
 		warnings.clear();
 
 		parseDetails(details);
-		PathDisplayer displayer = generateDisplayerForExport();
-		if (simPathType == PathType.SIM_PATH_DEADLOCK)
-			generateMultiplePaths(displayer);
-		else
-			generatePath(displayer);
-		displayer.close();
+		if (simPathNumPaths > 1) {
+			if (file == null)
+				throw new PrismException("Option \"paths\" requires the paths to be exported to a file");
+			generateIndependentPaths(details);
+			return;
+		}
+		// If a seed was given, use it, so that the path can be reproduced
+		PrismSettings settings = engine.getSettings();
+		int seed = settings == null ? 0 : settings.getInteger(PrismSettings.SIMULATOR_SEED);
+		if (seed != 0)
+			engine.setRandomNumberGenerator(new RandomNumberGenerator(seed));
+		exportPath();
+	}
+
+	/**
+	 * Generate a path, as configured by the current options, and export it to {@code file} (or the log if null).
+	 */
+	private void exportPath() throws PrismException
+	{
+		PrismLog log = (file == null) ? mainLog : openExportLog(file);
+		try {
+			if (simPathType == PathType.SIM_PATH_DEADLOCK) {
+				exportMultiplePaths(log);
+			} else {
+				PathDisplayer displayer = generateDisplayerForExport(log);
+				generatePath(displayer);
+				displayer.close();
+			}
+		} finally {
+			if (file != null)
+				closeExportLog(log, file);
+		}
 	}
 
 	/**
@@ -136,6 +189,10 @@ public class GenerateSimulationPath
 		this.maxPathLength = maxPathLength;
 
 		parseDetails(details);
+		if (simPathNumPaths > 1) {
+			simPathNumPaths = 1;
+			mainLog.printWarning("Ignoring \"paths\" option - it is only valid when exporting paths to a file.");
+		}
 		PathDisplayer displayer = generateDisplayerForPlotting(graphModel);
 		if (simPathType == PathType.SIM_PATH_DEADLOCK)
 			generateMultiplePaths(displayer);
@@ -249,6 +306,15 @@ public class GenerateSimulationPath
 				} catch (NumberFormatException e) {
 					throw new PrismException("Value for \"repeat\" option must be a positive integer");
 				}
+			} else if (ss[i].indexOf("paths=") == 0) {
+				// how many independent paths to generate (each to a separate file)
+				try {
+					simPathNumPaths = Integer.parseInt(ss[i].substring(6));
+					if (simPathNumPaths < 1)
+						throw new NumberFormatException();
+				} catch (NumberFormatException e) {
+					throw new PrismException("Value for \"paths\" option must be a positive integer");
+				}
 			} else if (ss[i].indexOf("snapshot=") == 0) {
 				// print timed snapshots of path
 				try {
@@ -323,6 +389,7 @@ public class GenerateSimulationPath
 		mainLog.println(" * time=<x> - generate a path of at least <x> time units");
 		mainLog.println(" * deadlock - generate a path until a deadlock is reached");
 		mainLog.println(" * repeat=<n> - try <n> paths until a deadlock is found");
+		mainLog.println(" * paths=<n> - generate <n> independent paths, in parallel, to separate files");
 
 		mainLog.println(" * sep=<val> - use <val> as column separator (space, tab, comma)");
 		mainLog.println(" * vars=<x1,x2,...> - show values for variables x1,x2,.. only");
@@ -334,22 +401,51 @@ public class GenerateSimulationPath
 	}
 
 	/**
-	 * Create a PathDisplayer object for file export
+	 * Open a (buffered) log for exporting a path to a file.
+	 * If the filename ends in ".gz", the output is gzip-compressed.
 	 */
-	private PathDisplayer generateDisplayerForExport() throws PrismException
+	private static PrismLog openExportLog(File file) throws PrismException
+	{
+		try {
+			OutputStream out = new FileOutputStream(file);
+			if (file.getName().endsWith(".gz"))
+				out = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+			return new PrismPrintStreamLog(new PrintStream(new BufferedOutputStream(out, EXPORT_BUFFER_SIZE)));
+		} catch (IOException e) {
+			throw new PrismException("Could not open file \"" + file + "\" for output");
+		}
+	}
+
+	/**
+	 * Close a log opened with {@link #openExportLog(File)}, checking for any errors that occurred during writing.
+	 */
+	private static void closeExportLog(PrismLog log, File file) throws PrismException
+	{
+		PrintStream out = ((PrismPrintStreamLog) log).getPrintStream();
+		out.close();
+		if (out.checkError())
+			throw new PrismException("Error writing to file \"" + file + "\"");
+	}
+
+	/**
+	 * Get the file to which the {@code k}th of several independent paths is exported,
+	 * i.e., {@code file} with {@code k} inserted before the extension (e.g. path.txt -> path0.txt).
+	 */
+	private static File getIndependentPathFile(File file, int k)
+	{
+		String name = file.getName();
+		int dot = name.indexOf('.', 1);
+		name = (dot == -1) ? name + k : name.substring(0, dot) + k + name.substring(dot);
+		return new File(file.getParentFile(), name);
+	}
+
+	/**
+	 * Create a PathDisplayer object for export to a log
+	 */
+	private PathDisplayer generateDisplayerForExport(PrismLog log)
 	{
-		PrismLog log;
 		PathToText displayer;
 
-		if (file != null) {
-			log = new PrismFileLog(file.getPath());
-			if (!log.ready()) {
-				log.close();
-				throw new PrismException("Could not open file \"" + file + "\" for output");
-			}
-		} else {
-			log = mainLog;
-		}
 		displayer = new PathToText(log, modulesFile);
 		displayer.setColSep(simPathSep);
 		displayer.setVarsToShow(simVars);
@@ -459,41 +555,84 @@ public class GenerateSimulationPath
 	}
 
 	/**
-	 * Generate multiple random paths using the simulator.
+	 * Generate multiple random paths using the simulator, until one ends in a deadlock,
+	 * and export it to {@code log}. Each path is streamed to a temporary file as it is
+	 * generated and, if it is the one to be kept, then copied to {@code log}.
+	 */
+	private void exportMultiplePaths(PrismLog log) throws PrismException
+	{
+		File tmpFile;
+		int j = 0;
+
+		// Print details
+		mainLog.println("\nGenerating random path(s) until deadlock state...");
+
+		// Create path
+		engine.createNewOnTheFlyPath(modulesFile);
+		try {
+			tmpFile = File.createTempFile("prism-path", ".txt");
+			tmpFile.deleteOnExit();
+		} catch (IOException e) {
+			throw new PrismException("Could not create temporary file for path: " + e.getMessage());
+		}
+		try {
+			// Build path
+			for (j = 0; j < simPathRepeat; j++) {
+				PrismLog tmpLog = openExportLog(tmpFile);
+				try {
+					generatePathUntilDeadlock(generateDisplayerForExport(tmpLog));
+				} finally {
+					closeExportLog(tmpLog, tmpFile);
+				}
+				// Stop generating paths if done
+				if (engine.queryIsDeadlock())
+					break;
+			}
+			if (j < simPathRepeat)
+				j++;
+
+			// Bail out if we didn't build a suitable path 
+			if (!engine.queryIsDeadlock()) {
+				printNoDeadlockFound();
+				return;
+			}
+
+			// Display path
+			if (file == null)
+				mainLog.println();
+			try (BufferedReader in = new BufferedReader(new FileReader(tmpFile))) {
+				String line;
+				while ((line = in.readLine()) != null) {
+					log.println(line);
+				}
+			} catch (IOException e) {
+				throw new PrismException("Could not read temporary file for path: " + e.getMessage());
+			}
+		} finally {
+			tmpFile.delete();
+		}
+
+		// Print summary of path(s)
+		printMultiplePathsSummary(engine.getPath(), j);
+	}
+
+	/**
+	 * Generate multiple random paths using the simulator, until one ends in a deadlock,
+	 * and pass it to {@code displayer}.
 	 * Note: these are not on-the-fly paths since we don't in advance if they are to be displayed.
 	 */
 	private void generateMultiplePaths(PathDisplayer displayer) throws PrismException
 	{
-		Path path = null;
-		int i = 0, j = 0;
-		boolean done;
+		int j = 0;
 
 		// Print details
-		if (simPathType == PathType.SIM_PATH_DEADLOCK) {
-			mainLog.println("\nGenerating random path(s) until deadlock state...");
-		}
+		mainLog.println("\nGenerating random path(s) until deadlock state...");
 
 		// Create path
 		engine.createNewPath(modulesFile);
 		// Build path
 		for (j = 0; j < simPathRepeat; j++) {
-			path = engine.getPath();
-			engine.initialisePath(initialState);
-			i = 0;
-			done = false;
-			while (!done) {
-				// Generate a single step of path
-				engine.automaticTransition();
-				i++;
-				// Check for termination (depending on type)
-				if (simPathType == PathType.SIM_PATH_DEADLOCK) {
-					if (engine.queryIsDeadlock() || i >= maxPathLength)
-						done = true;
-				}
-				// Stop if a loop was found (and loop checking was not disabled)
-				if (simLoopCheck && engine.isPathLooping())
-					break;
-			}
+			generatePathUntilDeadlock(null);
 			// Stop generating paths if done
 			if (engine.queryIsDeadlock())
 				break;
@@ -503,10 +642,7 @@ public class GenerateSimulationPath
 
 		// Bail out if we didn't build a suitable path 
 		if (!engine.queryIsDeadlock()) {
-			mainLog.print("\nNo deadlock state found within " + maxPathLength + " steps");
-			if (simPathRepeat > 1)
-				mainLog.print(" (generated " + simPathRepeat + " paths)");
-			mainLog.println(".");
+			printNoDeadlockFound();
 			return;
 		}
 
@@ -516,8 +652,53 @@ public class GenerateSimulationPath
 		engine.getPathFull().display(displayer);
 
 		// Print summary of path(s)
-		if (simPathRepeat > 1 && j > 1)
-			mainLog.print("\nGenerated " + j + " paths. Final path: ");
+		printMultiplePathsSummary(engine.getPath(), j);
+	}
+
+	/**
+	 * Generate a single random path, until a deadlock state or the maximum path length is reached
+	 * (or a loop is detected, unless disabled), passing each step to {@code displayer}, if non-null.
+	 */
+	private void generatePathUntilDeadlock(PathDisplayer displayer) throws PrismException
+	{
+		Path path = engine.getPath();
+		long i = 0;
+		boolean done = false;
+
+		engine.initialisePath(initialState);
+		if (displayer != null)
+			displayer.start(path.getCurrentState(), path.getCurrentStateRewards());
+		while (!done) {
+			// Generate a single step of path
+			engine.automaticTransition();
+			i++;
+			if (displayer != null) {
+				displayer.step(path.getTimeInPreviousState(), path.getTotalTime(), path.getPreviousModuleOrAction(), path.getPreviousProbability(),
+						path.getPreviousTransitionRewards(), path.size(), path.getCurrentState(), path.getCurrentStateRewards());
+			}
+			// Check for termination
+			if (engine.queryIsDeadlock() || i >= maxPathLength)
+				done = true;
+			// Stop if a loop was found (and loop checking was not disabled)
+			if (simLoopCheck && engine.isPathLooping())
+				break;
+		}
+		if (displayer != null)
+			displayer.end();
+	}
+
+	private void printNoDeadlockFound()
+	{
+		mainLog.print("\nNo deadlock state found within " + maxPathLength + " steps");
+		if (simPathRepeat > 1)
+			mainLog.print(" (generated " + simPathRepeat + " paths)");
+		mainLog.println(".");
+	}
+
+	private void printMultiplePathsSummary(Path path, int numPaths)
+	{
+		if (simPathRepeat > 1 && numPaths > 1)
+			mainLog.print("\nGenerated " + numPaths + " paths. Final path: ");
 		else
 			mainLog.print("\nGenerated path: ");
 		mainLog.print(path.size() + " steps");
@@ -531,6 +712,82 @@ public class GenerateSimulationPath
 		}
 	}
 
+	/**
+	 * Generate several independent random paths, in parallel, each exported to a separate file
+	 * (see {@link #getIndependentPathFile(File, int)}). Each path uses its own copy of the simulator,
+	 * with a random number generator seeded (in order) from a master generator, so the paths
+	 * generated do not depend on the number of threads.
+	 * @param details Information about the paths to be generated
+	 */
+	private void generateIndependentPaths(final String details) throws PrismException
+	{
+		PrismSettings settings = engine.getSettings();
+		int numThreads = settings == null ? 1 : settings.getInteger(PrismSettings.PRISM_NUM_THREADS);
+		int seed = settings == null ? 0 : settings.getInteger(PrismSettings.SIMULATOR_SEED);
+		numThreads = Math.max(1, Math.min(numThreads, simPathNumPaths));
+		RandomNumberGenerator seedGenerator = seed == 0 ? new RandomNumberGenerator() : new RandomNumberGenerator(seed);
+
+		mainLog.println("\nGenerating " + simPathNumPaths + " independent random paths" + (numThreads > 1 ? " using " + numThreads + " threads" : "") + "...");
+
+		// Each path is generated by a separate copy of this class (and the simulator),
+		// with its own log, which is printed once the path is done.
+		// Paths are generated on the thread pool shared via the settings (or directly, if single-threaded)
+		ForkJoinPool pool = numThreads > 1 ? settings.getThreadPool() : null;
+		List<Future<GenerateSimulationPath>> futures = new ArrayList<>(simPathNumPaths);
+		List<ByteArrayOutputStream> logs = new ArrayList<>(simPathNumPaths);
+		try {
+			for (int k = 0; k < simPathNumPaths; k++) {
+				final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				final PrismLog log = new PrismPrintStreamLog(new PrintStream(buffer));
+				final SimulatorEngine pathEngine = new SimulatorEngine(engine);
+				pathEngine.setLog(log);
+				pathEngine.setRandomNumberGenerator(new RandomNumberGenerator(seedGenerator.randomInt()));
+				final File pathFile = getIndependentPathFile(file, k);
+				logs.add(buffer);
+				FutureTask<GenerateSimulationPath> task = new FutureTask<>(new Callable<GenerateSimulationPath>()
+				{
+					@Override
+					public GenerateSimulationPath call() throws PrismException
+					{
+						GenerateSimulationPath genPath = new GenerateSimulationPath(pathEngine, log);
+						genPath.modulesFile = modulesFile;
+						genPath.initialState = initialState;
+						genPath.maxPathLength = maxPathLength;
+						genPath.file = pathFile;
+						genPath.parseDetails(details);
+						genPath.simPathNumPaths = 1;
+						genPath.exportPath();
+						log.flush();
+						return genPath;
+					}
+				});
+				futures.add(task);
+				if (pool != null)
+					pool.execute(task);
+				else
+					task.run();
+			}
+			// Wait for the paths (in order), print their logs and collect warnings
+			for (int k = 0; k < simPathNumPaths; k++) {
+				GenerateSimulationPath genPath = futures.get(k).get();
+				mainLog.print(logs.get(k).toString());
+				warnings.addAll(genPath.getWarnings());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PrismException("Path generation was interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof PrismException)
+				throw (PrismException) e.getCause();
+			throw new PrismException("Error during path generation: " + e.getCause());
+		} finally {
+			// Cancel any paths still pending (only relevant if something went wrong)
+			for (Future<GenerateSimulationPath> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
 	class GenerateAndPlotThread extends Thread
 	{
 		private ModulesFile modulesFile;
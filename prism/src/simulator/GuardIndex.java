@@ -0,0 +1,302 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import parser.State;
+import parser.VarList;
+import parser.ast.Expression;
+import parser.ast.ExpressionBinaryOp;
+import parser.ast.ExpressionLiteral;
+import parser.ast.ExpressionUnaryOp;
+import parser.ast.ExpressionVar;
+import parser.type.TypeBool;
+import parser.type.TypeInt;
+import prism.PrismLangException;
+
+/**
+ * Index of the commands of a module, keyed on the value of a single variable,
+ * used to avoid evaluating guards that are known to be false.
+ * <br><br>
+ * The top-level conjuncts of each guard are scanned for constraints of the form
+ * {@code v=c}, {@code v!=c}, {@code v<c}, {@code v<=c}, {@code v>c}, {@code v>=c} (or {@code c op v}),
+ * {@code b} or {@code !b} for a bounded variable {@code v}/{@code b} and a literal {@code c}.
+ * The variable that discards the most commands overall (typically a local "program counter")
+ * is chosen, and for each of its values, the commands whose guards can be true are stored,
+ * in their original order. Guards of the candidate commands still need to be evaluated in full.
+ */
+public class GuardIndex
+{
+	/** Maximum number of values of an indexed variable */
+	public static final int MAX_DOMAIN_SIZE = 1024;
+
+	// All commands of the module
+	private CompiledCommand commands[];
+	// Index of the variable used as key (-1 if no index)
+	private int varIndex = -1;
+	// Lowest value of the variable
+	private int low;
+	// Candidate commands for each value of the variable (offset by low)
+	private CompiledCommand candidates[][];
+	// Average number of candidates over all values of the variable
+	private double avgCandidates;
+
+	/**
+	 * Build an index for a module's (compiled) commands.
+	 * If no variable is useful for indexing, {@link #getCandidates(State)}
+	 * just returns all commands.
+	 * @param commands The (compiled) commands of the module 
+	 * @param varList Variable info, used for variable ranges
+	 */
+	public GuardIndex(CompiledCommand commands[], VarList varList)
+	{
+		this.commands = commands;
+		avgCandidates = commands.length;
+		int n = commands.length;
+		if (n < 2)
+			return;
+		// Extract constraints from each command's guard, grouped by variable
+		Map<Integer, List<List<int[]>>> constraints = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			List<Expression> conjuncts = new ArrayList<>();
+			getConjuncts(commands[i].getCommand().getGuard(), conjuncts);
+			for (Expression conj : conjuncts) {
+				int constraint[] = extractConstraint(conj);
+				if (constraint == null)
+					continue;
+				int v = constraint[0];
+				if (v >= varList.getNumVars())
+					continue;
+				long size = (long) varList.getHigh(v) - varList.getLow(v) + 1;
+				if (size < 1 || size > MAX_DOMAIN_SIZE)
+					continue;
+				List<List<int[]>> lists = constraints.get(v);
+				if (lists == null) {
+					lists = new ArrayList<>(n);
+					for (int j = 0; j < n; j++)
+						lists.add(new ArrayList<int[]>());
+					constraints.put(v, lists);
+				}
+				lists.get(i).add(constraint);
+			}
+		}
+		// Pick the variable that minimises the total number of candidates
+		long best = -1;
+		for (Map.Entry<Integer, List<List<int[]>>> e : constraints.entrySet()) {
+			int v = e.getKey();
+			int vLow = varList.getLow(v);
+			int size = varList.getHigh(v) - vLow + 1;
+			CompiledCommand cands[][] = new CompiledCommand[size][];
+			long total = 0;
+			List<CompiledCommand> list = new ArrayList<>();
+			for (int val = 0; val < size; val++) {
+				list.clear();
+				for (int i = 0; i < n; i++) {
+					if (satisfies(e.getValue().get(i), vLow + val))
+						list.add(commands[i]);
+				}
+				cands[val] = list.toArray(new CompiledCommand[list.size()]);
+				total += cands[val].length;
+			}
+			if (total < (long) size * n && (best == -1 || total < best)) {
+				best = total;
+				varIndex = v;
+				low = vLow;
+				candidates = cands;
+				avgCandidates = ((double) total) / size;
+			}
+		}
+	}
+
+	/**
+	 * Is an index actually used (rather than just returning all commands)?
+	 */
+	public boolean isIndexed()
+	{
+		return varIndex != -1;
+	}
+
+	/**
+	 * Get the index of the variable used as the key (-1 if none).
+	 */
+	public int getVarIndex()
+	{
+		return varIndex;
+	}
+
+	/**
+	 * Get the average number of candidate commands over all values of the key variable.
+	 */
+	public double getAverageNumCandidates()
+	{
+		return avgCandidates;
+	}
+
+	/**
+	 * Get the commands whose guards may be true in state {@code state},
+	 * in their original order.
+	 */
+	public CompiledCommand[] getCandidates(State state)
+	{
+		if (varIndex == -1)
+			return commands;
+		Object o = state.varValues[varIndex];
+		int val = (o instanceof Integer) ? ((Integer) o).intValue() : (((Boolean) o).booleanValue() ? 1 : 0);
+		val -= low;
+		// (Out-of-range values should not occur, but are safe anyway)
+		return (val >= 0 && val < candidates.length) ? candidates[val] : commands;
+	}
+
+	// Private helpers
+
+	/**
+	 * Collect the top-level conjuncts of an expression.
+	 */
+	private static void getConjuncts(Expression e, List<Expression> list)
+	{
+		if (e instanceof ExpressionBinaryOp && ((ExpressionBinaryOp) e).getOperator() == ExpressionBinaryOp.AND) {
+			getConjuncts(((ExpressionBinaryOp) e).getOperand1(), list);
+			getConjuncts(((ExpressionBinaryOp) e).getOperand2(), list);
+		} else if (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.PARENTH) {
+			getConjuncts(((ExpressionUnaryOp) e).getOperand(), list);
+		} else {
+			list.add(e);
+		}
+	}
+
+	private static Expression stripParentheses(Expression e)
+	{
+		while (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.PARENTH)
+			e = ((ExpressionUnaryOp) e).getOperand();
+		return e;
+	}
+
+	private static boolean isIndexableVar(Expression e)
+	{
+		return e instanceof ExpressionVar && ((ExpressionVar) e).getIndex() >= 0
+				&& (e.getType() instanceof TypeInt || e.getType() instanceof TypeBool);
+	}
+
+	/**
+	 * Extract a constraint {var index, operator, constant} from an expression
+	 * (operators as in {@link ExpressionBinaryOp}, Booleans as 0/1), or return null if not possible.
+	 */
+	private static int[] extractConstraint(Expression e)
+	{
+		e = stripParentheses(e);
+		try {
+			// b
+			if (isIndexableVar(e) && e.getType() instanceof TypeBool) {
+				return new int[] { ((ExpressionVar) e).getIndex(), ExpressionBinaryOp.EQ, 1 };
+			}
+			// !b
+			if (e instanceof ExpressionUnaryOp && ((ExpressionUnaryOp) e).getOperator() == ExpressionUnaryOp.NOT) {
+				Expression op = stripParentheses(((ExpressionUnaryOp) e).getOperand());
+				if (isIndexableVar(op) && op.getType() instanceof TypeBool)
+					return new int[] { ((ExpressionVar) op).getIndex(), ExpressionBinaryOp.EQ, 0 };
+				return null;
+			}
+			if (!(e instanceof ExpressionBinaryOp))
+				return null;
+			ExpressionBinaryOp b = (ExpressionBinaryOp) e;
+			int op = b.getOperator();
+			if (op < ExpressionBinaryOp.EQ || op > ExpressionBinaryOp.LE)
+				return null;
+			Expression e1 = stripParentheses(b.getOperand1());
+			Expression e2 = stripParentheses(b.getOperand2());
+			// Comparisons only between variables/constants of the same (int/bool) type
+			if (e1.getType() != e2.getType())
+				return null;
+			// v op c
+			if (isIndexableVar(e1) && e2 instanceof ExpressionLiteral) {
+				return new int[] { ((ExpressionVar) e1).getIndex(), op, e2.evaluateInt() };
+			}
+			// c op v
+			if (e1 instanceof ExpressionLiteral && isIndexableVar(e2)) {
+				return new int[] { ((ExpressionVar) e2).getIndex(), flip(op), e1.evaluateInt() };
+			}
+		} catch (PrismLangException ex) {
+			// Can't use
+		}
+		return null;
+	}
+
+	/**
+	 * Get the operator {@code op2} such that {@code a op b} iff {@code b op2 a}.
+	 */
+	private static int flip(int op)
+	{
+		switch (op) {
+		case ExpressionBinaryOp.GT:
+			return ExpressionBinaryOp.LT;
+		case ExpressionBinaryOp.GE:
+			return ExpressionBinaryOp.LE;
+		case ExpressionBinaryOp.LT:
+			return ExpressionBinaryOp.GT;
+		case ExpressionBinaryOp.LE:
+			return ExpressionBinaryOp.GE;
+		default:
+			return op;
+		}
+	}
+
+	/**
+	 * Check whether value {@code val} satisfies all of a list of constraints.
+	 */
+	private static boolean satisfies(List<int[]> constraints, int val)
+	{
+		for (int c[] : constraints) {
+			boolean sat;
+			switch (c[1]) {
+			case ExpressionBinaryOp.EQ:
+				sat = val == c[2];
+				break;
+			case ExpressionBinaryOp.NE:
+				sat = val != c[2];
+				break;
+			case ExpressionBinaryOp.GT:
+				sat = val > c[2];
+				break;
+			case ExpressionBinaryOp.GE:
+				sat = val >= c[2];
+				break;
+			case ExpressionBinaryOp.LT:
+				sat = val < c[2];
+				break;
+			default:
+				sat = val <= c[2];
+			}
+			if (!sat)
+				return false;
+		}
+		return true;
+	}
+}
@@ -12,6 +12,7 @@ import parser.ast.ModulesFile;
 import parser.ast.RewardStruct;
 import parser.type.Type;
 import prism.DefaultModelGenerator;
+import prism.ModelGenerator;
 import prism.ModelType;
 import prism.PrismComponent;
 import prism.PrismException;
@@ -31,6 +32,8 @@ public class ModulesFileModelGenerator extends DefaultModelGenerator
 	private Values mfConstants;
 	private VarList varList;
 	private LabelList labelList;
+	/** Compiled versions of the label expressions */
+	private CompiledExpression compiledLabels[];
 
 	// Model exploration info
 
@@ -82,6 +85,23 @@ public class ModulesFileModelGenerator extends DefaultModelGenerator
 		}
 	}
 
+	/**
+	 * Build a ModulesFileModelGenerator that is a copy of {@code other},
+	 * sharing no mutable data with it (see {@link #createCopy()}).
+	 */
+	private ModulesFileModelGenerator(ModulesFileModelGenerator other) throws PrismException
+	{
+		this.parent = other.parent;
+		this.modulesFile = other.modulesFile;
+		this.originalModulesFile = other.originalModulesFile;
+		this.modelType = other.modelType;
+		this.mfConstants = other.mfConstants;
+		// (initialise() makes a deep copy of the modules file)
+		if (mfConstants != null) {
+			initialise();
+		}
+	}
+
 	/**
 	 * (Re-)Initialise the class ready for model exploration
 	 * (can only be done once any constants needed have been provided)
@@ -94,6 +114,10 @@ public class ModulesFileModelGenerator extends DefaultModelGenerator
 		// Get info
 		varList = modulesFile.createVarList();
 		labelList = modulesFile.getLabelList();
+		compiledLabels = new CompiledExpression[labelList.size()];
+		for (int i = 0; i < compiledLabels.length; i++) {
+			compiledLabels[i] = CompiledExpression.compile(labelList.getLabel(i));
+		}
 
 		// Create data structures for exploring model
 		updater = new Updater(modulesFile, varList, parent);
@@ -322,26 +346,21 @@ public class ModulesFileModelGenerator extends DefaultModelGenerator
 	@Override
 	public boolean isLabelTrue(int i) throws PrismException
 	{
-		Expression expr = labelList.getLabel(i);
-		return expr.evaluateBoolean(exploreState);
+		return compiledLabels[i].evaluateBoolean(exploreState);
 	}
 
 	@Override
 	public double getStateReward(int index, State state) throws PrismException
 	{
-		RewardStruct rewStr = modulesFile.getRewardStruct(index);
-		int n = rewStr.getNumItems();
-		double d = 0;
-		for (int i = 0; i < n; i++) {
-			Expression guard = rewStr.getStates(i);
-			if (guard.evaluateBoolean(modulesFile.getConstantValues(), state)) {
-				double rew = rewStr.getReward(i).evaluateDouble(modulesFile.getConstantValues(), state);
-				if (Double.isNaN(rew))
-					throw new PrismLangException("Reward structure evaluates to NaN at state " + state, rewStr.getReward(i));
-				d += rew;
-			}
-		}
-		return d;
+		return updater.calculateStateReward(index, state);
+	}
+
+	/**
+	 * Get the Updater used to compute transitions (e.g. for statistics).
+	 */
+	public Updater getUpdater()
+	{
+		return updater;
 	}
 
 	// Local utility methods
@@ -359,6 +378,12 @@ public class ModulesFileModelGenerator extends DefaultModelGenerator
 		return transitionList;
 	}
 
+	@Override
+	public ModelGenerator createCopy() throws PrismException
+	{
+		return new ModulesFileModelGenerator(this);
+	}
+
 	@Override
 	public VarList createVarList()
 	{
@@ -0,0 +1,285 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+package simulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import parser.State;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import prism.PrismException;
+
+/**
+ * Generation of sample paths for approximate (statistical) model checking using several threads.
+ * Each thread has its own copy of the simulator, i.e. its own {@link Updater}, on-the-fly path
+ * and samplers for the properties being checked. Paths are generated in fixed-size batches,
+ * each using a fresh random number generator, whose seed is taken (in order) from a master generator.
+ * <br><br>
+ * Paths are handed back to the caller one at a time, in the order in which their batches were
+ * created, regardless of the order in which the threads finish them. So, the sequence of path values
+ * seen by the caller (and hence the outcome of sequential stopping rules such as those for SPRT or CI)
+ * depends only on the seed, not on the number of threads or how they are scheduled.
+ * <br><br>
+ * Paths are generated on a thread pool supplied by the caller (which remains owned by the caller).
+ * Once no longer needed, {@link #shutdown()} should be called to stop any remaining path generation.
+ */
+class ParallelPathGenerator
+{
+	/** Number of paths in each batch */
+	public static final int BATCH_SIZE = 64;
+	/** Number of batches to keep in progress per thread (more gives better load balancing) */
+	private static final int BATCHES_PER_THREAD = 2;
+
+	/** Initial state for paths (if null, selected by each simulator) */
+	private State initialState;
+	/** Maximum path length */
+	private long maxPathLength;
+	/** Number of properties (samplers) */
+	private int numProperties;
+
+	/** Generator for the seeds of each batch */
+	private RandomNumberGenerator seedGenerator;
+	/** Threads used for path generation */
+	private ForkJoinPool pool;
+	/** Simulators (one per thread) */
+	private List<SimulatorEngine> engines;
+	/** Simulators not currently being used by a thread */
+	private BlockingQueue<SimulatorEngine> idleEngines;
+	/** Batches in progress (or finished but not yet used), in order of creation */
+	private Deque<Future<Batch>> pending;
+
+	/** Batch containing the current path, and the index of the path within it */
+	private Batch current;
+	private int currentIndex;
+
+	/**
+	 * A batch of sample paths, generated by a single thread.
+	 */
+	private static class Batch
+	{
+		/** Seed for the random number generator */
+		int seed;
+		/** Number of paths generated (can be fewer than BATCH_SIZE, see below) */
+		int numPaths;
+		/** Length of each path */
+		long lengths[];
+		/** Value of each property (first index) for each path (second index) */
+		Object values[][];
+		/** Were there properties whose values were not known for the last path? (if so, the batch stops there) */
+		boolean lastPathIncomplete;
+		/** Error that occurred when generating the path after the last one (if any) */
+		PrismException error;
+	}
+
+	/**
+	 * Create a generator of sample paths, and start generating paths.
+	 * @param parent Simulator from which settings (and model/properties) are taken
+	 * @param modulesFile Model for simulation, constants defined
+	 * @param properties Properties to check (with all constants/labels already expanded)
+	 * @param initialState Initial state (if null, use default, selecting randomly if needed)
+	 * @param maxPathLength The maximum path length for sampling
+	 * @param pool Thread pool to use (one simulator copy is created per thread of the pool)
+	 * @param seed Seed for the master random number generator (if 0, seed using the current time)
+	 */
+	public ParallelPathGenerator(SimulatorEngine parent, ModulesFile modulesFile, List<Expression> properties, State initialState, long maxPathLength,
+			ForkJoinPool pool, int seed) throws PrismException
+	{
+		int numThreads = pool.getParallelism();
+		// If possible, determine the default initial state now, rather than in each thread
+		if (initialState == null && modulesFile.getInitialStates() == null) {
+			initialState = modulesFile.getDefaultInitialState();
+		}
+		this.initialState = initialState;
+		this.maxPathLength = maxPathLength;
+		numProperties = properties.size();
+		seedGenerator = seed == 0 ? new RandomNumberGenerator() : new RandomNumberGenerator(seed);
+
+		// Create a copy of the simulator for each thread
+		engines = new ArrayList<>(numThreads);
+		idleEngines = new LinkedBlockingQueue<>();
+		for (int t = 0; t < numThreads; t++) {
+			SimulatorEngine engine = new SimulatorEngine(parent);
+			engine.createNewOnTheFlyPath(modulesFile);
+			for (Expression prop : properties) {
+				engine.addProperty(prop);
+			}
+			engines.add(engine);
+			idleEngines.add(engine);
+		}
+
+		// Start the threads, with enough batches to keep them busy
+		this.pool = pool;
+		pending = new ArrayDeque<>();
+		for (int b = 0; b < numThreads * BATCHES_PER_THREAD; b++) {
+			submitBatch();
+		}
+	}
+
+	/**
+	 * Move on to the next sample path, returning its length.
+	 * If an error occurred when generating the path, an exception is thrown.
+	 */
+	public long nextPath() throws PrismException
+	{
+		currentIndex++;
+		if (current == null || currentIndex >= current.numPaths) {
+			if (current != null && current.error != null) {
+				throw current.error;
+			}
+			current = takeBatch();
+			currentIndex = 0;
+			// Error on first path of batch (or no paths at all, e.g. if interrupted)
+			if (current.numPaths == 0) {
+				if (current.error != null)
+					throw current.error;
+				throw new PrismException("Path generation interrupted");
+			}
+		}
+		return current.lengths[currentIndex];
+	}
+
+	/**
+	 * Are the values of all properties known for the current path?
+	 */
+	public boolean allValuesKnown()
+	{
+		return !(current.lastPathIncomplete && currentIndex == current.numPaths - 1);
+	}
+
+	/**
+	 * Get the value of the {@code i}th property for the current path.
+	 */
+	public Object getValue(int i)
+	{
+		return current.values[i][currentIndex];
+	}
+
+	/**
+	 * Get the updaters of the simulators used by each thread (e.g. for statistics).
+	 */
+	public List<Updater> getUpdaters()
+	{
+		List<Updater> updaters = new ArrayList<>(engines.size());
+		for (SimulatorEngine engine : engines) {
+			updaters.add(engine.updater);
+		}
+		return updaters;
+	}
+
+	/**
+	 * Stop generating paths (cancelling any batches still in progress).
+	 */
+	public void shutdown()
+	{
+		for (Future<Batch> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Create a new batch, with the next seed, and queue it for generation.
+	 */
+	private void submitBatch()
+	{
+		final Batch batch = new Batch();
+		batch.seed = seedGenerator.randomInt();
+		FutureTask<Batch> task = new FutureTask<>(new Callable<Batch>()
+		{
+			@Override
+			public Batch call() throws InterruptedException
+			{
+				SimulatorEngine engine = idleEngines.take();
+				try {
+					generateBatch(engine, batch);
+				} finally {
+					idleEngines.add(engine);
+				}
+				return batch;
+			}
+		});
+		pending.add(task);
+		pool.execute(task);
+	}
+
+	/**
+	 * Wait for the oldest batch to be finished, then remove and return it
+	 * (and queue up another one in its place).
+	 */
+	private Batch takeBatch() throws PrismException
+	{
+		Future<Batch> future = pending.poll();
+		submitBatch();
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PrismException("Sampling was interrupted");
+		} catch (ExecutionException e) {
+			throw new PrismException("Error during sampling: " + e.getCause());
+		}
+	}
+
+	/**
+	 * Generate the paths for a batch, using the simulator {@code engine}.
+	 * Generation stops early if the values of some properties are not known at the end of a path,
+	 * or an error occurs (in which case it is stored in the batch).
+	 */
+	private void generateBatch(SimulatorEngine engine, Batch batch)
+	{
+		int i, j;
+		engine.setRandomNumberGenerator(new RandomNumberGenerator(batch.seed));
+		batch.lengths = new long[BATCH_SIZE];
+		batch.values = new Object[numProperties][BATCH_SIZE];
+		batch.numPaths = 0;
+		for (j = 0; j < BATCH_SIZE && !Thread.currentThread().isInterrupted(); j++) {
+			try {
+				batch.lengths[j] = engine.generateSamplePath(initialState, maxPathLength);
+			} catch (PrismException e) {
+				batch.error = e;
+				return;
+			}
+			batch.numPaths++;
+			if (!engine.allSamplerValuesKnown()) {
+				batch.lastPathIncomplete = true;
+				return;
+			}
+			for (i = 0; i < numProperties; i++) {
+				batch.values[i][j] = engine.queryProperty(i);
+			}
+		}
+	}
+}
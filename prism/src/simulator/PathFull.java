@@ -30,6 +30,7 @@ import java.util.ArrayList;
 
 import parser.State;
 import parser.ast.ModulesFile;
+import parser.type.TypeBool;
 import prism.PrismException;
 import prism.PrismLog;
 import userinterface.graph.Graph;
@@ -37,7 +38,8 @@ import userinterface.graph.Graph;
 /**
  * Stores and manipulates a path though a model.
  * The full path is stored, i.e. all info at all steps.
- * State objects and arrays are copied for storage.
+ * Steps are stored in a compact columnar form (see {@link PathStorage}),
+ * so State objects returned for earlier steps are reconstructed on demand.
  */
 public class PathFull extends Path implements PathFullInfo
 {
@@ -49,10 +51,17 @@ public class PathFull extends Path implements PathFullInfo
 	private int numRewardStructs;
 
 	// The path, i.e. list of states, etc.
-	private ArrayList<Step> steps;
+	private PathStorage steps;
 	// The path length (just for convenience; equal to steps.size() - 1)
 	private int size;
 
+	// Copies of the current/previous states and rewards (for fast access)
+	private State currentState;
+	private State previousState;
+	private double currentStateRewards[];
+	private double previousStateRewards[];
+	private double previousTransitionRewards[];
+
 	// Loop detector for path
 	protected LoopDetector loopDet;
 
@@ -65,8 +74,13 @@ public class PathFull extends Path implements PathFullInfo
 		this.modulesFile = modulesFile;
 		continuousTime = modulesFile.getModelType().continuousTime();
 		numRewardStructs = modulesFile.getNumRewardStructs();
-		// Create list to store path
-		steps = new ArrayList<>(100);
+		// Create storage for path
+		int numVars = modulesFile.getNumVars();
+		boolean varIsBool[] = new boolean[numVars];
+		for (int i = 0; i < numVars; i++) {
+			varIsBool[i] = modulesFile.getVarType(i) instanceof TypeBool;
+		}
+		steps = new PathStorage(varIsBool, numRewardStructs);
 		// Initialise variables
 		clear();
 		// Create loop detector
@@ -74,12 +88,24 @@ public class PathFull extends Path implements PathFullInfo
 	}
 
 	/**
-	 * Clear the path.
+	 * Set the maximum number of path steps kept in memory;
+	 * older steps are moved to a temporary memory-mapped file.
+	 * 0 means no limit (everything is kept in memory).
+	 */
+	public void setMaxStepsInMemory(int maxStepsInMemory)
+	{
+		steps.setMaxStepsInMemory(maxStepsInMemory);
+	}
+
+	/**
+	 * Clear the path, releasing any resources held by its storage (i.e. a spill file).
 	 */
 	protected void clear()
 	{
-		steps.clear();
+		steps.close();
 		size = 0;
+		currentState = previousState = null;
+		currentStateRewards = previousStateRewards = previousTransitionRewards = null;
 	}
 
 	// MUTATORS (for Path)
@@ -89,16 +115,15 @@ public class PathFull extends Path implements PathFullInfo
 	{
 		clear();
 		// Add new step item to the path
-		Step step = new Step();
-		steps.add(step);
-		// Add (copies of) initial state and state rewards to new step
-		step.state = new State(initialState);
-		step.stateRewards = initialStateRewards.clone();
-		// Set cumulative time/reward (up until entering this state)
-		step.timeCumul = 0.0;
+		int step = steps.addStep();
+		// Add initial state and state rewards to new step
+		steps.setState(step, initialState);
 		for (int i = 0; i < numRewardStructs; i++) {
-			step.rewardsCumul[i] = 0.0;
+			steps.setStateReward(step, i, initialStateRewards[i]);
 		}
+		// (cumulative time/reward, up until entering this state, are 0)
+		currentState = new State(initialState);
+		currentStateRewards = initialStateRewards.clone();
 		// Initialise loop detector
 		loopDet.initialise();
 	}
@@ -114,30 +139,39 @@ public class PathFull extends Path implements PathFullInfo
 	public void addStep(double time, int choice, int moduleOrActionIndex, double probability, double[] transitionRewards, State newState,
 			double[] newStateRewards, TransitionList transitionList)
 	{
-		Step stepOld, stepNew;
 		// Add info to last existing step
-		stepOld = steps.get(steps.size() - 1);
-		stepOld.time = time;
-		stepOld.choice = choice;
-		stepOld.moduleOrActionIndex = moduleOrActionIndex;
-		stepOld.probability = probability;
-		stepOld.transitionRewards = transitionRewards.clone();
+		int stepOld = size;
+		steps.setTime(stepOld, time);
+		steps.setChoice(stepOld, choice);
+		steps.setModuleOrActionIndex(stepOld, moduleOrActionIndex);
+		steps.setProbability(stepOld, probability);
+		for (int i = 0; i < numRewardStructs; i++) {
+			steps.setTransitionReward(stepOld, i, transitionRewards[i]);
+		}
 		// Add new step item to the path
-		stepNew = new Step();
-		steps.add(stepNew);
-		// Add (copies of) new state and state rewards to new step
-		stepNew.state = new State(newState);
-		stepNew.stateRewards = newStateRewards.clone();
+		int stepNew = steps.addStep();
+		// Add new state and state rewards to new step
+		steps.setState(stepNew, newState);
+		for (int i = 0; i < numRewardStructs; i++) {
+			steps.setStateReward(stepNew, i, newStateRewards[i]);
+		}
 		// Set cumulative time/rewards (up until entering this state)
-		stepNew.timeCumul = stepOld.timeCumul + time;
+		steps.setCumulativeTime(stepNew, steps.getCumulativeTime(stepOld) + time);
 		for (int i = 0; i < numRewardStructs; i++) {
-			stepNew.rewardsCumul[i] = stepOld.rewardsCumul[i];
+			double rewardCumul = steps.getCumulativeReward(stepOld, i);
 			if (continuousTime)
-				stepNew.rewardsCumul[i] += stepOld.stateRewards[i] * time;
+				rewardCumul += currentStateRewards[i] * time;
 			else
-				stepNew.rewardsCumul[i] += stepOld.stateRewards[i];
-			stepNew.rewardsCumul[i] += transitionRewards[i];
+				rewardCumul += currentStateRewards[i];
+			rewardCumul += transitionRewards[i];
+			steps.setCumulativeReward(stepNew, i, rewardCumul);
 		}
+		// Update copies of current/previous info
+		previousState = currentState;
+		previousStateRewards = currentStateRewards;
+		previousTransitionRewards = transitionRewards.clone();
+		currentState = new State(newState);
+		currentStateRewards = newStateRewards.clone();
 		// Update size too
 		size++;
 		// Update loop detector
@@ -152,21 +186,28 @@ public class PathFull extends Path implements PathFullInfo
 	 */
 	public void backtrack(int step)
 	{
-		int i, n;
 		// Remove steps after index 'step'
-		n = steps.size() - 1;
-		for (i = n; i > step; i--)
-			steps.remove(i);
+		steps.truncate(step + 1);
 		// Update info in last step of path
-		Step last = steps.get(steps.size() - 1);
-		last.time = 0.0;
-		last.choice = -1;
-		last.moduleOrActionIndex = 0;
-		last.probability = 0.0;
-		for (i = 0; i < numRewardStructs; i++)
-			last.transitionRewards[i] = 0.0;
+		steps.setTime(step, 0.0);
+		steps.setChoice(step, -1);
+		steps.setModuleOrActionIndex(step, 0);
+		steps.setProbability(step, 0.0);
+		for (int i = 0; i < numRewardStructs; i++)
+			steps.setTransitionReward(step, i, 0.0);
 		// Update size too
 		size = step;
+		// Update copies of current/previous info
+		if (step > 0) {
+			previousState = steps.getState(step - 1);
+			previousStateRewards = steps.getStateRewards(step - 1);
+			previousTransitionRewards = steps.getTransitionRewards(step - 1);
+		} else {
+			previousState = null;
+			previousStateRewards = previousTransitionRewards = null;
+		}
+		currentState = steps.getState(step);
+		currentStateRewards = steps.getStateRewards(step);
 		// Update loop detector
 		loopDet.backtrack(this);
 	}
@@ -178,7 +219,7 @@ public class PathFull extends Path implements PathFullInfo
 	 */
 	public void removePrecedingStates(int step)
 	{
-		int i, j, numKeep, sizeOld;
+		int i, j, numKeep;
 		double timeCumul, rewardsCumul[];
 
 		// Ignore trivial case
@@ -189,22 +230,21 @@ public class PathFull extends Path implements PathFullInfo
 		rewardsCumul = new double[numRewardStructs];
 		for (j = 0; j < numRewardStructs; j++)
 			rewardsCumul[j] = getCumulativeReward(step, j);
-		// Move later steps of path 'step' places forward 
-		// and subtract time/reward as appropriate 
+		// Subtract time/reward from later steps of path as appropriate 
 		numKeep = steps.size() - step;
 		for (i = 0; i < numKeep; i++) {
-			Step tmp = steps.get(i + step);
-			tmp.timeCumul -= timeCumul;
+			steps.setCumulativeTime(i + step, steps.getCumulativeTime(i + step) - timeCumul);
 			for (j = 0; j < numRewardStructs; j++)
-				tmp.rewardsCumul[j] -= rewardsCumul[j];
-			steps.set(i, tmp);
+				steps.setCumulativeReward(i + step, j, steps.getCumulativeReward(i + step, j) - rewardsCumul[j]);
 		}
-		// Remove steps after index 'step'
-		sizeOld = steps.size();
-		for (i = sizeOld - 1; i >= numKeep; i--)
-			steps.remove(i);
+		// Remove steps before index 'step'
+		steps.removePrefix(step);
 		// Update size too
 		size = steps.size() - 1;
+		if (size == 0) {
+			previousState = null;
+			previousStateRewards = previousTransitionRewards = null;
+		}
 		// Update loop detector
 		loopDet.removePrecedingStates(this, step);
 	}
@@ -226,19 +266,19 @@ public class PathFull extends Path implements PathFullInfo
 	@Override
 	public State getPreviousState()
 	{
-		return steps.get(steps.size() - 2).state;
+		return previousState;
 	}
 
 	@Override
 	public State getCurrentState()
 	{
-		return steps.get(steps.size() - 1).state;
+		return currentState;
 	}
 
 	@Override
 	public int getPreviousModuleOrActionIndex()
 	{
-		return steps.get(steps.size() - 2).moduleOrActionIndex;
+		return steps.getModuleOrActionIndex(size - 1);
 	}
 
 	@Override
@@ -256,61 +296,61 @@ public class PathFull extends Path implements PathFullInfo
 	@Override
 	public double getPreviousProbability()
 	{
-		return steps.get(steps.size() - 2).probability;
+		return steps.getProbability(size - 1);
 	}
 
 	@Override
 	public double getTotalTime()
 	{
-		return size < 1 ? 0.0 : steps.get(steps.size() - 1).timeCumul;
+		return size < 1 ? 0.0 : steps.getCumulativeTime(size);
 	}
 
 	@Override
 	public double getTimeInPreviousState()
 	{
-		return steps.get(steps.size() - 2).time;
+		return steps.getTime(size - 1);
 	}
 
 	@Override
 	public double getTotalCumulativeReward(int rsi)
 	{
-		return steps.get(steps.size() - 1).rewardsCumul[rsi];
+		return steps.getCumulativeReward(size, rsi);
 	}
 
 	@Override
 	public double getPreviousStateReward(int rsi)
 	{
-		return steps.get(steps.size() - 2).stateRewards[rsi];
+		return previousStateRewards[rsi];
 	}
 
 	@Override
 	public double[] getPreviousStateRewards()
 	{
-		return steps.get(steps.size() - 2).stateRewards;
+		return previousStateRewards;
 	}
 
 	@Override
 	public double getPreviousTransitionReward(int rsi)
 	{
-		return steps.get(steps.size() - 2).transitionRewards[rsi];
+		return previousTransitionRewards[rsi];
 	}
 
 	@Override
 	public double[] getPreviousTransitionRewards()
 	{
-		return steps.get(steps.size() - 2).transitionRewards;
+		return previousTransitionRewards;
 	}
 
 	@Override
 	public double getCurrentStateReward(int rsi)
 	{
-		return steps.get(steps.size() - 1).stateRewards[rsi];
+		return currentStateRewards[rsi];
 	}
 
 	@Override
 	public double[] getCurrentStateRewards()
 	{
-		return steps.get(steps.size() - 1).stateRewards;
+		return currentStateRewards;
 	}
 
 	@Override
@@ -336,13 +376,17 @@ public class PathFull extends Path implements PathFullInfo
 	@Override
 	public State getState(int step)
 	{
-		return steps.get(step).state;
+		if (step == size)
+			return currentState;
+		if (step == size - 1 && previousState != null)
+			return previousState;
+		return steps.getState(step);
 	}
 
 	@Override
 	public double getStateReward(int step, int rsi)
 	{
-		return steps.get(step).stateRewards[rsi];
+		return steps.getStateReward(step, rsi);
 	}
 
 	/**
@@ -351,43 +395,43 @@ public class PathFull extends Path implements PathFullInfo
 	 */
 	protected double[] getStateRewards(int step)
 	{
-		return steps.get(step).stateRewards;
+		return steps.getStateRewards(step);
 	}
 
 	@Override
 	public double getCumulativeTime(int step)
 	{
-		return steps.get(step).timeCumul;
+		return steps.getCumulativeTime(step);
 	}
 
 	@Override
 	public double getCumulativeReward(int step, int rsi)
 	{
-		return steps.get(step).rewardsCumul[rsi];
+		return steps.getCumulativeReward(step, rsi);
 	}
 
 	@Override
 	public double getTime(int step)
 	{
-		return steps.get(step).time;
+		return steps.getTime(step);
 	}
 
 	@Override
 	public int getChoice(int step)
 	{
-		return steps.get(step).choice;
+		return steps.getChoice(step);
 	}
 
 	@Override
 	public int getModuleOrActionIndex(int step)
 	{
-		return steps.get(step).moduleOrActionIndex;
+		return steps.getModuleOrActionIndex(step);
 	}
 
 	@Override
 	public String getModuleOrAction(int step)
 	{
-		int i = steps.get(step).moduleOrActionIndex;
+		int i = steps.getModuleOrActionIndex(step);
 		if (i < 0)
 			return modulesFile.getModuleName(-i - 1);
 		else if (i > 0)
@@ -402,13 +446,13 @@ public class PathFull extends Path implements PathFullInfo
 	 */
 	public double getProbability(int step)
 	{
-		return steps.get(steps.size() - 2).probability;
+		return steps.getProbability(step);
 	}
 
 	@Override
 	public double getTransitionReward(int step, int rsi)
 	{
-		return steps.get(step).transitionRewards[rsi];
+		return steps.getTransitionReward(step, rsi);
 	}
 
 	/**
@@ -417,7 +461,7 @@ public class PathFull extends Path implements PathFullInfo
 	 */
 	protected double[] getTransitionRewards(int step)
 	{
-		return steps.get(step).transitionRewards;
+		return steps.getTransitionRewards(step);
 	}
 
 	@Override
@@ -471,7 +515,7 @@ public class PathFull extends Path implements PathFullInfo
 		int n = (int) nLong;
 		// Loop
 		for (int i = 1; i <= n; i++) {
-			displayer.step(getTime(i - 1), getCumulativeTime(i), getModuleOrAction(i - 1), getProbability(i - 1), getTransitionRewards(i), i, getState(i),
+			displayer.step(getTime(i - 1), getCumulativeTime(i), getModuleOrAction(i - 1), getProbability(i - 1), getTransitionRewards(i - 1), i, getState(i),
 					getStateRewards(i));
 		}
 		displayer.end();
@@ -528,46 +572,6 @@ public class PathFull extends Path implements PathFullInfo
 		return s;
 	}
 
-	/**
-	 * Inner class to store info about a single path step.
-	 */
-	class Step
-	{
-		public Step()
-		{
-			// Set (unknown) defaults and initialise arrays
-			state = null;
-			stateRewards = new double[numRewardStructs];
-			timeCumul = 0.0;
-			rewardsCumul = new double[numRewardStructs];
-			time = 0.0;
-			choice = -1;
-			moduleOrActionIndex = 0;
-			probability = 0.0;
-			transitionRewards = new double[numRewardStructs];
-		}
-
-		// Current state (before transition)
-		public State state;
-		// State rewards for current state
-		public double stateRewards[];
-		// Cumulative time spent up until entering this state
-		public double timeCumul;
-		// Cumulative rewards spent up until entering this state
-		public double rewardsCumul[];
-		// Time spent in state
-		public double time;
-		// Index of the choice taken
-		public int choice;
-		// Action label taken (i.e. the index in the model's list of all actions).
-		// This is 1-indexed, with 0 denoting an independent ("tau"-labelled) command.
-		public int moduleOrActionIndex;
-		// Probability or rate of step
-		public double probability;
-		// Transition rewards associated with step
-		public double transitionRewards[];
-	}
-
 	class DisplayThread extends Thread
 	{
 		private PathDisplayer displayer = null;
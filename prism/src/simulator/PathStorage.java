@@ -0,0 +1,508 @@
+//==============================================================================
+//	
+//	Copyright (c) 2002-
+//	Authors:
+//	* Dave Parker <d.a.parker@cs.bham.ac.uk> (University of Birmingham/Oxford)
+//	
+//------------------------------------------------------------------------------
+//	
+//	This file is part of PRISM.
+//	
+//	PRISM is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//	
+//	PRISM is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//	
+//	You should have received a copy of the GNU General Public License
+//	along with PRISM; if not, write to the Free Software Foundation,
+//	Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+//	
+//==============================================================================
+
+package simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import parser.State;
+
+/**
+ * Columnar storage for the steps of a {@link PathFull}.
+ * <br><br>
+ * Rather than an object per step (with a {@link State} and several arrays),
+ * steps are stored in fixed-size chunks, each of which holds one primitive column
+ * per variable (values encoded as ints, Booleans as 0/1), per reward structure
+ * (state, cumulative and transition rewards) and for the time, cumulative time,
+ * probability, choice and module/action index of the step.
+ * Random access to any step is preserved. The first chunk is allocated when first needed
+ * and starts small, growing up to the full chunk size, so that short paths need little memory.
+ * <br><br>
+ * Optionally (see {@link #setMaxStepsInMemory(int)}), older chunks are spilled
+ * to a temporary, memory-mapped file, so that very long paths are not limited by heap size.
+ */
+public class PathStorage
+{
+	/** Log2 of number of steps per chunk */
+	private static final int CHUNK_BITS = 12;
+	/** Number of steps per chunk */
+	public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/** Initial number of steps in the first chunk */
+	private static final int INITIAL_CHUNK_SIZE = 64;
+
+	// Info about what is stored
+	private int numVars;
+	private boolean varIsBool[];
+	private int numRewardStructs;
+
+	// Offsets of columns within a chunk, in bytes per step (i.e. the byte offset
+	// of a column in a chunk of c steps is its offset here times c)
+	private int offVars;
+	private int offChoice;
+	private int offModuleOrAction;
+	private int offTime;
+	private int offTimeCumul;
+	private int offProbability;
+	private int offStateRewards;
+	private int offRewardsCumul;
+	private int offTransitionRewards;
+	private int bytesPerStep;
+	private int chunkBytes;
+	// Offsets/widths of the individual columns (one per reward structure/variable), for copying
+	private int colOffs[];
+	private int colWidths[];
+
+	// The chunks (those with index < numSpilled are memory-mapped, the rest are on the heap)
+	private ArrayList<ByteBuffer> chunks;
+	private int numSpilled;
+	// Number of steps that the first chunk can hold (if there is more than one chunk, this is CHUNK_SIZE)
+	private int firstChunkSteps;
+	// Offset of step 0 within the first chunk
+	private int start;
+	// Number of steps stored
+	private int numSteps;
+
+	// Spilling to file: max number of steps in memory (0 = never spill), file and current position
+	private int maxStepsInMemory = 0;
+	private File spillFile;
+	private RandomAccessFile spillRaf;
+	private long spillPos;
+
+	/**
+	 * Create storage for a path.
+	 * @param varIsBool For each variable, whether it is Boolean (otherwise it is an integer)
+	 * @param numRewardStructs The number of reward structures
+	 */
+	public PathStorage(boolean varIsBool[], int numRewardStructs)
+	{
+		this.numVars = varIsBool.length;
+		this.varIsBool = varIsBool.clone();
+		this.numRewardStructs = numRewardStructs;
+		// Compute column layout (doubles first, for alignment)
+		int numCols = 3 + 3 * numRewardStructs + 2 + numVars;
+		colOffs = new int[numCols];
+		colWidths = new int[numCols];
+		int off = 0, col = 0;
+		offTime = off;
+		off = addColumns(off, col, 8, 1);
+		col += 1;
+		offTimeCumul = off;
+		off = addColumns(off, col, 8, 1);
+		col += 1;
+		offProbability = off;
+		off = addColumns(off, col, 8, 1);
+		col += 1;
+		offStateRewards = off;
+		off = addColumns(off, col, 8, numRewardStructs);
+		col += numRewardStructs;
+		offRewardsCumul = off;
+		off = addColumns(off, col, 8, numRewardStructs);
+		col += numRewardStructs;
+		offTransitionRewards = off;
+		off = addColumns(off, col, 8, numRewardStructs);
+		col += numRewardStructs;
+		offChoice = off;
+		off = addColumns(off, col, 4, 1);
+		col += 1;
+		offModuleOrAction = off;
+		off = addColumns(off, col, 4, 1);
+		col += 1;
+		offVars = off;
+		off = addColumns(off, col, 4, numVars);
+		bytesPerStep = off;
+		chunkBytes = bytesPerStep * CHUNK_SIZE;
+		chunks = new ArrayList<>();
+		clear();
+	}
+
+	/**
+	 * Add {@code n} columns of {@code width} bytes, starting at (per-step) offset {@code off}
+	 * and column index {@code col}, returning the offset following them.
+	 */
+	private int addColumns(int off, int col, int width, int n)
+	{
+		for (int j = 0; j < n; j++) {
+			colOffs[col + j] = off;
+			colWidths[col + j] = width;
+			off += width;
+		}
+		return off;
+	}
+
+	/**
+	 * Set the maximum number of steps to keep in memory (on the heap);
+	 * older steps are then moved to a temporary memory-mapped file.
+	 * 0 (the default) means never spill to disk.
+	 */
+	public void setMaxStepsInMemory(int maxStepsInMemory)
+	{
+		this.maxStepsInMemory = maxStepsInMemory;
+	}
+
+	/**
+	 * Get the maximum number of steps to keep in memory (0 means no limit).
+	 */
+	public int getMaxStepsInMemory()
+	{
+		return maxStepsInMemory;
+	}
+
+	/**
+	 * Get the number of steps currently spilled to disk.
+	 */
+	public long getNumStepsSpilled()
+	{
+		return numSpilled == 0 ? 0 : (long) numSpilled * CHUNK_SIZE - start;
+	}
+
+	/**
+	 * Remove all steps.
+	 */
+	public void clear()
+	{
+		chunks.clear();
+		firstChunkSteps = 0;
+		numSpilled = 0;
+		start = 0;
+		numSteps = 0;
+		// Space in the spill file (if any) can be reused
+		spillPos = 0;
+	}
+
+	/**
+	 * Release any resources (i.e. the spill file), and remove all steps.
+	 */
+	public void close()
+	{
+		clear();
+		if (spillRaf != null) {
+			try {
+				spillRaf.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+			spillRaf = null;
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * Get the number of steps stored.
+	 */
+	public int size()
+	{
+		return numSteps;
+	}
+
+	/**
+	 * Add a new step at the end, with all values 0, apart from the choice (-1).
+	 * Returns the index of the new step.
+	 */
+	public int addStep()
+	{
+		int pos = start + numSteps;
+		if ((pos >> CHUNK_BITS) == 0 && pos >= firstChunkSteps) {
+			growFirstChunk(firstChunkSteps == 0 ? INITIAL_CHUNK_SIZE : Math.min(2 * firstChunkSteps, CHUNK_SIZE));
+		} else if ((pos >> CHUNK_BITS) == chunks.size()) {
+			chunks.add(ByteBuffer.allocate(chunkBytes));
+			spillIfNeeded();
+		} else {
+			// Reusing space (after truncation): reset values
+			clearStep(numSteps);
+		}
+		setChoice(numSteps, -1);
+		return numSteps++;
+	}
+
+	/**
+	 * Remove all steps with index {@code n} or higher.
+	 */
+	public void truncate(int n)
+	{
+		if (n >= numSteps)
+			return;
+		numSteps = n;
+		// Remove chunks no longer needed (but always keep the first)
+		int numChunks = Math.max(1, ((start + numSteps - 1) >> CHUNK_BITS) + 1);
+		while (chunks.size() > numChunks)
+			chunks.remove(chunks.size() - 1);
+		numSpilled = Math.min(numSpilled, chunks.size());
+	}
+
+	/**
+	 * Remove the first {@code n} steps, so that step {@code n} becomes step 0.
+	 */
+	public void removePrefix(int n)
+	{
+		start += n;
+		numSteps -= n;
+		// Drop chunks that are no longer needed
+		while (start >= CHUNK_SIZE && chunks.size() > 1) {
+			chunks.remove(0);
+			if (numSpilled > 0)
+				numSpilled--;
+			start -= CHUNK_SIZE;
+		}
+	}
+
+	// Setters
+
+	/**
+	 * Store the variable values of a state at step {@code step}.
+	 */
+	public void setState(int step, State state)
+	{
+		ByteBuffer buf = chunk(step);
+		Object vals[] = state.varValues;
+		for (int v = 0; v < numVars; v++) {
+			Object o = vals[v];
+			int x = (o instanceof Integer) ? ((Integer) o).intValue() : (((Boolean) o).booleanValue() ? 1 : 0);
+			buf.putInt(pos(step, offVars, 4, v), x);
+		}
+	}
+
+	public void setChoice(int step, int choice)
+	{
+		chunk(step).putInt(pos(step, offChoice, 4, 0), choice);
+	}
+
+	public void setModuleOrActionIndex(int step, int moduleOrActionIndex)
+	{
+		chunk(step).putInt(pos(step, offModuleOrAction, 4, 0), moduleOrActionIndex);
+	}
+
+	public void setTime(int step, double time)
+	{
+		chunk(step).putDouble(pos(step, offTime, 8, 0), time);
+	}
+
+	public void setCumulativeTime(int step, double timeCumul)
+	{
+		chunk(step).putDouble(pos(step, offTimeCumul, 8, 0), timeCumul);
+	}
+
+	public void setProbability(int step, double probability)
+	{
+		chunk(step).putDouble(pos(step, offProbability, 8, 0), probability);
+	}
+
+	public void setStateReward(int step, int rsi, double reward)
+	{
+		chunk(step).putDouble(pos(step, offStateRewards, 8, rsi), reward);
+	}
+
+	public void setCumulativeReward(int step, int rsi, double reward)
+	{
+		chunk(step).putDouble(pos(step, offRewardsCumul, 8, rsi), reward);
+	}
+
+	public void setTransitionReward(int step, int rsi, double reward)
+	{
+		chunk(step).putDouble(pos(step, offTransitionRewards, 8, rsi), reward);
+	}
+
+	// Getters
+
+	/**
+	 * Get (a new State object containing) the variable values at step {@code step}.
+	 */
+	public State getState(int step)
+	{
+		State state = new State(numVars);
+		for (int v = 0; v < numVars; v++) {
+			state.varValues[v] = getVarValue(step, v);
+		}
+		return state;
+	}
+
+	/**
+	 * Get the value of variable {@code v} at step {@code step}.
+	 */
+	public Object getVarValue(int step, int v)
+	{
+		int x = chunk(step).getInt(pos(step, offVars, 4, v));
+		return varIsBool[v] ? (Object) Boolean.valueOf(x != 0) : (Object) Integer.valueOf(x);
+	}
+
+	public int getChoice(int step)
+	{
+		return chunk(step).getInt(pos(step, offChoice, 4, 0));
+	}
+
+	public int getModuleOrActionIndex(int step)
+	{
+		return chunk(step).getInt(pos(step, offModuleOrAction, 4, 0));
+	}
+
+	public double getTime(int step)
+	{
+		return chunk(step).getDouble(pos(step, offTime, 8, 0));
+	}
+
+	public double getCumulativeTime(int step)
+	{
+		return chunk(step).getDouble(pos(step, offTimeCumul, 8, 0));
+	}
+
+	public double getProbability(int step)
+	{
+		return chunk(step).getDouble(pos(step, offProbability, 8, 0));
+	}
+
+	public double getStateReward(int step, int rsi)
+	{
+		return chunk(step).getDouble(pos(step, offStateRewards, 8, rsi));
+	}
+
+	public double getCumulativeReward(int step, int rsi)
+	{
+		return chunk(step).getDouble(pos(step, offRewardsCumul, 8, rsi));
+	}
+
+	public double getTransitionReward(int step, int rsi)
+	{
+		return chunk(step).getDouble(pos(step, offTransitionRewards, 8, rsi));
+	}
+
+	/**
+	 * Get (a new array containing) the state rewards at step {@code step}.
+	 */
+	public double[] getStateRewards(int step)
+	{
+		double res[] = new double[numRewardStructs];
+		for (int r = 0; r < numRewardStructs; r++)
+			res[r] = getStateReward(step, r);
+		return res;
+	}
+
+	/**
+	 * Get (a new array containing) the transition rewards at step {@code step}.
+	 */
+	public double[] getTransitionRewards(int step)
+	{
+		double res[] = new double[numRewardStructs];
+		for (int r = 0; r < numRewardStructs; r++)
+			res[r] = getTransitionReward(step, r);
+		return res;
+	}
+
+	// Private helpers
+
+	private ByteBuffer chunk(int step)
+	{
+		return chunks.get((start + step) >> CHUNK_BITS);
+	}
+
+	private int index(int step)
+	{
+		return (start + step) & CHUNK_MASK;
+	}
+
+	/**
+	 * Get the byte position, within its chunk, of the value for step {@code step}
+	 * in the {@code sub}th column (of {@code width} bytes) at (per-step) offset {@code off}.
+	 */
+	private int pos(int step, int off, int width, int sub)
+	{
+		int cap = ((start + step) >> CHUNK_BITS) == 0 ? firstChunkSteps : CHUNK_SIZE;
+		return (off + width * sub) * cap + width * index(step);
+	}
+
+	/**
+	 * (Re)allocate the first chunk (the only one, at this point) to hold {@code newSteps} steps,
+	 * copying across any existing values.
+	 */
+	private void growFirstChunk(int newSteps)
+	{
+		ByteBuffer buf = ByteBuffer.allocate(bytesPerStep * newSteps);
+		if (!chunks.isEmpty()) {
+			byte oldArray[] = chunks.get(0).array();
+			for (int j = 0; j < colOffs.length; j++) {
+				System.arraycopy(oldArray, colOffs[j] * firstChunkSteps, buf.array(), colOffs[j] * newSteps, colWidths[j] * firstChunkSteps);
+			}
+			chunks.set(0, buf);
+		} else {
+			chunks.add(buf);
+		}
+		firstChunkSteps = newSteps;
+	}
+
+	/**
+	 * Reset all values for a step to 0.
+	 */
+	private void clearStep(int step)
+	{
+		setTime(step, 0.0);
+		setCumulativeTime(step, 0.0);
+		setProbability(step, 0.0);
+		for (int r = 0; r < numRewardStructs; r++) {
+			setStateReward(step, r, 0.0);
+			setCumulativeReward(step, r, 0.0);
+			setTransitionReward(step, r, 0.0);
+		}
+		setModuleOrActionIndex(step, 0);
+		ByteBuffer buf = chunk(step);
+		for (int v = 0; v < numVars; v++)
+			buf.putInt(pos(step, offVars, 4, v), 0);
+	}
+
+	/**
+	 * If there are too many steps on the heap, move the oldest chunks (but never the last) to the spill file.
+	 */
+	private void spillIfNeeded()
+	{
+		if (maxStepsInMemory <= 0)
+			return;
+		while (chunks.size() - numSpilled > 1 && (long) (chunks.size() - numSpilled) * CHUNK_SIZE > maxStepsInMemory) {
+			try {
+				if (spillRaf == null) {
+					spillFile = File.createTempFile("prism-path", ".tmp");
+					spillFile.deleteOnExit();
+					spillRaf = new RandomAccessFile(spillFile, "rw");
+				}
+				ByteBuffer mapped = spillRaf.getChannel().map(FileChannel.MapMode.READ_WRITE, spillPos, chunkBytes);
+				ByteBuffer heap = chunks.get(numSpilled);
+				heap.clear();
+				mapped.put(heap);
+				mapped.clear();
+				chunks.set(numSpilled, mapped);
+				numSpilled++;
+				spillPos += chunkBytes;
+			} catch (IOException e) {
+				// If the file cannot be used, just keep everything in memory
+				maxStepsInMemory = 0;
+				return;
+			}
+		}
+	}
+}
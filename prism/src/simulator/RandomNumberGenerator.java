@@ -54,6 +54,27 @@ public class RandomNumberGenerator
 		exponential = new Exponential(1.0, random);
 	}
 
+	/**
+	 * Create a new random number generator, with the specified seed
+	 * (so that the sequence of numbers generated is reproducible).
+	 */
+	public RandomNumberGenerator(int seed)
+	{
+		random = new MersenneTwister(seed);
+		uniform = new Uniform(random);
+		// Create exponential generator (rate 1.0 but this is ignored from now on)
+		exponential = new Exponential(1.0, random);
+	}
+
+	/**
+	 * Pick a (uniformly distributed) random integer, from the full range of int values,
+	 * e.g. for use as the seed of another generator.
+	 */
+	public int randomInt()
+	{
+		return random.nextInt();
+	}
+
 	/**
 	 * Pick a (uniformly distributed) random integer in the range [0,...,n-1].
 	 */
@@ -28,6 +28,7 @@ package simulator;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import parser.State;
@@ -48,6 +49,7 @@ import prism.PrismException;
 import prism.PrismFileLog;
 import prism.PrismLangException;
 import prism.PrismLog;
+import prism.PrismSettings;
 import prism.PrismUtils;
 import prism.ResultsCollection;
 import prism.UndefinedConstants;
@@ -196,10 +198,15 @@ public class SimulatorEngine extends PrismComponent
 	 */
 	public void createNewPath(ModulesFile modulesFile) throws PrismException
 	{
+		// Discard any existing path
+		discardPath();
 		// Store model
 		loadModulesFile(modulesFile);
 		// Create empty (full) path object associated with this model
-		path = new PathFull(modulesFile);
+		PathFull pathFull = new PathFull(modulesFile);
+		if (settings != null)
+			pathFull.setMaxStepsInMemory(settings.getInteger(PrismSettings.SIMULATOR_PATH_SPILL_STEPS));
+		path = pathFull;
 		onTheFly = false;
 	}
 
@@ -210,6 +217,8 @@ public class SimulatorEngine extends PrismComponent
 	 */
 	public void createNewOnTheFlyPath(ModulesFile modulesFile) throws PrismException
 	{
+		// Discard any existing path
+		discardPath();
 		// Store model
 		loadModulesFile(modulesFile);
 		// Create empty (on-the-fly_ path object associated with this model
@@ -217,6 +226,16 @@ public class SimulatorEngine extends PrismComponent
 		onTheFly = true;
 	}
 
+	/**
+	 * Discard the current path (if any), releasing any resources it holds.
+	 */
+	private void discardPath()
+	{
+		if (path instanceof PathFull)
+			((PathFull) path).clear();
+		path = null;
+	}
+
 	/**
 	 * Initialise (or re-initialise) the simulation path, starting with a specific (or random) initial state.
 	 * @param initialState Initial state (if null, use default, selecting randomly if needed)
@@ -1680,6 +1699,9 @@ public class SimulatorEngine extends PrismComponent
 	 * Sample paths are from the specified initial state and maximum length.
 	 * Termination of the sampling process occurs when the SimulationMethod object
 	 * for all properties indicate that it is finished.
+	 * If more than one thread is requested (see {@link PrismSettings#PRISM_NUM_THREADS}),
+	 * paths are generated in parallel (see {@link ParallelPathGenerator}) but the
+	 * statistics for each property are still updated (and checked) one path at a time.
 	 * @param initialState Initial state (if null, is selected randomly)
 	 * @param maxPathLength The maximum path length for sampling
 	 */
@@ -1692,7 +1714,6 @@ public class SimulatorEngine extends PrismComponent
 		boolean deadlocksFound = false;
 		boolean allDone = false;
 		boolean allKnown = false;
-		boolean someUnknownButBounded = false;
 		boolean shouldStopSampling = false;
 		// Path stats
 		double avgPathLength = 0;
@@ -1703,82 +1724,90 @@ public class SimulatorEngine extends PrismComponent
 		// Timing info
 		long start, stop;
 		double time_taken;
+		// Parallel path generation
+		int numThreads = settings == null ? 1 : settings.getInteger(PrismSettings.PRISM_NUM_THREADS);
+		int seed = settings == null ? 0 : settings.getInteger(PrismSettings.SIMULATOR_SEED);
+		ParallelPathGenerator generator = null;
+		// Random number generator, restored afterwards if replaced by a seeded one
+		RandomNumberGenerator savedRng = rng;
 
 		// Start
 		start = System.currentTimeMillis();
+		if (numThreads > 1) {
+			mainLog.println("\nGenerating sample paths using " + numThreads + " threads");
+			generator = new ParallelPathGenerator(this, modulesFile, properties, initialState, maxPathLength, settings.getThreadPool(), seed);
+		}
 		mainLog.print("\nSampling progress: [");
 		mainLog.flush();
 
 		// Main sampling loop
 		iters = 0;
-		while (!shouldStopSampling) {
-
-			// See if all properties are done; if so, stop sampling
-			allDone = true;
-			for (Sampler sampler : propertySamplers) {
-				if (!sampler.getSimulationMethod().shouldStopNow(iters, sampler))
-					allDone = false;
+		try {
+			if (generator == null && seed != 0) {
+				rng = new RandomNumberGenerator(seed);
 			}
-			if (allDone)
-				break;
+			while (!shouldStopSampling) {
 
-			// Display progress (of slowest property)
-			percentageDone = 100;
-			for (Sampler sampler : propertySamplers) {
-				percentageDone = Math.min(percentageDone, sampler.getSimulationMethod().getProgress(iters, sampler));
-			}
-			if (percentageDone > lastPercentageDone) {
-				lastPercentageDone = percentageDone;
-				mainLog.print(" " + lastPercentageDone + "%");
-				mainLog.flush();
-			}
+				// See if all properties are done; if so, stop sampling
+				allDone = true;
+				for (Sampler sampler : propertySamplers) {
+					if (!sampler.getSimulationMethod().shouldStopNow(iters, sampler))
+						allDone = false;
+				}
+				if (allDone)
+					break;
 
-			iters++;
+				// Display progress (of slowest property)
+				percentageDone = 100;
+				for (Sampler sampler : propertySamplers) {
+					percentageDone = Math.min(percentageDone, sampler.getSimulationMethod().getProgress(iters, sampler));
+				}
+				if (percentageDone > lastPercentageDone) {
+					lastPercentageDone = percentageDone;
+					mainLog.print(" " + lastPercentageDone + "%");
+					mainLog.flush();
+				}
 
-			// Start the new path for this iteration (sample)
-			initialisePath(initialState);
+				iters++;
 
-			// Generate a path
-			allKnown = false;
-			someUnknownButBounded = false;
-			i = 0;
-			while ((!allKnown && i < maxPathLength) || someUnknownButBounded) {
-				// Check status of samplers
-				allKnown = true;
-				someUnknownButBounded = false;
-				for (Sampler sampler : propertySamplers) {
-					if (!sampler.isCurrentValueKnown()) {
-						allKnown = false;
-						if (sampler.needsBoundedNumSteps())
-							someUnknownButBounded = true;
-					}
+				// Generate a path for this iteration (sample),
+				// or get the next one from the parallel generator
+				if (generator == null) {
+					i = generateSamplePath(initialState, maxPathLength);
+					allKnown = allSamplerValuesKnown();
+				} else {
+					i = generator.nextPath();
+					allKnown = generator.allValuesKnown();
 				}
-				// Stop when all answers are known or we have reached max path length
-				// (but don't stop yet if there are "bounded" samplers with unkown values)
-				if ((allKnown || i >= maxPathLength) && !someUnknownButBounded)
-					break;
-				// Make a random transition
-				automaticTransition();
-				i++;
-			}
 
-			// TODO: Detect deadlocks so we can report a warning
+				// TODO: Detect deadlocks so we can report a warning
 
-			// Update path length statistics
-			avgPathLength = (avgPathLength * (iters - 1) + (i)) / iters;
-			minPathFound = (iters == 1) ? i : Math.min(minPathFound, i);
-			maxPathFound = (iters == 1) ? i : Math.max(maxPathFound, i);
+				// Update path length statistics
+				avgPathLength = (avgPathLength * (iters - 1) + (i)) / iters;
+				minPathFound = (iters == 1) ? i : Math.min(minPathFound, i);
+				maxPathFound = (iters == 1) ? i : Math.max(maxPathFound, i);
 
-			// If not all samplers could produce values, this an error
-			if (!allKnown) {
-				stoppedEarly = true;
-				break;
-			}
+				// If not all samplers could produce values, this an error
+				if (!allKnown) {
+					stoppedEarly = true;
+					break;
+				}
 
-			// Update state of samplers based on last path
-			for (Sampler sampler : propertySamplers) {
-				sampler.updateStats();
+				// Update state of samplers based on last path
+				if (generator == null) {
+					for (Sampler sampler : propertySamplers) {
+						sampler.updateStats();
+					}
+				} else {
+					for (int j = 0; j < propertySamplers.size(); j++) {
+						propertySamplers.get(j).updateStats(generator.getValue(j));
+					}
+				}
 			}
+		} finally {
+			if (generator != null)
+				generator.shutdown();
+			rng = savedRng;
 		}
 
 		// Print details
@@ -1792,6 +1821,7 @@ public class SimulatorEngine extends PrismComponent
 			mainLog.print(iters + " iterations in " + time_taken + " seconds (average " + PrismUtils.formatDouble(2, time_taken / iters) + ")\n");
 			mainLog.print(
 					"Path length statistics: average " + PrismUtils.formatDouble(2, avgPathLength) + ", min " + minPathFound + ", max " + maxPathFound + "\n");
+			mainLog.print(Updater.getExploredCommandsInfo(generator == null ? Collections.singletonList(updater) : generator.getUpdaters()) + "\n");
 		} else {
 			mainLog.print(" ...\n\nSampling terminated early after " + iters + " iterations.\n");
 		}
@@ -1813,6 +1843,66 @@ public class SimulatorEngine extends PrismComponent
 		}
 	}
 
+	/**
+	 * Generate a new sample path, starting from the specified initial state,
+	 * until the values of all samplers are known or the maximum path length is reached
+	 * (but continuing if there are "bounded" samplers with unknown values).
+	 * Returns the length of the path.
+	 * @param initialState Initial state (if null, is selected randomly)
+	 * @param maxPathLength The maximum path length for sampling
+	 */
+	long generateSamplePath(State initialState, long maxPathLength) throws PrismException
+	{
+		boolean allKnown = false;
+		boolean someUnknownButBounded = false;
+		long i = 0;
+
+		// Start the new path
+		initialisePath(initialState);
+
+		// Generate a path
+		while ((!allKnown && i < maxPathLength) || someUnknownButBounded) {
+			// Check status of samplers
+			allKnown = true;
+			someUnknownButBounded = false;
+			for (Sampler sampler : propertySamplers) {
+				if (!sampler.isCurrentValueKnown()) {
+					allKnown = false;
+					if (sampler.needsBoundedNumSteps())
+						someUnknownButBounded = true;
+				}
+			}
+			// Stop when all answers are known or we have reached max path length
+			// (but don't stop yet if there are "bounded" samplers with unkown values)
+			if ((allKnown || i >= maxPathLength) && !someUnknownButBounded)
+				break;
+			// Make a random transition
+			automaticTransition();
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Are the values of all samplers known, for the current path?
+	 */
+	boolean allSamplerValuesKnown()
+	{
+		for (Sampler sampler : propertySamplers) {
+			if (!sampler.isCurrentValueKnown())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Set the random number generator used for (automatic) transitions.
+	 */
+	void setRandomNumberGenerator(RandomNumberGenerator rng)
+	{
+		this.rng = rng;
+	}
+
 	/**
 	 * Halt the sampling algorithm in its tracks (not implemented).
 	 */
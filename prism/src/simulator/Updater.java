@@ -34,17 +34,16 @@ import java.util.Vector;
 
 import parser.State;
 import parser.VarList;
-import parser.ast.Command;
 import parser.ast.Module;
 import parser.ast.ModulesFile;
 import parser.ast.RewardStruct;
-import parser.ast.Update;
 import parser.ast.Updates;
 import prism.ModelType;
 import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismLangException;
 import prism.PrismSettings;
+import prism.PrismUtils;
 
 public class Updater extends PrismComponent
 {
@@ -65,12 +64,20 @@ public class Updater extends PrismComponent
 	protected int synchModuleCounts[];
 	// Model info/stats
 	protected int numRewardStructs;
+	// Compiled versions of commands (element i,j is the jth command of module i)
+	protected CompiledCommand compiledCommands[][];
+	// Index of each module's commands, to avoid evaluating guards known to be false
+	protected GuardIndex guardIndexes[];
+	// Compiled versions of reward structure guards/rewards
+	// (element i,j is for the jth item of reward structure i)
+	protected CompiledExpression compiledRewardGuards[][];
+	protected CompiledExpression compiledRewards[][];
 
 	// Temporary storage:
 
-	// Element i,j of updateLists is a list of the updates from module i labelled with action j
+	// Element i,j of updateLists is a list of the (enabled) commands from module i labelled with action j
 	// (where j=0 denotes independent, otherwise 1-indexed action label)
-	protected List<List<List<Updates>>> updateLists;
+	protected List<List<List<CompiledCommand>>> updateLists;
 	// Bit j of enabledSynchs is set iff action j is currently enabled
 	// (where j=0 denotes independent, otherwise 1-indexed action label)
 	protected BitSet enabledSynchs;
@@ -78,6 +85,10 @@ public class Updater extends PrismComponent
 	// (where j=0 denotes independent, otherwise 1-indexed action label)
 	protected BitSet enabledModules[];
 
+	// Statistics: number of states explored and of guards evaluated
+	protected long numStatesExplored;
+	protected long numGuardsEvaluated;
+
 	public Updater(ModulesFile modulesFile, VarList varList)
 	{
 		this(modulesFile, varList, null);
@@ -115,12 +126,39 @@ public class Updater extends PrismComponent
 			}
 		}
 
+		// Compile guards, probabilities/rates, updates and rewards
+		compiledCommands = new CompiledCommand[numModules][];
+		for (int i = 0; i < numModules; i++) {
+			Module module = modulesFile.getModule(i);
+			int n = module.getNumCommands();
+			compiledCommands[i] = new CompiledCommand[n];
+			for (int j = 0; j < n; j++) {
+				compiledCommands[i][j] = new CompiledCommand(module.getCommand(j));
+			}
+		}
+		guardIndexes = new GuardIndex[numModules];
+		for (int i = 0; i < numModules; i++) {
+			guardIndexes[i] = new GuardIndex(compiledCommands[i], varList);
+		}
+		compiledRewardGuards = new CompiledExpression[numRewardStructs][];
+		compiledRewards = new CompiledExpression[numRewardStructs][];
+		for (int i = 0; i < numRewardStructs; i++) {
+			RewardStruct rw = modulesFile.getRewardStruct(i);
+			int n = rw.getNumItems();
+			compiledRewardGuards[i] = new CompiledExpression[n];
+			compiledRewards[i] = new CompiledExpression[n];
+			for (int j = 0; j < n; j++) {
+				compiledRewardGuards[i][j] = CompiledExpression.compile(rw.getStates(j));
+				compiledRewards[i][j] = CompiledExpression.compile(rw.getReward(j));
+			}
+		}
+
 		// Build lists/bitsets for later use
-updateLists = new ArrayList<>(numModules);
+		updateLists = new ArrayList<>(numModules);
 		for (int i = 0; i < numModules; i++) {
-			updateLists.add(new ArrayList<List<Updates>>(numSynchs + 1));
+			updateLists.add(new ArrayList<List<CompiledCommand>>(numSynchs + 1));
 			for (int j = 0; j < numSynchs + 1; j++) {
-				updateLists.get(i).add(new ArrayList<Updates>());
+				updateLists.get(i).add(new ArrayList<CompiledCommand>());
 			}
 		}
 		enabledSynchs = new BitSet(numSynchs + 1);
@@ -170,6 +208,7 @@ updateLists = new ArrayList<>(numModules);
 
 		// Calculate the available updates for each module/action
 		// (update information in updateLists, enabledSynchs and enabledModules)
+		numStatesExplored++;
 		for (i = 0; i < numModules; i++) {
 			calculateUpdatesForModule(i, state);
 		}
@@ -177,8 +216,8 @@ updateLists = new ArrayList<>(numModules);
 
 		// Add independent transitions for each (enabled) module to list
 		for (i = enabledModules[0].nextSetBit(0); i >= 0; i = enabledModules[0].nextSetBit(i + 1)) {
-			for (Updates ups : updateLists.get(i).get(0)) {
-				ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(-(i + 1), ups, state);
+			for (CompiledCommand cmd : updateLists.get(i).get(0)) {
+				ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(-(i + 1), cmd, state);
 				if (ch.size() > 0)
 					transitionList.add(ch);
 			}
@@ -195,10 +234,10 @@ updateLists = new ArrayList<>(numModules);
 				count = updateLists.get(j).get(i).size();
 				// Case where there is only 1 Updates for this module
 				if (count == 1) {
-					Updates ups = updateLists.get(j).get(i).get(0);
+					CompiledCommand cmd = updateLists.get(j).get(i).get(0);
 					// Case where this is the first Choice created
 					if (chs.size() == 0) {
-						ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(i, ups, state);
+						ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(i, cmd, state);
 						if (ch.size() > 0)
 							chs.add(ch);
 					}
@@ -206,7 +245,7 @@ updateLists = new ArrayList<>(numModules);
 					else {
 						// Product with all existing choices
 						for (ChoiceListFlexi ch : chs) {
-							processUpdatesAndAddToProduct(ups, state, ch);
+							processUpdatesAndAddToProduct(cmd, state, ch);
 						}
 					}
 				}
@@ -214,8 +253,8 @@ updateLists = new ArrayList<>(numModules);
 				else {
 					// Case where there are no existing choices
 					if (chs.size() == 0) {
-						for (Updates ups : updateLists.get(j).get(i)) {
-							ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(i, ups, state);
+						for (CompiledCommand cmd : updateLists.get(j).get(i)) {
+							ChoiceListFlexi ch = processUpdatesAndCreateNewChoice(i, cmd, state);
 							if (ch.size() > 0)
 								chs.add(ch);
 						}
@@ -229,9 +268,9 @@ updateLists = new ArrayList<>(numModules);
 								chs.add(new ChoiceListFlexi(chs.get(l)));
 						// Products with existing choices
 						for (k = 0; k < count; k++) {
-							Updates ups = updateLists.get(j).get(i).get(k);
+							CompiledCommand cmd = updateLists.get(j).get(i).get(k);
 							for (l = 0; l < n; l++) {
-								processUpdatesAndAddToProduct(ups, state, chs.get(k * n + l));
+								processUpdatesAndAddToProduct(cmd, state, chs.get(k * n + l));
 							}
 						}
 					}
@@ -277,13 +316,35 @@ updateLists = new ArrayList<>(numModules);
 			d = 0.0;
 			for (j = 0; j < n; j++) {
 				if (!rw.getRewardStructItem(j).isTransitionReward())
-					if (rw.getStates(j).evaluateBoolean(state))
-						d += rw.getReward(j).evaluateDouble(state);
+					if (compiledRewardGuards[i][j].evaluateBoolean(state))
+						d += compiledRewards[i][j].evaluateDouble(state);
 			}
 			store[i] = d;
 		}
 	}
 
+	/**
+	 * Calculate the state reward for a given state and a single reward structure.
+	 * Unlike {@link #calculateStateRewards(State, double[])}, this checks for NaN rewards.
+	 * @param r The index of the reward structure
+	 * @param state The state to compute rewards for
+	 */
+	public double calculateStateReward(int r, State state) throws PrismLangException
+	{
+		RewardStruct rw = modulesFile.getRewardStruct(r);
+		int n = rw.getNumItems();
+		double d = 0.0;
+		for (int j = 0; j < n; j++) {
+			if (compiledRewardGuards[r][j].evaluateBoolean(state)) {
+				double rew = compiledRewards[r][j].evaluateDouble(state);
+				if (Double.isNaN(rew))
+					throw new PrismLangException("Reward structure evaluates to NaN at state " + state, rw.getReward(j));
+				d += rew;
+			}
+		}
+		return d;
+	}
+
 	/**
 	 * Calculate the transition rewards for a given state and outgoing choice.
 	 * @param state The state to compute rewards for
@@ -302,13 +363,70 @@ updateLists = new ArrayList<>(numModules);
 			for (j = 0; j < n; j++) {
 				if (rw.getRewardStructItem(j).isTransitionReward())
 					if (rw.getRewardStructItem(j).getSynchIndex() == Math.max(0, ch.getModuleOrActionIndex()))
-						if (rw.getStates(j).evaluateBoolean(state))
-							d += rw.getReward(j).evaluateDouble(state);
+						if (compiledRewardGuards[i][j].evaluateBoolean(state))
+							d += compiledRewards[i][j].evaluateDouble(state);
 			}
 			store[i] = d;
 		}
 	}
 
+	/**
+	 * Get the total number of commands in the model.
+	 */
+	public int getNumCommands()
+	{
+		int n = 0;
+		for (int i = 0; i < numModules; i++)
+			n += compiledCommands[i].length;
+		return n;
+	}
+
+	/**
+	 * Get the number of modules whose commands are indexed (see {@link GuardIndex}).
+	 */
+	public int getNumIndexedModules()
+	{
+		int n = 0;
+		for (int i = 0; i < numModules; i++)
+			if (guardIndexes[i].isIndexed())
+				n++;
+		return n;
+	}
+
+	/**
+	 * Get the number of states for which transitions have been calculated so far.
+	 */
+	public long getNumStatesExplored()
+	{
+		return numStatesExplored;
+	}
+
+	/**
+	 * Get the number of guards evaluated so far.
+	 */
+	public long getNumGuardsEvaluated()
+	{
+		return numGuardsEvaluated;
+	}
+
+	/**
+	 * Get a description of the explored-commands statistics, aggregated over several updaters
+	 * (e.g. for the copies of a model generator used by different threads).
+	 */
+	public static String getExploredCommandsInfo(List<Updater> updaters)
+	{
+		long states = 0, guards = 0;
+		for (Updater updater : updaters) {
+			states += updater.getNumStatesExplored();
+			guards += updater.getNumGuardsEvaluated();
+		}
+		Updater updater = updaters.get(0);
+		String s = "Explored commands: " + (states == 0 ? 0 : PrismUtils.formatDouble2dp(((double) guards) / states));
+		s += " guards evaluated per state (of " + updater.getNumCommands() + " commands";
+		s += "; " + updater.getNumIndexedModules() + " of " + updater.numModules + " modules indexed)";
+		return s;
+	}
+
 	// Private helpers
 
 	/**
@@ -319,17 +437,18 @@ updateLists = new ArrayList<>(numModules);
 	 */
 	protected void calculateUpdatesForModule(int m, State state) throws PrismLangException
 	{
-		Module module;
-		Command command;
+		CompiledCommand commands[], command;
 		int i, j, n;
 
-		module = modulesFile.getModule(m);
-		n = module.getNumCommands();
+		// Only look at commands whose guards can be true, according to the index
+		commands = guardIndexes[m].getCandidates(state);
+		n = commands.length;
+		numGuardsEvaluated += n;
 		for (i = 0; i < n; i++) {
-			command = module.getCommand(i);
-			if (command.getGuard().evaluateBoolean(state)) {
+			command = commands[i];
+			if (command.isEnabled(state)) {
 				j = command.getSynchIndex();
-				updateLists.get(m).get(j).add(command.getUpdates());
+				updateLists.get(m).get(j).add(command);
 				enabledSynchs.set(j);
 				enabledModules[j].set(m);
 			}
@@ -337,28 +456,28 @@ updateLists = new ArrayList<>(numModules);
 	}
 
 	/**
-	 * Create a new Choice object (currently ChoiceListFlexi) based on an Updates object
+	 * Create a new Choice object (currently ChoiceListFlexi) based on the updates of a (compiled) command
 	 * and a (global) state. Check for negative probabilities/rates and, if appropriate,
 	 * check probabilities sum to 1 too.
 	 * @param moduleOrActionIndex Module/action for the choice, encoded as an integer (see Choice)
-	 * @param ups The Updates object 
+	 * @param cmd The (compiled) command
 	 * @param state Global state
 	 */
-	private ChoiceListFlexi processUpdatesAndCreateNewChoice(int moduleOrActionIndex, Updates ups, State state) throws PrismLangException
+	private ChoiceListFlexi processUpdatesAndCreateNewChoice(int moduleOrActionIndex, CompiledCommand cmd, State state) throws PrismLangException
 	{
 		ChoiceListFlexi ch;
-		List<Update> list;
+		Updates ups = cmd.getUpdates();
 		int i, n;
 		double p, sum;
 
 		// Create choice and add all info
 		ch = new ChoiceListFlexi();
 		ch.setModuleOrActionIndex(moduleOrActionIndex);
-		n = ups.getNumUpdates();
+		n = cmd.getNumUpdates();
 		sum = 0;
 		for (i = 0; i < n; i++) {
 			// Compute probability/rate
-			p = ups.getProbabilityInState(i, state);
+			p = cmd.getProbabilityInState(i, state);
 			// Check for negative/NaN probabilities/rates
 			if (Double.isNaN(p) || p < 0) {
 				String s = modelType.choicesSumToOne() ? "Probability" : "Rate";
@@ -371,9 +490,7 @@ updateLists = new ArrayList<>(numModules);
 			if (p == 0)
 				continue;
 			sum += p;
-			list = new ArrayList<>();
-			list.add(ups.getUpdate(i));
-			ch.add(p, list);
+			ch.add(p, cmd.getUpdate(i));
 		}
 		// For now, PRISM treats empty (all zero probs/rates) distributions as an error.
 		// Later, when errors in symbolic model construction are improved, this might be relaxed.
@@ -392,16 +509,16 @@ updateLists = new ArrayList<>(numModules);
 
 	/**
 	 * Create a new Choice object (currently ChoiceListFlexi) based on the product
-	 * of an existing ChoiceListFlexi and an Updates object, for some (global) state.
+	 * of an existing ChoiceListFlexi and the updates of a (compiled) command, for some (global) state.
 	 * If appropriate, check probabilities sum to 1 too.
-	 * @param ups The Updates object 
+	 * @param cmd The (compiled) command
 	 * @param state Global state
 	 * @param ch The existing Choices object
 	 */
-	private void processUpdatesAndAddToProduct(Updates ups, State state, ChoiceListFlexi ch) throws PrismLangException
+	private void processUpdatesAndAddToProduct(CompiledCommand cmd, State state, ChoiceListFlexi ch) throws PrismLangException
 	{
 		// Create new choice (action index is 0 - not needed)
-		ChoiceListFlexi chNew = processUpdatesAndCreateNewChoice(0, ups, state);
+		ChoiceListFlexi chNew = processUpdatesAndCreateNewChoice(0, cmd, state);
 		// Build product with existing
 		ch.productWith(chNew);
 	}
@@ -87,6 +87,13 @@ public abstract class Sampler
 	 */
 	public abstract void updateStats();
 
+	/**
+	 * Update the statistics for the sampler, for a finished path whose value (as returned by
+	 * {@link #getCurrentValue()}) was computed elsewhere, e.g. by a copy of this sampler
+	 * being used to generate paths in another thread.
+	 */
+	public abstract void updateStats(Object pathValue);
+
 	/**
 	 * Get the current value of the sampler.
 	 */
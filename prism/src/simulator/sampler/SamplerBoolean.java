@@ -68,6 +68,15 @@ public abstract class SamplerBoolean extends Sampler
 			numTrue++;
 	}
 
+	@Override
+	public void updateStats(Object pathValue)
+	{
+		numSamples++;
+		// NB: path values are already adjusted for negation
+		if ((Boolean) pathValue)
+			numTrue++;
+	}
+
 	@Override
 	public Object getCurrentValue()
 	{
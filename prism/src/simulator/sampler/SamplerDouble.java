@@ -81,12 +81,26 @@ public abstract class SamplerDouble extends Sampler
 
 	@Override
 	public void updateStats()
+	{
+		addToStats(value);
+	}
+
+	@Override
+	public void updateStats(Object pathValue)
+	{
+		addToStats((Double) pathValue);
+	}
+
+	/**
+	 * Add the value for a (finished) path to the statistics.
+	 */
+	private void addToStats(double v)
 	{
 		if (numSamples == 0)
-			correctionTerm = value;
-		valueSum += value;
-		valueSumShifted += value - correctionTerm;
-		valueSumShiftedSq += Math.pow(value - correctionTerm, 2);
+			correctionTerm = v;
+		valueSum += v;
+		valueSumShifted += v - correctionTerm;
+		valueSumShiftedSq += Math.pow(v - correctionTerm, 2);
 		numSamples++;
 	}
 